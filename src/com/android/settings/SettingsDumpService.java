@@ -37,9 +37,12 @@ import android.util.Log;
 import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.applications.ProcStatsData;
+import com.android.settings.core.instrumentation.SettingsMetricsFeatureProvider;
 import com.android.settings.datausage.lib.DataUsageLib;
 import com.android.settings.fuelgauge.batterytip.AnomalyConfigJobService;
 import com.android.settings.network.MobileNetworkRepository;
+import com.android.settings.overlay.FeatureFactory;
+import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 import com.android.settingslib.net.DataUsageController;
 
 import org.json.JSONArray;
@@ -68,6 +71,8 @@ public class SettingsDumpService extends Service {
     @VisibleForTesting
     static final String KEY_ANOMALY_DETECTION = "anomaly_detection";
     @VisibleForTesting
+    static final String KEY_INTELLIGENCE_LOG = "intelligence_log";
+    @VisibleForTesting
     static final Intent BROWSER_INTENT =
             new Intent("android.intent.action.VIEW", Uri.parse("http://"));
 
@@ -100,6 +105,7 @@ public class SettingsDumpService extends Service {
                 dump.put(KEY_MEMORY, dumpMemory());
                 dump.put(KEY_DEFAULT_BROWSER_APP, dumpDefaultBrowser());
                 dump.put(KEY_ANOMALY_DETECTION, dumpAnomalyDetection());
+                dump.put(KEY_INTELLIGENCE_LOG, dumpIntelligenceLog());
             } catch (Exception e) {
                 Log.w(TAG, "exception in dump: ", e);
             }
@@ -211,6 +217,17 @@ public class SettingsDumpService extends Service {
         return obj;
     }
 
+    @VisibleForTesting
+    JSONObject dumpIntelligenceLog() throws JSONException {
+        final MetricsFeatureProvider metricsFeatureProvider =
+                FeatureFactory.getFactory(this).getMetricsFeatureProvider();
+        if (!(metricsFeatureProvider instanceof SettingsMetricsFeatureProvider)) {
+            return new JSONObject();
+        }
+        return ((SettingsMetricsFeatureProvider) metricsFeatureProvider)
+                .getIntelligenceLogWriter().dumpStats();
+    }
+
     private void dumpMobileNetworkSettings(IndentingPrintWriter writer) {
         MobileNetworkRepository.getInstance(this).dump(writer);
     }
@@ -51,6 +51,7 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
     private IUsageStatsManager mUsageStatsManager;
     protected List<Integer> mUserIds;
     private NotificationBackend mBackend;
+    private final NotificationsSentDatabaseHelper mSentDatabaseHelper;
     private static final int DAYS_TO_CHECK = 7;
 
     public AppStateNotificationBridge(Context context, ApplicationsState appState,
@@ -60,6 +61,7 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         mContext = context;
         mUsageStatsManager = usageStatsManager;
         mBackend = backend;
+        mSentDatabaseHelper = new NotificationsSentDatabaseHelper(context);
         mUserIds = new ArrayList<>();
         mUserIds.add(mContext.getUserId());
         int workUserId = Utils.getManagedProfileId(userManager, mContext.getUserId());
@@ -68,6 +70,12 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         }
     }
 
+    @Override
+    public void release() {
+        super.release();
+        mSentDatabaseHelper.close();
+    }
+
     @Override
     protected void loadAllExtraInfo() {
         ArrayList<AppEntry> apps = mAppSession.getAllApps();
@@ -142,6 +150,19 @@ public class AppStateNotificationBridge extends AppStateBaseBridge {
         long now = System.currentTimeMillis();
         long startTime = now - (DateUtils.DAY_IN_MILLIS * DAYS_TO_CHECK);
         for (int userId : mUserIds) {
+            // Only the events since the last load are queried, the rest are persisted.
+            final ArrayMap<String, NotificationsSentState> userStats =
+                    mSentDatabaseHelper.updateAndQuery(userId, startTime, now,
+                            beginTime -> mUsageStatsManager.queryEventsForUser(
+                                    beginTime, now, userId, mContext.getPackageName()));
+            if (userStats != null) {
+                for (int i = 0; i < userStats.size(); i++) {
+                    aggregatedStats.put(getKey(userId, userStats.keyAt(i)),
+                            userStats.valueAt(i));
+                }
+                continue;
+            }
+
             UsageEvents events = null;
             try {
                 events = mUsageStatsManager.queryEventsForUser(
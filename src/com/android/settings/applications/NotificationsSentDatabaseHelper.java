@@ -0,0 +1,331 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import android.app.usage.UsageEvents;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.os.RemoteException;
+import android.text.format.DateUtils;
+import android.util.ArrayMap;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.settings.applications.AppStateNotificationBridge.NotificationsSentState;
+
+/**
+ * Persists the number of notifications sent by each package of each user, aggregated in hourly
+ * buckets, along with the time up to which the usage events of each user were aggregated.
+ *
+ * Only the usage events after that watermark are queried and aggregated when the sent counts are
+ * updated, and buckets which fall out of the window are deleted.
+ */
+class NotificationsSentDatabaseHelper extends SQLiteOpenHelper {
+
+    private static final String TAG = "NotificationsSentDb";
+
+    private static final String DATABASE_NAME = "notifications_sent.db";
+    private static final int DATABASE_VERSION = 1;
+
+    interface Tables {
+        String TABLE_SENT_COUNTS = "sent_counts";
+        String TABLE_WATERMARKS = "watermarks";
+    }
+
+    interface SentCountsColumns {
+        String USER_ID = "user_id";
+        String PACKAGE_NAME = "package_name";
+        /**
+         * Start of the bucket, in hours since epoch.
+         */
+        String HOUR = "hour";
+        String SENT_COUNT = "sent_count";
+        String LAST_SENT = "last_sent";
+    }
+
+    interface WatermarksColumns {
+        String USER_ID = "user_id";
+        /**
+         * Time up to which the usage events of the user were aggregated, exclusive.
+         */
+        String TIMESTAMP = "timestamp";
+    }
+
+    private static final String CREATE_SENT_COUNTS_TABLE =
+            "CREATE TABLE " + Tables.TABLE_SENT_COUNTS
+                    + "("
+                    + SentCountsColumns.USER_ID
+                    + " INTEGER NOT NULL, "
+                    + SentCountsColumns.PACKAGE_NAME
+                    + " TEXT NOT NULL, "
+                    + SentCountsColumns.HOUR
+                    + " INTEGER NOT NULL, "
+                    + SentCountsColumns.SENT_COUNT
+                    + " INTEGER NOT NULL DEFAULT 0, "
+                    + SentCountsColumns.LAST_SENT
+                    + " INTEGER NOT NULL DEFAULT 0, "
+                    + "PRIMARY KEY ("
+                    + SentCountsColumns.USER_ID
+                    + ", "
+                    + SentCountsColumns.PACKAGE_NAME
+                    + ", "
+                    + SentCountsColumns.HOUR
+                    + "));";
+
+    private static final String CREATE_WATERMARKS_TABLE =
+            "CREATE TABLE " + Tables.TABLE_WATERMARKS
+                    + "("
+                    + WatermarksColumns.USER_ID
+                    + " INTEGER PRIMARY KEY, "
+                    + WatermarksColumns.TIMESTAMP
+                    + " INTEGER NOT NULL);";
+
+    private static final String INSERT_BUCKET =
+            "INSERT OR IGNORE INTO " + Tables.TABLE_SENT_COUNTS + " ("
+                    + SentCountsColumns.USER_ID + ", "
+                    + SentCountsColumns.PACKAGE_NAME + ", "
+                    + SentCountsColumns.HOUR + ") VALUES (?, ?, ?)";
+
+    private static final String UPDATE_BUCKET =
+            "UPDATE " + Tables.TABLE_SENT_COUNTS + " SET "
+                    + SentCountsColumns.SENT_COUNT + " = " + SentCountsColumns.SENT_COUNT
+                    + " + ?, "
+                    + SentCountsColumns.LAST_SENT + " = MAX(" + SentCountsColumns.LAST_SENT
+                    + ", ?) WHERE "
+                    + SentCountsColumns.USER_ID + " = ? AND "
+                    + SentCountsColumns.PACKAGE_NAME + " = ? AND "
+                    + SentCountsColumns.HOUR + " = ?";
+
+    /**
+     * Queries the usage events of a user from the given time until now.
+     */
+    interface UsageEventsSource {
+        @Nullable
+        UsageEvents queryEvents(long beginTime) throws RemoteException;
+    }
+
+    NotificationsSentDatabaseHelper(Context context) {
+        super(context, DATABASE_NAME, null /* CursorFactory */, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL(CREATE_SENT_COUNTS_TABLE);
+        db.execSQL(CREATE_WATERMARKS_TABLE);
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        if (oldVersion < DATABASE_VERSION) {
+            Log.d(TAG, "Reconstructing DB from " + oldVersion + " to " + newVersion);
+            reconstruct(db);
+        }
+    }
+
+    @Override
+    public void onDowngrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        Log.w(TAG, "Reconstructing DB from " + oldVersion + " to " + newVersion);
+        reconstruct(db);
+    }
+
+    private void reconstruct(SQLiteDatabase db) {
+        db.execSQL("DROP TABLE IF EXISTS " + Tables.TABLE_SENT_COUNTS);
+        db.execSQL("DROP TABLE IF EXISTS " + Tables.TABLE_WATERMARKS);
+        onCreate(db);
+    }
+
+    /**
+     * Aggregates the usage events of the user since its watermark, or since {@code startTime} if
+     * the watermark is older, and returns the notifications sent by each package since
+     * {@code startTime}, keyed by package name.
+     *
+     * Sent counts are kept in hourly buckets, so the result may include the notifications sent up
+     * to an hour before {@code startTime}.
+     *
+     * @return the sent states, or null if the usage events or the database couldn't be read.
+     */
+    @WorkerThread
+    @Nullable
+    ArrayMap<String, NotificationsSentState> updateAndQuery(int userId, long startTime,
+            long now, UsageEventsSource source) {
+        try {
+            final SQLiteDatabase db = getWritableDatabase();
+            // Exclusive, so concurrent loads never aggregate the same events twice.
+            db.beginTransaction();
+            try {
+                if (!update(db, userId, startTime, now, source)) {
+                    return null;
+                }
+                final ArrayMap<String, NotificationsSentState> states =
+                        query(db, userId, startTime);
+                db.setTransactionSuccessful();
+                return states;
+            } finally {
+                db.endTransaction();
+            }
+        } catch (SQLiteException e) {
+            Log.w(TAG, "Failed to update notifications sent", e);
+            return null;
+        }
+    }
+
+    private boolean update(SQLiteDatabase db, int userId, long startTime, long now,
+            UsageEventsSource source) {
+        final String[] userArgs = {String.valueOf(userId)};
+        long beginTime = getWatermark(db, userId);
+        if (beginTime > now) {
+            // The clock went backwards, so the buckets can't be trusted anymore.
+            db.delete(Tables.TABLE_SENT_COUNTS, SentCountsColumns.USER_ID + " = ?", userArgs);
+            beginTime = startTime;
+        }
+        beginTime = Math.max(beginTime, startTime);
+
+        final UsageEvents events;
+        try {
+            events = source.queryEvents(beginTime);
+        } catch (RemoteException e) {
+            Log.w(TAG, "Failed to query usage events", e);
+            return false;
+        }
+        if (events != null) {
+            aggregate(db, userId, beginTime, events);
+        }
+
+        db.delete(Tables.TABLE_SENT_COUNTS, SentCountsColumns.USER_ID + " = ? AND "
+                + SentCountsColumns.HOUR + " < ?",
+                new String[] {String.valueOf(userId), String.valueOf(toHour(startTime))});
+        final SQLiteStatement statement = db.compileStatement("INSERT OR REPLACE INTO "
+                + Tables.TABLE_WATERMARKS + " (" + WatermarksColumns.USER_ID + ", "
+                + WatermarksColumns.TIMESTAMP + ") VALUES (?, ?)");
+        statement.bindLong(1, userId);
+        statement.bindLong(2, now);
+        statement.executeInsert();
+        statement.close();
+        return true;
+    }
+
+    private void aggregate(SQLiteDatabase db, int userId, long beginTime, UsageEvents events) {
+        final SQLiteStatement insertStatement = db.compileStatement(INSERT_BUCKET);
+        final SQLiteStatement updateStatement = db.compileStatement(UPDATE_BUCKET);
+        // Keyed by the package names of the events, so the loop only allocates per package.
+        final ArrayMap<String, Bucket> buckets = new ArrayMap<>();
+        final UsageEvents.Event event = new UsageEvents.Event();
+        while (events.hasNextEvent()) {
+            events.getNextEvent(event);
+            if (event.getEventType() != UsageEvents.Event.NOTIFICATION_INTERRUPTION) {
+                continue;
+            }
+            final String packageName = event.getPackageName();
+            if (packageName == null) {
+                continue;
+            }
+            Bucket bucket = buckets.get(packageName);
+            if (bucket == null) {
+                bucket = new Bucket(packageName);
+                buckets.put(packageName, bucket);
+            }
+            // Events are expected within the queried range; clamp them so they stay in the window.
+            final long hour = toHour(Math.max(event.getTimeStamp(), beginTime));
+            if (bucket.mHour != hour) {
+                bucket.flush(userId, insertStatement, updateStatement);
+                bucket.mHour = hour;
+            }
+            bucket.mSentCount++;
+            bucket.mLastSent = Math.max(bucket.mLastSent, event.getTimeStamp());
+        }
+        for (int i = 0; i < buckets.size(); i++) {
+            buckets.valueAt(i).flush(userId, insertStatement, updateStatement);
+        }
+        insertStatement.close();
+        updateStatement.close();
+    }
+
+    private static ArrayMap<String, NotificationsSentState> query(SQLiteDatabase db, int userId,
+            long startTime) {
+        final ArrayMap<String, NotificationsSentState> states = new ArrayMap<>();
+        try (Cursor cursor = db.rawQuery("SELECT " + SentCountsColumns.PACKAGE_NAME
+                        + ", SUM(" + SentCountsColumns.SENT_COUNT + ")"
+                        + ", MAX(" + SentCountsColumns.LAST_SENT + ")"
+                        + " FROM " + Tables.TABLE_SENT_COUNTS
+                        + " WHERE " + SentCountsColumns.USER_ID + " = ? AND "
+                        + SentCountsColumns.HOUR + " >= ?"
+                        + " GROUP BY " + SentCountsColumns.PACKAGE_NAME,
+                new String[] {String.valueOf(userId), String.valueOf(toHour(startTime))})) {
+            while (cursor.moveToNext()) {
+                final NotificationsSentState state = new NotificationsSentState();
+                state.sentCount = cursor.getInt(1);
+                state.lastSent = cursor.getLong(2);
+                states.put(cursor.getString(0), state);
+            }
+        }
+        return states;
+    }
+
+    private static long getWatermark(SQLiteDatabase db, int userId) {
+        try (Cursor cursor = db.query(Tables.TABLE_WATERMARKS,
+                new String[] {WatermarksColumns.TIMESTAMP},
+                WatermarksColumns.USER_ID + " = ?", new String[] {String.valueOf(userId)},
+                null /* groupBy */, null /* having */, null /* orderBy */)) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0L;
+        }
+    }
+
+    private static long toHour(long timestamp) {
+        return timestamp / DateUtils.HOUR_IN_MILLIS;
+    }
+
+    /**
+     * The notifications of a package aggregated in the current hour, not yet written.
+     */
+    private static class Bucket {
+        private final String mPackageName;
+        private long mHour = -1;
+        private int mSentCount;
+        private long mLastSent;
+
+        Bucket(String packageName) {
+            mPackageName = packageName;
+        }
+
+        void flush(int userId, SQLiteStatement insertStatement,
+                SQLiteStatement updateStatement) {
+            if (mSentCount == 0) {
+                return;
+            }
+            insertStatement.bindLong(1, userId);
+            insertStatement.bindString(2, mPackageName);
+            insertStatement.bindLong(3, mHour);
+            insertStatement.executeInsert();
+
+            updateStatement.bindLong(1, mSentCount);
+            updateStatement.bindLong(2, mLastSent);
+            updateStatement.bindLong(3, userId);
+            updateStatement.bindString(4, mPackageName);
+            updateStatement.bindLong(5, mHour);
+            updateStatement.executeUpdateDelete();
+
+            mSentCount = 0;
+            mLastSent = 0;
+        }
+    }
+}
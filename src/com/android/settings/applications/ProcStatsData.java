@@ -29,6 +29,8 @@ import android.util.Log;
 import android.util.LongSparseArray;
 import android.util.SparseArray;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.internal.app.ProcessMap;
 import com.android.internal.app.procstats.DumpUtils;
 import com.android.internal.app.procstats.IProcessStats;
@@ -53,8 +55,16 @@ public class ProcStatsData {
 
     private static final boolean DEBUG = ProcessStatsUi.DEBUG;
 
+    // Stats parsed within this long may be reused instead of being read again.
+    @VisibleForTesting
+    static final long SNAPSHOT_MAX_AGE_MS = 60 * 1000;
+
     private static ProcessStats sStatsXfer;
 
+    // Recently parsed stats by duration, shared across pages so switching durations or going
+    // back to a page doesn't read and parse the stats over again.
+    private static final LongSparseArray<Snapshot> sSnapshots = new LongSparseArray<>();
+
     private PackageManager mPm;
     private Context mContext;
     private long memTotalTime;
@@ -74,10 +84,15 @@ public class ProcStatsData {
     private ArrayList<ProcStatsPackageEntry> pkgEntries;
 
     public ProcStatsData(Context context, boolean useXfer) {
+        this(context, useXfer, IProcessStats.Stub.asInterface(
+                ServiceManager.getService(ProcessStats.SERVICE_NAME)));
+    }
+
+    @VisibleForTesting
+    ProcStatsData(Context context, boolean useXfer, IProcessStats processStats) {
         mContext = context;
         mPm = context.getPackageManager();
-        mProcessStats = IProcessStats.Stub.asInterface(
-                ServiceManager.getService(ProcessStats.SERVICE_NAME));
+        mProcessStats = processStats;
         mMemStates = ProcessStats.ALL_MEM_ADJ;
         mStates = ProcessStats.BACKGROUND_PROC_STATES;
         if (useXfer) {
@@ -125,7 +140,7 @@ public class ProcStatsData {
     public void setDuration(long duration) {
         if (duration != mDuration) {
             mDuration = duration;
-            refreshStats(true);
+            refreshStats(true /* forceLoad */, true /* allowCached */);
         }
     }
 
@@ -137,9 +152,25 @@ public class ProcStatsData {
         return pkgEntries;
     }
 
+    /**
+     * Computes the entries, reading the stats again first if {@code forceLoad} or if they weren't
+     * read yet. Stats read with {@code forceLoad} are always current.
+     */
     public void refreshStats(boolean forceLoad) {
+        refreshStats(forceLoad, !forceLoad /* allowCached */);
+    }
+
+    /**
+     * Like {@code refreshStats(true)}, but reuses the stats of the duration if they were read
+     * less than {@link #SNAPSHOT_MAX_AGE_MS} ago, for summaries that are refreshed often.
+     */
+    public void refreshRecentStats() {
+        refreshStats(true /* forceLoad */, true /* allowCached */);
+    }
+
+    private void refreshStats(boolean forceLoad, boolean allowCached) {
         if (mStats == null || forceLoad) {
-            load();
+            load(allowCached);
         }
 
         pkgEntries = new ArrayList<>();
@@ -341,7 +372,15 @@ public class ProcStatsData {
         return procEntries;
     }
 
-    private void load() {
+    @VisibleForTesting
+    void load(boolean allowCached) {
+        final long now = SystemClock.elapsedRealtime();
+        final ProcessStats cached = allowCached ? getSnapshot(mDuration, now) : null;
+        if (cached != null) {
+            if (DEBUG) Log.d(TAG, "Reusing process stats for duration " + mDuration);
+            mStats = cached;
+            return;
+        }
         try {
             ParcelFileDescriptor pfd = mProcessStats.getStatsOverTime(mDuration);
             mStats = new ProcessStats(false);
@@ -353,12 +392,55 @@ public class ProcStatsData {
             }
             if (mStats.mReadError != null) {
                 Log.w(TAG, "Failure reading process stats: " + mStats.mReadError);
+            } else {
+                putSnapshot(mDuration, mStats, now);
             }
         } catch (RemoteException e) {
             Log.e(TAG, "RemoteException:", e);
         }
     }
 
+    private static ProcessStats getSnapshot(long duration, long now) {
+        synchronized (sSnapshots) {
+            evictExpiredSnapshots(now);
+            final Snapshot snapshot = sSnapshots.get(duration);
+            return snapshot != null ? snapshot.mStats : null;
+        }
+    }
+
+    private static void putSnapshot(long duration, ProcessStats stats, long now) {
+        synchronized (sSnapshots) {
+            evictExpiredSnapshots(now);
+            sSnapshots.put(duration, new Snapshot(stats, now));
+        }
+    }
+
+    // Drops all expired snapshots, so they don't hold on to their stats. Guarded by sSnapshots.
+    private static void evictExpiredSnapshots(long now) {
+        for (int i = sSnapshots.size() - 1; i >= 0; i--) {
+            if (now - sSnapshots.valueAt(i).mLoadTime > SNAPSHOT_MAX_AGE_MS) {
+                sSnapshots.removeAt(i);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    static void clearSnapshots() {
+        synchronized (sSnapshots) {
+            sSnapshots.clear();
+        }
+    }
+
+    private static class Snapshot {
+        final ProcessStats mStats;
+        final long mLoadTime;
+
+        Snapshot(ProcessStats stats, long loadTime) {
+            mStats = stats;
+            mLoadTime = loadTime;
+        }
+    }
+
     public static class MemInfo {
         public double realUsedRam;
         public double realFreeRam;
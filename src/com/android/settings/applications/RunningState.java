@@ -53,6 +53,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Singleton for retrieving and monitoring the state about all running
@@ -72,6 +73,8 @@ public class RunningState {
 
     static final long TIME_UPDATE_DELAY = 1000;
     static final long CONTENTS_UPDATE_DELAY = 2000;
+    // While nothing changes, the contents update delay doubles up to this.
+    static final long MAX_CONTENTS_UPDATE_DELAY = 4 * CONTENTS_UPDATE_DELAY;
 
     static final int MAX_SERVICES = 100;
 
@@ -210,6 +213,8 @@ public class RunningState {
     boolean mResumed;
     boolean mHaveData;
     boolean mWatchingBackgroundItems;
+    // Number of consecutive contents updates that didn't change anything.
+    int mUnchangedUpdates;
 
     ArrayList<BaseItem> mItems = new ArrayList<BaseItem>();
     ArrayList<MergedItem> mMergedItems = new ArrayList<MergedItem>();
@@ -244,12 +249,13 @@ public class RunningState {
                             return;
                         }
                     }
+                    final boolean changed = update(mApplicationContext, mAm);
                     Message cmd = mHandler.obtainMessage(MSG_REFRESH_UI);
-                    cmd.arg1 = update(mApplicationContext, mAm) ? 1 : 0;
+                    cmd.arg1 = changed ? 1 : 0;
                     mHandler.sendMessage(cmd);
                     removeMessages(MSG_UPDATE_CONTENTS);
                     msg = obtainMessage(MSG_UPDATE_CONTENTS);
-                    sendMessageDelayed(msg, CONTENTS_UPDATE_DELAY);
+                    sendMessageDelayed(msg, getNextUpdateDelay(changed));
                     break;
             }
         }
@@ -257,6 +263,25 @@ public class RunningState {
 
     final BackgroundHandler mBackgroundHandler;
 
+    /**
+     * Returns the delay until the next contents update, backing off while
+     * the running processes and services stay the same.
+     */
+    long getNextUpdateDelay(boolean changed) {
+        synchronized (mLock) {
+            if (changed) {
+                mUnchangedUpdates = 0;
+                return CONTENTS_UPDATE_DELAY;
+            }
+            long delay = CONTENTS_UPDATE_DELAY;
+            for (int i = 0; i < mUnchangedUpdates && delay < MAX_CONTENTS_UPDATE_DELAY; i++) {
+                delay *= 2;
+            }
+            mUnchangedUpdates++;
+            return Math.min(delay, MAX_CONTENTS_UPDATE_DELAY);
+        }
+    }
+
     final Handler mHandler = new Handler() {
         int mNextUpdate = OnRefreshUiListener.REFRESH_TIME;
 
@@ -406,6 +431,10 @@ public class RunningState {
 
         boolean mInteresting;
 
+        // Number of services when no label could be found, so the lookup is
+        // only retried once there is a service to take it from.
+        int mNumServicesWithoutLabel = -1;
+
         // Purely for sorting.
         boolean mIsSystem;
         boolean mIsStarted;
@@ -420,7 +449,7 @@ public class RunningState {
         }
 
         void ensureLabel(PackageManager pm) {
-            if (mLabel != null) {
+            if (mLabel != null || mNumServicesWithoutLabel == mServices.size()) {
                 return;
             }
 
@@ -493,6 +522,7 @@ public class RunningState {
                 return;
             } catch (PackageManager.NameNotFoundException e) {
             }
+            mNumServicesWithoutLabel = mServices.size();
         }
 
         boolean updateService(Context context, ActivityManager.RunningServiceInfo service) {
@@ -500,6 +530,11 @@ public class RunningState {
 
             boolean changed = false;
             ServiceItem si = mServices.get(service.service);
+            // The description only depends on the client, so only resolve it
+            // again when that changes.
+            final boolean clientChanged = si == null
+                    || si.mRunningService.clientLabel != service.clientLabel
+                    || !Objects.equals(si.mRunningService.clientPackage, service.clientPackage);
             if (si == null) {
                 changed = true;
                 si = new ServiceItem(mUserId);
@@ -534,21 +569,25 @@ public class RunningState {
                     si.mShownAsStarted = false;
                     changed = true;
                 }
-                try {
-                    Resources clientr = pm.getResourcesForApplication(service.clientPackage);
-                    String label = clientr.getString(service.clientLabel);
-                    si.mDescription = context.getResources().getString(
-                            R.string.service_client_name, label);
-                } catch (PackageManager.NameNotFoundException e) {
-                    si.mDescription = null;
+                if (clientChanged) {
+                    try {
+                        Resources clientr = pm.getResourcesForApplication(service.clientPackage);
+                        String label = clientr.getString(service.clientLabel);
+                        si.mDescription = context.getResources().getString(
+                                R.string.service_client_name, label);
+                    } catch (PackageManager.NameNotFoundException e) {
+                        si.mDescription = null;
+                    }
                 }
             } else {
                 if (!si.mShownAsStarted) {
                     si.mShownAsStarted = true;
                     changed = true;
                 }
-                si.mDescription = context.getResources().getString(
-                        R.string.service_started_by_app);
+                if (clientChanged || si.mDescription == null) {
+                    si.mDescription = context.getResources().getString(
+                            R.string.service_started_by_app);
+                }
             }
 
             return changed;
@@ -799,6 +838,7 @@ public class RunningState {
         synchronized (mLock) {
             mResumed = true;
             mRefreshUiListener = listener;
+            mUnchangedUpdates = 0;
             boolean usersChanged = mUmBroadcastReceiver.checkUsersChangedLocked();
             boolean configChanged =
                     mInterestingConfigChanges.applyNewConfig(mApplicationContext.getResources());
@@ -808,15 +848,18 @@ public class RunningState {
                 mBackgroundHandler.removeMessages(MSG_UPDATE_CONTENTS);
                 mBackgroundHandler.sendEmptyMessage(MSG_RESET_CONTENTS);
             }
-            if (!mBackgroundHandler.hasMessages(MSG_UPDATE_CONTENTS)) {
-                mBackgroundHandler.sendEmptyMessage(MSG_UPDATE_CONTENTS);
-            }
+            // Update right away rather than after a backed off delay from
+            // before the pause.
+            mBackgroundHandler.removeMessages(MSG_UPDATE_CONTENTS);
+            mBackgroundHandler.sendEmptyMessage(MSG_UPDATE_CONTENTS);
             mHandler.sendEmptyMessage(MSG_UPDATE_TIME);
         }
     }
 
     void updateNow() {
         synchronized (mLock) {
+            // Something was just done to a service, poll quickly again.
+            mUnchangedUpdates = 0;
             mBackgroundHandler.removeMessages(MSG_UPDATE_CONTENTS);
             mBackgroundHandler.sendEmptyMessage(MSG_UPDATE_CONTENTS);
         }
@@ -1443,7 +1486,15 @@ public class RunningState {
 
     void setWatchingBackgroundItems(boolean watching) {
         synchronized (mLock) {
-            mWatchingBackgroundItems = watching;
+            if (mWatchingBackgroundItems != watching) {
+                mWatchingBackgroundItems = watching;
+                // The user switched lists, so stop backing off.
+                mUnchangedUpdates = 0;
+                if (mResumed) {
+                    mBackgroundHandler.removeMessages(MSG_UPDATE_CONTENTS);
+                    mBackgroundHandler.sendEmptyMessage(MSG_UPDATE_CONTENTS);
+                }
+            }
         }
     }
 
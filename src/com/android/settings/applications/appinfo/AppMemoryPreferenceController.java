@@ -63,7 +63,7 @@ public class AppMemoryPreferenceController extends BasePreferenceController
                 mStatsManager = new ProcStatsData(activity, false);
                 mStatsManager.setDuration(ProcessStatsBase.sDurations[0]);
             }
-            mStatsManager.refreshStats(true);
+            mStatsManager.refreshRecentStats();
             for (ProcStatsPackageEntry pkgEntry : mStatsManager.getEntries()) {
                 for (ProcStatsEntry entry : pkgEntry.getEntries()) {
                     if (entry.getUid() == packageInfo.applicationInfo.uid) {
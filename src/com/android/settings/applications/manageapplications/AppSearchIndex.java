@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import android.text.TextUtils;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable search index over the labels and package names of a list of app entries.
+ *
+ * Labels and package names are normalized once, lower cased with the locale of the index and
+ * stripped of diacritics, so searching doesn't allocate per entry. A query matches the entries
+ * whose label contains it, or whose package name starts with it.
+ *
+ * The index is rebuilt with {@link #update} whenever the entries change, reusing the normalized
+ * keys of the entries which are already indexed.
+ */
+class AppSearchIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private final ArrayList<AppEntry> mEntries;
+    private final Locale mLocale;
+    // Keyed by identity, since app entries are reused by ApplicationsState across rebuilds.
+    private final IdentityHashMap<AppEntry, Key> mKeys;
+
+    private AppSearchIndex(ArrayList<AppEntry> entries, Locale locale,
+            IdentityHashMap<AppEntry, Key> keys) {
+        mEntries = entries;
+        mLocale = locale;
+        mKeys = keys;
+    }
+
+    /**
+     * Returns an index of the entries, reusing the normalized keys of the previous index if it
+     * was built with the same locale.
+     */
+    static AppSearchIndex update(@Nullable AppSearchIndex previous, ArrayList<AppEntry> entries,
+            Locale locale) {
+        final Map<AppEntry, Key> previousKeys =
+                previous != null && previous.mLocale.equals(locale) ? previous.mKeys : null;
+        final IdentityHashMap<AppEntry, Key> keys = new IdentityHashMap<>(entries.size());
+        for (AppEntry entry : entries) {
+            Key key = previousKeys != null ? previousKeys.get(entry) : null;
+            if (key == null || !TextUtils.equals(key.mLabel, entry.label)) {
+                key = new Key(entry, locale);
+            }
+            keys.put(entry, key);
+        }
+        return new AppSearchIndex(entries, locale, keys);
+    }
+
+    /** Returns the indexed entries, in their original order. */
+    ArrayList<AppEntry> getEntries() {
+        return mEntries;
+    }
+
+    /** Returns the normalized form of the query, to be passed to {@link #search}. */
+    String normalizeQuery(CharSequence query) {
+        return normalize(query.toString(), mLocale);
+    }
+
+    /**
+     * Returns the entries of {@code candidates} matching the normalized query, in their original
+     * order. The candidates must be indexed, which includes the results of a previous search.
+     */
+    @WorkerThread
+    ArrayList<AppEntry> search(String normalizedQuery, List<AppEntry> candidates) {
+        final ArrayList<AppEntry> matchedEntries = new ArrayList<>();
+        final int size = candidates.size();
+        for (int i = 0; i < size; i++) {
+            final AppEntry entry = candidates.get(i);
+            final Key key = mKeys.get(entry);
+            if (key != null && key.matches(normalizedQuery)) {
+                matchedEntries.add(entry);
+            }
+        }
+        return matchedEntries;
+    }
+
+    private static String normalize(@Nullable String text, Locale locale) {
+        if (TextUtils.isEmpty(text)) {
+            return "";
+        }
+        final String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(locale);
+    }
+
+    private static class Key {
+        private final String mLabel;
+        private final String mNormalizedLabel;
+        private final String mNormalizedPackageName;
+
+        Key(AppEntry entry, Locale locale) {
+            mLabel = entry.label;
+            mNormalizedLabel = normalize(entry.label, locale);
+            mNormalizedPackageName =
+                    entry.info != null ? normalize(entry.info.packageName, locale) : "";
+        }
+
+        boolean matches(String normalizedQuery) {
+            // Package names are only matched by prefix, as most of them share the same segments.
+            return mNormalizedLabel.contains(normalizedQuery)
+                    || mNormalizedPackageName.startsWith(normalizedQuery);
+        }
+    }
+}
@@ -88,6 +88,7 @@ import androidx.annotation.VisibleForTesting;
 import androidx.annotation.WorkerThread;
 import androidx.coordinatorlayout.widget.CoordinatorLayout;
 import androidx.core.view.ViewCompat;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -179,6 +180,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 /**
@@ -1225,6 +1228,9 @@ public class ManageApplications extends InstrumentedFragment
         private boolean mHasReceivedLoadEntries;
         private boolean mHasReceivedBridgeCallback;
         private SearchFilter mSearchFilter;
+        // Search index over mOriginalEntries, replaced as a whole so the search filter can use it
+        // from its worker thread.
+        private volatile AppSearchIndex mSearchIndex;
         private PowerAllowlistBackend mBackend;
 
         // This is to remember and restore the last scroll position when this
@@ -1520,9 +1526,18 @@ public class ManageApplications extends InstrumentedFragment
                 Log.w(TAG, "Apps haven't loaded completely yet, so nothing can be filtered");
                 return;
             }
+            updateSearchIndex();
             mSearchFilter.filter(query);
         }
 
+        private void updateSearchIndex() {
+            final AppSearchIndex searchIndex = mSearchIndex;
+            if (searchIndex == null || searchIndex.getEntries() != mOriginalEntries) {
+                mSearchIndex = AppSearchIndex.update(searchIndex, mOriginalEntries,
+                        Locale.getDefault());
+            }
+        }
+
         private static boolean packageNameEquals(PackageItemInfo info1, PackageItemInfo info2) {
             if (info1 == null || info2 == null) {
                 return false;
@@ -1570,6 +1585,9 @@ public class ManageApplications extends InstrumentedFragment
             }
             mEntries = entries;
             mOriginalEntries = entries;
+            if (mOriginalEntries != null) {
+                updateSearchIndex();
+            }
             notifyDataSetChanged();
             if (getItemCount() == 0) {
                 mLoadingViewController.showEmpty(false /* animate */);
@@ -1941,34 +1959,113 @@ public class ManageApplications extends InstrumentedFragment
         }
 
         /**
-         * An array filter that constrains the content of the array adapter with a substring.
-         * Item that does not contains the specified substring will be removed from the list.</p>
+         * A filter that constrains the app list to the entries matching the query in
+         * {@link #mSearchIndex}, and dispatches the difference with the displayed list instead of
+         * rebinding all of it.
+         *
+         * When the query extends the previous one, only the previous results are searched.
          */
         private class SearchFilter extends Filter {
+
+            // Only accessed from the worker thread of the filter.
+            private AppSearchIndex mLastIndex;
+            private String mLastQuery;
+            private ArrayList<ApplicationsState.AppEntry> mLastMatchedEntries;
+
             @WorkerThread
             @Override
             protected FilterResults performFiltering(CharSequence query) {
+                final AppSearchIndex searchIndex = mSearchIndex;
                 final ArrayList<ApplicationsState.AppEntry> matchedEntries;
                 if (TextUtils.isEmpty(query)) {
-                    matchedEntries = mOriginalEntries;
+                    matchedEntries = searchIndex.getEntries();
+                    mLastQuery = null;
                 } else {
-                    matchedEntries = new ArrayList<>();
-                    for (ApplicationsState.AppEntry entry : mOriginalEntries) {
-                        if (entry.label.toLowerCase().contains(query.toString().toLowerCase())) {
-                            matchedEntries.add(entry);
-                        }
-                    }
+                    final String normalizedQuery = searchIndex.normalizeQuery(query);
+                    final boolean refinesLastQuery = searchIndex == mLastIndex
+                            && mLastQuery != null && normalizedQuery.startsWith(mLastQuery);
+                    matchedEntries = searchIndex.search(normalizedQuery,
+                            refinesLastQuery ? mLastMatchedEntries : searchIndex.getEntries());
+                    mLastQuery = normalizedQuery;
                 }
+                mLastIndex = searchIndex;
+                mLastMatchedEntries = matchedEntries;
+
                 final FilterResults results = new FilterResults();
-                results.values = matchedEntries;
+                results.values = new SearchResults(mEntries, matchedEntries,
+                        hasHeader(mManageApplications.mListType));
                 results.count = matchedEntries.size();
                 return results;
             }
 
             @Override
             protected void publishResults(CharSequence constraint, FilterResults results) {
-                mEntries = (ArrayList<ApplicationsState.AppEntry>) results.values;
-                notifyDataSetChanged();
+                final SearchResults searchResults = (SearchResults) results.values;
+                // The difference is only valid if the list hasn't been rebuilt meanwhile.
+                final boolean canDispatchDiff = searchResults.mDiffResult != null
+                        && searchResults.mPreviousEntries == mEntries;
+                mEntries = searchResults.mMatchedEntries;
+                if (canDispatchDiff) {
+                    searchResults.mDiffResult.dispatchUpdatesTo(ApplicationsAdapter.this);
+                } else {
+                    notifyDataSetChanged();
+                }
+            }
+        }
+
+        private static boolean hasHeader(int listType) {
+            return listType == LIST_TYPE_APPS_LOCALE || listType == LIST_TYPE_CLONED_APPS;
+        }
+
+        private static class SearchResults {
+            private final ArrayList<ApplicationsState.AppEntry> mPreviousEntries;
+            private final ArrayList<ApplicationsState.AppEntry> mMatchedEntries;
+            @Nullable
+            private final DiffUtil.DiffResult mDiffResult;
+
+            @WorkerThread
+            SearchResults(@Nullable ArrayList<ApplicationsState.AppEntry> previousEntries,
+                    ArrayList<ApplicationsState.AppEntry> matchedEntries, boolean hasHeader) {
+                mPreviousEntries = previousEntries;
+                mMatchedEntries = matchedEntries;
+                // The header shifts the adapter positions of the entries, and comes and goes with
+                // them, so lists with a header are always fully rebound.
+                mDiffResult = previousEntries == null || hasHeader ? null
+                        : DiffUtil.calculateDiff(
+                                new AppEntryDiffCallback(previousEntries, matchedEntries),
+                                false /* detectMoves */);
+            }
+        }
+
+        private static class AppEntryDiffCallback extends DiffUtil.Callback {
+            private final List<ApplicationsState.AppEntry> mOldEntries;
+            private final List<ApplicationsState.AppEntry> mNewEntries;
+
+            AppEntryDiffCallback(List<ApplicationsState.AppEntry> oldEntries,
+                    List<ApplicationsState.AppEntry> newEntries) {
+                mOldEntries = oldEntries;
+                mNewEntries = newEntries;
+            }
+
+            @Override
+            public int getOldListSize() {
+                return mOldEntries.size();
+            }
+
+            @Override
+            public int getNewListSize() {
+                return mNewEntries.size();
+            }
+
+            @Override
+            public boolean areItemsTheSame(int oldPosition, int newPosition) {
+                return mOldEntries.get(oldPosition) == mNewEntries.get(newPosition);
+            }
+
+            @Override
+            public boolean areContentsTheSame(int oldPosition, int newPosition) {
+                // Changes of the entries themselves are notified separately, e.g. sizes.
+                return true;
             }
         }
     }
@@ -44,6 +44,7 @@ import androidx.annotation.StringRes;
 
 import com.android.settings.R;
 import com.android.settings.core.InstrumentedFragment;
+import com.android.settings.utils.QrCodeRejectionFilter;
 import com.android.settingslib.bluetooth.BluetoothBroadcastUtils;
 import com.android.settingslib.bluetooth.BluetoothUtils;
 import com.android.settingslib.qrcode.QrCamera;
@@ -74,6 +75,7 @@ public class QrCodeScanModeFragment extends InstrumentedFragment implements
     private String mBroadcastMetadata;
     private Context mContext;
     private QrCamera mCamera;
+    private final QrCodeRejectionFilter mRejectionFilter = new QrCodeRejectionFilter();
     private TextureView mTextureView;
     private TextView mSummary;
     private TextView mErrorMessage;
@@ -107,6 +109,25 @@ public class QrCodeScanModeFragment extends InstrumentedFragment implements
         mErrorMessage = view.findViewById(R.id.error_message);
     }
 
+    @Override
+    public void onResume() {
+        super.onResume();
+        // Resume decoding if it was stopped in onPause and the preview is still there.
+        final SurfaceTexture surface = mTextureView.getSurfaceTexture();
+        if (mCamera != null && !mCamera.isDecodeTaskAlive() && surface != null) {
+            mCamera.start(surface);
+        }
+    }
+
+    @Override
+    public void onPause() {
+        // Don't keep decoding frames while the scanner isn't visible.
+        if (mCamera != null) {
+            mCamera.stop();
+        }
+        super.onPause();
+    }
+
     private void initCamera(SurfaceTexture surface) {
         // Check if the camera has already created.
         if (mCamera == null) {
@@ -175,7 +196,11 @@ public class QrCodeScanModeFragment extends InstrumentedFragment implements
     public boolean isValid(String qrCode) {
         if (qrCode.startsWith(BluetoothBroadcastUtils.SCHEME_BT_BROADCAST_METADATA)) {
             return true;
+        } else if (mRejectionFilter.isRecentlyRejected(qrCode)) {
+            // Still showing the error of this code.
+            return false;
         } else {
+            mRejectionFilter.onRejected(qrCode);
             showErrorMessage(R.string.bt_le_audio_qr_code_is_not_valid_format);
             return false;
         }
@@ -45,6 +45,9 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Abstract class to consolidate utility between preference controllers and act as an interface
@@ -56,6 +59,12 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
 
     private static final String TAG = "SettingsPrefController";
 
+    // Constructors looked up by createInstance, so that inflating a page or binding a slice
+    // again doesn't go through reflection to find them. Keyed by class name and parameter count.
+    private static final Map<String, Constructor<?>> sConstructors = new ConcurrentHashMap<>();
+    // Same keys, for the controllers known not to have the constructor.
+    private static final Set<String> sMissingConstructors = ConcurrentHashMap.newKeySet();
+
     /**
      * Denotes the availability of the Setting.
      * <p>
@@ -136,9 +145,8 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
     public static BasePreferenceController createInstance(Context context,
             String controllerName, String key) {
         try {
-            final Class<?> clazz = Class.forName(controllerName);
             final Constructor<?> preferenceConstructor =
-                    clazz.getConstructor(Context.class, String.class);
+                    getConstructor(controllerName, Context.class, String.class);
             final Object[] params = new Object[]{context, key};
             return (BasePreferenceController) preferenceConstructor.newInstance(params);
         } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException |
@@ -155,8 +163,8 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
      */
     public static BasePreferenceController createInstance(Context context, String controllerName) {
         try {
-            final Class<?> clazz = Class.forName(controllerName);
-            final Constructor<?> preferenceConstructor = clazz.getConstructor(Context.class);
+            final Constructor<?> preferenceConstructor =
+                    getConstructor(controllerName, Context.class);
             final Object[] params = new Object[]{context};
             return (BasePreferenceController) preferenceConstructor.newInstance(params);
         } catch (ClassNotFoundException | NoSuchMethodException | InstantiationException |
@@ -179,9 +187,8 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
     public static BasePreferenceController createInstance(Context context, String controllerName,
             String key, boolean isWorkProfile) {
         try {
-            final Class<?> clazz = Class.forName(controllerName);
             final Constructor<?> preferenceConstructor =
-                    clazz.getConstructor(Context.class, String.class);
+                    getConstructor(controllerName, Context.class, String.class);
             final Object[] params = new Object[]{context, key};
             final BasePreferenceController controller =
                     (BasePreferenceController) preferenceConstructor.newInstance(params);
@@ -194,6 +201,27 @@ public abstract class BasePreferenceController extends AbstractPreferenceControl
         }
     }
 
+    private static Constructor<?> getConstructor(String controllerName,
+            Class<?>... parameterTypes) throws ClassNotFoundException, NoSuchMethodException {
+        final String cacheKey = controllerName + "/" + parameterTypes.length;
+        Constructor<?> constructor = sConstructors.get(cacheKey);
+        if (constructor != null) {
+            return constructor;
+        }
+        if (sMissingConstructors.contains(cacheKey)) {
+            // Callers try the constructor taking only a Context first for every controller.
+            throw new NoSuchMethodException(controllerName + ".<init>");
+        }
+        try {
+            constructor = Class.forName(controllerName).getConstructor(parameterTypes);
+        } catch (NoSuchMethodException e) {
+            sMissingConstructors.add(cacheKey);
+            throw e;
+        }
+        sConstructors.put(cacheKey, constructor);
+        return constructor;
+    }
+
     public BasePreferenceController(Context context, String preferenceKey) {
         super(context);
         mPreferenceKey = preferenceKey;
@@ -57,6 +57,7 @@ public class CategoryMixin implements LifecycleObserver {
     private final Context mContext;
     private final PackageReceiver mPackageReceiver = new PackageReceiver();
     private final List<CategoryListener> mCategoryListeners = new ArrayList<>();
+    private final CategoryListener mRefreshListener = this::onCategoriesChanged;
     private int mCategoriesUpdateTaskCount;
     private boolean mFirstOnResume = true;
 
@@ -75,6 +76,7 @@ public class CategoryMixin implements LifecycleObserver {
         filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
         filter.addDataScheme(DATA_SCHEME_PKG);
         mContext.registerReceiver(mPackageReceiver, filter);
+        CategoryManager.get(mContext).addCategoryListener(mRefreshListener);
 
         if (mFirstOnResume) {
             // Skip since all tiles have been refreshed in DashboardFragment.onCreatePreferences().
@@ -91,6 +93,7 @@ public class CategoryMixin implements LifecycleObserver {
     @OnLifecycleEvent(ON_PAUSE)
     public void onPause() {
         mContext.unregisterReceiver(mPackageReceiver);
+        CategoryManager.get(mContext).removeCategoryListener(mRefreshListener);
     }
 
     /**
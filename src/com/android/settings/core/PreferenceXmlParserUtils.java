@@ -20,12 +20,14 @@ import android.annotation.NonNull;
 import android.annotation.Nullable;
 import android.annotation.XmlRes;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.content.res.TypedArray;
 import android.content.res.XmlResourceParser;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.util.AttributeSet;
 import android.util.Log;
+import android.util.LruCache;
 import android.util.TypedValue;
 import android.util.Xml;
 
@@ -108,6 +110,14 @@ public class PreferenceXmlParserUtils {
 
     private static final String ENTRIES_SEPARATOR = "|";
 
+    // Max number of (xml, flags) metadata lists kept in memory.
+    private static final int METADATA_CACHE_SIZE = 256;
+
+    private static final Object sCacheLock = new Object();
+    private static final LruCache<Long, List<Bundle>> sMetadataCache =
+            new LruCache<>(METADATA_CACHE_SIZE);
+    private static Configuration sCachedConfiguration;
+
     /**
      * Call {@link #extractMetadata(Context, int, int)} with {@link #METADATA_KEY} instead.
      */
@@ -173,17 +183,66 @@ public class PreferenceXmlParserUtils {
     /**
      * Extracts metadata from preference xml and put them into a {@link Bundle}.
      *
+     * The parsed metadata is cached by xml res id and flags until the resource configuration
+     * changes, so every call returns a fresh copy that the caller is free to modify.
+     *
      * @param xmlResId xml res id of a preference screen
      * @param flags    Should be one or more of {@link MetadataFlag}.
      */
     @NonNull
     public static List<Bundle> extractMetadata(Context context, @XmlRes int xmlResId, int flags)
             throws IOException, XmlPullParserException {
-        final List<Bundle> metadata = new ArrayList<>();
         if (xmlResId <= 0) {
             Log.d(TAG, xmlResId + " is invalid.");
-            return metadata;
+            return new ArrayList<>();
+        }
+        final Configuration configuration = context.getResources().getConfiguration();
+        if (configuration == null) {
+            return parseMetadata(context, xmlResId, flags);
         }
+        final long cacheKey = ((long) xmlResId << 32) | (flags & 0xFFFFFFFFL);
+        List<Bundle> metadata;
+        synchronized (sCacheLock) {
+            if (sCachedConfiguration == null || sCachedConfiguration.diff(configuration) != 0) {
+                sMetadataCache.evictAll();
+                sCachedConfiguration = new Configuration(configuration);
+            }
+            metadata = sMetadataCache.get(cacheKey);
+        }
+        if (metadata == null) {
+            metadata = parseMetadata(context, xmlResId, flags);
+            synchronized (sCacheLock) {
+                if (sCachedConfiguration != null
+                        && sCachedConfiguration.diff(configuration) == 0) {
+                    sMetadataCache.put(cacheKey, metadata);
+                }
+            }
+        }
+        return copyOf(metadata);
+    }
+
+    /** Clears the cached metadata. */
+    @VisibleForTesting
+    static void clearMetadataCache() {
+        synchronized (sCacheLock) {
+            sMetadataCache.evictAll();
+            sCachedConfiguration = null;
+        }
+    }
+
+    @VisibleForTesting
+    static List<Bundle> copyOf(List<Bundle> metadata) {
+        final List<Bundle> copy = new ArrayList<>(metadata.size());
+        for (Bundle bundle : metadata) {
+            // Deep, so values added later as arrays or nested bundles can't leak into the cache.
+            copy.add(bundle.deepCopy());
+        }
+        return copy;
+    }
+
+    private static List<Bundle> parseMetadata(Context context, @XmlRes int xmlResId, int flags)
+            throws IOException, XmlPullParserException {
+        final List<Bundle> metadata = new ArrayList<>();
         final XmlResourceParser parser = context.getResources().getXml(xmlResId);
 
         int type;
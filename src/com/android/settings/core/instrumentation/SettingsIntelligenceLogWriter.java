@@ -23,6 +23,7 @@ import android.os.Handler;
 import android.os.HandlerThread;
 import android.os.Looper;
 import android.os.Process;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.text.TextUtils;
 import android.text.format.DateUtils;
@@ -36,11 +37,13 @@ import com.android.settings.intelligence.LogProto.SettingsLog;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.core.instrumentation.LogWriter;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.util.LinkedList;
+import com.google.protobuf.CodedOutputStream;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 public class SettingsIntelligenceLogWriter implements LogWriter {
@@ -50,12 +53,21 @@ public class SettingsIntelligenceLogWriter implements LogWriter {
     private static final long MESSAGE_DELAY = DateUtils.MINUTE_IN_MILLIS; // 1 minute
     // Based on the exp, 99.5% users collect less than 150 data in 1 minute.
     private static final int CACHE_LOG_THRESHOLD = 150;
+    // Leaves room for the logs collected while a flush is pending, the oldest ones are dropped
+    // beyond it.
+    private static final int LOG_BUFFER_CAPACITY = 512;
 
-    private List<SettingsLog> mSettingsLogList;
+    private final SettingsLogBuffer mLogBuffer;
     private SendLogHandler mLogHandler;
 
+    // Counters of the sent logs, guarded by this.
+    private long mFlushedCount;
+    private long mFlushCount;
+    private long mLastFlushLatencyMs;
+    private long mMaxFlushLatencyMs;
+
     public SettingsIntelligenceLogWriter() {
-        mSettingsLogList = new LinkedList<>();
+        mLogBuffer = new SettingsLogBuffer(LOG_BUFFER_CAPACITY);
         final HandlerThread workerThread = new HandlerThread("SettingsIntelligenceLogWriter",
                 Process.THREAD_PRIORITY_BACKGROUND);
         workerThread.start();
@@ -126,20 +138,10 @@ public class SettingsIntelligenceLogWriter implements LogWriter {
 
     @Override
     public void action(int attribution, int action, int pageId, String key, int value) {
-        final ZonedDateTime now = ZonedDateTime.now(ZoneId.systemDefault());
-        final SettingsLog settingsLog = SettingsLog.newBuilder()
-                .setAttribution(attribution)
-                .setAction(action)
-                .setPageId(pageId)
-                .setChangedPreferenceKey(key != null ? key : "")
-                .setChangedPreferenceIntValue(value)
-                .setTimestamp(now.toString())
-                .build();
-        mLogHandler.post(() -> {
-            mSettingsLogList.add(settingsLog);
-        });
+        mLogBuffer.add(attribution, action, pageId, key != null ? key : "", value,
+                System.currentTimeMillis());
         if (action == SettingsEnums.ACTION_CONTEXTUAL_CARD_DISMISS
-                || mSettingsLogList.size() >= CACHE_LOG_THRESHOLD) {
+                || mLogBuffer.size() >= CACHE_LOG_THRESHOLD) {
             // Directly send this event to notify SI instantly that the card is dismissed
             mLogHandler.sendLog();
         } else {
@@ -147,32 +149,53 @@ public class SettingsIntelligenceLogWriter implements LogWriter {
         }
     }
 
+    /** Returns the counters of the pending, dropped and sent logs. */
+    public synchronized JSONObject dumpStats() throws JSONException {
+        final JSONObject obj = new JSONObject();
+        obj.put("pending", mLogBuffer.size());
+        obj.put("dropped", mLogBuffer.getDroppedCount());
+        obj.put("flushed", mFlushedCount);
+        obj.put("flushes", mFlushCount);
+        obj.put("last_flush_latency_ms", mLastFlushLatencyMs);
+        obj.put("max_flush_latency_ms", mMaxFlushLatencyMs);
+        return obj;
+    }
+
     @VisibleForTesting
     static byte[] serialize(List<SettingsLog> settingsLogs) {
-        final int size = settingsLogs.size();
-        final ByteArrayOutputStream bout = new ByteArrayOutputStream();
-        final DataOutputStream output = new DataOutputStream(bout);
-        // The data format is "size, length, byte array, length, byte array ..."
+        // The data format is "size, length, byte array, length, byte array ...", the integers are
+        // big-endian. Computes the total length first to write into a single array.
+        int length = Integer.BYTES;
+        for (SettingsLog settingsLog : settingsLogs) {
+            length += Integer.BYTES + settingsLog.getSerializedSize();
+        }
+        final byte[] data = new byte[length];
+        final ByteBuffer buffer = ByteBuffer.wrap(data);
         try {
-            output.writeInt(size);
+            buffer.putInt(settingsLogs.size());
             for (SettingsLog settingsLog : settingsLogs) {
-                final byte[] data = settingsLog.toByteArray();
-                output.writeInt(data.length);
-                output.write(data);
+                final int size = settingsLog.getSerializedSize();
+                buffer.putInt(size);
+                final CodedOutputStream output =
+                        CodedOutputStream.newInstance(data, buffer.position(), size);
+                settingsLog.writeTo(output);
+                output.checkNoSpaceLeft();
+                buffer.position(buffer.position() + size);
             }
-            return bout.toByteArray();
-        } catch (Exception e) {
+            return data;
+        } catch (IOException | IllegalStateException e) {
             Log.e(TAG, "serialize error", e);
             return null;
-        } finally {
-            try {
-                output.close();
-            } catch (Exception e) {
-                Log.e(TAG, "close error", e);
-            }
         }
     }
 
+    private synchronized void onLogsFlushed(int count, long latencyMs) {
+        mFlushedCount += count;
+        mFlushCount++;
+        mLastFlushLatencyMs = latencyMs;
+        mMaxFlushLatencyMs = Math.max(mMaxFlushLatencyMs, latencyMs);
+    }
+
     private class SendLogHandler extends Handler {
 
         SendLogHandler(Looper looper) {
@@ -198,14 +221,16 @@ public class SettingsIntelligenceLogWriter implements LogWriter {
         }
         final String action = context.getString(R.string
                 .config_settingsintelligence_log_action);
-        if (!TextUtils.isEmpty(action) && !mSettingsLogList.isEmpty()) {
+        if (!TextUtils.isEmpty(action) && mLogBuffer.size() > 0) {
+            final long startTime = SystemClock.elapsedRealtime();
+            final List<SettingsLog> settingsLogs = mLogBuffer.drain();
             final Intent intent = new Intent();
             intent.setPackage(context.getString(R.string
                     .config_settingsintelligence_package_name));
             intent.setAction(action);
-            intent.putExtra(LOG, serialize(mSettingsLogList));
+            intent.putExtra(LOG, serialize(settingsLogs));
             context.sendBroadcastAsUser(intent, UserHandle.CURRENT);
-            mSettingsLogList.clear();
+            onLogsFlushed(settingsLogs.size(), SystemClock.elapsedRealtime() - startTime);
         }
     };
 }
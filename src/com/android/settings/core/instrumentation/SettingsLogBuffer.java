@@ -0,0 +1,108 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import com.android.settings.intelligence.LogProto.SettingsLog;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A preallocated ring buffer of pending log records, stored as primitive columns so that logging
+ * an event does not allocate. {@link SettingsLog} messages are only built when the buffer is
+ * drained.
+ *
+ * When the buffer is full, the oldest record is overwritten and counted as dropped.
+ */
+class SettingsLogBuffer {
+
+    private final int[] mAttributions;
+    private final int[] mActions;
+    private final int[] mPageIds;
+    private final String[] mKeys;
+    private final int[] mValues;
+    private final long[] mTimestamps;
+
+    // Index of the oldest record.
+    private int mHead;
+    private int mSize;
+    private long mDroppedCount;
+
+    SettingsLogBuffer(int capacity) {
+        mAttributions = new int[capacity];
+        mActions = new int[capacity];
+        mPageIds = new int[capacity];
+        mKeys = new String[capacity];
+        mValues = new int[capacity];
+        mTimestamps = new long[capacity];
+    }
+
+    /** Appends a record, overwriting the oldest one if the buffer is full. */
+    synchronized void add(int attribution, int action, int pageId, String key, int value,
+            long timestampMs) {
+        final int capacity = mActions.length;
+        final int index;
+        if (mSize == capacity) {
+            index = mHead;
+            mHead = (mHead + 1) % capacity;
+            mDroppedCount++;
+        } else {
+            index = (mHead + mSize) % capacity;
+            mSize++;
+        }
+        mAttributions[index] = attribution;
+        mActions[index] = action;
+        mPageIds[index] = pageId;
+        mKeys[index] = key;
+        mValues[index] = value;
+        mTimestamps[index] = timestampMs;
+    }
+
+    /** Returns the number of pending records. */
+    synchronized int size() {
+        return mSize;
+    }
+
+    /** Returns the number of records overwritten before they were drained. */
+    synchronized long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    /** Removes all the pending records and returns them as {@link SettingsLog}, oldest first. */
+    synchronized List<SettingsLog> drain() {
+        final List<SettingsLog> settingsLogs = new ArrayList<>(mSize);
+        final ZoneId zoneId = ZoneId.systemDefault();
+        for (int i = 0; i < mSize; i++) {
+            final int index = (mHead + i) % mActions.length;
+            settingsLogs.add(SettingsLog.newBuilder()
+                    .setAttribution(mAttributions[index])
+                    .setAction(mActions[index])
+                    .setPageId(mPageIds[index])
+                    .setChangedPreferenceKey(mKeys[index])
+                    .setChangedPreferenceIntValue(mValues[index])
+                    .setTimestamp(Instant.ofEpochMilli(mTimestamps[index]).atZone(zoneId)
+                            .toString())
+                    .build());
+            mKeys[index] = null;
+        }
+        mHead = 0;
+        mSize = 0;
+        return settingsLogs;
+    }
+}
@@ -25,11 +25,20 @@ import com.android.settingslib.core.instrumentation.MetricsFeatureProvider;
 public class SettingsMetricsFeatureProvider extends MetricsFeatureProvider {
     private static final String TAG = "SettingsMetricsFeature";
 
+    // Assigned from the super constructor, so it must not have an initializer.
+    private SettingsIntelligenceLogWriter mIntelligenceLogWriter;
+
     @Override
     protected void installLogWriters() {
+        mIntelligenceLogWriter = new SettingsIntelligenceLogWriter();
         mLoggerWriters.add(new StatsLogWriter());
         mLoggerWriters.add(new SettingsEventLogWriter());
-        mLoggerWriters.add(new SettingsIntelligenceLogWriter());
+        mLoggerWriters.add(mIntelligenceLogWriter);
+    }
+
+    /** Returns the log writer sending the logs to Settings Intelligence. */
+    public SettingsIntelligenceLogWriter getIntelligenceLogWriter() {
+        return mIntelligenceLogWriter;
     }
 
     /**
@@ -25,6 +25,7 @@ import android.util.Pair;
 
 import androidx.annotation.VisibleForTesting;
 
+import com.android.settings.core.CategoryMixin.CategoryListener;
 import com.android.settings.homepage.HighlightableMenu;
 import com.android.settings.safetycenter.SafetyCenterManagerWrapper;
 import com.android.settingslib.applications.InterestingConfigChanges;
@@ -33,6 +34,7 @@ import com.android.settingslib.drawer.DashboardCategory;
 import com.android.settingslib.drawer.ProviderTile;
 import com.android.settingslib.drawer.Tile;
 import com.android.settingslib.drawer.TileUtils;
+import com.android.settingslib.utils.ThreadUtils;
 
 import com.google.android.setupcompat.util.WizardManagerHelper;
 
@@ -58,8 +60,17 @@ public class CategoryManager {
     // Tile cache (key: category key, value: category)
     private final Map<String, DashboardCategory> mCategoryByKeyMap;
 
+    // Listeners to notify when categories restored from a snapshot are refreshed.
+    private final Set<CategoryListener> mCategoryListeners = new ArraySet<>();
+
+    // The last deny list applied, to apply it again to the refreshed categories.
+    private final Set<ComponentName> mTileDenylist = new ArraySet<>();
+
     private List<DashboardCategory> mCategories;
 
+    // The state of the snapshot on disk, to avoid writing the same categories again.
+    private CategorySnapshot mLastSnapshot;
+
     public static CategoryManager get(Context context) {
         if (sInstance == null) {
             sInstance = new CategoryManager(context);
@@ -100,12 +111,33 @@ public class CategoryManager {
      * @param tileDenylist
      */
     public synchronized void updateCategoryFromDenylist(Set<ComponentName> tileDenylist) {
+        mTileDenylist.clear();
+        mTileDenylist.addAll(tileDenylist);
         if (mCategories == null) {
             Log.w(TAG, "Category is null, skipping denylist update");
             return;
         }
-        for (int i = 0; i < mCategories.size(); i++) {
-            DashboardCategory category = mCategories.get(i);
+        applyDenylist(mCategories, tileDenylist);
+    }
+
+    /**
+     * Add a listener notified on the main thread when the categories change in the background
+     */
+    public synchronized void addCategoryListener(CategoryListener listener) {
+        mCategoryListeners.add(listener);
+    }
+
+    /**
+     * Remove a listener added by {@link #addCategoryListener(CategoryListener)}
+     */
+    public synchronized void removeCategoryListener(CategoryListener listener) {
+        mCategoryListeners.remove(listener);
+    }
+
+    private static void applyDenylist(List<DashboardCategory> categories,
+            Set<ComponentName> tileDenylist) {
+        for (int i = 0; i < categories.size(); i++) {
+            DashboardCategory category = categories.get(i);
             for (int j = 0; j < category.getTilesCount(); j++) {
                 Tile tile = category.getTile(j);
                 if (tileDenylist.contains(tile.getIntent().getComponent())) {
@@ -153,36 +185,114 @@ public class CategoryManager {
         }
         if (mCategories == null) {
             final boolean firstLoading = mCategoryByKeyMap.isEmpty();
+            final boolean safetyCenterEnabled =
+                    SafetyCenterManagerWrapper.get().isEnabled(context);
+            if (firstLoading && !forceClearCache) {
+                // A new process: the snapshot of the last one is good as long as no package
+                // changed since. Still refresh it in the background to fill the tile cache.
+                final CategorySnapshot restored =
+                        CategorySnapshot.read(context, safetyCenterEnabled);
+                if (restored != null) {
+                    final List<DashboardCategory> categories = restored.getCategories();
+                    mCategories = categories;
+                    mLastSnapshot = restored;
+                    for (DashboardCategory category : mCategories) {
+                        mCategoryByKeyMap.put(category.key, category);
+                    }
+                    onFirstLoaded(context);
+                    refreshInBackground(context.getApplicationContext(), categories,
+                            safetyCenterEnabled);
+                    return;
+                }
+            }
             if (forceClearCache) {
                 mTileByComponentCache.clear();
             }
             mCategoryByKeyMap.clear();
-            mCategories = TileUtils.getCategories(context, mTileByComponentCache);
-            for (DashboardCategory category : mCategories) {
-                mCategoryByKeyMap.put(category.key, category);
-            }
-            backwardCompatCleanupForCategory(mTileByComponentCache, mCategoryByKeyMap);
-            mergeSecurityPrivacyKeys(context, mTileByComponentCache, mCategoryByKeyMap);
-            sortCategories(context, mCategoryByKeyMap);
-            filterDuplicateTiles(mCategoryByKeyMap);
+            final CategorySnapshot snapshot = new CategorySnapshot(context, safetyCenterEnabled);
+            mCategories = buildCategories(context, mTileByComponentCache, mCategoryByKeyMap);
+            writeSnapshot(context.getApplicationContext(), snapshot, mCategories);
             if (firstLoading) {
-                logTiles(context);
+                onFirstLoaded(context);
+            }
+        }
+    }
 
-                final DashboardCategory homepageCategory = mCategoryByKeyMap.get(
-                        CategoryKey.CATEGORY_HOMEPAGE);
-                if (homepageCategory == null) {
+    private List<DashboardCategory> buildCategories(Context context,
+            Map<Pair<String, String>, Tile> tileByComponentCache,
+            Map<String, DashboardCategory> categoryByKeyMap) {
+        final List<DashboardCategory> categories =
+                TileUtils.getCategories(context, tileByComponentCache);
+        for (DashboardCategory category : categories) {
+            categoryByKeyMap.put(category.key, category);
+        }
+        backwardCompatCleanupForCategory(tileByComponentCache, categoryByKeyMap);
+        mergeSecurityPrivacyKeys(context, tileByComponentCache, categoryByKeyMap);
+        sortCategories(context, categoryByKeyMap);
+        filterDuplicateTiles(categoryByKeyMap);
+        return categories;
+    }
+
+    private void onFirstLoaded(Context context) {
+        logTiles(context);
+
+        final DashboardCategory homepageCategory = mCategoryByKeyMap.get(
+                CategoryKey.CATEGORY_HOMEPAGE);
+        if (homepageCategory == null) {
+            return;
+        }
+        for (Tile tile : homepageCategory.getTiles()) {
+            final String key = tile.getKey(context);
+            if (TextUtils.isEmpty(key)) {
+                Log.w(TAG, "Key hint missing for homepage tile: " + tile.getTitle(context));
+                continue;
+            }
+            HighlightableMenu.addMenuKey(key);
+        }
+    }
+
+    /**
+     * Rebuilds the categories restored from a snapshot without holding the lock, and swaps them
+     * in unless they were reloaded meanwhile. Listeners are then notified, as the restored
+     * categories may already be shown.
+     */
+    private void refreshInBackground(Context appContext, List<DashboardCategory> restored,
+            boolean safetyCenterEnabled) {
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final CategorySnapshot snapshot =
+                    new CategorySnapshot(appContext, safetyCenterEnabled);
+            final Map<Pair<String, String>, Tile> tileByComponentCache = new ArrayMap<>();
+            final Map<String, DashboardCategory> categoryByKeyMap = new ArrayMap<>();
+            final List<DashboardCategory> categories =
+                    buildCategories(appContext, tileByComponentCache, categoryByKeyMap);
+            synchronized (CategoryManager.this) {
+                if (mCategories != restored) {
                     return;
                 }
-                for (Tile tile : homepageCategory.getTiles()) {
-                    final String key = tile.getKey(context);
-                    if (TextUtils.isEmpty(key)) {
-                        Log.w(TAG, "Key hint missing for homepage tile: " + tile.getTitle(context));
-                        continue;
-                    }
-                    HighlightableMenu.addMenuKey(key);
-                }
+                mTileByComponentCache.clear();
+                mTileByComponentCache.putAll(tileByComponentCache);
+                mCategoryByKeyMap.clear();
+                mCategoryByKeyMap.putAll(categoryByKeyMap);
+                mCategories = categories;
+                writeSnapshot(appContext, snapshot, categories);
+                applyDenylist(categories, mTileDenylist);
+                final List<CategoryListener> listeners = new ArrayList<>(mCategoryListeners);
+                ThreadUtils.postOnMainThread(() -> listeners.forEach(
+                        listener -> listener.onCategoriesChanged(null /* categories */)));
             }
+        });
+    }
+
+    private synchronized void writeSnapshot(Context appContext, CategorySnapshot snapshot,
+            List<DashboardCategory> categories) {
+        if (snapshot.isSameState(mLastSnapshot)) {
+            // Nothing the categories depend on changed, the snapshot on disk is up to date.
+            return;
         }
+        mLastSnapshot = snapshot;
+        // Flattened right away, the categories are later filtered by the deny list.
+        final byte[] data = snapshot.marshall(categories);
+        ThreadUtils.postOnBackgroundThread(() -> CategorySnapshot.write(appContext, data));
     }
 
     @VisibleForTesting
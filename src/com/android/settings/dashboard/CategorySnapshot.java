@@ -0,0 +1,195 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.android.settings.dashboard;
+
+import android.content.Context;
+import android.content.pm.ChangedPackages;
+import android.os.Build;
+import android.os.Parcel;
+import android.provider.Settings;
+import android.text.TextUtils;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.settingslib.drawer.DashboardCategory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Snapshot of the categories built by {@link CategoryManager}, kept on disk so a new process can
+ * show the injected tiles without querying the package manager for all of them first.
+ *
+ * A snapshot is only used by the build and boot it was written in, and only if no package
+ * changed since, according to the package manager's change sequence number.
+ */
+class CategorySnapshot {
+
+    private static final String TAG = "CategorySnapshot";
+    private static final String FILE_NAME = "dashboard_categories";
+    // Bump when the header changes.
+    private static final int VERSION = 1;
+
+    private final int mSequenceNumber;
+    private final String mFingerprint;
+    private final int mBootCount;
+    private final boolean mSafetyCenterEnabled;
+    // Only set for a snapshot read from disk.
+    private final List<DashboardCategory> mCategories;
+
+    /**
+     * Captures the state the categories about to be built depend on. Must be created before
+     * querying the tiles, so that packages changing meanwhile invalidate the snapshot.
+     */
+    CategorySnapshot(Context context, boolean safetyCenterEnabled) {
+        this(getSequenceNumber(context), Build.FINGERPRINT, getBootCount(context),
+                safetyCenterEnabled);
+    }
+
+    @VisibleForTesting
+    CategorySnapshot(int sequenceNumber, String fingerprint, int bootCount,
+            boolean safetyCenterEnabled) {
+        this(sequenceNumber, fingerprint, bootCount, safetyCenterEnabled, null /* categories */);
+    }
+
+    private CategorySnapshot(int sequenceNumber, String fingerprint, int bootCount,
+            boolean safetyCenterEnabled, @Nullable List<DashboardCategory> categories) {
+        mSequenceNumber = sequenceNumber;
+        mFingerprint = fingerprint;
+        mBootCount = bootCount;
+        mSafetyCenterEnabled = safetyCenterEnabled;
+        mCategories = categories;
+    }
+
+    /** Returns the categories of a snapshot returned by {@link #read(Context, boolean)}. */
+    @Nullable
+    List<DashboardCategory> getCategories() {
+        return mCategories;
+    }
+
+    /**
+     * Whether the categories of both snapshots were built in the same state, in which case they
+     * are the same and don't need to be written again.
+     */
+    boolean isSameState(@Nullable CategorySnapshot other) {
+        return other != null
+                && mSequenceNumber == other.mSequenceNumber
+                && mBootCount == other.mBootCount
+                && mSafetyCenterEnabled == other.mSafetyCenterEnabled
+                && TextUtils.equals(mFingerprint, other.mFingerprint);
+    }
+
+    /**
+     * Returns the last snapshot with its categories, or null if there is none or it is out of
+     * date.
+     */
+    @Nullable
+    static CategorySnapshot read(Context context, boolean safetyCenterEnabled) {
+        return read(context, Build.FINGERPRINT, getBootCount(context), safetyCenterEnabled);
+    }
+
+    @VisibleForTesting
+    @Nullable
+    static CategorySnapshot read(Context context, String fingerprint, int bootCount,
+            boolean safetyCenterEnabled) {
+        final AtomicFile file = getFile(context);
+        if (!file.exists()) {
+            return null;
+        }
+        final Parcel parcel = Parcel.obtain();
+        try {
+            final byte[] data = file.readFully();
+            parcel.unmarshall(data, 0, data.length);
+            parcel.setDataPosition(0);
+            if (parcel.readInt() != VERSION
+                    || !TextUtils.equals(fingerprint, parcel.readString())
+                    || parcel.readInt() != bootCount
+                    || parcel.readBoolean() != safetyCenterEnabled) {
+                return null;
+            }
+            final int sequenceNumber = parcel.readInt();
+            if (context.getPackageManager().getChangedPackages(sequenceNumber) != null) {
+                // Packages were installed, removed or changed since.
+                return null;
+            }
+            final List<DashboardCategory> categories = new ArrayList<>();
+            parcel.readTypedList(categories, DashboardCategory.CREATOR);
+            return new CategorySnapshot(sequenceNumber, fingerprint, bootCount,
+                    safetyCenterEnabled, categories);
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Failed to read snapshot", e);
+            file.delete();
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * Flattens the categories, which may still be modified afterwards, into the data to
+     * {@link #write(Context, byte[])}.
+     */
+    byte[] marshall(List<DashboardCategory> categories) {
+        final Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeInt(VERSION);
+            parcel.writeString(mFingerprint);
+            parcel.writeInt(mBootCount);
+            parcel.writeBoolean(mSafetyCenterEnabled);
+            parcel.writeInt(mSequenceNumber);
+            parcel.writeTypedList(categories);
+            return parcel.marshall();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @WorkerThread
+    static void write(Context context, byte[] data) {
+        final AtomicFile file = getFile(context);
+        FileOutputStream out = null;
+        try {
+            out = file.startWrite();
+            out.write(data);
+            file.finishWrite(out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write snapshot", e);
+            file.failWrite(out);
+        }
+    }
+
+    private static AtomicFile getFile(Context context) {
+        return new AtomicFile(new File(context.getNoBackupFilesDir(), FILE_NAME));
+    }
+
+    private static int getSequenceNumber(Context context) {
+        final ChangedPackages changedPackages =
+                context.getPackageManager().getChangedPackages(0 /* sequenceNumber */);
+        return changedPackages != null ? changedPackages.getSequenceNumber() : 0;
+    }
+
+    private static int getBootCount(Context context) {
+        return Settings.Global.getInt(context.getContentResolver(), Settings.Global.BOOT_COUNT,
+                -1);
+    }
+}
@@ -40,6 +40,8 @@ import android.content.Context;
 import android.content.IContentProvider;
 import android.content.Intent;
 import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
 import android.graphics.drawable.Icon;
 import android.graphics.drawable.LayerDrawable;
@@ -53,6 +55,7 @@ import android.util.Log;
 import android.util.Pair;
 import android.widget.Toast;
 
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 import androidx.fragment.app.FragmentActivity;
 import androidx.preference.Preference;
@@ -98,12 +101,14 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
     private final MetricsFeatureProvider mMetricsFeatureProvider;
     private final CategoryManager mCategoryManager;
     private final PackageManager mPackageManager;
+    private final TileIconCache mTileIconCache;
 
     public DashboardFeatureProviderImpl(Context context) {
         mContext = context.getApplicationContext();
         mCategoryManager = CategoryManager.get(context);
         mMetricsFeatureProvider = FeatureFactory.getFactory(context).getMetricsFeatureProvider();
         mPackageManager = context.getPackageManager();
+        mTileIconCache = TileIconCache.getInstance(context);
     }
 
     @Override
@@ -419,6 +424,11 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
                     return;
                 }
                 final Icon icon = Icon.createWithResource(iconInfo.first, iconInfo.second);
+                if (isCacheableIcon(iconInfo.first, icon)) {
+                    setCachedPreferenceIcon(preference, tile, forceRoundedIcon, iconInfo.first,
+                            icon);
+                    return;
+                }
                 ThreadUtils.postOnMainThread(() -> {
                     setPreferenceIcon(preference, tile, forceRoundedIcon, iconInfo.first, icon);
                 });
@@ -432,16 +442,74 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
         if (tileIcon == null) {
             return;
         }
-        setPreferenceIcon(preference, tile, forceRoundedIcon, tile.getPackageName(), tileIcon);
+        final String iconPackage = tile.getPackageName();
+        if (isCacheableIcon(iconPackage, tileIcon)) {
+            // Reserve the icon space to avoid preference padding change.
+            preference.setIconSpaceReserved(true);
+            ThreadUtils.postOnBackgroundThread(() -> setCachedPreferenceIcon(preference, tile,
+                    forceRoundedIcon, iconPackage, tileIcon));
+            return;
+        }
+        setPreferenceIcon(preference, tile, forceRoundedIcon, iconPackage, tileIcon);
+    }
+
+    // Only icons from other packages are cached, as loading them needs to load the resources of
+    // those packages.
+    private boolean isCacheableIcon(String iconPackage, Icon icon) {
+        return icon.getType() == Icon.TYPE_RESOURCE
+                && !TextUtils.equals(mContext.getPackageName(), iconPackage);
+    }
+
+    /**
+     * Sets the pre-rendered icon from {@link TileIconCache}, rendering and caching it first if
+     * needed. Must be called on a background thread.
+     */
+    private void setCachedPreferenceIcon(Preference preference, Tile tile,
+            boolean forceRoundedIcon, String iconPackage, Icon icon) {
+        final Context context = preference.getContext();
+        final boolean isHomepage = TextUtils.equals(tile.getCategory(),
+                CategoryKey.CATEGORY_HOMEPAGE);
+        final String key = mTileIconCache.getKey(context, iconPackage, icon.getResId(),
+                isHomepage ? Utils.getHomepageIconColor(context) : 0 /* tint */,
+                !isHomepage && forceRoundedIcon, tile.getMetaData());
+        Bitmap bitmap = key != null ? mTileIconCache.get(key) : null;
+        if (bitmap == null) {
+            final Drawable iconDrawable = createIconDrawable(context, tile, forceRoundedIcon,
+                    iconPackage, icon);
+            bitmap = iconDrawable != null ? TileIconCache.render(iconDrawable) : null;
+            if (bitmap == null) {
+                ThreadUtils.postOnMainThread(() -> {
+                    if (iconDrawable == null) {
+                        Log.w(TAG, "Set null preference icon for: " + iconPackage);
+                    }
+                    preference.setIcon(iconDrawable);
+                });
+                return;
+            }
+            if (key != null) {
+                mTileIconCache.put(iconPackage, key, bitmap);
+            }
+        }
+        final Drawable iconDrawable = new BitmapDrawable(context.getResources(), bitmap);
+        ThreadUtils.postOnMainThread(() -> preference.setIcon(iconDrawable));
     }
 
     private void setPreferenceIcon(Preference preference, Tile tile, boolean forceRoundedIcon,
             String iconPackage, Icon icon) {
-        Drawable iconDrawable = icon.loadDrawable(preference.getContext());
+        final Drawable iconDrawable = createIconDrawable(preference.getContext(), tile,
+                forceRoundedIcon, iconPackage, icon);
         if (iconDrawable == null) {
             Log.w(TAG, "Set null preference icon for: " + iconPackage);
-            preference.setIcon(null);
-            return;
+        }
+        preference.setIcon(iconDrawable);
+    }
+
+    @Nullable
+    private Drawable createIconDrawable(Context context, Tile tile, boolean forceRoundedIcon,
+            String iconPackage, Icon icon) {
+        Drawable iconDrawable = icon.loadDrawable(context);
+        if (iconDrawable == null) {
+            return null;
         }
         if (TextUtils.equals(tile.getCategory(), CategoryKey.CATEGORY_HOMEPAGE)) {
             if (iconPackage.equals(WELLBEING_PACKAGE) && iconDrawable instanceof LayerDrawable
@@ -449,13 +517,13 @@ public class DashboardFeatureProviderImpl implements DashboardFeatureProvider {
                 iconDrawable = ((LayerDrawable) iconDrawable).getDrawable(1);
                 iconDrawable.mutate();
             }
-            iconDrawable.setTint(Utils.getHomepageIconColor(preference.getContext()));
+            iconDrawable.setTint(Utils.getHomepageIconColor(context));
         } else if (forceRoundedIcon && !TextUtils.equals(mContext.getPackageName(), iconPackage)) {
             iconDrawable = new AdaptiveIcon(mContext, iconDrawable,
                     R.dimen.dashboard_tile_foreground_image_inset);
             ((AdaptiveIcon) iconDrawable).setBackgroundColor(mContext, tile);
         }
-        preference.setIcon(iconDrawable);
+        return iconDrawable;
     }
 
     private void launchPendingIntentOrSelectProfile(FragmentActivity activity, Tile tile,
@@ -45,6 +45,7 @@ import com.android.settings.SettingsPreferenceFragment;
 import com.android.settings.core.BasePreferenceController;
 import com.android.settings.core.CategoryMixin.CategoryHandler;
 import com.android.settings.core.CategoryMixin.CategoryListener;
+import com.android.settings.core.MainThreadOnlyController;
 import com.android.settings.core.PreferenceControllerListHelper;
 import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.PrimarySwitchPreference;
@@ -53,6 +54,7 @@ import com.android.settingslib.core.lifecycle.Lifecycle;
 import com.android.settingslib.drawer.DashboardCategory;
 import com.android.settingslib.drawer.Tile;
 import com.android.settingslib.search.Indexable;
+import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -64,7 +66,12 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Base fragment for dashboard style UI containing a list of static and dynamic setting items.
@@ -75,6 +82,11 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     public static final String CATEGORY = "category";
     private static final String TAG = "DashboardFragment";
     private static final long TIMEOUT_MILLIS = 50L;
+    private static final int AVAILABILITY_WORKER_COUNT = 4;
+    private static final long AVAILABILITY_WORKER_KEEP_ALIVE_MILLIS = 10000L;
+
+    // Shared by all the dashboard fragments evaluating the controller availability in parallel.
+    private static ExecutorService sAvailabilityExecutor;
 
     @VisibleForTesting
     final ArrayMap<String, List<DynamicDataObserver>> mDashboardTilePrefKeys = new ArrayMap<>();
@@ -88,6 +100,8 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
     private DashboardTilePlaceholderPreferenceController mPlaceholderPreferenceController;
     private boolean mListeningToCategoryChange;
     private List<String> mSuppressInjectedTileKeys;
+    // Identifies the last update of the preference states, to drop older background results.
+    private int mAvailabilityGeneration;
 
     @Override
     public void onAttach(Context context) {
@@ -389,31 +403,7 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
      * Update state of each preference managed by PreferenceController.
      */
     protected void updatePreferenceStates() {
-        final PreferenceScreen screen = getPreferenceScreen();
-        Collection<List<AbstractPreferenceController>> controllerLists =
-                mPreferenceControllers.values();
-        for (List<AbstractPreferenceController> controllerList : controllerLists) {
-            for (AbstractPreferenceController controller : controllerList) {
-                if (!controller.isAvailable()) {
-                    continue;
-                }
-
-                final String key = controller.getPreferenceKey();
-                if (TextUtils.isEmpty(key)) {
-                    Log.d(TAG, String.format("Preference key is %s in Controller %s",
-                            key, controller.getClass().getSimpleName()));
-                    continue;
-                }
-
-                final Preference preference = screen.findPreference(key);
-                if (preference == null) {
-                    Log.d(TAG, String.format("Cannot find preference with key %s in Controller %s",
-                            key, controller.getClass().getSimpleName()));
-                    continue;
-                }
-                controller.updateState(preference);
-            }
-        }
+        updatePreferenceStates(false /* forceUpdate */);
     }
 
     /**
@@ -450,19 +440,129 @@ public abstract class DashboardFragment extends SettingsPreferenceFragment
         if (screen == null || mPreferenceControllers == null) {
             return;
         }
+        updatePreferenceStates(true /* forceUpdate */);
+    }
+
+    /**
+     * Returns true to evaluate {@code isAvailable()} of the preference controllers in parallel on
+     * background threads, so the main thread only updates the states of the available ones. Only
+     * pages whose controllers are safe to evaluate off the main thread should return true: their
+     * {@code isAvailable()} must not read state that the main thread changes. Controllers
+     * annotated with {@link MainThreadOnlyController} are always evaluated on the main thread.
+     */
+    protected boolean shouldEvaluateAvailabilityInParallel() {
+        return false;
+    }
+
+    /**
+     * Updates the state of each available preference, and with {@code forceUpdate} the visibility
+     * of each preference too. If {@link #shouldEvaluateAvailabilityInParallel()}, the main thread
+     * doesn't wait for the availability: once the availability of every controller is known, all
+     * the preferences are updated in a single main thread task.
+     */
+    private void updatePreferenceStates(boolean forceUpdate) {
+        final int generation = ++mAvailabilityGeneration;
+        final List<AbstractPreferenceController> controllers = new ArrayList<>();
         for (List<AbstractPreferenceController> controllerList : mPreferenceControllers.values()) {
-            for (AbstractPreferenceController controller : controllerList) {
-                final String key = controller.getPreferenceKey();
-                final Preference preference = findPreference(key);
-                if (preference == null) {
-                    continue;
+            controllers.addAll(controllerList);
+        }
+        if (!shouldEvaluateAvailabilityInParallel()) {
+            for (AbstractPreferenceController controller : controllers) {
+                updatePreferenceState(controller, controller.isAvailable(), forceUpdate);
+            }
+            return;
+        }
+
+        final Boolean[] availability = new Boolean[controllers.size()];
+        // One count per background evaluation, plus one released once all of them are started.
+        final AtomicInteger pending = new AtomicInteger(1);
+        final Runnable applyAvailability = () -> ThreadUtils.postOnMainThread(() ->
+                applyAvailability(generation, controllers, availability, forceUpdate));
+        for (int i = 0; i < controllers.size(); i++) {
+            final AbstractPreferenceController controller = controllers.get(i);
+            if (controller.getClass().isAnnotationPresent(MainThreadOnlyController.class)) {
+                availability[i] = controller.isAvailable();
+                continue;
+            }
+            final int index = i;
+            pending.incrementAndGet();
+            getAvailabilityExecutor().execute(() -> {
+                try {
+                    availability[index] = controller.isAvailable();
+                } catch (RuntimeException e) {
+                    // Evaluated again on the main thread, so the controller can report its error.
+                    Log.w(TAG, "Failed to evaluate availability of "
+                            + controller.getClass().getSimpleName(), e);
                 }
-                final boolean available = controller.isAvailable();
-                if (available) {
-                    controller.updateState(preference);
+                if (pending.decrementAndGet() == 0) {
+                    applyAvailability.run();
                 }
-                preference.setVisible(available);
+            });
+        }
+        if (pending.decrementAndGet() == 0) {
+            // Every controller is main thread only, so there is nothing to wait for.
+            applyAvailability(generation, controllers, availability, forceUpdate);
+        }
+    }
+
+    private void applyAvailability(int generation, List<AbstractPreferenceController> controllers,
+            Boolean[] availability, boolean forceUpdate) {
+        // Drop the results if the states were updated again meanwhile.
+        if (generation != mAvailabilityGeneration || getPreferenceScreen() == null) {
+            return;
+        }
+        for (int i = 0; i < controllers.size(); i++) {
+            final AbstractPreferenceController controller = controllers.get(i);
+            updatePreferenceState(controller,
+                    availability[i] != null ? availability[i] : controller.isAvailable(),
+                    forceUpdate);
+        }
+    }
+
+    private void updatePreferenceState(AbstractPreferenceController controller,
+            boolean available, boolean forceUpdate) {
+        final String key = controller.getPreferenceKey();
+        if (forceUpdate) {
+            final Preference preference = findPreference(key);
+            if (preference == null) {
+                return;
+            }
+            if (available) {
+                controller.updateState(preference);
+            }
+            preference.setVisible(available);
+            return;
+        }
+        if (!available) {
+            return;
+        }
+        if (TextUtils.isEmpty(key)) {
+            Log.d(TAG, String.format("Preference key is %s in Controller %s",
+                    key, controller.getClass().getSimpleName()));
+            return;
+        }
+
+        final Preference preference = getPreferenceScreen().findPreference(key);
+        if (preference == null) {
+            Log.d(TAG, String.format("Cannot find preference with key %s in Controller %s",
+                    key, controller.getClass().getSimpleName()));
+            return;
+        }
+        controller.updateState(preference);
+    }
+
+    @VisibleForTesting
+    Executor getAvailabilityExecutor() {
+        synchronized (DashboardFragment.class) {
+            if (sAvailabilityExecutor == null) {
+                final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                        AVAILABILITY_WORKER_COUNT, AVAILABILITY_WORKER_COUNT,
+                        AVAILABILITY_WORKER_KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS,
+                        new LinkedBlockingQueue<>());
+                executor.allowCoreThreadTimeOut(true);
+                sAvailabilityExecutor = executor;
             }
+            return sAvailabilityExecutor;
         }
     }
 
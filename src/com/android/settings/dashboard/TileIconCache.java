@@ -0,0 +1,309 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_ICON_BACKGROUND_ARGB;
+import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_ICON_BACKGROUND_HINT;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.os.Bundle;
+import android.util.ArrayMap;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Memory and disk cache of the rendered icons of the tiles injected by other packages.
+ *
+ * Icons are keyed by package, package version code and update time, icon resource, tint, rounded
+ * flag and everything else they are rendered with, so an updated package never gets the icons
+ * rendered for its previous version, and those icons are deleted from the disk when the new ones
+ * are stored.
+ * The icons of uninstalled packages are deleted once per process.
+ */
+class TileIconCache {
+
+    private static final String TAG = "TileIconCache";
+    private static final String CACHE_DIR_NAME = "tile_icons";
+    private static final String FILE_SUFFIX = ".png";
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+    // Separates the fields of the key, which can't appear in package names.
+    private static final String KEY_SEPARATOR = "@";
+    // Separates the version code and the update time of the package in the version field.
+    private static final String VERSION_SEPARATOR = "-";
+    private static final int MEMORY_CACHE_SIZE_BYTES = 2 * 1024 * 1024;
+    // The colors of the dynamic palette, which theme attributes of the icons can resolve to.
+    private static final int[] DYNAMIC_COLORS = {
+            android.R.color.system_accent1_500,
+            android.R.color.system_accent2_500,
+            android.R.color.system_accent3_500,
+            android.R.color.system_neutral1_500,
+            android.R.color.system_neutral2_500,
+    };
+
+    private static TileIconCache sInstance;
+
+    private final Context mContext;
+    private final File mCacheDir;
+    private final AtomicBoolean mUninstalledPackagesDeleted = new AtomicBoolean();
+    private final LruCache<String, Bitmap> mMemoryCache =
+            new LruCache<String, Bitmap>(MEMORY_CACHE_SIZE_BYTES) {
+                @Override
+                protected int sizeOf(String key, Bitmap bitmap) {
+                    return bitmap.getByteCount();
+                }
+            };
+
+    static synchronized TileIconCache getInstance(Context context) {
+        if (sInstance == null) {
+            final Context appContext = context.getApplicationContext();
+            sInstance = new TileIconCache(appContext,
+                    new File(appContext.getCacheDir(), CACHE_DIR_NAME));
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    TileIconCache(Context context, File cacheDir) {
+        mContext = context;
+        mCacheDir = cacheDir;
+    }
+
+    /**
+     * Returns the cache key of an icon, or null if the icon package is not installed.
+     *
+     * @param metaData the meta data of the tile, which holds the background color of rounded
+     *                 icons
+     */
+    @WorkerThread
+    @Nullable
+    String getKey(Context context, String packageName, int iconRes, int tint,
+            boolean rounded, @Nullable Bundle metaData) {
+        final PackageInfo packageInfo;
+        try {
+            packageInfo = mContext.getPackageManager().getPackageInfo(packageName,
+                    0 /* flags */);
+        } catch (PackageManager.NameNotFoundException e) {
+            deletePackageFiles(packageName);
+            return null;
+        }
+        // Icon resources are resolved against the density, night mode, theme and dynamic colors
+        // of the context.
+        final Configuration configuration = context.getResources().getConfiguration();
+        final StringBuilder key = new StringBuilder()
+                .append(packageName)
+                // Reinstalls and updates of debug builds can keep the version code, so the
+                // update time is part of the version too.
+                .append(KEY_SEPARATOR).append(packageInfo.getLongVersionCode())
+                .append(VERSION_SEPARATOR).append(packageInfo.lastUpdateTime)
+                .append(KEY_SEPARATOR).append(iconRes)
+                .append(KEY_SEPARATOR).append(Integer.toHexString(tint))
+                .append(KEY_SEPARATOR).append(rounded ? 1 : 0)
+                .append(KEY_SEPARATOR).append(configuration.densityDpi)
+                .append(KEY_SEPARATOR)
+                .append(configuration.uiMode & Configuration.UI_MODE_NIGHT_MASK)
+                .append(KEY_SEPARATOR).append(Integer.toHexString(context.getThemeResId()))
+                .append(KEY_SEPARATOR).append(Integer.toHexString(getDynamicColorsHash(context)));
+        if (rounded) {
+            // Rounded icons are drawn over the background color of the tile.
+            key.append(KEY_SEPARATOR).append(getBackgroundKey(metaData));
+        }
+        return key.toString();
+    }
+
+    /** Returns the cached icon of the key, or null if it is not cached. */
+    @WorkerThread
+    @Nullable
+    Bitmap get(String key) {
+        Bitmap bitmap = mMemoryCache.get(key);
+        if (bitmap != null) {
+            return bitmap;
+        }
+        final File file = getFile(key);
+        if (!file.exists()) {
+            return null;
+        }
+        bitmap = BitmapFactory.decodeFile(file.getPath());
+        if (bitmap == null) {
+            Log.w(TAG, "Failed to decode cached icon " + key);
+            file.delete();
+            return null;
+        }
+        mMemoryCache.put(key, bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Caches the icon of the key, and deletes the icons cached for other versions of the package.
+     */
+    @WorkerThread
+    void put(String packageName, String key, Bitmap bitmap) {
+        mMemoryCache.put(key, bitmap);
+        if (!mCacheDir.exists() && !mCacheDir.mkdirs()) {
+            Log.w(TAG, "Failed to create cache dir");
+            return;
+        }
+        if (mUninstalledPackagesDeleted.compareAndSet(false, true)) {
+            deleteUninstalledPackageFiles();
+        }
+        deleteStaleFiles(packageName, key);
+
+        final File file = getFile(key);
+        // Each put writes its own temporary file, as the same icon can be put concurrently.
+        final File tempFile;
+        try {
+            tempFile = File.createTempFile(file.getName(), TEMP_FILE_SUFFIX, mCacheDir);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to create cached icon " + key, e);
+            return;
+        }
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100 /* quality */, out);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write cached icon " + key, e);
+            tempFile.delete();
+            return;
+        }
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+        }
+    }
+
+    /** Renders the drawable into a bitmap, or returns null if it has no intrinsic size. */
+    @Nullable
+    static Bitmap render(Drawable drawable) {
+        final int width = drawable.getIntrinsicWidth();
+        final int height = drawable.getIntrinsicHeight();
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+        final Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        final Canvas canvas = new Canvas(bitmap);
+        drawable.setBounds(0, 0, width, height);
+        drawable.draw(canvas);
+        return bitmap;
+    }
+
+    private void deleteStaleFiles(String packageName, String key) {
+        final String packagePrefix = packageName + KEY_SEPARATOR;
+        final String versionPrefix = key.substring(0,
+                key.indexOf(KEY_SEPARATOR, packagePrefix.length()) + 1);
+        // Temporary files are left to the puts writing them.
+        final File[] files = mCacheDir.listFiles(
+                (dir, name) -> name.startsWith(packagePrefix) && !name.startsWith(versionPrefix)
+                        && name.endsWith(FILE_SUFFIX));
+        deleteFiles(files);
+    }
+
+    /** Deletes the icons, temporary files included, of a package which is not installed. */
+    private void deletePackageFiles(String packageName) {
+        final String packagePrefix = packageName + KEY_SEPARATOR;
+        mMemoryCache.snapshot().keySet().stream()
+                .filter(key -> key.startsWith(packagePrefix))
+                .forEach(mMemoryCache::remove);
+        deleteFiles(mCacheDir.listFiles((dir, name) -> name.startsWith(packagePrefix)));
+    }
+
+    @VisibleForTesting
+    void deleteUninstalledPackageFiles() {
+        final File[] files = mCacheDir.listFiles();
+        if (files == null) {
+            return;
+        }
+        final PackageManager packageManager = mContext.getPackageManager();
+        final Map<String, Boolean> installedPackages = new ArrayMap<>();
+        for (File file : files) {
+            final String name = file.getName();
+            final int separatorIndex = name.indexOf(KEY_SEPARATOR);
+            if (separatorIndex <= 0) {
+                file.delete();
+                continue;
+            }
+            final String packageName = name.substring(0, separatorIndex);
+            Boolean installed = installedPackages.get(packageName);
+            if (installed == null) {
+                installed = isPackageInstalled(packageManager, packageName);
+                installedPackages.put(packageName, installed);
+            }
+            if (!installed) {
+                file.delete();
+            }
+        }
+    }
+
+    private static boolean isPackageInstalled(PackageManager packageManager,
+            String packageName) {
+        try {
+            packageManager.getPackageInfo(packageName, 0 /* flags */);
+            return true;
+        } catch (PackageManager.NameNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static void deleteFiles(@Nullable File[] files) {
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    private static int getDynamicColorsHash(Context context) {
+        final int[] colors = new int[DYNAMIC_COLORS.length];
+        for (int i = 0; i < DYNAMIC_COLORS.length; i++) {
+            colors[i] = context.getColor(DYNAMIC_COLORS[i]);
+        }
+        return Arrays.hashCode(colors);
+    }
+
+    private static String getBackgroundKey(@Nullable Bundle metaData) {
+        if (metaData == null) {
+            return "0";
+        }
+        // Same precedence as the background of the rounded icon: the ARGB value, then the color
+        // resource, which is resolved with the package version and theme of the key.
+        final int argb = metaData.getInt(META_DATA_PREFERENCE_ICON_BACKGROUND_ARGB, 0);
+        if (argb != 0) {
+            return "a" + Integer.toHexString(argb);
+        }
+        return "h" + Integer.toHexString(
+                metaData.getInt(META_DATA_PREFERENCE_ICON_BACKGROUND_HINT, 0));
+    }
+
+    private File getFile(String key) {
+        return new File(mCacheDir, key + FILE_SUFFIX);
+    }
+}
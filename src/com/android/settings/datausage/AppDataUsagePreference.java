@@ -89,4 +89,22 @@ public class AppDataUsagePreference extends AppPreference {
     public AppItem getItem() {
         return mItem;
     }
+
+    /**
+     * Returns whether this preference already shows the usage of the item with the given
+     * percentage, so it can be kept when the stats are bound again.
+     */
+    boolean isSameAs(AppItem item, int percent) {
+        if (mPercent != percent || mItem.key != item.key || mItem.category != item.category
+                || mItem.total != item.total || mItem.restricted != item.restricted
+                || mItem.uids.size() != item.uids.size()) {
+            return false;
+        }
+        for (int i = 0; i < item.uids.size(); i++) {
+            if (mItem.uids.keyAt(i) != item.uids.keyAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import static android.app.usage.NetworkStats.Bucket.UID_REMOVED;
+import static android.app.usage.NetworkStats.Bucket.UID_TETHERING;
+
+import android.app.usage.NetworkStats;
+import android.app.usage.NetworkStats.Bucket;
+import android.os.Process;
+import android.os.UserHandle;
+import android.util.SparseBooleanArray;
+import android.util.SparseIntArray;
+
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+import com.android.settingslib.AppItem;
+import com.android.settingslib.net.UidDetailProvider;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntPredicate;
+
+/**
+ * Aggregates the {@link NetworkStats} buckets of a cycle into the sorted list of
+ * {@link AppItem}s shown by {@link DataUsageList}.
+ *
+ * Meant to run off the main thread: the profiles of the current user are looked up in a bitset
+ * and items in a primitive map by collapse key, so aggregating a bucket doesn't allocate.
+ */
+class DataUsageAggregator {
+
+    private final int mCurrentUserId;
+    private final BitSet mProfileUserIds = new BitSet();
+    private final IntPredicate mUserExists;
+    // Whether users which aren't profiles of the current user still exist, looked up once.
+    private final SparseBooleanArray mOtherUserExists = new SparseBooleanArray();
+
+    /**
+     * @param currentUserId the user whose data usage is shown.
+     * @param profiles the profiles of the current user, including itself.
+     * @param userExists whether a user which isn't a profile of the current user exists.
+     */
+    DataUsageAggregator(int currentUserId, List<UserHandle> profiles, IntPredicate userExists) {
+        mCurrentUserId = currentUserId;
+        for (UserHandle profile : profiles) {
+            mProfileUserIds.set(profile.getIdentifier());
+        }
+        mUserExists = userExists;
+    }
+
+    /**
+     * Aggregates and closes the stats, and splices in the restricted state of the apps of the
+     * current user or its profiles.
+     */
+    @WorkerThread
+    Result aggregate(NetworkStats stats, int[] restrictedUids) {
+        final Aggregation aggregation = newAggregation();
+        final Bucket bucket = new Bucket();
+        while (stats.hasNextBucket() && stats.getNextBucket(bucket)) {
+            aggregation.add(bucket.getUid(), bucket.getRxBytes() + bucket.getTxBytes());
+        }
+        stats.close();
+        return aggregation.finish(restrictedUids);
+    }
+
+    @VisibleForTesting
+    Aggregation newAggregation() {
+        return new Aggregation();
+    }
+
+    private boolean isProfile(int userId) {
+        return userId >= 0 && mProfileUserIds.get(userId);
+    }
+
+    private boolean userExists(int userId) {
+        final int index = mOtherUserExists.indexOfKey(userId);
+        if (index >= 0) {
+            return mOtherUserExists.valueAt(index);
+        }
+        final boolean exists = mUserExists.test(userId);
+        mOtherUserExists.put(userId, exists);
+        return exists;
+    }
+
+    /**
+     * The items of a cycle being aggregated, one bucket at a time.
+     */
+    @VisibleForTesting
+    class Aggregation {
+        private final ArrayList<AppItem> mItems = new ArrayList<>();
+        // Collapse key to index in mItems.
+        private final SparseIntArray mKnownItems = new SparseIntArray();
+        private long mLargest;
+
+        /** Adds the data usage of a bucket of the given uid. */
+        void add(int uid, long bytes) {
+            // Decide how to collapse items together
+            final int collapseKey;
+            final int category;
+            final int userId = UserHandle.getUserId(uid);
+            if (UserHandle.isApp(uid) || Process.isSdkSandboxUid(uid)) {
+                if (isProfile(userId)) {
+                    if (userId != mCurrentUserId) {
+                        // Add to a managed user item.
+                        final int managedKey = UidDetailProvider.buildKeyForUser(userId);
+                        accumulate(managedKey, uid, bytes, AppItem.CATEGORY_USER);
+                    }
+                    // Map SDK sandbox back to its corresponding app
+                    if (Process.isSdkSandboxUid(uid)) {
+                        collapseKey = Process.getAppUidForSdkSandboxUid(uid);
+                    } else {
+                        collapseKey = uid;
+                    }
+                    category = AppItem.CATEGORY_APP;
+                } else {
+                    // If it is a removed user add it to the removed users' key
+                    if (!userExists(userId)) {
+                        collapseKey = UID_REMOVED;
+                        category = AppItem.CATEGORY_APP;
+                    } else {
+                        // Add to other user item.
+                        collapseKey = UidDetailProvider.buildKeyForUser(userId);
+                        category = AppItem.CATEGORY_USER;
+                    }
+                }
+            } else if (uid == UID_REMOVED || uid == UID_TETHERING
+                    || uid == Process.OTA_UPDATE_UID) {
+                collapseKey = uid;
+                category = AppItem.CATEGORY_APP;
+            } else {
+                collapseKey = android.os.Process.SYSTEM_UID;
+                category = AppItem.CATEGORY_APP;
+            }
+            accumulate(collapseKey, uid, bytes, category);
+        }
+
+        /**
+         * Splices in the restricted state of the apps of the current user or its profiles, and
+         * returns the sorted items.
+         */
+        Result finish(int[] restrictedUids) {
+            for (int uid : restrictedUids) {
+                // Only splice in restricted state for current user or managed users
+                if (!isProfile(UserHandle.getUserId(uid))) {
+                    continue;
+                }
+
+                final int index = mKnownItems.get(uid, -1);
+                final AppItem item;
+                if (index < 0) {
+                    item = new AppItem(uid);
+                    item.total = -1;
+                    item.addUid(uid);
+                    mKnownItems.put(item.key, mItems.size());
+                    mItems.add(item);
+                } else {
+                    item = mItems.get(index);
+                }
+                item.restricted = true;
+            }
+
+            Collections.sort(mItems);
+            return new Result(Collections.unmodifiableList(mItems), mLargest);
+        }
+
+        /**
+         * Accumulate data usage of a network stats entry for the item mapped by the collapse
+         * key. Creates the item if needed.
+         *
+         * @param collapseKey  the collapse key used to map the item.
+         * @param uid          the uid of the network stats entry.
+         * @param bytes        the data usage of the network stats entry.
+         * @param itemCategory the item is categorized on the list view by this category.
+         */
+        private void accumulate(int collapseKey, int uid, long bytes, int itemCategory) {
+            final int index = mKnownItems.get(collapseKey, -1);
+            final AppItem item;
+            if (index < 0) {
+                item = new AppItem(collapseKey);
+                item.category = itemCategory;
+                mKnownItems.put(item.key, mItems.size());
+                mItems.add(item);
+            } else {
+                item = mItems.get(index);
+            }
+            item.addUid(uid);
+            item.total += bytes;
+            mLargest = Math.max(mLargest, item.total);
+        }
+    }
+
+    /**
+     * The aggregated items of a cycle, sorted for display.
+     */
+    static class Result {
+        /** Unmodifiable. */
+        final List<AppItem> items;
+        /** The largest total of the items. */
+        final long largest;
+
+        Result(List<AppItem> items, long largest) {
+            this.items = items;
+            this.largest = largest;
+        }
+
+        /** Returns the percentage of the largest total used by the item. */
+        int getPercentTotal(AppItem item) {
+            return largest != 0 ? (int) (item.total * 100 / largest) : 0;
+        }
+    }
+}
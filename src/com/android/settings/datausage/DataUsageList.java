@@ -14,29 +14,25 @@
 
 package com.android.settings.datausage;
 
-import static android.app.usage.NetworkStats.Bucket.UID_REMOVED;
-import static android.app.usage.NetworkStats.Bucket.UID_TETHERING;
 import static android.net.NetworkPolicyManager.POLICY_REJECT_METERED_BACKGROUND;
 
 import android.app.Activity;
 import android.app.ActivityManager;
 import android.app.settings.SettingsEnums;
 import android.app.usage.NetworkStats;
-import android.app.usage.NetworkStats.Bucket;
 import android.content.Context;
 import android.content.Intent;
-import android.content.pm.UserInfo;
 import android.graphics.Color;
 import android.net.ConnectivityManager;
 import android.net.NetworkPolicy;
 import android.net.NetworkTemplate;
 import android.os.Bundle;
-import android.os.Process;
 import android.os.UserHandle;
 import android.os.UserManager;
 import android.provider.Settings;
 import android.telephony.SubscriptionInfo;
 import android.telephony.SubscriptionManager;
+import android.util.ArraySet;
 import android.util.EventLog;
 import android.util.Log;
 import android.util.SparseArray;
@@ -77,6 +73,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Panel showing data usage history across various networks, including options
@@ -131,6 +128,12 @@ public class DataUsageList extends DataUsageBaseFragment
     private View mHeader;
     private MobileNetworkRepository mMobileNetworkRepository;
     private SubscriptionInfoEntity mSubscriptionInfoEntity;
+    // The app preferences shown for the last bound stats, keyed by item key.
+    private SparseArray<AppDataUsagePreference> mAppPreferences = new SparseArray<>();
+    // Incremented each time stats are bound, so stale aggregation results are dropped.
+    private int mBindStatsGeneration;
+    private Set<String> mHiddenCarrierServicePackageNames;
+    private int[] mHiddenCarrierServiceCarrierIds;
 
     @Override
     public int getMetricsCategory() {
@@ -422,123 +425,109 @@ public class DataUsageList extends DataUsageBaseFragment
 
     /**
      * Bind the given {@link NetworkStats}, or {@code null} to clear list.
+     *
+     * The stats are aggregated off the main thread, and only the preferences of the apps whose
+     * usage changed since the last bind are replaced.
      */
     private void bindStats(NetworkStats stats, int[] restrictedUids) {
-        mApps.removeAll();
+        final int generation = ++mBindStatsGeneration;
         if (stats == null) {
             if (LOGD) {
                 Log.d(TAG, "No network stats data. App list cleared.");
             }
+            mApps.removeAll();
+            mAppPreferences.clear();
             return;
         }
 
-        final ArrayList<AppItem> items = new ArrayList<>();
-        long largest = 0;
-
-        final int currentUserId = ActivityManager.getCurrentUser();
         final UserManager userManager = UserManager.get(getContext());
-        final List<UserHandle> profiles = userManager.getUserProfiles();
-        final SparseArray<AppItem> knownItems = new SparseArray<AppItem>();
-
-        final Bucket bucket = new Bucket();
-        while (stats.hasNextBucket() && stats.getNextBucket(bucket)) {
-            // Decide how to collapse items together
-            final int uid = bucket.getUid();
-            final int collapseKey;
-            final int category;
-            final int userId = UserHandle.getUserId(uid);
-            if (UserHandle.isApp(uid) || Process.isSdkSandboxUid(uid)) {
-                if (profiles.contains(new UserHandle(userId))) {
-                    if (userId != currentUserId) {
-                        // Add to a managed user item.
-                        final int managedKey = UidDetailProvider.buildKeyForUser(userId);
-                        largest = accumulate(managedKey, knownItems, bucket,
-                            AppItem.CATEGORY_USER, items, largest);
-                    }
-                    // Map SDK sandbox back to its corresponding app
-                    if (Process.isSdkSandboxUid(uid)) {
-                        collapseKey = Process.getAppUidForSdkSandboxUid(uid);
-                    } else {
-                        collapseKey = uid;
-                    }
-                    category = AppItem.CATEGORY_APP;
-                } else {
-                    // If it is a removed user add it to the removed users' key
-                    final UserInfo info = userManager.getUserInfo(userId);
-                    if (info == null) {
-                        collapseKey = UID_REMOVED;
-                        category = AppItem.CATEGORY_APP;
-                    } else {
-                        // Add to other user item.
-                        collapseKey = UidDetailProvider.buildKeyForUser(userId);
-                        category = AppItem.CATEGORY_USER;
-                    }
+        final DataUsageAggregator aggregator = new DataUsageAggregator(
+                ActivityManager.getCurrentUser(), userManager.getUserProfiles(),
+                userId -> userManager.getUserInfo(userId) != null);
+        final Set<String> hiddenPackageNames = getHiddenCarrierServicePackageNames();
+        final UidDetailProvider uidDetailProvider = mUidDetailProvider;
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final DataUsageAggregator.Result result = aggregator.aggregate(stats, restrictedUids);
+            final List<AppItem> items = new ArrayList<>(result.items.size());
+            for (AppItem item : result.items) {
+                final UidDetail detail = uidDetailProvider.getUidDetail(item.key, true);
+                // Do not show carrier service package in data usage list if it should be hidden
+                // for the carrier.
+                if (detail != null && hiddenPackageNames.contains(detail.packageName)) {
+                    continue;
+                }
+                items.add(item);
+            }
+            ThreadUtils.postOnMainThread(() -> {
+                // Drop the result if the stats were bound again meanwhile.
+                if (generation != mBindStatsGeneration || getContext() == null) {
+                    return;
                 }
-            } else if (uid == UID_REMOVED || uid == UID_TETHERING
-                    || uid == Process.OTA_UPDATE_UID) {
-                collapseKey = uid;
-                category = AppItem.CATEGORY_APP;
+                updateAppPreferences(items, result);
+                updateEmptyVisible();
+            });
+        });
+    }
+
+    private void updateAppPreferences(List<AppItem> items, DataUsageAggregator.Result result) {
+        final SparseArray<AppDataUsagePreference> preferences = new SparseArray<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            final AppItem item = items.get(i);
+            final int percentTotal = result.getPercentTotal(item);
+            AppDataUsagePreference preference = mAppPreferences.get(item.key);
+            if (preference != null && preference.isSameAs(item, percentTotal)) {
+                preference.setOrder(i);
             } else {
-                collapseKey = android.os.Process.SYSTEM_UID;
-                category = AppItem.CATEGORY_APP;
+                if (preference != null) {
+                    mApps.removePreference(preference);
+                }
+                preference = new AppDataUsagePreference(getContext(), item, percentTotal,
+                        mUidDetailProvider);
+                preference.setOnPreferenceClickListener(pref -> {
+                    startAppDataUsage(((AppDataUsagePreference) pref).getItem());
+                    return true;
+                });
+                preference.setOrder(i);
+                mApps.addPreference(preference);
             }
-            largest = accumulate(collapseKey, knownItems, bucket, category, items, largest);
+            preferences.put(item.key, preference);
         }
-        stats.close();
-
-        final int restrictedUidsMax = restrictedUids.length;
-        for (int i = 0; i < restrictedUidsMax; ++i) {
-            final int uid = restrictedUids[i];
-            // Only splice in restricted state for current user or managed users
-            if (!profiles.contains(new UserHandle(UserHandle.getUserId(uid)))) {
-                continue;
+        for (int i = 0; i < mAppPreferences.size(); i++) {
+            final AppDataUsagePreference preference = mAppPreferences.valueAt(i);
+            if (preferences.get(mAppPreferences.keyAt(i)) != preference) {
+                mApps.removePreference(preference);
             }
+        }
+        mAppPreferences = preferences;
+    }
 
-            AppItem item = knownItems.get(uid);
-            if (item == null) {
-                item = new AppItem(uid);
-                item.total = -1;
-                item.addUid(uid);
-                items.add(item);
-                knownItems.put(item.key, item);
+    private void updateEmptyVisible() {
+        if ((mApps.getPreferenceCount() != 0) !=
+                (getPreferenceScreen().getPreferenceCount() != 0)) {
+            if (mApps.getPreferenceCount() != 0) {
+                getPreferenceScreen().addPreference(mUsageAmount);
+                getPreferenceScreen().addPreference(mApps);
+            } else {
+                getPreferenceScreen().removeAll();
             }
-            item.restricted = true;
         }
+    }
 
-        Collections.sort(items);
-        final List<String> packageNames = Arrays.asList(getContext().getResources().getStringArray(
-                R.array.datausage_hiding_carrier_service_package_names));
+    private Set<String> getHiddenCarrierServicePackageNames() {
+        if (mHiddenCarrierServicePackageNames == null) {
+            mHiddenCarrierServicePackageNames = new ArraySet<>(getContext().getResources()
+                    .getStringArray(R.array.datausage_hiding_carrier_service_package_names));
+            mHiddenCarrierServiceCarrierIds = getContext().getResources().getIntArray(
+                    R.array.datausage_hiding_carrier_service_carrier_id);
+        }
         // When there is no specified SubscriptionInfo, Wi-Fi data usage will be displayed.
         // In this case, the carrier service package also needs to be hidden.
-        boolean shouldHidePackageName = mSubscriptionInfoEntity != null
-                ? Arrays.stream(getContext().getResources().getIntArray(
-                        R.array.datausage_hiding_carrier_service_carrier_id))
-                .anyMatch(carrierId -> (carrierId == mSubscriptionInfoEntity.carrierId))
+        final boolean shouldHidePackageName = mSubscriptionInfoEntity != null
+                ? Arrays.stream(mHiddenCarrierServiceCarrierIds)
+                        .anyMatch(carrierId -> (carrierId == mSubscriptionInfoEntity.carrierId))
                 : true;
-
-        for (int i = 0; i < items.size(); i++) {
-            UidDetail detail = mUidDetailProvider.getUidDetail(items.get(i).key, true);
-            // Do not show carrier service package in data usage list if it should be hidden for
-            // the carrier.
-            if (detail != null && shouldHidePackageName && packageNames.contains(
-                    detail.packageName)) {
-                continue;
-            }
-
-            final int percentTotal = largest != 0 ? (int) (items.get(i).total * 100 / largest) : 0;
-            final AppDataUsagePreference preference = new AppDataUsagePreference(getContext(),
-                    items.get(i), percentTotal, mUidDetailProvider);
-            preference.setOnPreferenceClickListener(new Preference.OnPreferenceClickListener() {
-                @Override
-                public boolean onPreferenceClick(Preference preference) {
-                    AppDataUsagePreference pref = (AppDataUsagePreference) preference;
-                    AppItem item = pref.getItem();
-                    startAppDataUsage(item);
-                    return true;
-                }
-            });
-            mApps.addPreference(preference);
-        }
+        return shouldHidePackageName ? mHiddenCarrierServicePackageNames
+                : Collections.emptySet();
     }
 
     @VisibleForTesting
@@ -567,30 +556,6 @@ public class DataUsageList extends DataUsageBaseFragment
                 .launch();
     }
 
-    /**
-     * Accumulate data usage of a network stats entry for the item mapped by the collapse key.
-     * Creates the item if needed.
-     *
-     * @param collapseKey  the collapse key used to map the item.
-     * @param knownItems   collection of known (already existing) items.
-     * @param bucket       the network stats bucket to extract data usage from.
-     * @param itemCategory the item is categorized on the list view by this category. Must be
-     */
-    private static long accumulate(int collapseKey, final SparseArray<AppItem> knownItems,
-            Bucket bucket, int itemCategory, ArrayList<AppItem> items, long largest) {
-        final int uid = bucket.getUid();
-        AppItem item = knownItems.get(collapseKey);
-        if (item == null) {
-            item = new AppItem(collapseKey);
-            item.category = itemCategory;
-            items.add(item);
-            knownItems.put(item.key, item);
-        }
-        item.addUid(uid);
-        item.total += bucket.getRxBytes() + bucket.getTxBytes();
-        return Math.max(largest, item.total);
-    }
-
     private final OnItemSelectedListener mCycleListener = new OnItemSelectedListener() {
         @Override
         public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
@@ -645,7 +610,6 @@ public class DataUsageList extends DataUsageBaseFragment
             final int[] restrictedUids = services.mPolicyManager.getUidsWithPolicy(
                     POLICY_REJECT_METERED_BACKGROUND);
             bindStats(data, restrictedUids);
-            updateEmptyVisible();
         }
 
         @Override
@@ -653,18 +617,6 @@ public class DataUsageList extends DataUsageBaseFragment
             bindStats(null, new int[0]);
             updateEmptyVisible();
         }
-
-        private void updateEmptyVisible() {
-            if ((mApps.getPreferenceCount() != 0) !=
-                    (getPreferenceScreen().getPreferenceCount() != 0)) {
-                if (mApps.getPreferenceCount() != 0) {
-                    getPreferenceScreen().addPreference(mUsageAmount);
-                    getPreferenceScreen().addPreference(mApps);
-                } else {
-                    getPreferenceScreen().removeAll();
-                }
-            }
-        }
     };
 
     private static boolean isGuestUser(Context context) {
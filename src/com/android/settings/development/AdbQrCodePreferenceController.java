@@ -36,7 +36,7 @@ import com.android.settings.core.BasePreferenceController;
 public class AdbQrCodePreferenceController extends BasePreferenceController {
     private static final String TAG = "AdbQrCodePrefCtrl";
 
-    private IAdbManager mAdbManager;
+    private final IAdbManager mAdbManager;
     private Fragment mParentFragment;
 
     public AdbQrCodePreferenceController(Context context, String key) {
@@ -27,13 +27,18 @@ import androidx.annotation.VisibleForTesting;
 import androidx.preference.Preference;
 import androidx.preference.SwitchPreference;
 
+import com.android.settings.core.MainThreadOnlyController;
 import com.android.settings.core.PreferenceControllerMixin;
 import com.android.settingslib.development.DeveloperOptionsPreferenceController;
 
 /**
  * Preference controller to control whether display Bluetooth LE audio toggle in device detail
  * settings page or not.
+ *
+ * isAvailable() fills a static cache shared by all the instances without locking, so it stays
+ * on the main thread.
  */
+@MainThreadOnlyController
 public class BluetoothLeAudioDeviceDetailsPreferenceController
         extends DeveloperOptionsPreferenceController
         implements Preference.OnPreferenceChangeListener, PreferenceControllerMixin {
@@ -270,6 +270,15 @@ public class DevelopmentSettingsDashboardFragment extends RestrictedDashboardFra
         return true;
     }
 
+    @Override
+    protected boolean shouldEvaluateAvailabilityInParallel() {
+        // The availability of the developer options mostly depends on system properties and
+        // system services, and this page has well over a hundred controllers. Their
+        // isAvailable() only reads final fields, settings, system properties and system services;
+        // the controllers that read anything else are annotated with MainThreadOnlyController.
+        return true;
+    }
+
     /**
      * Long-pressing a developer options quick settings tile will by default (see
      * QS_TILE_PREFERENCES in the manifest) take you to the developer options page.
@@ -21,6 +21,7 @@ import android.content.Context;
 import androidx.annotation.VisibleForTesting;
 import androidx.preference.PreferenceScreen;
 
+import com.android.settings.core.MainThreadOnlyController;
 import com.android.settings.core.PreferenceControllerMixin;
 import com.android.settingslib.core.lifecycle.Lifecycle;
 import com.android.settingslib.core.lifecycle.LifecycleObserver;
@@ -28,6 +29,8 @@ import com.android.settingslib.core.lifecycle.events.OnPause;
 import com.android.settingslib.core.lifecycle.events.OnResume;
 import com.android.settingslib.development.DeveloperOptionsPreferenceController;
 
+// isAvailable() reads the configuration of the activity, which changes on the main thread.
+@MainThreadOnlyController
 public class PictureColorModePreferenceController extends DeveloperOptionsPreferenceController
         implements LifecycleObserver, OnResume, OnPause, PreferenceControllerMixin {
 
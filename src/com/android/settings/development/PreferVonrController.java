@@ -47,7 +47,7 @@ public class PreferVonrController extends DeveloperOptionsPreferenceController i
     private static final String KEY = "prefer_vonr_mode";
 
 
-    private UserManager mUserManager;
+    private final UserManager mUserManager;
     private SubscriptionsChangeListener mChangeListener;
     private Preference mPreference;
 
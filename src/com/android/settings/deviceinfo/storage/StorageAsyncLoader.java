@@ -39,6 +39,8 @@ import android.util.ArraySet;
 import android.util.Log;
 import android.util.SparseArray;
 
+import androidx.annotation.VisibleForTesting;
+
 import com.android.settingslib.applications.StorageStatsSource;
 import com.android.settingslib.utils.AsyncLoaderCompat;
 
@@ -85,38 +87,19 @@ public class StorageAsyncLoader
 
         for (UserInfo info : infos) {
             final StorageResult result = getAppsAndGamesSize(info.id);
-            final Bundle media = new Bundle();
-            media.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, MediaColumns.VOLUME_NAME
-                    + "= '" + MediaStore.VOLUME_EXTERNAL_PRIMARY + "'");
-            result.imagesSize = getFilesSize(info.id, MediaStore.Images.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-            result.videosSize = getFilesSize(info.id, MediaStore.Video.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-            result.audioSize = getFilesSize(info.id, MediaStore.Audio.Media.EXTERNAL_CONTENT_URI,
-                    media /* queryArgs */);
-
-            final Bundle documentsAndOtherQueryArgs = new Bundle();
-            documentsAndOtherQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
-                    FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_IMAGE
-                    + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_VIDEO
-                    + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_AUDIO
-                    + " AND " + FileColumns.MIME_TYPE + " IS NOT NULL");
-            result.documentsAndOtherSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
-                    documentsAndOtherQueryArgs);
-
-            final Bundle trashQueryArgs = new Bundle();
-            trashQueryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
-            result.trashSize = getFilesSize(info.id,
-                    MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
-                    trashQueryArgs);
-
+            loadFilesSize(info.id, result);
             results.put(info.id, result);
         }
         return results;
     }
 
-    private long getFilesSize(int userId, Uri uri, Bundle queryArgs) {
+    /**
+     * Loads the file based sizes of the user. The sizes are reused from the last scan while the
+     * MediaStore generation and number of rows of the volume are unchanged, otherwise they are
+     * scanned again. The generation only covers added and modified rows, the number of rows
+     * covers deleted ones.
+     */
+    private void loadFilesSize(int userId, StorageResult result) {
         final Context perUserContext;
         try {
             perUserContext = getContext().createPackageContextAsUser(
@@ -125,9 +108,170 @@ public class StorageAsyncLoader
                 UserHandle.of(userId));
         } catch (NameNotFoundException e) {
             Log.e(TAG, "Not able to get Context for user ID " + userId);
-            return 0L;
+            return;
+        }
+
+        String version = null;
+        long generation = 0L;
+        try {
+            version = getMediaStoreVersion(perUserContext);
+            generation = getMediaStoreGeneration(perUserContext);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Not able to get MediaStore generation for user ID " + userId, e);
+            version = null;
+        }
+        final long rowCount = version != null ? getFilesCount(perUserContext) : -1L;
+        if (rowCount < 0) {
+            // Deletions can't be detected, always scan.
+            version = null;
+        }
+
+        final StorageCacheHelper cacheHelper = new StorageCacheHelper(getContext(), userId);
+        if (version != null) {
+            final StorageCacheHelper.MediaSizeCache cache =
+                    cacheHelper.retrieveMediaSizeInfo(version, generation, rowCount);
+            if (cache != null) {
+                Log.d(TAG, "MediaStore unchanged, reusing file sizes for user ID " + userId);
+                result.imagesSize = cache.imagesSize;
+                result.videosSize = cache.videosSize;
+                result.audioSize = cache.audioSize;
+                result.documentsAndOtherSize = cache.documentsAndOtherSize;
+                result.trashSize = cache.trashSize;
+                return;
+            }
+        }
+
+        if (!loadGroupedFilesSize(perUserContext, result)) {
+            loadFilesSizeByCategory(perUserContext, result);
         }
 
+        final Bundle trashQueryArgs = new Bundle();
+        trashQueryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_ONLY);
+        result.trashSize = getFilesSize(perUserContext,
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                trashQueryArgs);
+
+        if (version != null) {
+            final StorageCacheHelper.MediaSizeCache cache = new StorageCacheHelper.MediaSizeCache();
+            cache.imagesSize = result.imagesSize;
+            cache.videosSize = result.videosSize;
+            cache.audioSize = result.audioSize;
+            cache.documentsAndOtherSize = result.documentsAndOtherSize;
+            cache.trashSize = result.trashSize;
+            // The generation and number of rows are read before the scan, so changes made during
+            // the scan are picked up by the next one.
+            cacheHelper.cacheMediaSizeInfo(version, generation, rowCount, cache);
+        }
+    }
+
+    @VisibleForTesting
+    String getMediaStoreVersion(Context perUserContext) {
+        return MediaStore.getVersion(perUserContext, MediaStore.VOLUME_EXTERNAL_PRIMARY);
+    }
+
+    @VisibleForTesting
+    long getMediaStoreGeneration(Context perUserContext) {
+        return MediaStore.getGeneration(perUserContext, MediaStore.VOLUME_EXTERNAL_PRIMARY);
+    }
+
+    /**
+     * Returns the number of rows of the volume, trashed and pending ones included, or -1 if they
+     * can't be counted.
+     */
+    private long getFilesCount(Context perUserContext) {
+        final Bundle queryArgs = new Bundle();
+        queryArgs.putInt(MediaStore.QUERY_ARG_MATCH_TRASHED, MediaStore.MATCH_INCLUDE);
+        queryArgs.putInt(MediaStore.QUERY_ARG_MATCH_PENDING, MediaStore.MATCH_INCLUDE);
+        try (Cursor cursor = perUserContext.getContentResolver().query(
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                new String[] {"count(*)"},
+                queryArgs,
+                null /* cancellationSignal */)) {
+            if (cursor == null || !cursor.moveToFirst()) {
+                return -1L;
+            }
+            return cursor.getLong(0);
+        } catch (IllegalArgumentException | SecurityException e) {
+            Log.w(TAG, "Not able to count MediaStore rows", e);
+            return -1L;
+        }
+    }
+
+    /**
+     * Sums the sizes of images, videos, audio and documents and other files in a single query
+     * grouped by media type. Returns false if the query is not supported.
+     */
+    private boolean loadGroupedFilesSize(Context perUserContext, StorageResult result) {
+        final Bundle queryArgs = new Bundle();
+        queryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
+                FileColumns.MEDIA_TYPE + " IN (" + FileColumns.MEDIA_TYPE_IMAGE
+                + "," + FileColumns.MEDIA_TYPE_VIDEO + "," + FileColumns.MEDIA_TYPE_AUDIO
+                + ") OR " + FileColumns.MIME_TYPE + " IS NOT NULL");
+        queryArgs.putString(ContentResolver.QUERY_ARG_SQL_GROUP_BY, FileColumns.MEDIA_TYPE);
+
+        try (Cursor cursor = perUserContext.getContentResolver().query(
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                new String[] {FileColumns.MEDIA_TYPE, "sum(" + MediaColumns.SIZE + ")"},
+                queryArgs,
+                null /* cancellationSignal */)) {
+            if (cursor == null) {
+                return false;
+            }
+            long imagesSize = 0L;
+            long videosSize = 0L;
+            long audioSize = 0L;
+            long documentsAndOtherSize = 0L;
+            while (cursor.moveToNext()) {
+                final long size = cursor.getLong(1);
+                switch (cursor.getInt(0)) {
+                    case FileColumns.MEDIA_TYPE_IMAGE:
+                        imagesSize += size;
+                        break;
+                    case FileColumns.MEDIA_TYPE_VIDEO:
+                        videosSize += size;
+                        break;
+                    case FileColumns.MEDIA_TYPE_AUDIO:
+                        audioSize += size;
+                        break;
+                    default:
+                        documentsAndOtherSize += size;
+                        break;
+                }
+            }
+            result.imagesSize = imagesSize;
+            result.videosSize = videosSize;
+            result.audioSize = audioSize;
+            result.documentsAndOtherSize = documentsAndOtherSize;
+            return true;
+        } catch (IllegalArgumentException | SecurityException e) {
+            Log.w(TAG, "Grouped files size query not supported", e);
+            return false;
+        }
+    }
+
+    private void loadFilesSizeByCategory(Context perUserContext, StorageResult result) {
+        final Bundle media = new Bundle();
+        media.putString(ContentResolver.QUERY_ARG_SQL_SELECTION, MediaColumns.VOLUME_NAME
+                + "= '" + MediaStore.VOLUME_EXTERNAL_PRIMARY + "'");
+        result.imagesSize = getFilesSize(perUserContext,
+                MediaStore.Images.Media.EXTERNAL_CONTENT_URI, media /* queryArgs */);
+        result.videosSize = getFilesSize(perUserContext,
+                MediaStore.Video.Media.EXTERNAL_CONTENT_URI, media /* queryArgs */);
+        result.audioSize = getFilesSize(perUserContext,
+                MediaStore.Audio.Media.EXTERNAL_CONTENT_URI, media /* queryArgs */);
+
+        final Bundle documentsAndOtherQueryArgs = new Bundle();
+        documentsAndOtherQueryArgs.putString(ContentResolver.QUERY_ARG_SQL_SELECTION,
+                FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_IMAGE
+                + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_VIDEO
+                + " AND " + FileColumns.MEDIA_TYPE + "!=" + FileColumns.MEDIA_TYPE_AUDIO
+                + " AND " + FileColumns.MIME_TYPE + " IS NOT NULL");
+        result.documentsAndOtherSize = getFilesSize(perUserContext,
+                MediaStore.Files.getContentUri(MediaStore.VOLUME_EXTERNAL_PRIMARY),
+                documentsAndOtherQueryArgs);
+    }
+
+    private long getFilesSize(Context perUserContext, Uri uri, Bundle queryArgs) {
         try (Cursor cursor = perUserContext.getContentResolver().query(
                 uri,
                 new String[] {"sum(" + MediaColumns.SIZE + ")"},
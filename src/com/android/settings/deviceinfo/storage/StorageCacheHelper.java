@@ -19,6 +19,8 @@ package com.android.settings.deviceinfo.storage;
 import android.content.Context;
 import android.content.SharedPreferences;
 
+import androidx.annotation.Nullable;
+
 /**
  * A utility class to cache and restore the storage size information.
  */
@@ -37,11 +39,20 @@ public class StorageCacheHelper {
     private static final String SYSTEM_SIZE_KEY = "system_size_key";
     private static final String USED_SIZE_KEY = "used_size_key";
 
+    // Sizes scanned from MediaStore, kept apart so they don't count as cached size info.
+    private static final String MEDIA_SHARED_PREFERENCE_NAME = "StorageMediaCache";
+    private static final String MEDIA_STORE_VERSION_KEY = "media_store_version_key";
+    private static final String MEDIA_STORE_GENERATION_KEY = "media_store_generation_key";
+    private static final String MEDIA_STORE_ROW_COUNT_KEY = "media_store_row_count_key";
+
     private final SharedPreferences mSharedPreferences;
+    private final SharedPreferences mMediaSharedPreferences;
 
     public StorageCacheHelper(Context context, int userId) {
         String sharedPrefName = SHARED_PREFERENCE_NAME + userId;
         mSharedPreferences = context.getSharedPreferences(sharedPrefName, Context.MODE_PRIVATE);
+        mMediaSharedPreferences = context.getSharedPreferences(
+                MEDIA_SHARED_PREFERENCE_NAME + userId, Context.MODE_PRIVATE);
     }
 
     /**
@@ -112,6 +123,47 @@ public class StorageCacheHelper {
         return result;
     }
 
+    /**
+     * Cache the file sizes scanned from MediaStore at the given version, generation and number of
+     * rows. The generation only grows when rows are added or modified, the number of rows tells
+     * whether some were deleted.
+     */
+    public void cacheMediaSizeInfo(String version, long generation, long rowCount,
+            MediaSizeCache data) {
+        mMediaSharedPreferences
+                .edit()
+                .putString(MEDIA_STORE_VERSION_KEY, version)
+                .putLong(MEDIA_STORE_GENERATION_KEY, generation)
+                .putLong(MEDIA_STORE_ROW_COUNT_KEY, rowCount)
+                .putLong(IMAGES_SIZE_KEY, data.imagesSize)
+                .putLong(VIDEOS_SIZE_KEY, data.videosSize)
+                .putLong(AUDIO_SIZE_KEY, data.audioSize)
+                .putLong(DOCUMENTS_AND_OTHER_SIZE_KEY, data.documentsAndOtherSize)
+                .putLong(TRASH_SIZE_KEY, data.trashSize)
+                .apply();
+    }
+
+    /**
+     * Returns the file sizes scanned from MediaStore, or null if they were not scanned at the
+     * given version, generation and number of rows.
+     */
+    @Nullable
+    public MediaSizeCache retrieveMediaSizeInfo(String version, long generation, long rowCount) {
+        if (!version.equals(mMediaSharedPreferences.getString(MEDIA_STORE_VERSION_KEY, null))
+                || generation != mMediaSharedPreferences.getLong(MEDIA_STORE_GENERATION_KEY, -1)
+                || rowCount != mMediaSharedPreferences.getLong(MEDIA_STORE_ROW_COUNT_KEY, -1)) {
+            return null;
+        }
+        MediaSizeCache result = new MediaSizeCache();
+        result.imagesSize = mMediaSharedPreferences.getLong(IMAGES_SIZE_KEY, 0);
+        result.videosSize = mMediaSharedPreferences.getLong(VIDEOS_SIZE_KEY, 0);
+        result.audioSize = mMediaSharedPreferences.getLong(AUDIO_SIZE_KEY, 0);
+        result.documentsAndOtherSize =
+                mMediaSharedPreferences.getLong(DOCUMENTS_AND_OTHER_SIZE_KEY, 0);
+        result.trashSize = mMediaSharedPreferences.getLong(TRASH_SIZE_KEY, 0);
+        return result;
+    }
+
     /**
      *  All the cached data about the file size information.
      */
@@ -127,4 +179,15 @@ public class StorageCacheHelper {
         public long trashSize;
         public long systemSize;
     }
+
+    /**
+     *  The file sizes scanned from MediaStore.
+     */
+    public static class MediaSizeCache {
+        public long audioSize;
+        public long imagesSize;
+        public long videosSize;
+        public long documentsAndOtherSize;
+        public long trashSize;
+    }
 }
@@ -20,12 +20,16 @@ import android.database.Cursor;
 import android.os.BatteryConsumer;
 import android.util.Log;
 
+import com.android.settings.fuelgauge.BatteryUtils;
+
 import java.time.Duration;
 
 /** A container class to carry data from {@link ContentValues}. */
 public class BatteryHistEntry {
     private static final boolean DEBUG = false;
     private static final String TAG = "BatteryHistEntry";
+    private static final int COMPACT_KEY_VALUE_BITS = 48;
+    private static final long COMPACT_KEY_VALUE_MASK = (1L << COMPACT_KEY_VALUE_BITS) - 1;
 
     /** Keys for accessing {@link ContentValues} or {@link Cursor}. */
     public static final String KEY_UID = "uid";
@@ -36,25 +40,40 @@ public class BatteryHistEntry {
     public static final String KEY_IS_FULL_CHARGE_CYCLE_START = "isFullChargeCycleStart";
     public static final String KEY_BATTERY_INFORMATION = "batteryInformation";
     public static final String KEY_BATTERY_INFORMATION_DEBUG = "batteryInformationDebug";
+    /** Keys for the hot numeric fields which are also stored as primitive columns. */
+    public static final String KEY_CONSUME_POWER = "consumePower";
+    public static final String KEY_FOREGROUND_USAGE_CONSUME_POWER = "foregroundUsageConsumePower";
+    public static final String KEY_FOREGROUND_SERVICE_USAGE_CONSUME_POWER =
+            "foregroundServiceUsageConsumePower";
+    public static final String KEY_BACKGROUND_USAGE_CONSUME_POWER = "backgroundUsageConsumePower";
+    public static final String KEY_CACHED_USAGE_CONSUME_POWER = "cachedUsageConsumePower";
+    public static final String KEY_FOREGROUND_USAGE_TIME_IN_MS = "foregroundUsageTimeInMs";
+    public static final String KEY_BACKGROUND_USAGE_TIME_IN_MS = "backgroundUsageTimeInMs";
+    public static final String KEY_DRAIN_TYPE = "drainType";
+    public static final String KEY_BATTERY_LEVEL = "batteryLevel";
+
+    private static final String[] HOT_KEYS = {
+            KEY_CONSUME_POWER,
+            KEY_FOREGROUND_USAGE_CONSUME_POWER,
+            KEY_FOREGROUND_SERVICE_USAGE_CONSUME_POWER,
+            KEY_BACKGROUND_USAGE_CONSUME_POWER,
+            KEY_CACHED_USAGE_CONSUME_POWER,
+            KEY_FOREGROUND_USAGE_TIME_IN_MS,
+            KEY_BACKGROUND_USAGE_TIME_IN_MS,
+            KEY_DRAIN_TYPE,
+            KEY_BATTERY_LEVEL};
 
     public final long mUid;
     public final long mUserId;
-    public final String mAppLabel;
     public final String mPackageName;
-    // Whether the data is represented as system component or not?
-    public final boolean mIsHidden;
     // Records the timestamp relative information.
-    public final long mBootTimestamp;
     public final long mTimestamp;
-    public final String mZoneId;
     // Records the battery usage relative information.
-    public final double mTotalPower;
     public final double mConsumePower;
     public final double mForegroundUsageConsumePower;
     public final double mForegroundServiceUsageConsumePower;
     public final double mBackgroundUsageConsumePower;
     public final double mCachedUsageConsumePower;
-    public final double mPercentOfTotal;
     public final long mForegroundUsageTimeInMs;
     public final long mBackgroundUsageTimeInMs;
     @BatteryConsumer.PowerComponent
@@ -63,8 +82,16 @@ public class BatteryHistEntry {
     public final int mConsumerType;
     // Records the battery intent relative information.
     public final int mBatteryLevel;
-    public final int mBatteryStatus;
-    public final int mBatteryHealth;
+
+    // The other fields are read from the BatteryInformation, which is parsed from
+    // mBatteryInformationBytes on first access.
+    private BatteryInformation mBatteryInformation;
+    private byte[] mBatteryInformationBytes;
+    // Set on an entry created by interpolate(), which derives the other fields from these.
+    private final BatteryHistEntry mUpperEntry;
+    private final BatteryHistEntry mLowerEntry;
+    private final double mRatio;
+    private final long mUpperTimestamp;
 
     private String mKey = null;
     private boolean mIsValidEntry = true;
@@ -77,61 +104,81 @@ public class BatteryHistEntry {
         mConsumerType = getInteger(values, KEY_CONSUMER_TYPE);
         final BatteryInformation batteryInformation =
                 ConvertUtils.getBatteryInformation(values, KEY_BATTERY_INFORMATION);
-        mAppLabel = batteryInformation.getAppLabel();
-        mIsHidden = batteryInformation.getIsHidden();
-        mBootTimestamp = batteryInformation.getBootTimestamp();
-        mZoneId = batteryInformation.getZoneId();
-        mTotalPower = batteryInformation.getTotalPower();
+        mBatteryInformation = batteryInformation;
         mConsumePower = batteryInformation.getConsumePower();
         mForegroundUsageConsumePower = batteryInformation.getForegroundUsageConsumePower();
         mForegroundServiceUsageConsumePower =
                 batteryInformation.getForegroundServiceUsageConsumePower();
         mBackgroundUsageConsumePower = batteryInformation.getBackgroundUsageConsumePower();
         mCachedUsageConsumePower = batteryInformation.getCachedUsageConsumePower();
-        mPercentOfTotal = batteryInformation.getPercentOfTotal();
         mForegroundUsageTimeInMs = batteryInformation.getForegroundUsageTimeInMs();
         mBackgroundUsageTimeInMs = batteryInformation.getBackgroundUsageTimeInMs();
         mDrainType = batteryInformation.getDrainType();
-        final DeviceBatteryState deviceBatteryState = batteryInformation.getDeviceBatteryState();
-        mBatteryLevel = deviceBatteryState.getBatteryLevel();
-        mBatteryStatus = deviceBatteryState.getBatteryStatus();
-        mBatteryHealth = deviceBatteryState.getBatteryHealth();
+        mBatteryLevel = batteryInformation.getDeviceBatteryState().getBatteryLevel();
+        mUpperEntry = null;
+        mLowerEntry = null;
+        mRatio = 0;
+        mUpperTimestamp = 0L;
     }
 
+    /**
+     * Creates the entry from a {@link Cursor}. The hot numeric fields are read from their
+     * primitive columns, and the {@link BatteryInformation} is only parsed once one of the other
+     * fields is accessed. A cursor without the primitive columns is parsed right away.
+     */
     public BatteryHistEntry(Cursor cursor) {
         mUid = getLong(cursor, KEY_UID);
         mUserId = getLong(cursor, KEY_USER_ID);
         mPackageName = getString(cursor, KEY_PACKAGE_NAME);
         mTimestamp = getLong(cursor, KEY_TIMESTAMP);
         mConsumerType = getInteger(cursor, KEY_CONSUMER_TYPE);
+        mUpperEntry = null;
+        mLowerEntry = null;
+        mRatio = 0;
+        mUpperTimestamp = 0L;
+        final int columnIndex = cursor.getColumnIndex(KEY_BATTERY_INFORMATION);
+        if (hasHotColumns(cursor)
+                && (columnIndex < 0 || cursor.getType(columnIndex) != Cursor.FIELD_TYPE_STRING)) {
+            mBatteryInformationBytes = columnIndex >= 0 ? cursor.getBlob(columnIndex) : null;
+            mConsumePower = cursor.getDouble(cursor.getColumnIndex(KEY_CONSUME_POWER));
+            mForegroundUsageConsumePower = cursor.getDouble(
+                    cursor.getColumnIndex(KEY_FOREGROUND_USAGE_CONSUME_POWER));
+            mForegroundServiceUsageConsumePower = cursor.getDouble(
+                    cursor.getColumnIndex(KEY_FOREGROUND_SERVICE_USAGE_CONSUME_POWER));
+            mBackgroundUsageConsumePower = cursor.getDouble(
+                    cursor.getColumnIndex(KEY_BACKGROUND_USAGE_CONSUME_POWER));
+            mCachedUsageConsumePower = cursor.getDouble(
+                    cursor.getColumnIndex(KEY_CACHED_USAGE_CONSUME_POWER));
+            mForegroundUsageTimeInMs = cursor.getLong(
+                    cursor.getColumnIndex(KEY_FOREGROUND_USAGE_TIME_IN_MS));
+            mBackgroundUsageTimeInMs = cursor.getLong(
+                    cursor.getColumnIndex(KEY_BACKGROUND_USAGE_TIME_IN_MS));
+            mDrainType = cursor.getInt(cursor.getColumnIndex(KEY_DRAIN_TYPE));
+            mBatteryLevel = cursor.getInt(cursor.getColumnIndex(KEY_BATTERY_LEVEL));
+            return;
+        }
+        // Legacy cursor, reads all the fields from the BatteryInformation.
         final BatteryInformation batteryInformation =
                 ConvertUtils.getBatteryInformation(cursor, KEY_BATTERY_INFORMATION);
-        mAppLabel = batteryInformation.getAppLabel();
-        mIsHidden = batteryInformation.getIsHidden();
-        mBootTimestamp = batteryInformation.getBootTimestamp();
-        mZoneId = batteryInformation.getZoneId();
-        mTotalPower = batteryInformation.getTotalPower();
+        mBatteryInformation = batteryInformation;
         mConsumePower = batteryInformation.getConsumePower();
         mForegroundUsageConsumePower = batteryInformation.getForegroundUsageConsumePower();
         mForegroundServiceUsageConsumePower =
                 batteryInformation.getForegroundServiceUsageConsumePower();
         mBackgroundUsageConsumePower = batteryInformation.getBackgroundUsageConsumePower();
         mCachedUsageConsumePower = batteryInformation.getCachedUsageConsumePower();
-        mPercentOfTotal = batteryInformation.getPercentOfTotal();
         mForegroundUsageTimeInMs = batteryInformation.getForegroundUsageTimeInMs();
         mBackgroundUsageTimeInMs = batteryInformation.getBackgroundUsageTimeInMs();
         mDrainType = batteryInformation.getDrainType();
-        final DeviceBatteryState deviceBatteryState = batteryInformation.getDeviceBatteryState();
-        mBatteryLevel = deviceBatteryState.getBatteryLevel();
-        mBatteryStatus = deviceBatteryState.getBatteryStatus();
-        mBatteryHealth = deviceBatteryState.getBatteryHealth();
+        mBatteryLevel = batteryInformation.getDeviceBatteryState().getBatteryLevel();
     }
 
     private BatteryHistEntry(
-            BatteryHistEntry fromEntry,
-            long bootTimestamp,
+            BatteryHistEntry upperEntry,
+            BatteryHistEntry lowerEntry,
+            double ratio,
+            long upperTimestamp,
             long timestamp,
-            double totalPower,
             double consumePower,
             double foregroundUsageConsumePower,
             double foregroundServiceUsageConsumePower,
@@ -140,28 +187,89 @@ public class BatteryHistEntry {
             long foregroundUsageTimeInMs,
             long backgroundUsageTimeInMs,
             int batteryLevel) {
-        mUid = fromEntry.mUid;
-        mUserId = fromEntry.mUserId;
-        mAppLabel = fromEntry.mAppLabel;
-        mPackageName = fromEntry.mPackageName;
-        mIsHidden = fromEntry.mIsHidden;
-        mBootTimestamp = bootTimestamp;
+        mUid = upperEntry.mUid;
+        mUserId = upperEntry.mUserId;
+        mPackageName = upperEntry.mPackageName;
         mTimestamp = timestamp;
-        mZoneId = fromEntry.mZoneId;
-        mTotalPower = totalPower;
         mConsumePower = consumePower;
         mForegroundUsageConsumePower = foregroundUsageConsumePower;
         mForegroundServiceUsageConsumePower = foregroundServiceUsageConsumePower;
         mBackgroundUsageConsumePower = backgroundUsageConsumePower;
         mCachedUsageConsumePower = cachedUsageConsumePower;
-        mPercentOfTotal = fromEntry.mPercentOfTotal;
         mForegroundUsageTimeInMs = foregroundUsageTimeInMs;
         mBackgroundUsageTimeInMs = backgroundUsageTimeInMs;
-        mDrainType = fromEntry.mDrainType;
-        mConsumerType = fromEntry.mConsumerType;
+        mDrainType = upperEntry.mDrainType;
+        mConsumerType = upperEntry.mConsumerType;
         mBatteryLevel = batteryLevel;
-        mBatteryStatus = fromEntry.mBatteryStatus;
-        mBatteryHealth = fromEntry.mBatteryHealth;
+        mUpperEntry = upperEntry;
+        mLowerEntry = lowerEntry;
+        mRatio = ratio;
+        mUpperTimestamp = upperTimestamp;
+    }
+
+    /** Gets the app label. */
+    public String getAppLabel() {
+        return mUpperEntry != null
+                ? mUpperEntry.getAppLabel() : getBatteryInformation().getAppLabel();
+    }
+
+    /** Whether the data is represented as system component or not? */
+    public boolean isHidden() {
+        return mUpperEntry != null
+                ? mUpperEntry.isHidden() : getBatteryInformation().getIsHidden();
+    }
+
+    /** Gets the boot timestamp. */
+    public long getBootTimestamp() {
+        return mUpperEntry != null
+                ? mUpperEntry.getBootTimestamp() - (mUpperTimestamp - mTimestamp)
+                : getBatteryInformation().getBootTimestamp();
+    }
+
+    /** Gets the zone ID. */
+    public String getZoneId() {
+        return mUpperEntry != null
+                ? mUpperEntry.getZoneId() : getBatteryInformation().getZoneId();
+    }
+
+    /** Gets the total power. */
+    public double getTotalPower() {
+        if (mUpperEntry != null) {
+            return interpolate(
+                    mLowerEntry == null ? 0 : mLowerEntry.getTotalPower(),
+                    mUpperEntry.getTotalPower(),
+                    mRatio);
+        }
+        return getBatteryInformation().getTotalPower();
+    }
+
+    /** Gets the percent of total. */
+    public double getPercentOfTotal() {
+        return mUpperEntry != null
+                ? mUpperEntry.getPercentOfTotal() : getBatteryInformation().getPercentOfTotal();
+    }
+
+    /** Gets the battery status. */
+    public int getBatteryStatus() {
+        return mUpperEntry != null
+                ? mUpperEntry.getBatteryStatus()
+                : getBatteryInformation().getDeviceBatteryState().getBatteryStatus();
+    }
+
+    /** Gets the battery health. */
+    public int getBatteryHealth() {
+        return mUpperEntry != null
+                ? mUpperEntry.getBatteryHealth()
+                : getBatteryInformation().getDeviceBatteryState().getBatteryHealth();
+    }
+
+    private synchronized BatteryInformation getBatteryInformation() {
+        if (mBatteryInformation == null) {
+            mBatteryInformation = BatteryUtils.parseProtoFromBytes(
+                    mBatteryInformationBytes, BatteryInformation.getDefaultInstance());
+            mBatteryInformationBytes = null;
+        }
+        return mBatteryInformation;
     }
 
     /** Whether this {@link BatteryHistEntry} is valid or not? */
@@ -187,17 +295,42 @@ public class BatteryHistEntry {
         return mKey;
     }
 
+    /**
+     * Gets a primitive identifier which is equivalent to {@link #getKey()}. The consumer type is
+     * stored in the high bits and the uid, drain type or user ID in the low bits.
+     */
+    public long getCompactKey() {
+        final long value;
+        switch (mConsumerType) {
+            case ConvertUtils.CONSUMER_TYPE_UID_BATTERY:
+                value = mUid;
+                break;
+            case ConvertUtils.CONSUMER_TYPE_SYSTEM_BATTERY:
+                value = mDrainType;
+                break;
+            case ConvertUtils.CONSUMER_TYPE_USER_BATTERY:
+                value = mUserId;
+                break;
+            default:
+                value = 0L;
+                break;
+        }
+        return ((long) mConsumerType << COMPACT_KEY_VALUE_BITS)
+                | (value & COMPACT_KEY_VALUE_MASK);
+    }
+
     @Override
     public String toString() {
         final String recordAtDateTime = ConvertUtils.utcToLocalTimeForLogging(mTimestamp);
         final StringBuilder builder = new StringBuilder()
                 .append("\nBatteryHistEntry{")
                 .append(String.format("\n\tpackage=%s|label=%s|uid=%d|userId=%d|isHidden=%b",
-                        mPackageName, mAppLabel, mUid, mUserId, mIsHidden))
+                        mPackageName, getAppLabel(), mUid, mUserId, isHidden()))
                 .append(String.format("\n\ttimestamp=%s|zoneId=%s|bootTimestamp=%d",
-                        recordAtDateTime, mZoneId, Duration.ofMillis(mBootTimestamp).getSeconds()))
+                        recordAtDateTime, getZoneId(),
+                        Duration.ofMillis(getBootTimestamp()).getSeconds()))
                 .append(String.format("\n\tusage=%f|total=%f|consume=%f",
-                        mPercentOfTotal, mTotalPower, mConsumePower))
+                        getPercentOfTotal(), getTotalPower(), mConsumePower))
                 .append(String.format("\n\tforeground=%f|foregroundService=%f",
                         mForegroundUsageConsumePower, mForegroundServiceUsageConsumePower))
                 .append(String.format("\n\tbackground=%f|cached=%f",
@@ -208,7 +341,7 @@ public class BatteryHistEntry {
                 .append(String.format("\n\tdrainType=%d|consumerType=%d",
                         mDrainType, mConsumerType))
                 .append(String.format("\n\tbattery=%d|status=%d|health=%d\n}",
-                        mBatteryLevel, mBatteryStatus, mBatteryHealth));
+                        mBatteryLevel, getBatteryStatus(), getBatteryHealth()));
         return builder.toString();
     }
 
@@ -246,6 +379,15 @@ public class BatteryHistEntry {
         return 0L;
     }
 
+    private static boolean hasHotColumns(Cursor cursor) {
+        for (String key : HOT_KEYS) {
+            if (cursor.getColumnIndex(key) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private String getString(ContentValues values, String key) {
         if (values != null && values.containsKey(key)) {
             return values.getAsString(key);
@@ -270,10 +412,6 @@ public class BatteryHistEntry {
             double ratio,
             BatteryHistEntry lowerHistEntry,
             BatteryHistEntry upperHistEntry) {
-        final double totalPower = interpolate(
-                lowerHistEntry == null ? 0 : lowerHistEntry.mTotalPower,
-                upperHistEntry.mTotalPower,
-                ratio);
         final double consumePower = interpolate(
                 lowerHistEntry == null ? 0 : lowerHistEntry.mConsumePower,
                 upperHistEntry.mConsumePower,
@@ -326,10 +464,10 @@ public class BatteryHistEntry {
                                 ratio);
         return new BatteryHistEntry(
                 upperHistEntry,
-                /*bootTimestamp=*/ upperHistEntry.mBootTimestamp
-                - (upperTimestamp - slotTimestamp),
+                lowerHistEntry,
+                ratio,
+                upperTimestamp,
                 /*timestamp=*/ slotTimestamp,
-                totalPower,
                 consumePower,
                 foregroundUsageConsumePower,
                 foregroundServiceUsageConsumePower,
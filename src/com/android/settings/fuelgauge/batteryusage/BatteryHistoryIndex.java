@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * A read-only index over the battery history map.
+ *
+ * <p>Timestamps are kept in a sorted {@code long[]} and the entries of each timestamp slot are
+ * kept in arrays sorted by {@link BatteryHistEntry#getCompactKey()}, so the nearest timestamp and
+ * the entry lookups are binary searches without hashing string keys.</p>
+ */
+final class BatteryHistoryIndex {
+    private final long[] mTimestamps;
+    private final long[][] mKeys;
+    private final String[][] mMapKeys;
+    private final BatteryHistEntry[][] mEntries;
+
+    private BatteryHistoryIndex(
+            long[] timestamps, long[][] keys, String[][] mapKeys, BatteryHistEntry[][] entries) {
+        mTimestamps = timestamps;
+        mKeys = keys;
+        mMapKeys = mapKeys;
+        mEntries = entries;
+    }
+
+    /** Creates a new {@link BatteryHistoryIndex} from the battery history map. */
+    static BatteryHistoryIndex create(
+            @NonNull final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap) {
+        final int size = batteryHistoryMap.size();
+        final long[] timestamps = new long[size];
+        int index = 0;
+        for (Long timestamp : batteryHistoryMap.keySet()) {
+            timestamps[index++] = timestamp;
+        }
+        Arrays.sort(timestamps);
+
+        final long[][] keys = new long[size][];
+        final String[][] mapKeys = new String[size][];
+        final BatteryHistEntry[][] entries = new BatteryHistEntry[size][];
+        for (int slot = 0; slot < size; slot++) {
+            final Map<String, BatteryHistEntry> entryMap = batteryHistoryMap.get(timestamps[slot]);
+            final int entryCount = entryMap == null ? 0 : entryMap.size();
+            final long[] slotKeys = new long[entryCount];
+            final String[] slotMapKeys = new String[entryCount];
+            final BatteryHistEntry[] slotEntries = new BatteryHistEntry[entryCount];
+            if (entryCount > 0) {
+                int position = 0;
+                for (String mapKey : entryMap.keySet()) {
+                    slotKeys[position++] = entryMap.get(mapKey).getCompactKey();
+                }
+                Arrays.sort(slotKeys);
+                // Places each entry into the first free position with the same compact key.
+                for (String mapKey : entryMap.keySet()) {
+                    final BatteryHistEntry entry = entryMap.get(mapKey);
+                    position = Arrays.binarySearch(slotKeys, entry.getCompactKey());
+                    while (position > 0 && slotKeys[position - 1] == slotKeys[position]) {
+                        position--;
+                    }
+                    while (slotEntries[position] != null) {
+                        position++;
+                    }
+                    slotMapKeys[position] = mapKey;
+                    slotEntries[position] = entry;
+                }
+            }
+            keys[slot] = slotKeys;
+            mapKeys[slot] = slotMapKeys;
+            entries[slot] = slotEntries;
+        }
+        return new BatteryHistoryIndex(timestamps, keys, mapKeys, entries);
+    }
+
+    /** Returns the number of timestamp slots. */
+    int size() {
+        return mTimestamps.length;
+    }
+
+    /** Returns the timestamp of the given slot. */
+    long getTimestamp(int slot) {
+        return mTimestamps[slot];
+    }
+
+    /** Returns the slot of the given timestamp, or a negative value if it does not exist. */
+    int indexOf(long timestamp) {
+        return Arrays.binarySearch(mTimestamps, timestamp);
+    }
+
+    /** Returns the number of entries in the given slot. */
+    int getEntryCount(int slot) {
+        return mEntries[slot].length;
+    }
+
+    /** Returns the entry at the given position of the given slot. */
+    BatteryHistEntry getEntryAt(int slot, int position) {
+        return mEntries[slot][position];
+    }
+
+    /** Returns the history map key of the entry at the given position of the given slot. */
+    String getMapKeyAt(int slot, int position) {
+        return mMapKeys[slot][position];
+    }
+
+    /**
+     * Returns the entry with the given compact key and history map key in the given slot, or null
+     * if not found.
+     */
+    @Nullable
+    BatteryHistEntry getEntry(int slot, long compactKey, String mapKey) {
+        if (slot < 0) {
+            return null;
+        }
+        final long[] slotKeys = mKeys[slot];
+        int position = Arrays.binarySearch(slotKeys, compactKey);
+        if (position < 0) {
+            return null;
+        }
+        // Moves to the first entry with the same compact key.
+        while (position > 0 && slotKeys[position - 1] == compactKey) {
+            position--;
+        }
+        for (; position < slotKeys.length && slotKeys[position] == compactKey; position++) {
+            if (mMapKeys[slot][position].equals(mapKey)) {
+                return mEntries[slot][position];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Finds the nearest lower and upper timestamps of the target. Uses zero value to represent
+     * invalid searching result.
+     */
+    long[] findNearestTimestamp(long target) {
+        return findNearestTimestamp(mTimestamps, target);
+    }
+
+    /**
+     * Finds the nearest lower and upper timestamps of the target in the sorted timestamps. Uses
+     * zero value to represent invalid searching result.
+     */
+    static long[] findNearestTimestamp(final long[] sortedTimestamps, final long target) {
+        final long[] results = new long[]{0L, 0L};
+        final int index = Arrays.binarySearch(sortedTimestamps, target);
+        if (index >= 0) {
+            results[0] = sortedTimestamps[index];
+            results[1] = sortedTimestamps[index];
+            return results;
+        }
+        final int insertionPoint = -index - 1;
+        if (insertionPoint > 0) {
+            results[0] = sortedTimestamps[insertionPoint - 1];
+        }
+        if (insertionPoint < sortedTimestamps.length) {
+            results[1] = sortedTimestamps[insertionPoint];
+        }
+        return results;
+    }
+}
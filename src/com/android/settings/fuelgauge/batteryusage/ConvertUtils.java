@@ -129,8 +129,8 @@ public final class ConvertUtils {
                         batteryStatus,
                         batteryHealth,
                         bootTimestamp);
-        values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION,
-                convertBatteryInformationToString(batteryInformation));
+        // Stores the raw proto bytes to avoid the Base64 round trip on the read path.
+        values.put(BatteryHistEntry.KEY_BATTERY_INFORMATION, batteryInformation.toByteArray());
         // Save the BatteryInformation unencoded string into database for debugging.
         if (Build.TYPE.equals("userdebug")) {
             values.put(
@@ -177,25 +177,37 @@ public final class ConvertUtils {
         return Base64.encodeToString(batteryInformation.toByteArray(), Base64.DEFAULT);
     }
 
-    /** Gets the {@link BatteryInformation} instance from {@link ContentValues}. */
+    /**
+     * Gets the {@link BatteryInformation} instance from {@link ContentValues}. Both the raw proto
+     * bytes and the legacy Base64 encoded string are supported.
+     */
     public static BatteryInformation getBatteryInformation(
             final ContentValues values, final String key) {
         final BatteryInformation defaultInstance = BatteryInformation.getDefaultInstance();
         if (values != null && values.containsKey(key)) {
+            final Object value = values.get(key);
+            if (value instanceof byte[]) {
+                return BatteryUtils.parseProtoFromBytes((byte[]) value, defaultInstance);
+            }
             return BatteryUtils.parseProtoFromString(values.getAsString(key), defaultInstance);
         }
         return defaultInstance;
     }
 
-    /** Gets the {@link BatteryInformation} instance from {@link Cursor}. */
+    /**
+     * Gets the {@link BatteryInformation} instance from {@link Cursor}. Both the raw proto bytes
+     * and the legacy Base64 encoded string are supported.
+     */
     public static BatteryInformation getBatteryInformation(final Cursor cursor, final String key) {
         final BatteryInformation defaultInstance = BatteryInformation.getDefaultInstance();
         final int columnIndex = cursor.getColumnIndex(key);
-        if (columnIndex >= 0) {
-            return BatteryUtils.parseProtoFromString(
-                    cursor.getString(columnIndex), defaultInstance);
+        if (columnIndex < 0) {
+            return defaultInstance;
         }
-        return defaultInstance;
+        if (cursor.getType(columnIndex) == Cursor.FIELD_TYPE_BLOB) {
+            return BatteryUtils.parseProtoFromBytes(cursor.getBlob(columnIndex), defaultInstance);
+        }
+        return BatteryUtils.parseProtoFromString(cursor.getString(columnIndex), defaultInstance);
     }
 
     /** Converts to {@link BatteryHistEntry} */
@@ -481,19 +481,27 @@ public class DataProcessManager {
             protected Map<Long, BatteryDiffData> doInBackground(Void... voids) {
                 final long startTime = System.currentTimeMillis();
                 final Map<Long, BatteryDiffData> batteryDiffDataMap = new ArrayMap<>();
+                // Reuses the finalized slots from database and only computes the remaining ones.
+                final Map<Long, Long> finalizedSlotTimestamps = new ArrayMap<>();
                 for (BatteryUsageSlot batteryUsageSlot : mBatteryUsageSlotList) {
                     batteryDiffDataMap.put(batteryUsageSlot.getStartTimestamp(),
                             ConvertUtils.convertToBatteryDiffData(
                                     mContext, batteryUsageSlot, getSystemAppsPackageNames(),
                                     getSystemAppsUids()));
+                    finalizedSlotTimestamps.put(batteryUsageSlot.getStartTimestamp(),
+                            batteryUsageSlot.getEndTimestamp());
                 }
-                batteryDiffDataMap.putAll(DataProcessor.getBatteryDiffDataMap(mContext,
-                        mHourlyBatteryLevelsPerDay, mBatteryHistoryMap, mAppUsagePeriodMap,
-                        getSystemAppsPackageNames(), getSystemAppsUids()));
+                final Map<Long, BatteryDiffData> computedBatteryDiffDataMap =
+                        DataProcessor.getBatteryDiffDataMap(mContext, mHourlyBatteryLevelsPerDay,
+                                mBatteryHistoryMap, mAppUsagePeriodMap,
+                                getSystemAppsPackageNames(), getSystemAppsUids(),
+                                finalizedSlotTimestamps);
+                batteryDiffDataMap.putAll(computedBatteryDiffDataMap);
 
                 Log.d(TAG, String.format(
-                        "execute generateFinalDataAndApplyCallback size=%d in %d/ms",
-                        batteryDiffDataMap.size(), System.currentTimeMillis() - startTime));
+                        "execute generateFinalDataAndApplyCallback size=%d computed=%d in %d/ms",
+                        batteryDiffDataMap.size(), computedBatteryDiffDataMap.size(),
+                        System.currentTimeMillis() - startTime));
                 return batteryDiffDataMap;
             }
 
@@ -62,6 +62,7 @@ import com.google.common.base.Preconditions;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collection;
 import java.util.Collections;
@@ -418,17 +419,17 @@ public final class DataProcessor {
             Context context,
             final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap) {
         final long startTime = System.currentTimeMillis();
-        final List<Long> rawTimestampList = new ArrayList<>(batteryHistoryMap.keySet());
         final Map<Long, Map<String, BatteryHistEntry>> resultMap = new ArrayMap();
-        if (rawTimestampList.isEmpty()) {
+        if (batteryHistoryMap.isEmpty()) {
             Log.d(TAG, "empty batteryHistoryMap in getHistoryMapWithExpectedTimestamps()");
             return resultMap;
         }
-        Collections.sort(rawTimestampList);
+        final BatteryHistoryIndex historyIndex = BatteryHistoryIndex.create(batteryHistoryMap);
         final long currentTime = getCurrentTimeMillis();
-        final List<Long> expectedTimestampList = getTimestampSlots(rawTimestampList, currentTime);
+        final List<Long> expectedTimestampList =
+                getTimestampSlots(historyIndex.getTimestamp(0), currentTime);
         interpolateHistory(
-                context, rawTimestampList, expectedTimestampList, batteryHistoryMap, resultMap);
+                context, historyIndex, expectedTimestampList, batteryHistoryMap, resultMap);
         Log.d(TAG, String.format("getHistoryMapWithExpectedTimestamps() size=%d in %d/ms",
                 resultMap.size(), (System.currentTimeMillis() - startTime)));
         return resultMap;
@@ -458,11 +459,15 @@ public final class DataProcessor {
      */
     @VisibleForTesting
     static List<Long> getTimestampSlots(final List<Long> rawTimestampList, final long currentTime) {
-        final List<Long> timestampSlots = new ArrayList<>();
         if (rawTimestampList.isEmpty()) {
-            return timestampSlots;
+            return new ArrayList<>();
         }
-        final long startTimestamp = rawTimestampList.get(0);
+        return getTimestampSlots(rawTimestampList.get(0), currentTime);
+    }
+
+    private static List<Long> getTimestampSlots(
+            final long startTimestamp, final long currentTime) {
+        final List<Long> timestampSlots = new ArrayList<>();
         final long endTimestamp = currentTime;
         // If the start timestamp is later or equal the end one, return the empty list.
         if (startTimestamp >= endTimestamp) {
@@ -491,25 +496,14 @@ public final class DataProcessor {
         // The hist entries in the same timestamp should have same battery status and level.
         // Checking the first one should be enough.
         final BatteryHistEntry firstHistEntry = entryList.get(entryKeys.get(0));
-        return BatteryStatus.isCharged(firstHistEntry.mBatteryStatus, firstHistEntry.mBatteryLevel);
+        return BatteryStatus.isCharged(firstHistEntry.getBatteryStatus(), firstHistEntry.mBatteryLevel);
     }
 
     @VisibleForTesting
     static long[] findNearestTimestamp(final List<Long> timestamps, final long target) {
-        final long[] results = new long[]{Long.MIN_VALUE, Long.MAX_VALUE};
-        // Searches the nearest lower and upper timestamp value.
-        timestamps.forEach(timestamp -> {
-            if (timestamp <= target && timestamp > results[0]) {
-                results[0] = timestamp;
-            }
-            if (timestamp >= target && timestamp < results[1]) {
-                results[1] = timestamp;
-            }
-        });
-        // Uses zero value to represent invalid searching result.
-        results[0] = results[0] == Long.MIN_VALUE ? 0 : results[0];
-        results[1] = results[1] == Long.MAX_VALUE ? 0 : results[1];
-        return results;
+        final long[] sortedTimestamps = timestamps.stream().mapToLong(Long::longValue).toArray();
+        Arrays.sort(sortedTimestamps);
+        return BatteryHistoryIndex.findNearestTimestamp(sortedTimestamps, target);
     }
 
     static Map<Long, BatteryDiffData> getBatteryDiffDataMap(
@@ -520,6 +514,28 @@ public final class DataProcessor {
                     appUsagePeriodMap,
             final @NonNull Set<String> systemAppsPackageNames,
             final @NonNull Set<Integer> systemAppsUids) {
+        return getBatteryDiffDataMap(context, hourlyBatteryLevelsPerDay, batteryHistoryMap,
+                appUsagePeriodMap, systemAppsPackageNames, systemAppsUids,
+                /*finalizedSlotTimestamps=*/ null);
+    }
+
+    /**
+     * Computes the battery diff data for each hourly slot, skipping the slots which are already
+     * finalized in the battery usage slot table.
+     *
+     * <p>{@code finalizedSlotTimestamps} maps the start timestamp of each persisted slot into its
+     * end timestamp. A slot is only skipped if both timestamps match, so the trailing slot which
+     * is still open is always recomputed.</p>
+     */
+    static Map<Long, BatteryDiffData> getBatteryDiffDataMap(
+            Context context,
+            final List<BatteryLevelData.PeriodBatteryLevelData> hourlyBatteryLevelsPerDay,
+            final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap,
+            final Map<Integer, Map<Integer, Map<Long, Map<String, List<AppUsagePeriod>>>>>
+                    appUsagePeriodMap,
+            final @NonNull Set<String> systemAppsPackageNames,
+            final @NonNull Set<Integer> systemAppsUids,
+            final @Nullable Map<Long, Long> finalizedSlotTimestamps) {
         final Map<Long, BatteryDiffData> batteryDiffDataMap = new ArrayMap<>();
         final int currentUserId = context.getUserId();
         final UserHandle userHandle =
@@ -538,6 +554,10 @@ public final class DataProcessor {
             for (int hourlyIndex = 0; hourlyIndex < hourlyTimestamps.size() - 1; hourlyIndex++) {
                 final Long startTimestamp = hourlyTimestamps.get(hourlyIndex);
                 final Long endTimestamp = hourlyTimestamps.get(hourlyIndex + 1);
+                if (finalizedSlotTimestamps != null
+                        && endTimestamp.equals(finalizedSlotTimestamps.get(startTimestamp))) {
+                    continue;
+                }
                 final int startBatteryLevel =
                         hourlyBatteryLevelsPerDay.get(dailyIndex).getLevels().get(hourlyIndex);
                 final int endBatteryLevel =
@@ -650,10 +670,10 @@ public final class DataProcessor {
                         entry.mUid,
                         entry.mUserId,
                         entry.getKey(),
-                        entry.mIsHidden,
+                        entry.isHidden(),
                         entry.mDrainType,
                         entry.mPackageName,
-                        entry.mAppLabel,
+                        entry.getAppLabel(),
                         entry.mConsumerType,
                         entry.mForegroundUsageTimeInMs,
                         entry.mBackgroundUsageTimeInMs,
@@ -1078,11 +1098,11 @@ public final class DataProcessor {
      */
     private static void interpolateHistory(
             Context context,
-            final List<Long> rawTimestampList,
+            final BatteryHistoryIndex historyIndex,
             final List<Long> expectedTimestampSlots,
             final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap,
             final Map<Long, Map<String, BatteryHistEntry>> resultMap) {
-        if (rawTimestampList.isEmpty() || expectedTimestampSlots.isEmpty()) {
+        if (historyIndex.size() == 0 || expectedTimestampSlots.isEmpty()) {
             return;
         }
         final int expectedTimestampSlotsSize = expectedTimestampSlots.size();
@@ -1091,7 +1111,7 @@ public final class DataProcessor {
 
         resultMap.put(startTimestamp, batteryHistoryMap.get(startTimestamp));
         for (int index = 1; index < expectedTimestampSlotsSize - 1; index++) {
-            interpolateHistoryForSlot(context, expectedTimestampSlots.get(index), rawTimestampList,
+            interpolateHistoryForSlot(context, expectedTimestampSlots.get(index), historyIndex,
                     batteryHistoryMap, resultMap);
         }
         resultMap.put(endTimestamp,
@@ -1101,10 +1121,10 @@ public final class DataProcessor {
     private static void interpolateHistoryForSlot(
             Context context,
             final long currentSlot,
-            final List<Long> rawTimestampList,
+            final BatteryHistoryIndex historyIndex,
             final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap,
             final Map<Long, Map<String, BatteryHistEntry>> resultMap) {
-        final long[] nearestTimestamps = findNearestTimestamp(rawTimestampList, currentSlot);
+        final long[] nearestTimestamps = historyIndex.findNearestTimestamp(currentSlot);
         final long lowerTimestamp = nearestTimestamps[0];
         final long upperTimestamp = nearestTimestamps[1];
         // Case 1: upper timestamp is zero since scheduler is delayed!
@@ -1126,8 +1146,8 @@ public final class DataProcessor {
             resultMap.put(currentSlot, new ArrayMap<>());
             return;
         }
-        interpolateHistoryForSlot(
-                context, currentSlot, lowerTimestamp, upperTimestamp, batteryHistoryMap, resultMap);
+        interpolateHistoryForSlot(context, currentSlot, lowerTimestamp, upperTimestamp,
+                historyIndex, batteryHistoryMap, resultMap);
     }
 
     private static void interpolateHistoryForSlot(
@@ -1135,17 +1155,18 @@ public final class DataProcessor {
             final long currentSlot,
             final long lowerTimestamp,
             final long upperTimestamp,
+            final BatteryHistoryIndex historyIndex,
             final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap,
             final Map<Long, Map<String, BatteryHistEntry>> resultMap) {
-        final Map<String, BatteryHistEntry> lowerEntryDataMap =
-                batteryHistoryMap.get(lowerTimestamp);
+        final int lowerSlot = historyIndex.indexOf(lowerTimestamp);
+        final int upperSlot = historyIndex.indexOf(upperTimestamp);
         final Map<String, BatteryHistEntry> upperEntryDataMap =
                 batteryHistoryMap.get(upperTimestamp);
         // Verifies whether the lower data is valid to use or not by checking boot time.
         final BatteryHistEntry upperEntryDataFirstEntry =
                 upperEntryDataMap.values().stream().findFirst().get();
         final long upperEntryDataBootTimestamp =
-                upperEntryDataFirstEntry.mTimestamp - upperEntryDataFirstEntry.mBootTimestamp;
+                upperEntryDataFirstEntry.mTimestamp - upperEntryDataFirstEntry.getBootTimestamp();
         // Lower data is captured before upper data corresponding device is booting.
         // Skips the booting-specific logics and always does interpolation for daily chart level
         // data.
@@ -1166,9 +1187,12 @@ public final class DataProcessor {
         final double timestampLength = upperTimestamp - lowerTimestamp;
         final double timestampDiff = currentSlot - lowerTimestamp;
         // Applies interpolation arithmetic for each BatteryHistEntry.
-        for (String entryKey : upperEntryDataMap.keySet()) {
-            final BatteryHistEntry lowerEntry = lowerEntryDataMap.get(entryKey);
-            final BatteryHistEntry upperEntry = upperEntryDataMap.get(entryKey);
+        final int upperEntryCount = historyIndex.getEntryCount(upperSlot);
+        for (int position = 0; position < upperEntryCount; position++) {
+            final String entryKey = historyIndex.getMapKeyAt(upperSlot, position);
+            final BatteryHistEntry upperEntry = historyIndex.getEntryAt(upperSlot, position);
+            final BatteryHistEntry lowerEntry =
+                    historyIndex.getEntry(lowerSlot, upperEntry.getCompactKey(), entryKey);
             // Checks whether there is any abnormal battery reset conditions.
             if (lowerEntry != null) {
                 final boolean invalidForegroundUsageTime =
@@ -1439,10 +1463,10 @@ public final class DataProcessor {
                     selectedBatteryEntry.mUid,
                     selectedBatteryEntry.mUserId,
                     selectedBatteryEntry.getKey(),
-                    selectedBatteryEntry.mIsHidden,
+                    selectedBatteryEntry.isHidden(),
                     selectedBatteryEntry.mDrainType,
                     selectedBatteryEntry.mPackageName,
-                    selectedBatteryEntry.mAppLabel,
+                    selectedBatteryEntry.getAppLabel(),
                     selectedBatteryEntry.mConsumerType,
                     foregroundUsageTimeInMs,
                     backgroundUsageTimeInMs,
@@ -42,7 +42,18 @@ public class BatteryState {
     public final long timestamp;
     public final int consumerType;
     public final boolean isFullChargeCycleStart;
-    public final String batteryInformation;
+    // Records the hot numeric fields as primitive columns to read them without proto decoding.
+    public final double consumePower;
+    public final double foregroundUsageConsumePower;
+    public final double foregroundServiceUsageConsumePower;
+    public final double backgroundUsageConsumePower;
+    public final double cachedUsageConsumePower;
+    public final long foregroundUsageTimeInMs;
+    public final long backgroundUsageTimeInMs;
+    public final int drainType;
+    public final int batteryLevel;
+    // Records the serialized BatteryInformation proto as a raw BLOB column.
+    public final byte[] batteryInformation;
     /**
      * This field is filled only when build type is "userdebug".
      * For now, Java Proto Lite is recommended by the Android team as the more lightweight solution
@@ -62,7 +73,16 @@ public class BatteryState {
             long timestamp,
             int consumerType,
             boolean isFullChargeCycleStart,
-            String batteryInformation,
+            double consumePower,
+            double foregroundUsageConsumePower,
+            double foregroundServiceUsageConsumePower,
+            double backgroundUsageConsumePower,
+            double cachedUsageConsumePower,
+            long foregroundUsageTimeInMs,
+            long backgroundUsageTimeInMs,
+            int drainType,
+            int batteryLevel,
+            byte[] batteryInformation,
             String batteryInformationDebug) {
         // Records the app relative information.
         this.uid = uid;
@@ -71,6 +91,15 @@ public class BatteryState {
         this.timestamp = timestamp;
         this.consumerType = consumerType;
         this.isFullChargeCycleStart = isFullChargeCycleStart;
+        this.consumePower = consumePower;
+        this.foregroundUsageConsumePower = foregroundUsageConsumePower;
+        this.foregroundServiceUsageConsumePower = foregroundServiceUsageConsumePower;
+        this.backgroundUsageConsumePower = backgroundUsageConsumePower;
+        this.cachedUsageConsumePower = cachedUsageConsumePower;
+        this.foregroundUsageTimeInMs = foregroundUsageTimeInMs;
+        this.backgroundUsageTimeInMs = backgroundUsageTimeInMs;
+        this.drainType = drainType;
+        this.batteryLevel = batteryLevel;
         this.batteryInformation = batteryInformation;
         this.batteryInformationDebug = batteryInformationDebug;
     }
@@ -89,7 +118,7 @@ public class BatteryState {
     public String toString() {
         final String recordAtDateTime = ConvertUtils.utcToLocalTimeForLogging(timestamp);
         final BatteryInformation batteryInformationInstance =
-                BatteryUtils.parseProtoFromString(
+                BatteryUtils.parseProtoFromBytes(
                         batteryInformation, BatteryInformation.getDefaultInstance());
         final StringBuilder builder = new StringBuilder()
                 .append("\nBatteryState{")
@@ -126,7 +155,9 @@ public class BatteryState {
                     contentValues.getAsBoolean("isFullChargeCycleStart"));
         }
         if (contentValues.containsKey("batteryInformation")) {
-            builder.setBatteryInformation(contentValues.getAsString("batteryInformation"));
+            // Decodes the legacy Base64 string once while writing, if the caller still uses it.
+            builder.setBatteryInformation(
+                    ConvertUtils.getBatteryInformation(contentValues, "batteryInformation"));
         }
         if (contentValues.containsKey("batteryInformationDebug")) {
             builder.setBatteryInformationDebug(
@@ -148,7 +179,16 @@ public class BatteryState {
         private long mTimestamp;
         private int mConsumerType;
         private boolean mIsFullChargeCycleStart;
-        private String mBatteryInformation;
+        private double mConsumePower;
+        private double mForegroundUsageConsumePower;
+        private double mForegroundServiceUsageConsumePower;
+        private double mBackgroundUsageConsumePower;
+        private double mCachedUsageConsumePower;
+        private long mForegroundUsageTimeInMs;
+        private long mBackgroundUsageTimeInMs;
+        private int mDrainType;
+        private int mBatteryLevel;
+        private byte[] mBatteryInformation;
         private String mBatteryInformationDebug;
 
         /** Sets the uid. */
@@ -193,10 +233,22 @@ public class BatteryState {
             return this;
         }
 
-        /** Sets the battery information. */
+        /** Sets the battery information and its hot numeric fields. */
         @CanIgnoreReturnValue
-        public Builder setBatteryInformation(String batteryInformation) {
-            this.mBatteryInformation = batteryInformation;
+        public Builder setBatteryInformation(BatteryInformation batteryInformation) {
+            this.mConsumePower = batteryInformation.getConsumePower();
+            this.mForegroundUsageConsumePower =
+                    batteryInformation.getForegroundUsageConsumePower();
+            this.mForegroundServiceUsageConsumePower =
+                    batteryInformation.getForegroundServiceUsageConsumePower();
+            this.mBackgroundUsageConsumePower =
+                    batteryInformation.getBackgroundUsageConsumePower();
+            this.mCachedUsageConsumePower = batteryInformation.getCachedUsageConsumePower();
+            this.mForegroundUsageTimeInMs = batteryInformation.getForegroundUsageTimeInMs();
+            this.mBackgroundUsageTimeInMs = batteryInformation.getBackgroundUsageTimeInMs();
+            this.mDrainType = batteryInformation.getDrainType();
+            this.mBatteryLevel = batteryInformation.getDeviceBatteryState().getBatteryLevel();
+            this.mBatteryInformation = batteryInformation.toByteArray();
             return this;
         }
 
@@ -216,6 +268,15 @@ public class BatteryState {
                     mTimestamp,
                     mConsumerType,
                     mIsFullChargeCycleStart,
+                    mConsumePower,
+                    mForegroundUsageConsumePower,
+                    mForegroundServiceUsageConsumePower,
+                    mBackgroundUsageConsumePower,
+                    mCachedUsageConsumePower,
+                    mForegroundUsageTimeInMs,
+                    mBackgroundUsageTimeInMs,
+                    mDrainType,
+                    mBatteryLevel,
                     mBatteryInformation,
                     mBatteryInformationDebug);
         }
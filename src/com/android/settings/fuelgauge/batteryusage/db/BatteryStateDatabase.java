@@ -16,23 +16,105 @@
 
 package com.android.settings.fuelgauge.batteryusage.db;
 
+import android.content.ContentValues;
 import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
+import androidx.room.migration.Migration;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import com.android.settings.fuelgauge.batteryusage.BatteryInformation;
+import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
 
 /** A {@link RoomDatabase} for battery usage states history. */
 @Database(
         entities = {AppUsageEventEntity.class, BatteryEventEntity.class, BatteryState.class,
                 BatteryUsageSlotEntity.class},
-        version = 1)
+        version = 2)
 public abstract class BatteryStateDatabase extends RoomDatabase {
     private static final String TAG = "BatteryStateDatabase";
 
     private static BatteryStateDatabase sBatteryStateDatabase;
 
+    /**
+     * Migrates the {@link BatteryState} table from the Base64 encoded TEXT column into the raw
+     * BLOB column with the hot numeric fields stored as primitive columns.
+     */
+    @VisibleForTesting
+    static final Migration MIGRATION_1_2 = new Migration(1, 2) {
+        @Override
+        public void migrate(@NonNull SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS `BatteryState_new` ("
+                    + "`mId` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`uid` INTEGER NOT NULL, "
+                    + "`userId` INTEGER NOT NULL, "
+                    + "`packageName` TEXT, "
+                    + "`timestamp` INTEGER NOT NULL, "
+                    + "`consumerType` INTEGER NOT NULL, "
+                    + "`isFullChargeCycleStart` INTEGER NOT NULL, "
+                    + "`consumePower` REAL NOT NULL, "
+                    + "`foregroundUsageConsumePower` REAL NOT NULL, "
+                    + "`foregroundServiceUsageConsumePower` REAL NOT NULL, "
+                    + "`backgroundUsageConsumePower` REAL NOT NULL, "
+                    + "`cachedUsageConsumePower` REAL NOT NULL, "
+                    + "`foregroundUsageTimeInMs` INTEGER NOT NULL, "
+                    + "`backgroundUsageTimeInMs` INTEGER NOT NULL, "
+                    + "`drainType` INTEGER NOT NULL, "
+                    + "`batteryLevel` INTEGER NOT NULL, "
+                    + "`batteryInformation` BLOB, "
+                    + "`batteryInformationDebug` TEXT)");
+            try (Cursor cursor = database.query("SELECT * FROM `BatteryState`")) {
+                while (cursor.moveToNext()) {
+                    final ContentValues values = new ContentValues();
+                    values.put("mId", cursor.getLong(cursor.getColumnIndex("mId")));
+                    values.put("uid", cursor.getLong(cursor.getColumnIndex("uid")));
+                    values.put("userId", cursor.getLong(cursor.getColumnIndex("userId")));
+                    values.put("packageName",
+                            cursor.getString(cursor.getColumnIndex("packageName")));
+                    values.put("timestamp", cursor.getLong(cursor.getColumnIndex("timestamp")));
+                    values.put("consumerType",
+                            cursor.getInt(cursor.getColumnIndex("consumerType")));
+                    values.put("isFullChargeCycleStart",
+                            cursor.getInt(cursor.getColumnIndex("isFullChargeCycleStart")));
+                    values.put("batteryInformationDebug",
+                            cursor.getString(cursor.getColumnIndex("batteryInformationDebug")));
+                    // Decodes the legacy Base64 string only once during the migration.
+                    final BatteryInformation batteryInformation =
+                            ConvertUtils.getBatteryInformation(cursor, "batteryInformation");
+                    values.put("consumePower", batteryInformation.getConsumePower());
+                    values.put("foregroundUsageConsumePower",
+                            batteryInformation.getForegroundUsageConsumePower());
+                    values.put("foregroundServiceUsageConsumePower",
+                            batteryInformation.getForegroundServiceUsageConsumePower());
+                    values.put("backgroundUsageConsumePower",
+                            batteryInformation.getBackgroundUsageConsumePower());
+                    values.put("cachedUsageConsumePower",
+                            batteryInformation.getCachedUsageConsumePower());
+                    values.put("foregroundUsageTimeInMs",
+                            batteryInformation.getForegroundUsageTimeInMs());
+                    values.put("backgroundUsageTimeInMs",
+                            batteryInformation.getBackgroundUsageTimeInMs());
+                    values.put("drainType", batteryInformation.getDrainType());
+                    values.put("batteryLevel",
+                            batteryInformation.getDeviceBatteryState().getBatteryLevel());
+                    values.put("batteryInformation", batteryInformation.toByteArray());
+                    database.insert(
+                            "BatteryState_new", SQLiteDatabase.CONFLICT_REPLACE, values);
+                }
+            }
+            database.execSQL("DROP TABLE `BatteryState`");
+            database.execSQL("ALTER TABLE `BatteryState_new` RENAME TO `BatteryState`");
+            Log.d(TAG, "migrate BatteryState table into the binary format");
+        }
+    };
+
     /** Provides DAO for app usage event table. */
     public abstract AppUsageEventDao appUsageEventDao();
     /** Provides DAO for battery event table. */
@@ -50,6 +132,7 @@ public abstract class BatteryStateDatabase extends RoomDatabase {
                                     context, BatteryStateDatabase.class, "battery-usage-db-v9")
                             // Allows accessing data in the main thread for dumping bugreport.
                             .allowMainThreadQueries()
+                            .addMigrations(MIGRATION_1_2)
                             .fallbackToDestructiveMigration()
                             .build();
             Log.d(TAG, "initialize battery states database");
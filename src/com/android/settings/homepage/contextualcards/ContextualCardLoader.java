@@ -42,10 +42,10 @@ import com.android.settingslib.utils.AsyncLoaderCompat;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>> {
 
@@ -57,6 +57,11 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
 
     private static final String TAG = "ContextualCardLoader";
     private static final long ELIGIBILITY_CHECKER_TIMEOUT_MS = 400;
+    private static final int MAX_ELIGIBILITY_CHECKER_COUNT = 6;
+    private static final long ELIGIBILITY_CHECKER_KEEP_ALIVE_MS = 30000;
+
+    // Shared by all the loaders, so the checker threads are not created on every load.
+    private static ExecutorService sEligibilityCheckerExecutor;
 
     private final ContentObserver mObserver = new ContentObserver(
             new Handler(Looper.getMainLooper())) {
@@ -188,42 +193,71 @@ public class ContextualCardLoader extends AsyncLoaderCompat<List<ContextualCard>
             return candidates;
         }
 
-        final ExecutorService executor = Executors.newFixedThreadPool(candidates.size());
-        final List<ContextualCard> cards = new ArrayList<>();
-        List<Future<ContextualCard>> eligibleCards = new ArrayList<>();
-
-        final List<EligibleCardChecker> checkers = candidates.stream()
-                .map(card -> new EligibleCardChecker(mContext, card))
-                .collect(Collectors.toList());
-        try {
-            eligibleCards = executor.invokeAll(checkers, ELIGIBILITY_CHECKER_TIMEOUT_MS,
-                    TimeUnit.MILLISECONDS);
-        } catch (InterruptedException e) {
-            Log.w(TAG, "Failed to get eligible states for all cards", e);
+        final EligibleCardCache cache = EligibleCardCache.getInstance(mContext);
+        final ContextualCard[] eligibleCards = new ContextualCard[candidates.size()];
+        final List<Integer> checkedIndexes = new ArrayList<>();
+        final List<EligibleCardChecker> checkers = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            final ContextualCard candidate = candidates.get(i);
+            final EligibleCardCache.Entry entry = cache.get(candidate);
+            if (entry != null) {
+                eligibleCards[i] = entry.getEligibleCard(candidate);
+                continue;
+            }
+            checkedIndexes.add(i);
+            checkers.add(new EligibleCardChecker(mContext, candidate));
+        }
+
+        List<Future<ContextualCard>> checkedCards = new ArrayList<>();
+        if (!checkers.isEmpty()) {
+            try {
+                checkedCards = getEligibilityCheckerExecutor().invokeAll(checkers,
+                        ELIGIBILITY_CHECKER_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Log.w(TAG, "Failed to get eligible states for all cards", e);
+            }
         }
-        executor.shutdown();
 
         // Collect future and eligible cards
-        for (int i = 0; i < eligibleCards.size(); i++) {
-            final Future<ContextualCard> cardFuture = eligibleCards.get(i);
+        for (int i = 0; i < checkedCards.size(); i++) {
+            final Future<ContextualCard> cardFuture = checkedCards.get(i);
+            final ContextualCard candidate = candidates.get(checkedIndexes.get(i));
             if (cardFuture.isCancelled()) {
                 Log.w(TAG, "Timeout getting eligible state for card: "
-                        + candidates.get(i).getSliceUri());
+                        + candidate.getSliceUri());
                 continue;
             }
 
             try {
                 final ContextualCard card = cardFuture.get();
-                if (card != null) {
-                    cards.add(card);
-                }
+                eligibleCards[checkedIndexes.get(i)] = card;
+                cache.put(candidate, card);
             } catch (Exception e) {
                 Log.w(TAG, "Failed to get eligible state for card", e);
             }
         }
+
+        final List<ContextualCard> cards = new ArrayList<>();
+        for (ContextualCard card : eligibleCards) {
+            if (card != null) {
+                cards.add(card);
+            }
+        }
         return cards;
     }
 
+    private static synchronized ExecutorService getEligibilityCheckerExecutor() {
+        if (sEligibilityCheckerExecutor == null) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    MAX_ELIGIBILITY_CHECKER_COUNT, MAX_ELIGIBILITY_CHECKER_COUNT,
+                    ELIGIBILITY_CHECKER_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>());
+            executor.allowCoreThreadTimeOut(true);
+            sEligibilityCheckerExecutor = executor;
+        }
+        return sEligibilityCheckerExecutor;
+    }
+
     private boolean isLargeCard(ContextualCard card) {
         return card.getSliceUri().equals(CONTEXTUAL_WIFI_SLICE_URI)
                 || card.getSliceUri().equals(BLUETOOTH_DEVICES_SLICE_URI);
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.ArrayMap;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import java.util.Map;
+
+/**
+ * Process-wide cache of the {@link EligibleCardChecker} results, so the slices of unchanged cards
+ * are not bound again on every homepage entry.
+ *
+ * Results expire after {@link #CACHE_TTL_MS}, and are dropped whenever the cards are refreshed or
+ * dismissed through {@link CardContentProvider}.
+ */
+class EligibleCardCache {
+
+    @VisibleForTesting
+    static final long CACHE_TTL_MS = 30000L;
+
+    private static EligibleCardCache sInstance;
+
+    private final Map<String, Entry> mEntries = new ArrayMap<>();
+
+    private final ContentObserver mObserver = new ContentObserver(null /* handler */) {
+        @Override
+        public void onChange(boolean selfChange, Uri uri) {
+            invalidate();
+        }
+    };
+
+    static synchronized EligibleCardCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new EligibleCardCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    EligibleCardCache(Context context) {
+        context.getContentResolver().registerContentObserver(CardContentProvider.REFRESH_CARD_URI,
+                false /*notifyForDescendants*/, mObserver);
+        context.getContentResolver().registerContentObserver(CardContentProvider.DELETE_CARD_URI,
+                false /*notifyForDescendants*/, mObserver);
+    }
+
+    /**
+     * Returns the cached result for the candidate card, or null if there is no valid result.
+     */
+    @Nullable
+    synchronized Entry get(ContextualCard candidate) {
+        final Entry entry = mEntries.get(candidate.getName());
+        if (entry == null) {
+            return null;
+        }
+        if (SystemClock.elapsedRealtime() >= entry.mExpireTime
+                || !entry.mSliceUri.equals(candidate.getSliceUri())
+                || entry.mRankingScore != candidate.getRankingScore()) {
+            mEntries.remove(candidate.getName());
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Caches the eligibility check result of the candidate card.
+     *
+     * @param eligibleCard the eligible card returned by {@link EligibleCardChecker}, or null if
+     *                     the candidate is not eligible to display
+     */
+    synchronized void put(ContextualCard candidate, @Nullable ContextualCard eligibleCard) {
+        mEntries.put(candidate.getName(), new Entry(candidate, eligibleCard,
+                SystemClock.elapsedRealtime() + CACHE_TTL_MS));
+    }
+
+    /** Drops all the cached results. */
+    synchronized void invalidate() {
+        mEntries.clear();
+    }
+
+    /** A cached eligibility check result. */
+    static class Entry {
+        private final Uri mSliceUri;
+        private final double mRankingScore;
+        @Nullable
+        private final ContextualCard mEligibleCard;
+        private final long mExpireTime;
+
+        private Entry(ContextualCard candidate, @Nullable ContextualCard eligibleCard,
+                long expireTime) {
+            mSliceUri = candidate.getSliceUri();
+            mRankingScore = candidate.getRankingScore();
+            mEligibleCard = eligibleCard;
+            mExpireTime = expireTime;
+        }
+
+        /**
+         * Returns the candidate card with the cached slice state, or null if the candidate is not
+         * eligible to display.
+         */
+        @Nullable
+        ContextualCard getEligibleCard(ContextualCard candidate) {
+            if (mEligibleCard == null) {
+                return null;
+            }
+            return candidate.mutate()
+                    .setSlice(mEligibleCard.getSlice())
+                    .setHasInlineAction(mEligibleCard.hasInlineAction())
+                    .build();
+        }
+    }
+}
@@ -964,7 +964,10 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
         if (connectedEntry != null) {
             final LongPressWifiEntryPreference connectedPref =
                     connectedWifiPreferenceCategory.findPreference(connectedEntry.getKey());
-            if (connectedPref == null || connectedPref.getWifiEntry() != connectedEntry) {
+            if (connectedPref != null) {
+                // Same network, keep the preference even if the tracker recreated its entry.
+                connectedPref.setWifiEntry(connectedEntry);
+            } else {
                 connectedWifiPreferenceCategory.removeAll();
                 final ConnectedWifiEntryPreference pref =
                         createConnectedWifiEntryPreference(connectedEntry);
@@ -972,8 +975,9 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
                 pref.refresh();
                 connectedWifiPreferenceCategory.addPreference(pref);
                 pref.setOnPreferenceClickListener(preference -> {
-                    if (connectedEntry.canSignIn()) {
-                        connectedEntry.signIn(null /* callback */);
+                    final WifiEntry wifiEntry = pref.getWifiEntry();
+                    if (wifiEntry.canSignIn()) {
+                        wifiEntry.signIn(null /* callback */);
                     } else {
                         launchNetworkDetailsFragment(pref);
                     }
@@ -992,6 +996,9 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
             connectedWifiPreferenceCategory.removeAll();
         }
 
+        // Reconcile the preferences by key: networks still in range keep their preference and
+        // only move if their order changed, the others are inserted or removed. The preference
+        // adapter coalesces all these changes into a single update of the list.
         int index = 0;
         cacheRemoveAllPrefs(mWifiEntryPreferenceCategory);
         List<WifiEntry> wifiEntries = mWifiPickerTracker.getWifiEntries();
@@ -1002,25 +1009,23 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
             LongPressWifiEntryPreference pref =
                     (LongPressWifiEntryPreference) getCachedPreference(key);
             if (pref != null) {
-                if (pref.getWifiEntry() == wifiEntry) {
-                    pref.setOrder(index++);
-                    continue;
-                } else {
-                    // Create a new preference if the underlying WifiEntry object has changed
-                    removePreference(key);
+                if (pref.getWifiEntry() != wifiEntry) {
+                    // The tracker recreated the entry of the same network, only rebind it.
+                    final boolean hadHelpUri = pref.getWifiEntry().getHelpUriString() != null;
+                    pref.setWifiEntry(wifiEntry);
+                    if (hadHelpUri != (wifiEntry.getHelpUriString() != null)) {
+                        setHelpButtonClickListener(pref);
+                    }
                 }
+                pref.setOrder(index++);
+                continue;
             }
 
             pref = createLongPressWifiEntryPreference(wifiEntry);
             pref.setKey(wifiEntry.getKey());
             pref.setOrder(index++);
             pref.refresh();
-
-            if (wifiEntry.getHelpUriString() != null) {
-                pref.setOnButtonClickListener(preference -> {
-                    openSubscriptionHelpPage(wifiEntry);
-                });
-            }
+            setHelpButtonClickListener(pref);
             mWifiEntryPreferenceCategory.addPreference(pref);
         }
         removeCachedPrefs(mWifiEntryPreferenceCategory);
@@ -1043,6 +1048,16 @@ public class NetworkProviderSettings extends RestrictedSettingsFragment
         setAdditionalSettingsSummaries();
     }
 
+    private void setHelpButtonClickListener(LongPressWifiEntryPreference pref) {
+        if (pref.getWifiEntry().getHelpUriString() != null) {
+            pref.setOnButtonClickListener(preference -> {
+                openSubscriptionHelpPage(pref.getWifiEntry());
+            });
+        } else {
+            pref.setOnButtonClickListener(null);
+        }
+    }
+
     @VisibleForTesting
     PreferenceCategory getConnectedWifiPreferenceCategory() {
         if (mInternetUpdater.getInternetType() == InternetUpdater.INTERNET_WIFI) {
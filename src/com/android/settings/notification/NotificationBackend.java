@@ -43,12 +43,14 @@ import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.RemoteException;
 import android.os.ServiceManager;
+import android.os.SystemClock;
 import android.os.UserHandle;
 import android.service.notification.ConversationChannelWrapper;
 import android.service.notification.NotificationListenerFilter;
 import android.text.format.DateUtils;
 import android.util.IconDrawableFactory;
 import android.util.Log;
+import android.util.LruCache;
 
 import androidx.annotation.VisibleForTesting;
 
@@ -76,6 +78,12 @@ public class NotificationBackend {
     static INotificationManager sINM = INotificationManager.Stub.asInterface(
             ServiceManager.getService(Context.NOTIFICATION_SERVICE));
 
+    // How long the channel state of a package is shared by the pages showing it.
+    private static final long CHANNEL_STATE_TTL_MS = 10 * 1000L;
+    private static final int MAX_CHANNEL_STATES = 32;
+    private static final LruCache<String, ChannelState> sChannelStates =
+            new LruCache<>(MAX_CHANNEL_STATES);
+
     public AppRow loadAppRow(Context context, PackageManager pm, ApplicationInfo app) {
         final AppRow row = new AppRow();
         row.pkg = app.packageName;
@@ -353,6 +361,7 @@ public class NotificationBackend {
         } catch (Exception e) {
             Log.w(TAG, "Error calling NoMan", e);
         }
+        invalidateChannelState(pkg, uid);
     }
 
     public void updateChannelGroup(String pkg, int uid, NotificationChannelGroup group) {
@@ -361,44 +370,70 @@ public class NotificationBackend {
         } catch (Exception e) {
             Log.w(TAG, "Error calling NoMan", e);
         }
+        invalidateChannelState(pkg, uid);
     }
 
     public int getDeletedChannelCount(String pkg, int uid) {
-        try {
-            return sINM.getDeletedChannelCount(pkg, uid);
-        } catch (Exception e) {
-            Log.w(TAG, "Error calling NoMan", e);
-            return 0;
-        }
+        return getChannelState(pkg, uid).getDeletedChannelCount();
     }
 
     public int getBlockedChannelCount(String pkg, int uid) {
-        try {
-            return sINM.getBlockedChannelCount(pkg, uid);
-        } catch (Exception e) {
-            Log.w(TAG, "Error calling NoMan", e);
-            return 0;
-        }
+        return getChannelState(pkg, uid).getBlockedChannelCount();
     }
 
     public boolean onlyHasDefaultChannel(String pkg, int uid) {
-        try {
-            return sINM.onlyHasDefaultChannel(pkg, uid);
-        } catch (Exception e) {
-            Log.w(TAG, "Error calling NoMan", e);
-            return false;
-        }
+        return getChannelState(pkg, uid).onlyHasDefaultChannel();
     }
 
     public int getChannelCount(String pkg, int uid) {
-        try {
-            return sINM.getNumNotificationChannelsForPackage(pkg, uid, false);
-        } catch (Exception e) {
-            Log.w(TAG, "Error calling NoMan", e);
-            return 0;
+        return getChannelState(pkg, uid).getChannelCount();
+    }
+
+    /**
+     * Returns the channel state of the package, shared with the other callers asking for it
+     * within {@link #CHANNEL_STATE_TTL_MS}, so that the controllers of a page don't each query
+     * the notification manager again.
+     */
+    public ChannelState getChannelState(String pkg, int uid) {
+        final String key = getChannelStateKey(pkg, uid);
+        synchronized (sChannelStates) {
+            ChannelState state = sChannelStates.get(key);
+            if (state == null || state.isExpired()) {
+                state = new ChannelState(pkg, uid);
+                sChannelStates.put(key, state);
+            }
+            return state;
+        }
+    }
+
+    /**
+     * Loads the channel states of {@code apps} for a page listing them, so that its later
+     * {@link #getChannelState} calls are answered from the shared states. The notification manager
+     * can't be asked about several packages at once, so it is still asked once for each package
+     * that has no state yet.
+     */
+    public void loadChannelStates(Collection<ApplicationInfo> apps) {
+        for (ApplicationInfo app : apps) {
+            getChannelState(app.packageName, app.uid).load();
+        }
+    }
+
+    private static void invalidateChannelState(String pkg, int uid) {
+        synchronized (sChannelStates) {
+            sChannelStates.remove(getChannelStateKey(pkg, uid));
         }
     }
 
+    private static void invalidateChannelStates() {
+        synchronized (sChannelStates) {
+            sChannelStates.evictAll();
+        }
+    }
+
+    private static String getChannelStateKey(String pkg, int uid) {
+        return pkg + "|" + uid;
+    }
+
     public boolean shouldHideSilentStatusBarIcons(Context context) {
         try {
             return sINM.shouldHideSilentStatusIcons(context.getPackageName());
@@ -564,6 +599,7 @@ public class NotificationBackend {
         } catch (Exception e) {
             Log.w(TAG, "Error calling NoMan", e);
         }
+        invalidateChannelState(pkg, uid);
     }
 
     public ShortcutInfo getConversationInfo(Context context, String pkg, int uid, String id) {
@@ -607,6 +643,7 @@ public class NotificationBackend {
         } catch (Exception e) {
             Log.w(TAG, "Error calling NoMan", e);
         }
+        invalidateChannelStates();
     }
 
     public NotificationListenerFilter getListenerFilter(ComponentName cn, int userId) {
@@ -639,6 +676,85 @@ public class NotificationBackend {
     @VisibleForTesting
     void setNm(INotificationManager inm) {
         sINM = inm;
+        invalidateChannelStates();
+    }
+
+    /**
+     * The channels of a package. All values are read from a single query of the package's
+     * channels, including deleted ones, the first time one of them is asked for, and then kept
+     * until the state expires or the channels are updated through the backend.
+     */
+    public static class ChannelState {
+        private final String mPkg;
+        private final int mUid;
+        private final long mCreatedTimeMs = SystemClock.elapsedRealtime();
+
+        // Guarded by this.
+        private boolean mLoaded;
+        private int mChannelCount;
+        private int mDeletedChannelCount;
+        private int mBlockedChannelCount;
+        private boolean mOnlyHasDefaultChannel;
+
+        ChannelState(String pkg, int uid) {
+            mPkg = pkg;
+            mUid = uid;
+        }
+
+        public synchronized int getChannelCount() {
+            load();
+            return mChannelCount;
+        }
+
+        public synchronized int getDeletedChannelCount() {
+            load();
+            return mDeletedChannelCount;
+        }
+
+        public synchronized int getBlockedChannelCount() {
+            load();
+            return mBlockedChannelCount;
+        }
+
+        public synchronized boolean onlyHasDefaultChannel() {
+            load();
+            return mOnlyHasDefaultChannel;
+        }
+
+        boolean isExpired() {
+            return SystemClock.elapsedRealtime() - mCreatedTimeMs > CHANNEL_STATE_TTL_MS;
+        }
+
+        synchronized void load() {
+            if (mLoaded) {
+                return;
+            }
+            final List<NotificationChannel> channels;
+            try {
+                channels = sINM.getNotificationChannelsForPackage(mPkg, mUid,
+                        true /* includeDeleted */).getList();
+            } catch (Exception e) {
+                // Not kept, so the next caller tries again.
+                Log.w(TAG, "Error calling NoMan", e);
+                return;
+            }
+            // Counted the way the notification manager counts them for the single value calls:
+            // conversation channels and channels in groups are channels like any other, and a
+            // blocked group doesn't block its channels.
+            for (NotificationChannel channel : channels) {
+                if (channel.isDeleted()) {
+                    mDeletedChannelCount++;
+                } else {
+                    mChannelCount++;
+                    if (channel.getImportance() == IMPORTANCE_NONE) {
+                        mBlockedChannelCount++;
+                    }
+                }
+            }
+            mOnlyHasDefaultChannel = channels.size() == 1
+                    && NotificationChannel.DEFAULT_CHANNEL_ID.equals(channels.get(0).getId());
+            mLoaded = true;
+        }
     }
 
     /**
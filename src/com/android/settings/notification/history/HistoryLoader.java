@@ -19,81 +19,127 @@ package com.android.settings.notification.history;
 import android.app.NotificationHistory;
 import android.app.NotificationHistory.HistoricalNotification;
 import android.content.Context;
-import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
-import android.os.UserHandle;
+import android.graphics.drawable.Drawable;
+import android.util.ArrayMap;
 import android.util.Slog;
+import android.util.SparseArray;
+
+import androidx.annotation.VisibleForTesting;
 
 import com.android.settings.notification.NotificationBackend;
 import com.android.settingslib.utils.ThreadUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Consumer;
 
 public class HistoryLoader {
     private static final String TAG = "HistoryLoader";
+    // Enough packages to fill the screen, published before the labels of the others are resolved.
+    @VisibleForTesting
+    static final int PAGE_SIZE = 8;
     private final Context mContext;
     private final NotificationBackend mBackend;
     private final PackageManager mPm;
+    private final PackageLabelIconCache mCache;
 
     public HistoryLoader(Context context, NotificationBackend backend, PackageManager pm) {
+        this(context, backend, pm, PackageLabelIconCache.getInstance());
+    }
+
+    @VisibleForTesting
+    HistoryLoader(Context context, NotificationBackend backend, PackageManager pm,
+            PackageLabelIconCache cache) {
         mContext = context;
         mBackend = backend;
         mPm = pm;
+        mCache = cache;
     }
 
+    /**
+     * Loads the notification history grouped by package, and publishes the packages in pages,
+     * most recent first. Icons are not resolved, see {@link #loadIcon}.
+     */
     public void load(OnHistoryLoaderListener listener) {
         ThreadUtils.postOnBackgroundThread(() -> {
             try {
-                Map<String, NotificationHistoryPackage> historicalNotifications = new HashMap<>();
-                NotificationHistory history =
+                final List<NotificationHistoryPackage> packages = groupByPackage(
                         mBackend.getNotificationHistory(mContext.getPackageName(),
-                                mContext.getAttributionTag());
-                while (history.hasNextNotification()) {
-                    HistoricalNotification hn = history.getNextNotification();
-
-                    String key = hn.getPackage() + "|" + hn.getUid();
-                    NotificationHistoryPackage hnsForPackage = historicalNotifications.getOrDefault(
-                            key,
-                            new NotificationHistoryPackage(hn.getPackage(), hn.getUid()));
-                    hnsForPackage.notifications.add(hn);
-                    historicalNotifications.put(key, hnsForPackage);
-                }
-                List<NotificationHistoryPackage> packages =
-                        new ArrayList<>(historicalNotifications.values());
+                                mContext.getAttributionTag()));
                 Collections.sort(packages,
                         (o1, o2) -> -1 * Long.compare(o1.getMostRecent(), o2.getMostRecent()));
-                for (NotificationHistoryPackage nhp : packages) {
-                    ApplicationInfo info;
-                    try {
-                        info = mPm.getApplicationInfoAsUser(
-                                nhp.pkgName,
-                                PackageManager.MATCH_UNINSTALLED_PACKAGES
-                                        | PackageManager.MATCH_DISABLED_COMPONENTS
-                                        | PackageManager.MATCH_DIRECT_BOOT_UNAWARE
-                                        | PackageManager.MATCH_DIRECT_BOOT_AWARE,
-                                UserHandle.getUserId(nhp.uid));
-                        if (info != null) {
-                            nhp.label = String.valueOf(mPm.getApplicationLabel(info));
-                            nhp.icon = mPm.getUserBadgedIcon(mPm.getApplicationIcon(info),
-                                    UserHandle.of(UserHandle.getUserId(nhp.uid)));
-                        }
-                    } catch (PackageManager.NameNotFoundException e) {
-                        // app is gone, just show package name and generic icon
-                        nhp.icon = mPm.getDefaultActivityIcon();
+
+                final int size = packages.size();
+                int start = 0;
+                do {
+                    final int end = Math.min(start + PAGE_SIZE, size);
+                    final List<NotificationHistoryPackage> page =
+                            new ArrayList<>(packages.subList(start, end));
+                    for (NotificationHistoryPackage nhp : page) {
+                        nhp.label = mCache.getLabel(mPm, nhp.pkgName, nhp.uid);
+                        nhp.icon = mCache.getCachedIcon(nhp.pkgName, nhp.uid);
                     }
-                }
-                ThreadUtils.postOnMainThread(() -> listener.onHistoryLoaded(packages));
+                    final boolean isFirstPage = start == 0;
+                    ThreadUtils.postOnMainThread(
+                            () -> listener.onHistoryPageLoaded(page, isFirstPage));
+                    start = end;
+                } while (start < size);
             } catch (Exception e) {
                 Slog.e(TAG, "Error loading history", e);
             }
         });
     }
 
+    /**
+     * Resolves the icon of the package if it isn't yet, and sets it on the main thread.
+     */
+    public void loadIcon(NotificationHistoryPackage nhp, Consumer<Drawable> consumer) {
+        if (nhp.icon != null) {
+            consumer.accept(nhp.icon);
+            return;
+        }
+        ThreadUtils.postOnBackgroundThread(() -> {
+            final Drawable icon = mCache.getIcon(mPm, nhp.pkgName, nhp.uid);
+            ThreadUtils.postOnMainThread(() -> {
+                nhp.icon = icon;
+                consumer.accept(icon);
+            });
+        });
+    }
+
+    private static List<NotificationHistoryPackage> groupByPackage(NotificationHistory history) {
+        // Keyed by uid then package, so grouping doesn't build a key per notification.
+        final SparseArray<ArrayMap<String, NotificationHistoryPackage>> packagesByUid =
+                new SparseArray<>();
+        final List<NotificationHistoryPackage> packages = new ArrayList<>();
+        while (history.hasNextNotification()) {
+            HistoricalNotification hn = history.getNextNotification();
+
+            ArrayMap<String, NotificationHistoryPackage> packagesForUid =
+                    packagesByUid.get(hn.getUid());
+            if (packagesForUid == null) {
+                packagesForUid = new ArrayMap<>();
+                packagesByUid.put(hn.getUid(), packagesForUid);
+            }
+            NotificationHistoryPackage hnsForPackage = packagesForUid.get(hn.getPackage());
+            if (hnsForPackage == null) {
+                hnsForPackage = new NotificationHistoryPackage(hn.getPackage(), hn.getUid());
+                packagesForUid.put(hn.getPackage(), hnsForPackage);
+                packages.add(hnsForPackage);
+            }
+            hnsForPackage.notifications.add(hn);
+        }
+        return packages;
+    }
+
     interface OnHistoryLoaderListener {
-        void onHistoryLoaded(List<NotificationHistoryPackage> notificationsByPackage);
+        /**
+         * Called with consecutive pages of the packages, most recent first. The first page is
+         * empty if there is no history.
+         */
+        void onHistoryPageLoaded(List<NotificationHistoryPackage> notificationsByPackage,
+                boolean isFirstPage);
     }
 }
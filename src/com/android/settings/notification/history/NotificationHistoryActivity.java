@@ -31,6 +31,7 @@ import android.content.pm.PackageManager;
 import android.content.res.Resources;
 import android.content.res.TypedArray;
 import android.graphics.Outline;
+import android.graphics.Rect;
 import android.os.Bundle;
 import android.os.RemoteException;
 import android.os.ServiceManager;
@@ -39,6 +40,7 @@ import android.os.UserManager;
 import android.provider.Settings;
 import android.service.notification.NotificationListenerService;
 import android.service.notification.StatusBarNotification;
+import android.util.ArrayMap;
 import android.util.Log;
 import android.util.Slog;
 import android.util.TypedValue;
@@ -47,10 +49,12 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.view.ViewOutlineProvider;
+import android.view.ViewTreeObserver;
 import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.core.graphics.ColorUtils;
+import androidx.core.widget.NestedScrollView;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -94,6 +98,12 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
     private UserManager mUm;
     private PackageManager mPm;
     private CountDownLatch mCountdownLatch;
+    // Rows whose icon is loaded once they are scrolled into view.
+    private final ArrayMap<ImageView, NotificationHistoryPackage> mPendingIcons = new ArrayMap<>();
+    private final Rect mTmpRect = new Rect();
+    // Rows move when pages are added or packages are expanded, not only when scrolling.
+    private final ViewTreeObserver.OnGlobalLayoutListener mOnGlobalLayoutListener =
+            this::loadVisibleIcons;
     private Future mCountdownFuture;
     private final ViewOutlineProvider mOutlineProvider = new ViewOutlineProvider() {
         @Override
@@ -156,15 +166,19 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
         }
     }
 
-    private HistoryLoader.OnHistoryLoaderListener mOnHistoryLoaderListener = notifications -> {
-        findViewById(R.id.today_list).setVisibility(
-                notifications.isEmpty() ? View.GONE : View.VISIBLE);
-        mCountdownLatch.countDown();
-        View recyclerView = mTodayView.findViewById(R.id.apps);
-        recyclerView.setClipToOutline(true);
-        mTodayView.setOutlineProvider(mOutlineProvider);
-        mSnoozeView.setOutlineProvider(mOutlineProvider);
+    private HistoryLoader.OnHistoryLoaderListener mOnHistoryLoaderListener =
+            (notifications, isFirstPage) -> {
+        if (isFirstPage) {
+            findViewById(R.id.today_list).setVisibility(
+                    notifications.isEmpty() ? View.GONE : View.VISIBLE);
+            mCountdownLatch.countDown();
+            View recyclerView = mTodayView.findViewById(R.id.apps);
+            recyclerView.setClipToOutline(true);
+            mTodayView.setOutlineProvider(mOutlineProvider);
+            mSnoozeView.setOutlineProvider(mOutlineProvider);
+        }
         // for each package, new header and recycler view
+        final int offset = mTodayView.getChildCount();
         for (int i = 0, notificationsSize = notifications.size(); i < notificationsSize; i++) {
             NotificationHistoryPackage nhp = notifications.get(i);
             View viewForPackage = LayoutInflater.from(this)
@@ -184,7 +198,7 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
             header.setStateDescription(container.getVisibility() == View.VISIBLE
                     ? getString(R.string.condition_expand_hide)
                     : getString(R.string.condition_expand_show));
-            int finalI = i;
+            int finalI = offset + i;
             header.setOnClickListener(v -> {
                 container.setVisibility(container.getVisibility() == View.VISIBLE
                         ? View.GONE : View.VISIBLE);
@@ -204,7 +218,11 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
             label.setContentDescription(mUm.getBadgedLabelForUser(label.getText(),
                     UserHandle.getUserHandleForUid(nhp.uid)));
             ImageView icon = viewForPackage.findViewById(R.id.icon);
-            icon.setImageDrawable(nhp.icon);
+            if (nhp.icon != null) {
+                icon.setImageDrawable(nhp.icon);
+            } else {
+                mPendingIcons.put(icon, nhp);
+            }
 
             TextView count = viewForPackage.findViewById(R.id.count);
             count.setText(StringUtil.getIcuPluralsString(this, nhp.notifications.size(),
@@ -227,6 +245,23 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
         }
     };
 
+    /**
+     * Loads the icons of the packages whose rows are at least partly on screen.
+     */
+    private void loadVisibleIcons() {
+        if (mPendingIcons.isEmpty()) {
+            return;
+        }
+        for (int i = mPendingIcons.size() - 1; i >= 0; i--) {
+            final ImageView icon = mPendingIcons.keyAt(i);
+            if (!icon.isAttachedToWindow() || !icon.getLocalVisibleRect(mTmpRect)) {
+                continue;
+            }
+            final NotificationHistoryPackage nhp = mPendingIcons.removeAt(i);
+            mHistoryLoader.loadIcon(nhp, icon::setImageDrawable);
+        }
+    }
+
     private void configureNotificationList(View recyclerView) {
         recyclerView.setClipToOutline(true);
         recyclerView.setOutlineProvider(mOutlineProvider);
@@ -246,6 +281,9 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
         mHistoryOn = findViewById(R.id.history_on);
         mHistoryEmpty = findViewById(R.id.history_on_empty);
         mSwitchBar = findViewById(R.id.main_switch_bar);
+        ((NestedScrollView) findViewById(R.id.scroll)).setOnScrollChangeListener(
+                (NestedScrollView.OnScrollChangeListener) (v, scrollX, scrollY, oldScrollX,
+                        oldScrollY) -> loadVisibleIcons());
         ((TextView) findViewById(R.id.today_header)).setText(
                 getString(R.string.notification_history_today, HISTORY_HOURS));
 
@@ -267,8 +305,16 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
         mCountdownLatch = new CountDownLatch(2);
 
         mTodayView.removeAllViews();
-        mHistoryLoader = new HistoryLoader(this, new NotificationBackend(), mPm);
-        mHistoryLoader.load(mOnHistoryLoaderListener);
+        mPendingIcons.clear();
+        mTodayView.getViewTreeObserver().addOnGlobalLayoutListener(mOnGlobalLayoutListener);
+        final HistoryLoader historyLoader = new HistoryLoader(this, new NotificationBackend(), mPm);
+        mHistoryLoader = historyLoader;
+        historyLoader.load((notifications, isFirstPage) -> {
+            // Drop the pages of a previous load, since its rows were removed.
+            if (historyLoader == mHistoryLoader) {
+                mOnHistoryLoaderListener.onHistoryPageLoaded(notifications, isFirstPage);
+            }
+        });
 
         mNm = INotificationManager.Stub.asInterface(
                 ServiceManager.getService(Context.NOTIFICATION_SERVICE));
@@ -309,6 +355,7 @@ public class NotificationHistoryActivity extends CollapsingToolbarBaseActivity {
             Log.e(TAG, "Cannot unregister listener", e);
         }
         mUiEventLogger.log(NotificationHistoryEvent.NOTIFICATION_HISTORY_CLOSE);
+        mTodayView.getViewTreeObserver().removeOnGlobalLayoutListener(mOnGlobalLayoutListener);
         super.onPause();
     }
 
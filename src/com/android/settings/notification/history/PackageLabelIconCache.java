@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.notification.history;
+
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.graphics.drawable.Drawable;
+import android.os.SystemClock;
+import android.os.UserHandle;
+import android.util.LruCache;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.annotation.WorkerThread;
+
+/**
+ * Process wide LRU cache of the labels and user badged icons of the packages shown in the
+ * notification history, so reopening the history doesn't resolve them again.
+ *
+ * Entries expire after a while, so updated packages eventually get their new label and icon.
+ */
+class PackageLabelIconCache {
+
+    @VisibleForTesting
+    static final long CACHE_TTL_MS = 10 * 60 * 1000L;
+    @VisibleForTesting
+    static final int MAX_ENTRIES = 64;
+
+    private static PackageLabelIconCache sInstance;
+
+    private final LruCache<String, Entry> mEntries = new LruCache<>(MAX_ENTRIES);
+
+    static synchronized PackageLabelIconCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new PackageLabelIconCache();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    PackageLabelIconCache() {
+    }
+
+    /**
+     * Returns the label of the package, or null if it is not installed anymore.
+     */
+    @WorkerThread
+    @Nullable
+    CharSequence getLabel(PackageManager pm, String pkgName, int uid) {
+        return getEntry(pm, pkgName, uid).mLabel;
+    }
+
+    /**
+     * Returns the cached icon of the package, or null if it hasn't been resolved yet.
+     */
+    @Nullable
+    Drawable getCachedIcon(String pkgName, int uid) {
+        final Entry entry = mEntries.get(getKey(pkgName, uid));
+        if (entry == null || entry.isExpired()) {
+            return null;
+        }
+        synchronized (entry) {
+            return newDrawable(entry.mIcon);
+        }
+    }
+
+    /**
+     * Returns the user badged icon of the package, or the default activity icon if it is not
+     * installed anymore.
+     */
+    @WorkerThread
+    Drawable getIcon(PackageManager pm, String pkgName, int uid) {
+        final Entry entry = getEntry(pm, pkgName, uid);
+        synchronized (entry) {
+            if (entry.mIcon == null) {
+                entry.mIcon = entry.mInfo != null
+                        ? pm.getUserBadgedIcon(pm.getApplicationIcon(entry.mInfo),
+                                UserHandle.of(UserHandle.getUserId(uid)))
+                        : pm.getDefaultActivityIcon();
+            }
+            return newDrawable(entry.mIcon);
+        }
+    }
+
+    @WorkerThread
+    private Entry getEntry(PackageManager pm, String pkgName, int uid) {
+        final String key = getKey(pkgName, uid);
+        Entry entry = mEntries.get(key);
+        if (entry != null && !entry.isExpired()) {
+            return entry;
+        }
+        ApplicationInfo info = null;
+        CharSequence label = null;
+        try {
+            info = pm.getApplicationInfoAsUser(pkgName,
+                    PackageManager.MATCH_UNINSTALLED_PACKAGES
+                            | PackageManager.MATCH_DISABLED_COMPONENTS
+                            | PackageManager.MATCH_DIRECT_BOOT_UNAWARE
+                            | PackageManager.MATCH_DIRECT_BOOT_AWARE,
+                    UserHandle.getUserId(uid));
+            if (info != null) {
+                label = String.valueOf(pm.getApplicationLabel(info));
+            }
+        } catch (PackageManager.NameNotFoundException e) {
+            // app is gone, just show package name and generic icon
+        }
+        entry = new Entry(info, label);
+        mEntries.put(key, entry);
+        return entry;
+    }
+
+    @VisibleForTesting
+    void clear() {
+        mEntries.evictAll();
+    }
+
+    private static String getKey(String pkgName, int uid) {
+        return pkgName + "|" + uid;
+    }
+
+    // Each row needs its own drawable, since drawables keep the bounds and state of their view.
+    @Nullable
+    private static Drawable newDrawable(@Nullable Drawable icon) {
+        if (icon == null) {
+            return null;
+        }
+        final Drawable.ConstantState state = icon.getConstantState();
+        return state != null ? state.newDrawable() : icon;
+    }
+
+    private static class Entry {
+        @Nullable
+        private final ApplicationInfo mInfo;
+        @Nullable
+        private final CharSequence mLabel;
+        private final long mCreatedTimeMs = SystemClock.elapsedRealtime();
+        // Resolved lazily, guarded by the entry.
+        private Drawable mIcon;
+
+        Entry(@Nullable ApplicationInfo info, @Nullable CharSequence label) {
+            mInfo = info;
+            mLabel = label;
+        }
+
+        boolean isExpired() {
+            return SystemClock.elapsedRealtime() - mCreatedTimeMs > CACHE_TTL_MS;
+        }
+    }
+}
@@ -19,6 +19,7 @@ package com.android.settings.notification.zen;
 import android.app.Application;
 import android.app.settings.SettingsEnums;
 import android.content.Context;
+import android.content.pm.ApplicationInfo;
 import android.graphics.drawable.Drawable;
 import android.os.Bundle;
 import android.os.UserHandle;
@@ -152,6 +153,12 @@ public class ZenModeAddBypassingAppsPreferenceController extends AbstractPrefere
             mPreferenceScreen.addPreference(mPreferenceCategory);
         }
 
+        final List<ApplicationInfo> appInfos = new ArrayList<>(apps.size());
+        for (ApplicationsState.AppEntry app : apps) {
+            appInfos.add(app.info);
+        }
+        mNotificationBackend.loadChannelStates(appInfos);
+
         boolean doAnyAppsPassCriteria = false;
         for (ApplicationsState.AppEntry app : apps) {
             String pkg = app.info.packageName;
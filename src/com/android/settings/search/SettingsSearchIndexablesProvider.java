@@ -50,6 +50,7 @@ import android.content.Context;
 import android.database.Cursor;
 import android.database.MatrixCursor;
 import android.net.Uri;
+import android.os.SystemClock;
 import android.provider.SearchIndexableResource;
 import android.provider.SearchIndexablesContract;
 import android.provider.SearchIndexablesProvider;
@@ -77,10 +78,20 @@ import com.android.settingslib.search.Indexable;
 import com.android.settingslib.search.SearchIndexableData;
 import com.android.settingslib.search.SearchIndexableRaw;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
 
@@ -97,9 +108,30 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
 
     private static final Collection<String> INVALID_KEYS;
 
+    // Max number of providers collecting dynamic raw data at the same time.
+    private static final int MAX_DYNAMIC_RAW_DATA_WORKERS = 4;
+    // Idle time before the dynamic raw data workers are released.
+    private static final long DYNAMIC_RAW_DATA_WORKER_KEEP_ALIVE_MS = 10000L;
+    // A provider slower than this is logged so that it can be identified.
+    private static final long SLOW_DYNAMIC_RAW_DATA_THRESHOLD_MS = 100L;
+    // Time each provider has to answer once it started, if it has a last good result.
+    @VisibleForTesting
+    static final long DYNAMIC_RAW_DATA_TIMEOUT_MS = 1000L;
+    // Time each provider has to answer once it started, if it has no last good result yet.
+    @VisibleForTesting
+    static final long FIRST_DYNAMIC_RAW_DATA_TIMEOUT_MS = 2000L;
+    // Time a provider may wait for a worker before it is given up on for this query.
+    private static final long MAX_DYNAMIC_RAW_DATA_QUEUED_MS = 5000L;
+
     // Search enabled states for injection (key: category key, value: search enabled)
     private Map<String, Boolean> mSearchEnabledByCategoryKeyMap;
 
+    // Last good dynamic raw data and timings of each provider (key: target class name)
+    private final ArrayMap<String, DynamicRawDataEntry> mDynamicRawDataCache =
+            new ArrayMap<>();
+
+    private ExecutorService mDynamicRawDataExecutor;
+
     static {
         INVALID_KEYS = new ArraySet<>();
         INVALID_KEYS.add(null);
@@ -176,9 +208,8 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(context)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
 
+        rawList.addAll(getDynamicSearchIndexableRawData(context, bundles));
         for (SearchIndexableData bundle : bundles) {
-            rawList.addAll(getDynamicSearchIndexableRawData(context, bundle));
-
             // Refresh the search enabled state for indexing injection raw data
             final Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
             if (provider instanceof BaseSearchIndexProvider) {
@@ -372,21 +403,187 @@ public class SettingsSearchIndexablesProvider extends SearchIndexablesProvider {
         return rawList;
     }
 
+    /**
+     * Collects the dynamic raw data of all providers concurrently. A provider that fails, or does
+     * not finish within {@link #DYNAMIC_RAW_DATA_TIMEOUT_MS} of starting, contributes its last
+     * good result. A provider without one is given {@link #FIRST_DYNAMIC_RAW_DATA_TIMEOUT_MS},
+     * and contributes nothing if it misses it; its result still fills the cache for the next
+     * query.
+     */
+    private List<SearchIndexableRaw> getDynamicSearchIndexableRawData(Context context,
+            Collection<SearchIndexableData> bundles) {
+        final ExecutorService executor = getDynamicRawDataExecutor();
+        final List<DynamicRawDataTask> tasks = new ArrayList<>(bundles.size());
+        final List<Future<List<SearchIndexableRaw>>> futures = new ArrayList<>(bundles.size());
+        for (SearchIndexableData bundle : bundles) {
+            final DynamicRawDataTask task = new DynamicRawDataTask(context, bundle);
+            tasks.add(task);
+            futures.add(executor.submit(task));
+        }
+
+        final List<SearchIndexableRaw> rawList = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            final DynamicRawDataTask task = tasks.get(i);
+            final String className = task.mBundle.getTargetClass().getName();
+            final List<SearchIndexableRaw> cachedRaws;
+            synchronized (mDynamicRawDataCache) {
+                final DynamicRawDataEntry entry = mDynamicRawDataCache.get(className);
+                cachedRaws = entry != null ? entry.mRaws : null;
+            }
+            try {
+                rawList.addAll(waitForDynamicRawData(task, futures.get(i), cachedRaws != null
+                        ? DYNAMIC_RAW_DATA_TIMEOUT_MS : FIRST_DYNAMIC_RAW_DATA_TIMEOUT_MS));
+                continue;
+            } catch (TimeoutException e) {
+                // Leave the task running, its result refreshes the cache for the next query.
+                Log.w(TAG, "Timed out getting dynamic raw data from: " + className);
+                synchronized (mDynamicRawDataCache) {
+                    getDynamicRawDataEntryLocked(className).mTimeoutCount++;
+                }
+            } catch (ExecutionException e) {
+                if (System.getProperty(SYSPROP_CRASH_ON_ERROR) != null) {
+                    throw new RuntimeException(e.getCause());
+                }
+                Log.e(TAG, "Error trying to get dynamic raw data from: " + className,
+                        e.getCause());
+            } catch (InterruptedException e) {
+                Log.w(TAG, "Interrupted getting dynamic raw data from: " + className);
+                Thread.currentThread().interrupt();
+            }
+            if (cachedRaws != null) {
+                rawList.addAll(cachedRaws);
+            }
+        }
+        return rawList;
+    }
+
+    /**
+     * Waits for the task until {@code timeoutMs} after it started, or until
+     * {@link #MAX_DYNAMIC_RAW_DATA_QUEUED_MS} after it was submitted if no worker picked it up.
+     */
+    private static List<SearchIndexableRaw> waitForDynamicRawData(DynamicRawDataTask task,
+            Future<List<SearchIndexableRaw>> future, long timeoutMs)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        while (true) {
+            final long startTime = task.mStartTime;
+            final long deadline = startTime != 0L
+                    ? startTime + timeoutMs
+                    : task.mSubmitTime + MAX_DYNAMIC_RAW_DATA_QUEUED_MS;
+            final long timeout = deadline - SystemClock.elapsedRealtime();
+            if (timeout <= 0L) {
+                throw new TimeoutException();
+            }
+            try {
+                // Wait at most one timeout at a time, the task may start meanwhile.
+                return future.get(Math.min(timeout, timeoutMs), TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Check the deadline again.
+            }
+        }
+    }
+
     private List<SearchIndexableRaw> getDynamicSearchIndexableRawData(Context context,
             SearchIndexableData bundle) {
+        final String className = bundle.getTargetClass().getName();
+        final long startTime = SystemClock.elapsedRealtime();
         final Indexable.SearchIndexProvider provider = bundle.getSearchIndexProvider();
-        final List<SearchIndexableRaw> providerRaws =
-                provider.getDynamicRawDataToIndex(context, true /* enabled */);
-        if (providerRaws == null) {
-            return new ArrayList<>();
+        List<SearchIndexableRaw> providerRaws = null;
+        try {
+            providerRaws = provider.getDynamicRawDataToIndex(context, true /* enabled */);
+            if (providerRaws == null) {
+                providerRaws = new ArrayList<>();
+            }
+
+            for (SearchIndexableRaw raw : providerRaws) {
+                // The classname and intent information comes from the PreIndexData
+                // This will be more clear when provider conversion is done at PreIndex time.
+                raw.className = className;
+            }
+            return providerRaws;
+        } finally {
+            final long totalTime = SystemClock.elapsedRealtime() - startTime;
+            synchronized (mDynamicRawDataCache) {
+                final DynamicRawDataEntry entry = getDynamicRawDataEntryLocked(className);
+                if (providerRaws != null) {
+                    entry.mRaws = providerRaws;
+                } else {
+                    entry.mFailureCount++;
+                }
+                entry.mLastTimeMs = totalTime;
+                entry.mMaxTimeMs = Math.max(entry.mMaxTimeMs, totalTime);
+            }
+            if (totalTime > SLOW_DYNAMIC_RAW_DATA_THRESHOLD_MS) {
+                Log.w(TAG, "Dynamic raw data from " + className + " took " + totalTime + " ms");
+            } else if (DEBUG) {
+                Log.d(TAG, "Dynamic raw data from " + className + ", total time " + totalTime);
+            }
+        }
+    }
+
+    private DynamicRawDataEntry getDynamicRawDataEntryLocked(String className) {
+        DynamicRawDataEntry entry = mDynamicRawDataCache.get(className);
+        if (entry == null) {
+            entry = new DynamicRawDataEntry();
+            mDynamicRawDataCache.put(className, entry);
+        }
+        return entry;
+    }
+
+    @Override
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        writer.println("Dynamic raw data providers:");
+        synchronized (mDynamicRawDataCache) {
+            for (int i = 0; i < mDynamicRawDataCache.size(); i++) {
+                final DynamicRawDataEntry entry = mDynamicRawDataCache.valueAt(i);
+                writer.println("  " + mDynamicRawDataCache.keyAt(i)
+                        + ": last " + entry.mLastTimeMs + " ms"
+                        + ", max " + entry.mMaxTimeMs + " ms"
+                        + ", timeouts " + entry.mTimeoutCount
+                        + ", failures " + entry.mFailureCount
+                        + ", cached " + (entry.mRaws != null ? entry.mRaws.size() : "none"));
+            }
         }
+    }
+
+    /** The last good dynamic raw data of a provider, and how long the provider takes. */
+    private static class DynamicRawDataEntry {
+        // Null until the provider succeeded once.
+        List<SearchIndexableRaw> mRaws;
+        long mLastTimeMs;
+        long mMaxTimeMs;
+        int mTimeoutCount;
+        int mFailureCount;
+    }
+
+    private class DynamicRawDataTask implements Callable<List<SearchIndexableRaw>> {
+        private final Context mContext;
+        private final SearchIndexableData mBundle;
+        private final long mSubmitTime = SystemClock.elapsedRealtime();
+        // Zero until a worker runs the task.
+        private volatile long mStartTime;
+
+        DynamicRawDataTask(Context context, SearchIndexableData bundle) {
+            mContext = context;
+            mBundle = bundle;
+        }
+
+        @Override
+        public List<SearchIndexableRaw> call() {
+            mStartTime = SystemClock.elapsedRealtime();
+            return getDynamicSearchIndexableRawData(mContext, mBundle);
+        }
+    }
 
-        for (SearchIndexableRaw raw : providerRaws) {
-            // The classname and intent information comes from the PreIndexData
-            // This will be more clear when provider conversion is done at PreIndex time.
-            raw.className = bundle.getTargetClass().getName();
+    private synchronized ExecutorService getDynamicRawDataExecutor() {
+        if (mDynamicRawDataExecutor == null) {
+            final ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                    MAX_DYNAMIC_RAW_DATA_WORKERS, MAX_DYNAMIC_RAW_DATA_WORKERS,
+                    DYNAMIC_RAW_DATA_WORKER_KEEP_ALIVE_MS, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>());
+            executor.allowCoreThreadTimeOut(true);
+            mDynamicRawDataExecutor = executor;
         }
-        return providerRaws;
+        return mDynamicRawDataExecutor;
     }
 
     @VisibleForTesting
@@ -56,14 +56,18 @@ import com.android.settings.overlay.FeatureFactory;
 import com.android.settingslib.SliceBroadcastRelay;
 import com.android.settingslib.utils.ThreadUtils;
 
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 /**
@@ -78,9 +82,11 @@ import java.util.stream.Collectors;
  * return an stub {@link Slice} with the correct {@link Uri} immediately. In the background, the
  * data corresponding to the key in the {@link Uri} is read by {@link SlicesDatabaseAccessor}, and
  * the entire row is converted into a {@link SliceData}. Once complete, it is stored in
- * {@link #mSliceWeakDataCache}, and then an update sent via the Slice framework to the Slice.
+ * {@link #mSliceDataCache}, and then an update sent via the Slice framework to the Slice.
  * The {@link Slice} displayed by the Slice-presenter will re-query this Slice-provider and find
- * the {@link SliceData} cached to build the full {@link Slice}.
+ * the {@link SliceData} cached to build the full {@link Slice}. The cache keeps the most recently
+ * used {@link SliceData} across unpinning, and is warmed up when slices are pinned or listed, so
+ * that hosts rarely see the stub.
  *
  * <p>When an action is taken on that {@link Slice}, we receive the action in
  * {@link SliceBroadcastReceiver}, and use the
@@ -132,15 +138,34 @@ public class SettingsSliceProvider extends SliceProvider {
 
     private static final KeyValueListParser KEY_VALUE_LIST_PARSER = new KeyValueListParser(',');
 
+    @VisibleForTesting
+    static final int SLICE_DATA_CACHE_SIZE = 64;
+
+    // Prewarming is skipped when the pinned slices leave less room than this in the cache.
+    @VisibleForTesting
+    static final int MIN_PREWARM_CACHE_ROOM = SLICE_DATA_CACHE_SIZE / 4;
+
     @VisibleForTesting
     SlicesDatabaseAccessor mSlicesDatabaseAccessor;
 
     @VisibleForTesting
-    Map<Uri, SliceData> mSliceWeakDataCache;
+    Map<Uri, SliceData> mSliceDataCache;
 
     @VisibleForTesting
     final Map<Uri, SliceBackgroundWorker> mPinnedWorkers = new ArrayMap<>();
 
+    // Uris whose intent filter and background worker are registered, guarded by itself.
+    private final Set<Uri> mRegisteredUris = new ArraySet<>();
+
+    private final AtomicInteger mCacheHits = new AtomicInteger();
+    private final AtomicInteger mCacheMisses = new AtomicInteger();
+    private final AtomicInteger mStubsReturned = new AtomicInteger();
+    private final AtomicInteger mPrewarmed = new AtomicInteger();
+
+    // The locale and index the cached slice data was read with, guarded by mSliceDataCache.
+    private Locale mCacheLocale = Locale.getDefault();
+    private int mCacheIndexGeneration = SlicesIndexer.getIndexGeneration();
+
     private Boolean mNightMode;
     private boolean mFirstSlicePinned;
     private boolean mFirstSliceBound;
@@ -154,7 +179,7 @@ public class SettingsSliceProvider extends SliceProvider {
     public boolean onCreateSliceProvider() {
         Log.d(TAG, "onCreateSliceProvider");
         mSlicesDatabaseAccessor = new SlicesDatabaseAccessor(getContext());
-        mSliceWeakDataCache = new WeakHashMap<>();
+        mSliceDataCache = createSliceDataCache();
         return true;
     }
 
@@ -197,7 +222,10 @@ public class SettingsSliceProvider extends SliceProvider {
 
     @Override
     public void onSliceUnpinned(Uri sliceUri) {
-        mSliceWeakDataCache.remove(sliceUri);
+        // Keep the data cached, the slice is likely to be pinned again.
+        synchronized (mRegisteredUris) {
+            mRegisteredUris.remove(sliceUri);
+        }
         final Context context = getContext();
         if (!VolumeSliceHelper.unregisterUri(context, sliceUri)) {
             SliceBroadcastRelay.unregisterReceivers(context, sliceUri);
@@ -272,14 +300,18 @@ public class SettingsSliceProvider extends SliceProvider {
                         .createWifiCallingPreferenceSlice(sliceUri);
             }
 
-            final SliceData cachedSliceData = mSliceWeakDataCache.get(sliceUri);
+            validateSliceDataCache();
+            final SliceData cachedSliceData = mSliceDataCache.get(sliceUri);
             if (cachedSliceData == null) {
+                mStubsReturned.incrementAndGet();
                 loadSliceInBackground(sliceUri);
                 return getSliceStub(sliceUri);
             }
+            mCacheHits.incrementAndGet();
             return SliceBuilderUtils.buildSlice(getContext(), cachedSliceData);
         } finally {
             StrictMode.setThreadPolicy(oldPolicy);
+            SliceBackgroundWorker.onSliceBound(sliceUri);
             if (!mFirstSliceBound) {
                 Log.v(TAG, "onBindSlice end");
                 mFirstSliceBound = true;
@@ -316,6 +348,7 @@ public class SettingsSliceProvider extends SliceProvider {
                     mSlicesDatabaseAccessor.getSliceUris(finalUri.getAuthority(),
                             false /* isPublicSlice */));
             Log.d(TAG, "provide " + descendants.size() + " non-public slices");
+            prewarmSliceDataInBackground(descendants);
             finalUri = new Uri.Builder()
                     .scheme(ContentResolver.SCHEME_CONTENT)
                     .authority(finalUri.getAuthority())
@@ -343,7 +376,10 @@ public class SettingsSliceProvider extends SliceProvider {
         }
 
         // Add all descendants from db with matching authority.
-        descendants.addAll(mSlicesDatabaseAccessor.getSliceUris(authority, true /*isPublicSlice*/));
+        final List<Uri> publicSliceUris =
+                mSlicesDatabaseAccessor.getSliceUris(authority, true /*isPublicSlice*/);
+        descendants.addAll(publicSliceUris);
+        prewarmSliceDataInBackground(publicSliceUris);
 
         if (isPathEmpty && TextUtils.isEmpty(authority)) {
             // No path nor authority. Return all possible Uris by adding all special slice uri
@@ -393,6 +429,19 @@ public class SettingsSliceProvider extends SliceProvider {
         }
     }
 
+    @Override
+    public void dump(FileDescriptor fd, PrintWriter writer, String[] args) {
+        writer.println(TAG + ":");
+        writer.println("  slice data cached: " + mSliceDataCache.size() + "/"
+                + SLICE_DATA_CACHE_SIZE);
+        writer.println("  cache hits: " + mCacheHits.get());
+        writer.println("  cache misses: " + mCacheMisses.get());
+        writer.println("  stubs returned: " + mStubsReturned.get());
+        writer.println("  prewarmed: " + mPrewarmed.get());
+        writer.println("Slice background workers:");
+        SliceBackgroundWorker.dump(writer);
+    }
+
     @Override
     public void shutdown() {
         ThreadUtils.postOnMainThread(() -> {
@@ -402,18 +451,33 @@ public class SettingsSliceProvider extends SliceProvider {
 
     @VisibleForTesting
     void loadSlice(Uri uri) {
-        if (mSliceWeakDataCache.containsKey(uri)) {
-            Log.d(TAG, uri + " loaded from cache");
-            return;
-        }
         long startBuildTime = System.currentTimeMillis();
 
-        final SliceData sliceData;
-        try {
-            sliceData = mSlicesDatabaseAccessor.getSliceDataFromUri(uri);
-        } catch (IllegalStateException e) {
-            Log.d(TAG, "Could not create slicedata for uri: " + uri, e);
-            return;
+        validateSliceDataCache();
+        SliceData sliceData = mSliceDataCache.get(uri);
+        final boolean cached = sliceData != null;
+        if (cached) {
+            mCacheHits.incrementAndGet();
+        } else {
+            mCacheMisses.incrementAndGet();
+            try {
+                sliceData = mSlicesDatabaseAccessor.getSliceDataFromUri(uri);
+            } catch (IllegalStateException e) {
+                Log.d(TAG, "Could not create slicedata for uri: " + uri, e);
+                return;
+            }
+        }
+
+        synchronized (mRegisteredUris) {
+            if (!mRegisteredUris.add(uri)) {
+                if (!cached) {
+                    mSliceDataCache.put(uri, sliceData);
+                    getContext().getContentResolver().notifyChange(uri,
+                            null /* content observer */);
+                }
+                Log.d(TAG, uri + " already registered");
+                return;
+            }
         }
 
         final BasePreferenceController controller = SliceBuilderUtils.getPreferenceController(
@@ -432,7 +496,11 @@ public class SettingsSliceProvider extends SliceProvider {
 
         ThreadUtils.postOnMainThread(() -> startBackgroundWorker(controller, uri));
 
-        mSliceWeakDataCache.put(uri, sliceData);
+        if (cached) {
+            Log.d(TAG, uri + " loaded from cache");
+            return;
+        }
+        mSliceDataCache.put(uri, sliceData);
         getContext().getContentResolver().notifyChange(uri, null /* content observer */);
 
         Log.d(TAG, "Built slice (" + uri + ") in: " +
@@ -444,6 +512,76 @@ public class SettingsSliceProvider extends SliceProvider {
         ThreadUtils.postOnBackgroundThread(() -> loadSlice(uri));
     }
 
+    /**
+     * Reads the {@link SliceData} of the first uris which aren't cached yet in a single query,
+     * without registering anything, so that binding them soon after doesn't return a stub. Only
+     * as many uris are read as fit in the cache next to the pinned slices, so that prewarming
+     * never evicts the data of a pinned slice.
+     */
+    @VisibleForTesting
+    void prewarmSliceData(List<Uri> uris) {
+        final int pinnedCount;
+        synchronized (mRegisteredUris) {
+            pinnedCount = mRegisteredUris.size();
+        }
+        final int room = SLICE_DATA_CACHE_SIZE - pinnedCount;
+        if (room < MIN_PREWARM_CACHE_ROOM) {
+            Log.d(TAG, "Cache nearly full of pinned slices, skipping prewarm");
+            return;
+        }
+        final int indexGeneration = validateSliceDataCache();
+        final List<Uri> toLoad = new ArrayList<>();
+        for (Uri uri : uris) {
+            if (toLoad.size() >= room) {
+                break;
+            }
+            if (!mSliceDataCache.containsKey(uri)) {
+                toLoad.add(uri);
+            }
+        }
+        if (toLoad.isEmpty()) {
+            return;
+        }
+        final Map<Uri, SliceData> sliceData = mSlicesDatabaseAccessor.getSliceDataFromUris(toLoad);
+        if (validateSliceDataCache() != indexGeneration) {
+            // Read from an index that was rebuilt meanwhile.
+            return;
+        }
+        for (Map.Entry<Uri, SliceData> entry : sliceData.entrySet()) {
+            mSliceDataCache.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        mPrewarmed.addAndGet(sliceData.size());
+    }
+
+    /**
+     * Clears the cached {@link SliceData} if it was read with another locale, or before the index
+     * was rebuilt, as its titles and summaries are out of date.
+     *
+     * @return the index generation the cache is now valid for
+     */
+    @VisibleForTesting
+    int validateSliceDataCache() {
+        final Locale locale = Locale.getDefault();
+        final int indexGeneration = SlicesIndexer.getIndexGeneration();
+        synchronized (mSliceDataCache) {
+            if (!locale.equals(mCacheLocale) || indexGeneration != mCacheIndexGeneration) {
+                Log.d(TAG, "Locale or index changed, clearing slice data cache");
+                mSliceDataCache.clear();
+                mCacheLocale = locale;
+                mCacheIndexGeneration = indexGeneration;
+            }
+        }
+        return indexGeneration;
+    }
+
+    private void prewarmSliceDataInBackground(List<Uri> uris) {
+        if (uris.isEmpty()) {
+            return;
+        }
+        final List<Uri> copy = new ArrayList<>(uris);
+        ThreadUtils.postOnBackgroundThread(() -> prewarmSliceData(copy));
+    }
+
     @VisibleForTesting
     /**
      * Registers an IntentFilter in SysUI to notify changes to {@param sliceUri} when broadcasts to
@@ -525,6 +663,20 @@ public class SettingsSliceProvider extends SliceProvider {
         return new Slice.Builder(uri).addHints(HINT_PARTIAL).build();
     }
 
+    /**
+     * @return a bounded map of {@link SliceData} by {@link Uri}, which evicts the least recently
+     * used entry when full.
+     */
+    private static Map<Uri, SliceData> createSliceDataCache() {
+        return Collections.synchronizedMap(
+                new LinkedHashMap<Uri, SliceData>(16, 0.75f, true /* accessOrder */) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<Uri, SliceData> eldest) {
+                        return size() > SLICE_DATA_CACHE_SIZE;
+                    }
+                });
+    }
+
     private static String[] parseStringArray(String value) {
         if (value != null) {
             String[] parts = value.split(":");
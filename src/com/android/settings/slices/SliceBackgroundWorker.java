@@ -29,13 +29,17 @@ import android.os.SystemClock;
 import android.util.ArrayMap;
 import android.util.Log;
 
+import androidx.annotation.VisibleForTesting;
+
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The Slice background worker is used to make Settings Slices be able to work with data that is
@@ -46,7 +50,8 @@ import java.util.Map;
  * SettingsSliceProvider#shutdown()}.
  *
  * {@link SliceBackgroundWorker} caches the results, uses the cache to compare if there is any data
- * changed, and then notifies the Slice {@link Uri} to update.
+ * changed, and then notifies the Slice {@link Uri} to update. Updates of a {@link Uri} are
+ * coalesced and spaced out according to how long the host takes to bind the Slice again.
  *
  * It also stores all instances of all workers to ensure each worker is a Singleton.
  */
@@ -55,14 +60,26 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
     private static final String TAG = "SliceBackgroundWorker";
 
     private static final long SLICE_UPDATE_THROTTLE_INTERVAL = 300L;
+    @VisibleForTesting
+    static final long MAX_SLICE_UPDATE_THROTTLE_INTERVAL = 2000L;
 
-    private static final Map<Uri, SliceBackgroundWorker> LIVE_WORKERS = new ArrayMap<>();
+    private static final Map<Uri, SliceBackgroundWorker> LIVE_WORKERS =
+            Collections.synchronizedMap(new ArrayMap<>());
 
     private final Context mContext;
     private final Uri mUri;
 
     private List<E> mCachedResults;
 
+    // Guarded by this.
+    private long mPendingNotifyTime;
+    private long mAverageBindLatency;
+    private volatile long mThrottleInterval = SLICE_UPDATE_THROTTLE_INTERVAL;
+
+    private final AtomicInteger mDeliveredUpdates = new AtomicInteger();
+    private final AtomicInteger mCoalescedUpdates = new AtomicInteger();
+    private final AtomicInteger mUnchangedResults = new AtomicInteger();
+
     protected SliceBackgroundWorker(Context context, Uri uri) {
         mContext = context;
         mUri = uri;
@@ -114,14 +131,39 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
     }
 
     static void shutdown() {
-        for (SliceBackgroundWorker worker : LIVE_WORKERS.values()) {
-            try {
-                worker.close();
-            } catch (IOException e) {
-                Log.w(TAG, "Shutting down worker failed", e);
+        synchronized (LIVE_WORKERS) {
+            for (SliceBackgroundWorker worker : LIVE_WORKERS.values()) {
+                try {
+                    worker.close();
+                } catch (IOException e) {
+                    Log.w(TAG, "Shutting down worker failed", e);
+                }
+            }
+            LIVE_WORKERS.clear();
+        }
+    }
+
+    /**
+     * Called when the host bound the Slice of {@link Uri}, to adapt how often its worker, if any,
+     * notifies changes.
+     */
+    static void onSliceBound(Uri uri) {
+        final SliceBackgroundWorker worker = getInstance(uri);
+        if (worker != null) {
+            worker.onSliceBound(SystemClock.uptimeMillis());
+        }
+    }
+
+    static void dump(PrintWriter writer) {
+        synchronized (LIVE_WORKERS) {
+            for (SliceBackgroundWorker worker : LIVE_WORKERS.values()) {
+                writer.println("  " + worker.getClass().getSimpleName() + " " + worker.getUri()
+                        + ": delivered=" + worker.mDeliveredUpdates.get()
+                        + " coalesced=" + worker.mCoalescedUpdates.get()
+                        + " unchanged=" + worker.mUnchangedResults.get()
+                        + " throttle=" + worker.mThrottleInterval + "ms");
             }
         }
-        LIVE_WORKERS.clear();
     }
 
     /**
@@ -162,6 +204,8 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
         if (needNotify) {
             mCachedResults = results;
             notifySliceChange();
+        } else {
+            mUnchangedResults.incrementAndGet();
         }
     }
 
@@ -183,6 +227,40 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
     void unpin() {
         onSliceUnpinned();
         NotifySliceChangeHandler.getInstance().cancelSliceUpdate(this);
+        synchronized (this) {
+            mPendingNotifyTime = 0L;
+        }
+    }
+
+    @VisibleForTesting
+    synchronized void onNotified(long now) {
+        mDeliveredUpdates.incrementAndGet();
+        if (mPendingNotifyTime == 0L) {
+            mPendingNotifyTime = now;
+        }
+    }
+
+    /**
+     * Averages how long the host takes to bind the Slice after a change is notified, and keeps
+     * the updates at least twice that apart, so slow hosts aren't asked to rebind continuously.
+     */
+    @VisibleForTesting
+    synchronized void onSliceBound(long now) {
+        if (mPendingNotifyTime == 0L) {
+            // Not bound because of a change of this worker.
+            return;
+        }
+        final long latency = now - mPendingNotifyTime;
+        mPendingNotifyTime = 0L;
+        mAverageBindLatency = mAverageBindLatency == 0L
+                ? latency : (3 * mAverageBindLatency + latency) / 4;
+        mThrottleInterval = Math.max(SLICE_UPDATE_THROTTLE_INTERVAL,
+                Math.min(MAX_SLICE_UPDATE_THROTTLE_INTERVAL, 2 * mAverageBindLatency));
+    }
+
+    @VisibleForTesting
+    long getThrottleInterval() {
+        return mThrottleInterval;
     }
 
     private static class NotifySliceChangeHandler extends Handler {
@@ -217,26 +295,29 @@ public abstract class SliceBackgroundWorker<E> implements Closeable {
             final SliceBackgroundWorker worker = (SliceBackgroundWorker) msg.obj;
             final Uri uri = worker.getUri();
             final Context context = worker.getContext();
-            mLastUpdateTimeLookup.put(uri, SystemClock.uptimeMillis());
+            final long now = SystemClock.uptimeMillis();
+            mLastUpdateTimeLookup.put(uri, now);
+            worker.onNotified(now);
             context.getContentResolver().notifyChange(uri, null);
         }
 
         private void updateSlice(SliceBackgroundWorker worker) {
             if (hasMessages(MSG_UPDATE_SLICE, worker)) {
+                worker.mCoalescedUpdates.incrementAndGet();
                 return;
             }
 
             final Message message = obtainMessage(MSG_UPDATE_SLICE, worker);
             final long lastUpdateTime = mLastUpdateTimeLookup.getOrDefault(worker.getUri(), 0L);
+            final long throttleInterval = worker.getThrottleInterval();
             if (lastUpdateTime == 0L) {
                 // Postpone the first update triggering by onSlicePinned() to avoid being too close
                 // to the first Slice bind.
                 sendMessageDelayed(message, SLICE_UPDATE_THROTTLE_INTERVAL);
-            } else if (SystemClock.uptimeMillis() - lastUpdateTime
-                    > SLICE_UPDATE_THROTTLE_INTERVAL) {
+            } else if (SystemClock.uptimeMillis() - lastUpdateTime > throttleInterval) {
                 sendMessage(message);
             } else {
-                sendMessageAtTime(message, lastUpdateTime + SLICE_UPDATE_THROTTLE_INTERVAL);
+                sendMessageAtTime(message, lastUpdateTime + throttleInterval);
             }
         }
 
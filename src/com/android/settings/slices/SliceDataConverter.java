@@ -68,6 +68,11 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Converts all Slice sources into {@link SliceData}.
@@ -81,6 +86,9 @@ class SliceDataConverter {
 
     private static final String NODE_NAME_PREFERENCE_SCREEN = "PreferenceScreen";
 
+    // Upper bound of worker threads to convert the indexable fragments in parallel.
+    private static final int MAX_WORKER_COUNT = 4;
+
     private final MetricsFeatureProvider mMetricsFeatureProvider;
     private Context mContext;
 
@@ -98,6 +106,10 @@ class SliceDataConverter {
      * - From each fragment, grab a {@link SearchIndexProvider}.
      * - For each provider, collect XML resource layout and a list of
      * {@link com.android.settings.core.BasePreferenceController}.
+     *
+     * The XML of the providers is parsed in parallel on a bounded worker pool. The controllers
+     * are then created and checked on the calling thread, in the same order as the providers, so
+     * that no two controllers are asked whether they are available at the same time.
      */
     public List<SliceData> getSliceData() {
         List<SliceData> sliceData = new ArrayList<>();
@@ -105,6 +117,7 @@ class SliceDataConverter {
         final Collection<SearchIndexableData> bundles = FeatureFactory.getFactory(mContext)
                 .getSearchFeatureProvider().getSearchIndexableResources().getProviderValues();
 
+        final List<Callable<List<ParsedScreen>>> tasks = new ArrayList<>();
         for (SearchIndexableData bundle : bundles) {
             final String fragmentName = bundle.getTargetClass().getName();
 
@@ -116,9 +129,10 @@ class SliceDataConverter {
                 continue;
             }
 
-            final List<SliceData> providerSliceData = getSliceDataFromProvider(provider,
-                    fragmentName);
-            sliceData.addAll(providerSliceData);
+            tasks.add(() -> parseProvider(provider, fragmentName));
+        }
+        for (ParsedScreen screen : runInParallel(tasks)) {
+            sliceData.addAll(getSliceDataFromScreen(screen));
         }
 
         final List<SliceData> a11ySliceData = getAccessibilitySliceData();
@@ -126,15 +140,48 @@ class SliceDataConverter {
         return sliceData;
     }
 
-    private List<SliceData> getSliceDataFromProvider(SearchIndexProvider provider,
-            String fragmentName) {
-        final List<SliceData> sliceData = new ArrayList<>();
+    /**
+     * Runs the tasks and returns their results in the order of the tasks. Exceptions thrown by a
+     * task are rethrown.
+     */
+    private static List<ParsedScreen> runInParallel(List<Callable<List<ParsedScreen>>> tasks) {
+        final List<ParsedScreen> screens = new ArrayList<>();
+        if (tasks.isEmpty()) {
+            return screens;
+        }
+        final int workerCount = Math.min(tasks.size(),
+                Math.min(MAX_WORKER_COUNT, Runtime.getRuntime().availableProcessors()));
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, workerCount));
+        try {
+            for (Future<List<ParsedScreen>> future : executor.invokeAll(tasks)) {
+                screens.addAll(future.get());
+            }
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while parsing slice data", e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return screens;
+    }
+
+    private List<ParsedScreen> parseProvider(SearchIndexProvider provider, String fragmentName) {
+        final List<ParsedScreen> screens = new ArrayList<>();
 
         final List<SearchIndexableResource> resList =
                 provider.getXmlResourcesToIndex(mContext, true /* enabled */);
 
         if (resList == null) {
-            return sliceData;
+            return screens;
         }
 
         // TODO (b/67996923) get a list of permanent NIKs and skip the invalid keys.
@@ -146,19 +193,22 @@ class SliceDataConverter {
                 continue;
             }
 
-            List<SliceData> xmlSliceData = getSliceDataFromXML(xmlResId, fragmentName);
-            sliceData.addAll(xmlSliceData);
+            final ParsedScreen screen = parseXml(xmlResId, fragmentName);
+            if (screen != null) {
+                screens.add(screen);
+            }
         }
 
-        return sliceData;
+        return screens;
     }
 
-    private List<SliceData> getSliceDataFromXML(int xmlResId, String fragmentName) {
+    /**
+     * Parses the title and the metadata of the preferences of the XML, or returns null if it
+     * can't be parsed.
+     */
+    private ParsedScreen parseXml(int xmlResId, String fragmentName) {
         XmlResourceParser parser = null;
 
-        final List<SliceData> xmlSliceData = new ArrayList<>();
-        String controllerClassName = "";
-
         try {
             parser = mContext.getResources().getXml(xmlResId);
 
@@ -190,8 +240,34 @@ class SliceDataConverter {
                             | MetadataFlag.FLAG_NEED_PREF_ICON
                             | MetadataFlag.FLAG_NEED_PREF_SUMMARY
                             | MetadataFlag.FLAG_UNAVAILABLE_SLICE_SUBTITLE);
+            return new ParsedScreen(fragmentName, screenTitle, metadata);
+        } catch (XmlPullParserException | IOException | Resources.NotFoundException e) {
+            Log.w(TAG, "Error parsing PreferenceScreen: ", e);
+            mMetricsFeatureProvider.action(SettingsEnums.PAGE_UNKNOWN,
+                    SettingsEnums.ACTION_VERIFY_SLICE_PARSING_ERROR,
+                    SettingsEnums.PAGE_UNKNOWN,
+                    fragmentName,
+                    1);
+        } catch (Exception e) {
+            Log.w(TAG, "Get slice data from XML failed ", e);
+            mMetricsFeatureProvider.action(SettingsEnums.PAGE_UNKNOWN,
+                    SettingsEnums.ACTION_VERIFY_SLICE_OTHER_EXCEPTION,
+                    SettingsEnums.PAGE_UNKNOWN,
+                    fragmentName + "_",
+                    1);
+        } finally {
+            if (parser != null) parser.close();
+        }
+        return null;
+    }
+
+    private List<SliceData> getSliceDataFromScreen(ParsedScreen screen) {
+        final List<SliceData> xmlSliceData = new ArrayList<>();
+        final String fragmentName = screen.mFragmentName;
+        String controllerClassName = "";
 
-            for (Bundle bundle : metadata) {
+        try {
+            for (Bundle bundle : screen.mMetadata) {
                 // TODO (b/67996923) Non-controller Slices should become intent-only slices.
                 // Note that without a controller, dynamic summaries are impossible.
                 controllerClassName = bundle.getString(METADATA_CONTROLLER);
@@ -225,7 +301,7 @@ class SliceDataConverter {
                         .setTitle(title)
                         .setSummary(summary)
                         .setIcon(iconResId)
-                        .setScreenTitle(screenTitle)
+                        .setScreenTitle(screen.mScreenTitle)
                         .setPreferenceControllerClassName(controllerClassName)
                         .setFragmentName(fragmentName)
                         .setSliceType(sliceType)
@@ -243,13 +319,6 @@ class SliceDataConverter {
                     SettingsEnums.PAGE_UNKNOWN,
                     controllerClassName,
                     1);
-        } catch (XmlPullParserException | IOException | Resources.NotFoundException e) {
-            Log.w(TAG, "Error parsing PreferenceScreen: ", e);
-            mMetricsFeatureProvider.action(SettingsEnums.PAGE_UNKNOWN,
-                    SettingsEnums.ACTION_VERIFY_SLICE_PARSING_ERROR,
-                    SettingsEnums.PAGE_UNKNOWN,
-                    fragmentName,
-                    1);
         } catch (Exception e) {
             Log.w(TAG, "Get slice data from XML failed ", e);
             mMetricsFeatureProvider.action(SettingsEnums.PAGE_UNKNOWN,
@@ -257,8 +326,6 @@ class SliceDataConverter {
                     SettingsEnums.PAGE_UNKNOWN,
                     fragmentName + "_" + controllerClassName,
                     1);
-        } finally {
-            if (parser != null) parser.close();
         }
         return xmlSliceData;
     }
@@ -325,4 +392,17 @@ class SliceDataConverter {
                 mContext);
         return accessibilityManager.getInstalledAccessibilityServiceList();
     }
+
+    /** The title and the preference metadata parsed from the XML of a screen. */
+    private static class ParsedScreen {
+        final String mFragmentName;
+        final String mScreenTitle;
+        final List<Bundle> mMetadata;
+
+        ParsedScreen(String fragmentName, String screenTitle, List<Bundle> metadata) {
+            mFragmentName = fragmentName;
+            mScreenTitle = screenTitle;
+            mMetadata = metadata;
+        }
+    }
 }
\ No newline at end of file
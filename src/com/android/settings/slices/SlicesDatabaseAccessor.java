@@ -24,6 +24,7 @@ import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 import android.os.Binder;
 import android.text.TextUtils;
+import android.util.ArrayMap;
 import android.util.Pair;
 
 import androidx.slice.Slice;
@@ -32,7 +33,10 @@ import com.android.settings.overlay.FeatureFactory;
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Class used to map a {@link Uri} from {@link SettingsSliceProvider} to a Slice.
@@ -77,6 +81,48 @@ public class SlicesDatabaseAccessor {
         }
     }
 
+    /**
+     * Query the slices database once for the rows matching the keys of the {@param uris}, and
+     * return the {@link SliceData} of each {@link Uri} that has one.
+     * Used when warming up slices which are likely to be requested soon.
+     */
+    public Map<Uri, SliceData> getSliceDataFromUris(Collection<Uri> uris) {
+        final Map<Uri, SliceData> sliceData = new ArrayMap<>();
+        // Key to the uris with that key, an action and an intent uri may share one.
+        final Map<String, List<Uri>> urisByKey = new ArrayMap<>();
+        for (Uri uri : uris) {
+            final Pair<Boolean, String> pathData = SliceBuilderUtils.getPathData(uri);
+            if (pathData != null) {
+                urisByKey.computeIfAbsent(pathData.second, key -> new ArrayList<>()).add(uri);
+            }
+        }
+        if (urisByKey.isEmpty()) {
+            return sliceData;
+        }
+        verifyIndexing();
+
+        final String[] selection = urisByKey.keySet().toArray(new String[0]);
+        final String whereClause = IndexColumns.KEY + " IN ("
+                + TextUtils.join(",", Collections.nCopies(selection.length, "?")) + ")";
+        final SQLiteDatabase database = mHelper.getReadableDatabase();
+        try (Cursor cursor = database.query(TABLE_SLICES_INDEX, SELECT_COLUMNS_ALL,
+                whereClause, selection, null /* groupBy */, null /* having */,
+                null /* orderBy */)) {
+            while (cursor.moveToNext()) {
+                final List<Uri> keyUris = urisByKey.get(
+                        cursor.getString(cursor.getColumnIndex(IndexColumns.KEY)));
+                if (keyUris == null) {
+                    continue;
+                }
+                for (Uri uri : keyUris) {
+                    final boolean isIntentOnly = SliceBuilderUtils.getPathData(uri).first;
+                    sliceData.put(uri, buildSliceData(cursor, uri, isIntentOnly));
+                }
+            }
+        }
+        return sliceData;
+    }
+
     /**
      * Query the slices database and return a {@link SliceData} object corresponding to the row
      * matching the {@param key}.
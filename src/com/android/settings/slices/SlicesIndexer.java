@@ -16,9 +16,11 @@
 
 package com.android.settings.slices;
 
-import android.content.ContentValues;
+import android.app.settings.SettingsEnums;
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.annotation.VisibleForTesting;
@@ -30,6 +32,7 @@ import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
 import com.android.settings.slices.SlicesDatabaseHelper.Tables;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Manages the conversion of {@link DashboardFragment} and {@link BasePreferenceController} to
@@ -39,6 +42,30 @@ class SlicesIndexer implements Runnable {
 
     private static final String TAG = "SlicesIndexer";
 
+    private static final String[] INSERT_COLUMNS = {
+            IndexColumns.KEY,
+            IndexColumns.SLICE_URI,
+            IndexColumns.TITLE,
+            IndexColumns.SUMMARY,
+            IndexColumns.SCREENTITLE,
+            IndexColumns.KEYWORDS,
+            IndexColumns.ICON_RESOURCE,
+            IndexColumns.FRAGMENT,
+            IndexColumns.CONTROLLER,
+            IndexColumns.SLICE_TYPE,
+            IndexColumns.UNAVAILABLE_SLICE_SUBTITLE,
+            IndexColumns.PUBLIC_SLICE,
+            IndexColumns.HIGHLIGHT_MENU_RESOURCE,
+    };
+
+    private static final String INSERT_SQL = buildInsertSql();
+
+    @VisibleForTesting
+    static final String METRIC_KEY_INDEXING_TIME = "slices_indexing_time";
+
+    // Incremented each time the index is rebuilt, so cached slice data can be dropped.
+    private static final AtomicInteger sIndexGeneration = new AtomicInteger();
+
     private Context mContext;
 
     private SlicesDatabaseHelper mHelper;
@@ -68,7 +95,7 @@ class SlicesIndexer implements Runnable {
 
         final SQLiteDatabase database = mHelper.getWritableDatabase();
 
-        long startTime = System.currentTimeMillis();
+        final long startTime = SystemClock.elapsedRealtime();
         database.beginTransaction();
         try {
             mHelper.reconstruct(database);
@@ -76,14 +103,25 @@ class SlicesIndexer implements Runnable {
             insertSliceData(database, indexData);
 
             mHelper.setIndexedState();
-
-            // TODO (b/71503044) Log indexing time.
-            Log.d(TAG,
-                    "Indexing slices database took: " + (System.currentTimeMillis() - startTime));
             database.setTransactionSuccessful();
         } finally {
             database.endTransaction();
         }
+        sIndexGeneration.incrementAndGet();
+
+        final long indexingTime = SystemClock.elapsedRealtime() - startTime;
+        FeatureFactory.getFactory(mContext).getMetricsFeatureProvider()
+                .action(SettingsEnums.SLICE,
+                        SettingsEnums.ACTION_SETTINGS_SLICE_REQUESTED,
+                        SettingsEnums.PAGE_UNKNOWN,
+                        METRIC_KEY_INDEXING_TIME,
+                        (int) indexingTime);
+        Log.d(TAG, "Indexing slices database took: " + indexingTime);
+    }
+
+    /** Returns a number which changes each time the index is rebuilt in this process. */
+    static int getIndexGeneration() {
+        return sIndexGeneration.get();
     }
 
     @VisibleForTesting
@@ -96,30 +134,51 @@ class SlicesIndexer implements Runnable {
 
     @VisibleForTesting
     void insertSliceData(SQLiteDatabase database, List<SliceData> indexData) {
-        ContentValues values;
-
-        for (SliceData dataRow : indexData) {
-            values = new ContentValues();
-            values.put(IndexColumns.KEY, dataRow.getKey());
-            values.put(IndexColumns.SLICE_URI, dataRow.getUri().toString());
-            values.put(IndexColumns.TITLE, dataRow.getTitle());
-            values.put(IndexColumns.SUMMARY, dataRow.getSummary());
-            final CharSequence screenTitle = dataRow.getScreenTitle();
-            if (screenTitle != null) {
-                values.put(IndexColumns.SCREENTITLE, screenTitle.toString());
+        // Compiles the statement once and rebinds it for every row, instead of allocating a
+        // ContentValues and building the SQL for each of them.
+        final SQLiteStatement statement = database.compileStatement(INSERT_SQL);
+        try {
+            for (SliceData dataRow : indexData) {
+                statement.clearBindings();
+                int index = 1;
+                bindString(statement, index++, dataRow.getKey());
+                bindString(statement, index++, dataRow.getUri().toString());
+                bindString(statement, index++, dataRow.getTitle());
+                bindString(statement, index++, dataRow.getSummary());
+                final CharSequence screenTitle = dataRow.getScreenTitle();
+                bindString(statement, index++, screenTitle != null ? screenTitle.toString() : null);
+                bindString(statement, index++, dataRow.getKeywords());
+                statement.bindLong(index++, dataRow.getIconResource());
+                bindString(statement, index++, dataRow.getFragmentClassName());
+                bindString(statement, index++, dataRow.getPreferenceController());
+                statement.bindLong(index++, dataRow.getSliceType());
+                bindString(statement, index++, dataRow.getUnavailableSliceSubtitle());
+                statement.bindLong(index++, dataRow.isPublicSlice() ? 1 : 0);
+                statement.bindLong(index++, dataRow.getHighlightMenuRes());
+                statement.executeInsert();
             }
-            values.put(IndexColumns.KEYWORDS, dataRow.getKeywords());
-            values.put(IndexColumns.ICON_RESOURCE, dataRow.getIconResource());
-            values.put(IndexColumns.FRAGMENT, dataRow.getFragmentClassName());
-            values.put(IndexColumns.CONTROLLER, dataRow.getPreferenceController());
-            values.put(IndexColumns.SLICE_TYPE, dataRow.getSliceType());
-            values.put(IndexColumns.UNAVAILABLE_SLICE_SUBTITLE,
-                    dataRow.getUnavailableSliceSubtitle());
-            values.put(IndexColumns.PUBLIC_SLICE, dataRow.isPublicSlice());
-            values.put(IndexColumns.HIGHLIGHT_MENU_RESOURCE, dataRow.getHighlightMenuRes());
-
-            database.replaceOrThrow(Tables.TABLE_SLICES_INDEX, null /* nullColumnHack */,
-                    values);
+        } finally {
+            statement.close();
+        }
+    }
+
+    private static String buildInsertSql() {
+        final StringBuilder builder = new StringBuilder("INSERT OR REPLACE INTO ")
+                .append(Tables.TABLE_SLICES_INDEX)
+                .append(" (")
+                .append(String.join(",", INSERT_COLUMNS))
+                .append(") VALUES (");
+        for (int i = 0; i < INSERT_COLUMNS.length; i++) {
+            builder.append(i == 0 ? "?" : ",?");
+        }
+        return builder.append(")").toString();
+    }
+
+    private static void bindString(SQLiteStatement statement, int index, String value) {
+        if (value == null) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, value);
         }
     }
 }
@@ -0,0 +1,143 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.users;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.UserHandle;
+import android.util.SparseArray;
+
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+import com.android.settingslib.drawable.CircleFramedDrawable;
+
+/**
+ * Process wide cache of the user avatars shown in the user settings, so they survive the
+ * fragment and aren't read from the {@link android.os.UserManager} or encircled again each time
+ * the page is opened.
+ *
+ * The avatar of a user is dropped when {@link Intent#ACTION_USER_INFO_CHANGED} is received for
+ * it, once {@link #startListening(Context)} has been called.
+ */
+class UserAvatarCache {
+
+    private static UserAvatarCache sInstance;
+
+    // Guarded by the cache.
+    private final SparseArray<Avatar> mAvatars = new SparseArray<>();
+    private boolean mListening;
+
+    private final BroadcastReceiver mUserInfoChangedReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            final int userId = intent.getIntExtra(Intent.EXTRA_USER_HANDLE, UserHandle.USER_NULL);
+            if (userId != UserHandle.USER_NULL) {
+                remove(userId);
+            }
+        }
+    };
+
+    static synchronized UserAvatarCache getInstance() {
+        if (sInstance == null) {
+            sInstance = new UserAvatarCache();
+        }
+        return sInstance;
+    }
+
+    @VisibleForTesting
+    UserAvatarCache() {
+    }
+
+    /**
+     * Starts dropping the avatars of users whose info changes. The receiver lives as long as
+     * the process, like the cache.
+     */
+    synchronized void startListening(Context context) {
+        if (mListening) {
+            return;
+        }
+        mListening = true;
+        context.getApplicationContext().registerReceiverAsUser(mUserInfoChangedReceiver,
+                UserHandle.ALL, new IntentFilter(Intent.ACTION_USER_INFO_CHANGED), null, null,
+                Context.RECEIVER_EXPORTED_UNAUDITED);
+    }
+
+    /** Returns the avatar of the user as stored by the user manager, or null if not cached. */
+    @Nullable
+    synchronized Bitmap get(int userId) {
+        final Avatar avatar = mAvatars.get(userId);
+        return avatar != null ? avatar.mIcon : null;
+    }
+
+    synchronized void put(int userId, Bitmap icon) {
+        mAvatars.put(userId, new Avatar(icon));
+    }
+
+    synchronized void remove(int userId) {
+        mAvatars.remove(userId);
+    }
+
+    /**
+     * Returns the avatar of the user framed in a circle of the given size, or null if it is not
+     * cached. The circle is only drawn once per size.
+     */
+    @Nullable
+    Drawable getEncircled(Resources res, int userId, int size) {
+        final Avatar avatar;
+        synchronized (this) {
+            avatar = mAvatars.get(userId);
+        }
+        if (avatar == null) {
+            return null;
+        }
+        Bitmap encircled;
+        synchronized (avatar) {
+            encircled = avatar.mEncircled.get(size);
+            if (encircled == null) {
+                encircled = encircle(avatar.mIcon, size);
+                avatar.mEncircled.put(size, encircled);
+            }
+        }
+        return new BitmapDrawable(res, encircled);
+    }
+
+    private static Bitmap encircle(Bitmap icon, int size) {
+        final CircleFramedDrawable drawable = new CircleFramedDrawable(icon, size);
+        final Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        drawable.setBounds(0, 0, size, size);
+        drawable.draw(new Canvas(bitmap));
+        return bitmap;
+    }
+
+    private static class Avatar {
+        final Bitmap mIcon;
+        // Encircled icon by size in pixels.
+        final SparseArray<Bitmap> mEncircled = new SparseArray<>();
+
+        Avatar(Bitmap icon) {
+            mIcon = icon;
+        }
+    }
+}
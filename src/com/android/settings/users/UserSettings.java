@@ -202,7 +202,7 @@ public class UserSettings extends SettingsPreferenceFragment
     @VisibleForTesting
     RestrictedPreference mAddSupervisedUser;
     @VisibleForTesting
-    SparseArray<Bitmap> mUserIcons = new SparseArray<>();
+    UserAvatarCache mUserIcons = UserAvatarCache.getInstance();
     private int mRemovingUserId = -1;
     private boolean mAddingUser;
     private boolean mGuestUserAutoCreated;
@@ -398,6 +398,7 @@ public class UserSettings extends SettingsPreferenceFragment
         activity.registerReceiverAsUser(
                 mUserChangeReceiver, UserHandle.ALL, USER_REMOVED_INTENT_FILTER, null, mHandler,
                 Context.RECEIVER_EXPORTED_UNAUDITED);
+        mUserIcons.startListening(activity);
 
         updateUI();
         mShouldUpdateUserList = false;
@@ -541,11 +542,14 @@ public class UserSettings extends SettingsPreferenceFragment
         }
         mMePreference.setTitle(getString(R.string.user_you, profileName));
         int myUserId = UserHandle.myUserId();
-        Bitmap b = mUserManager.getUserIcon(myUserId);
-        if (b != null) {
-            mMePreference.setIcon(encircleUserIcon(b));
+        if (mUserIcons.get(myUserId) == null) {
+            Bitmap b = mUserManager.getUserIcon(myUserId);
+            if (b == null) {
+                return;
+            }
             mUserIcons.put(myUserId, b);
         }
+        mMePreference.setIcon(getEncircledUserIcon(myUserId));
     }
 
     private boolean hasLockscreenSecurity() {
@@ -1543,7 +1547,7 @@ public class UserSettings extends SettingsPreferenceFragment
                     if (bitmap == null) {
                         bitmap = getDefaultUserIconAsBitmap(getContext().getResources(), userId);
                     }
-                    mUserIcons.append(userId, bitmap);
+                    mUserIcons.put(userId, bitmap);
                 }
                 return null;
             }
@@ -1559,9 +1563,9 @@ public class UserSettings extends SettingsPreferenceFragment
     }
 
     private void setPhotoId(Preference pref, UserInfo user) {
-        Bitmap bitmap = mUserIcons.get(user.id);
-        if (bitmap != null) {
-            pref.setIcon(encircleUserIcon(bitmap));
+        Drawable icon = getEncircledUserIcon(user.id);
+        if (icon != null) {
+            pref.setIcon(icon);
         }
     }
 
@@ -1622,6 +1626,12 @@ public class UserSettings extends SettingsPreferenceFragment
                         R.dimen.multiple_users_user_icon_size));
     }
 
+    private Drawable getEncircledUserIcon(int userId) {
+        final Resources res = getActivity().getResources();
+        return mUserIcons.getEncircled(res, userId,
+                res.getDimensionPixelSize(R.dimen.multiple_users_user_icon_size));
+    }
+
     @Override
     public void onDismiss(DialogInterface dialog) {
         synchronized (mUserLock) {
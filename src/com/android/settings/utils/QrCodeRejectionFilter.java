@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.utils;
+
+import android.os.SystemClock;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Remembers the QR code a scanner rejected last.
+ *
+ * The camera keeps decoding the same code in every frame until the user points it elsewhere.
+ * While the code is remembered, a scanner rejects those frames right away instead of parsing the
+ * code and showing the same error again for each one.
+ */
+public class QrCodeRejectionFilter {
+
+    @VisibleForTesting
+    static final long REJECTION_TIMEOUT_MS = 3000L;
+
+    private final LongSupplier mClock;
+
+    // Guarded by this, the scanner validates codes on its decoding thread.
+    private String mRejectedQrCode;
+    private long mRejectedTime;
+
+    public QrCodeRejectionFilter() {
+        this(SystemClock::elapsedRealtime);
+    }
+
+    @VisibleForTesting
+    QrCodeRejectionFilter(LongSupplier clock) {
+        mClock = clock;
+    }
+
+    /**
+     * @return whether {@param qrCode} was rejected less than {@link #REJECTION_TIMEOUT_MS} ago, so
+     * it can be rejected again without validating it
+     */
+    public synchronized boolean isRecentlyRejected(String qrCode) {
+        return qrCode != null && qrCode.equals(mRejectedQrCode)
+                && mClock.getAsLong() - mRejectedTime < REJECTION_TIMEOUT_MS;
+    }
+
+    /** Remembers that {@param qrCode} was rejected. */
+    public synchronized void onRejected(String qrCode) {
+        mRejectedQrCode = qrCode;
+        mRejectedTime = mClock.getAsLong();
+    }
+}
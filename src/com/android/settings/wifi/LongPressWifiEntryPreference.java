@@ -48,6 +48,12 @@ public class LongPressWifiEntryPreference extends WifiEntryPreference {
         }
     }
 
+    @Override
+    public void setWifiEntry(WifiEntry wifiEntry) {
+        super.setWifiEntry(wifiEntry);
+        checkRestrictionAndSetDisabled();
+    }
+
     @Override
     public void refresh() {
         super.refresh();
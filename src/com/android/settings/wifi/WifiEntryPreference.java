@@ -96,6 +96,22 @@ public class WifiEntryPreference extends RestrictedPreference implements
         return mWifiEntry;
     }
 
+    /**
+     * Shows another {@link WifiEntry} of the same network, e.g. when the tracker recreated it,
+     * so the preference and its view don't have to be rebuilt.
+     */
+    public void setWifiEntry(@NonNull WifiEntry wifiEntry) {
+        if (wifiEntry == mWifiEntry) {
+            return;
+        }
+        mWifiEntry.setListener(null);
+        mWifiEntry = wifiEntry;
+        mWifiEntry.setListener(this);
+        refresh();
+        // The new entry may differ in state not covered by the title and summary.
+        notifyChanged();
+    }
+
     @Override
     public void onBindViewHolder(final PreferenceViewHolder view) {
         super.onBindViewHolder(view);
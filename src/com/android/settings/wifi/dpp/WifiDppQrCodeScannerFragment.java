@@ -57,6 +57,7 @@ import androidx.lifecycle.ViewModelProvider;
 
 import com.android.settings.R;
 import com.android.settings.overlay.FeatureFactory;
+import com.android.settings.utils.QrCodeRejectionFilter;
 import com.android.settingslib.qrcode.QrCamera;
 import com.android.settingslib.qrcode.QrDecorateView;
 import com.android.settingslib.wifi.WifiPermissionChecker;
@@ -101,6 +102,7 @@ public class WifiDppQrCodeScannerFragment extends WifiDppQrCodeBaseFragment impl
     private static final long SCAN_INTERVAL_MILLIS = 10_000;
 
     private QrCamera mCamera;
+    private final QrCodeRejectionFilter mRejectionFilter = new QrCodeRejectionFilter();
     private TextureView mTextureView;
     private QrDecorateView mDecorateView;
     private TextView mErrorMessage;
@@ -522,9 +524,15 @@ public class WifiDppQrCodeScannerFragment extends WifiDppQrCodeBaseFragment impl
 
     @Override
     public boolean isValid(String qrCode) {
+        if (mRejectionFilter.isRecentlyRejected(qrCode)) {
+            // Still showing the error of this code.
+            return false;
+        }
+
         try {
             mWifiQrCode = new WifiQrCode(qrCode);
         } catch (IllegalArgumentException e) {
+            mRejectionFilter.onRejected(qrCode);
             showErrorMessage(R.string.wifi_dpp_qr_code_is_not_valid_format);
             return false;
         }
@@ -532,6 +540,7 @@ public class WifiDppQrCodeScannerFragment extends WifiDppQrCodeBaseFragment impl
         // It's impossible to provision other device with ZXing Wi-Fi Network config format
         final String scheme = mWifiQrCode.getScheme();
         if (mIsConfiguratorMode && WifiQrCode.SCHEME_ZXING_WIFI_NETWORK_CONFIG.equals(scheme)) {
+            mRejectionFilter.onRejected(qrCode);
             showErrorMessage(R.string.wifi_dpp_qr_code_is_not_valid_format);
             return false;
         }
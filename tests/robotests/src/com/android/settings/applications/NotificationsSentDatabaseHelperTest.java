@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.app.usage.UsageEvents;
+import android.app.usage.UsageEvents.Event;
+import android.os.Parcel;
+import android.text.format.DateUtils;
+import android.util.ArrayMap;
+
+import com.android.settings.applications.AppStateNotificationBridge.NotificationsSentState;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class NotificationsSentDatabaseHelperTest {
+
+    private static final String PKG1 = "pkg1";
+    private static final String PKG2 = "pkg2";
+    private static final int USER_ID = 0;
+    private static final long NOW = 30 * DateUtils.DAY_IN_MILLIS;
+    private static final long WINDOW = 7 * DateUtils.DAY_IN_MILLIS;
+
+    private NotificationsSentDatabaseHelper mHelper;
+    private List<Long> mQueriedBeginTimes;
+
+    @Before
+    public void setUp() {
+        mHelper = new NotificationsSentDatabaseHelper(RuntimeEnvironment.application);
+        mQueriedBeginTimes = new ArrayList<>();
+    }
+
+    @After
+    public void tearDown() {
+        mHelper.close();
+    }
+
+    @Test
+    public void updateAndQuery_secondTime_shouldOnlyQueryEventsSinceLastTime() {
+        mHelper.updateAndQuery(USER_ID, NOW - WINDOW, NOW, beginTime -> {
+            mQueriedBeginTimes.add(beginTime);
+            return getUsageEvents(createEvent(PKG1, NOW - 1000), createEvent(PKG2, NOW - 500));
+        });
+        final long later = NOW + DateUtils.MINUTE_IN_MILLIS;
+
+        final ArrayMap<String, NotificationsSentState> states = mHelper.updateAndQuery(USER_ID,
+                later - WINDOW, later, beginTime -> {
+                    mQueriedBeginTimes.add(beginTime);
+                    return getUsageEvents(createEvent(PKG1, NOW + 10));
+                });
+
+        assertThat(mQueriedBeginTimes).containsExactly(NOW - WINDOW, NOW).inOrder();
+        assertThat(states.get(PKG1).sentCount).isEqualTo(2);
+        assertThat(states.get(PKG1).lastSent).isEqualTo(NOW + 10);
+        assertThat(states.get(PKG2).sentCount).isEqualTo(1);
+    }
+
+    @Test
+    public void updateAndQuery_bucketsOutOfWindow_shouldNotBeCounted() {
+        mHelper.updateAndQuery(USER_ID, NOW - WINDOW, NOW,
+                beginTime -> getUsageEvents(createEvent(PKG1, NOW - WINDOW + 1000)));
+        final long later = NOW + DateUtils.DAY_IN_MILLIS;
+
+        final ArrayMap<String, NotificationsSentState> states = mHelper.updateAndQuery(USER_ID,
+                later - WINDOW, later, beginTime -> getUsageEvents(createEvent(PKG2, NOW + 10)));
+
+        assertThat(states.containsKey(PKG1)).isFalse();
+        assertThat(states.get(PKG2).sentCount).isEqualTo(1);
+    }
+
+    @Test
+    public void updateAndQuery_onlyNotificationEvents_shouldBeCounted() {
+        final Event other = createEvent(PKG1, NOW - 100);
+        other.mEventType = Event.CHOOSER_ACTION;
+
+        final ArrayMap<String, NotificationsSentState> states = mHelper.updateAndQuery(USER_ID,
+                NOW - WINDOW, NOW,
+                beginTime -> getUsageEvents(createEvent(PKG1, NOW - 200), other));
+
+        assertThat(states.get(PKG1).sentCount).isEqualTo(1);
+        assertThat(states.get(PKG1).lastSent).isEqualTo(NOW - 200);
+    }
+
+    private static Event createEvent(String packageName, long timestamp) {
+        final Event event = new Event();
+        event.mEventType = Event.NOTIFICATION_INTERRUPTION;
+        event.mPackage = packageName;
+        event.mTimeStamp = timestamp;
+        return event;
+    }
+
+    private static UsageEvents getUsageEvents(Event... events) {
+        final List<Event> eventList = new ArrayList<>();
+        for (Event event : events) {
+            eventList.add(event);
+        }
+        final UsageEvents usageEvents = new UsageEvents(eventList, new String[] {PKG1, PKG2});
+        final Parcel parcel = Parcel.obtain();
+        parcel.setDataPosition(0);
+        usageEvents.writeToParcel(parcel, 0);
+        parcel.setDataPosition(0);
+        return UsageEvents.CREATOR.createFromParcel(parcel);
+    }
+}
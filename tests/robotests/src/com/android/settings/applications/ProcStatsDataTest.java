@@ -0,0 +1,121 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.os.Parcel;
+import android.os.ParcelFileDescriptor;
+
+import com.android.internal.app.procstats.IProcessStats;
+import com.android.internal.app.procstats.ProcessStats;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class ProcStatsDataTest {
+
+    // The duration of a new ProcStatsData.
+    private static final long DURATION = 0;
+
+    @Mock
+    private IProcessStats mProcessStats;
+    private Context mContext;
+    private byte[] mStats;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        mContext = RuntimeEnvironment.application;
+        ProcStatsData.clearSnapshots();
+
+        final Parcel parcel = Parcel.obtain();
+        new ProcessStats(false).writeToParcel(parcel, 0);
+        mStats = parcel.marshall();
+        parcel.recycle();
+        when(mProcessStats.getStatsOverTime(anyLong())).thenAnswer(invocation -> openStats());
+    }
+
+    @After
+    public void tearDown() {
+        ProcStatsData.clearSnapshots();
+    }
+
+    @Test
+    public void load_allowCached_shouldReuseStats() throws Exception {
+        createData().load(true /* allowCached */);
+        createData().load(true /* allowCached */);
+
+        verify(mProcessStats, times(1)).getStatsOverTime(DURATION);
+    }
+
+    @Test
+    public void load_notAllowCached_shouldReadStats() throws Exception {
+        createData().load(true /* allowCached */);
+        createData().load(false /* allowCached */);
+
+        verify(mProcessStats, times(2)).getStatsOverTime(DURATION);
+    }
+
+    @Test
+    public void load_expired_shouldReadStats() throws Exception {
+        createData().load(true /* allowCached */);
+
+        ShadowLooper.idleMainLooper(ProcStatsData.SNAPSHOT_MAX_AGE_MS + 1, TimeUnit.MILLISECONDS);
+        createData().load(true /* allowCached */);
+
+        verify(mProcessStats, times(2)).getStatsOverTime(DURATION);
+    }
+
+    @Test
+    public void load_readError_shouldNotCache() throws Exception {
+        mStats = new byte[] {1, 2, 3, 4};
+
+        createData().load(true /* allowCached */);
+        createData().load(true /* allowCached */);
+
+        verify(mProcessStats, times(2)).getStatsOverTime(DURATION);
+    }
+
+    private ProcStatsData createData() {
+        return new ProcStatsData(mContext, false, mProcessStats);
+    }
+
+    private ParcelFileDescriptor openStats() throws Exception {
+        final File file = File.createTempFile("procstats", null, mContext.getCacheDir());
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(mStats);
+        }
+        return ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+    }
+}
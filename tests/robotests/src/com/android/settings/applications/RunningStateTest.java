@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.ActivityManager;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ServiceInfo;
+import android.content.res.Resources;
+
+import com.android.settings.applications.RunningState.ProcessItem;
+import com.android.settings.applications.RunningState.ServiceItem;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class RunningStateTest {
+
+    private static final int UID = 10001;
+    private static final String PROCESS = "process";
+    private static final int CLIENT_LABEL = 1;
+    private static final ComponentName SERVICE = new ComponentName(PROCESS, "Service");
+
+    @Mock
+    private PackageManager mPm;
+    private Context mContext;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        mContext = spy(RuntimeEnvironment.application);
+        when(mContext.getPackageManager()).thenReturn(mPm);
+        when(mPm.getResourcesForApplication(anyString())).thenReturn(mock(Resources.class));
+        when(mPm.getApplicationInfo(anyString(), anyInt()))
+                .thenThrow(new PackageManager.NameNotFoundException());
+        when(mPm.getPackageInfo(anyString(), anyInt()))
+                .thenThrow(new PackageManager.NameNotFoundException());
+        when(mPm.getPackagesForUid(UID)).thenReturn(new String[] {PROCESS});
+    }
+
+    @Test
+    public void getNextUpdateDelay_unchanged_shouldBackOffToMax() {
+        final RunningState state = RunningState.getInstance(RuntimeEnvironment.application);
+        state.mUnchangedUpdates = 0;
+
+        assertThat(state.getNextUpdateDelay(false)).isEqualTo(RunningState.CONTENTS_UPDATE_DELAY);
+        assertThat(state.getNextUpdateDelay(false))
+                .isEqualTo(2 * RunningState.CONTENTS_UPDATE_DELAY);
+        assertThat(state.getNextUpdateDelay(false))
+                .isEqualTo(RunningState.MAX_CONTENTS_UPDATE_DELAY);
+        assertThat(state.getNextUpdateDelay(false))
+                .isEqualTo(RunningState.MAX_CONTENTS_UPDATE_DELAY);
+    }
+
+    @Test
+    public void getNextUpdateDelay_changed_shouldReset() {
+        final RunningState state = RunningState.getInstance(RuntimeEnvironment.application);
+        state.mUnchangedUpdates = 0;
+        state.getNextUpdateDelay(false);
+        state.getNextUpdateDelay(false);
+
+        assertThat(state.getNextUpdateDelay(true)).isEqualTo(RunningState.CONTENTS_UPDATE_DELAY);
+        assertThat(state.getNextUpdateDelay(false)).isEqualTo(RunningState.CONTENTS_UPDATE_DELAY);
+    }
+
+    @Test
+    public void ensureLabel_noLabelFound_shouldNotLookUpAgain() {
+        final ProcessItem proc = new ProcessItem(mContext, UID, PROCESS);
+
+        proc.ensureLabel(mPm);
+        proc.ensureLabel(mPm);
+
+        assertThat(proc.mLabel).isNull();
+        verify(mPm, times(1)).getPackagesForUid(UID);
+    }
+
+    @Test
+    public void ensureLabel_serviceAdded_shouldTakeServiceLabel() {
+        final ProcessItem proc = new ProcessItem(mContext, UID, PROCESS);
+        proc.ensureLabel(mPm);
+
+        final ServiceItem si = createServiceItem("client");
+        si.mServiceInfo = new ServiceInfo();
+        si.mServiceInfo.applicationInfo = new ApplicationInfo();
+        si.mServiceInfo.applicationInfo.nonLocalizedLabel = "label";
+        proc.mServices.put(SERVICE, si);
+        proc.ensureLabel(mPm);
+
+        assertThat(proc.mLabel).isEqualTo("label");
+        verify(mPm, times(2)).getPackagesForUid(UID);
+    }
+
+    @Test
+    public void updateService_sameClient_shouldNotResolveDescription() throws Exception {
+        final ProcessItem proc = new ProcessItem(mContext, UID, PROCESS);
+        proc.mServices.put(SERVICE, createServiceItem("client"));
+
+        proc.updateService(mContext, createService("client"));
+
+        verify(mPm, never()).getResourcesForApplication(anyString());
+    }
+
+    @Test
+    public void updateService_clientChanged_shouldResolveDescription() throws Exception {
+        final ProcessItem proc = new ProcessItem(mContext, UID, PROCESS);
+        proc.mServices.put(SERVICE, createServiceItem("client"));
+
+        proc.updateService(mContext, createService("other"));
+
+        verify(mPm).getResourcesForApplication("other");
+    }
+
+    private static ServiceItem createServiceItem(String clientPackage) {
+        final ServiceItem si = new ServiceItem(0);
+        si.mRunningService = createService(clientPackage);
+        return si;
+    }
+
+    private static ActivityManager.RunningServiceInfo createService(String clientPackage) {
+        final ActivityManager.RunningServiceInfo service = new ActivityManager.RunningServiceInfo();
+        service.service = SERVICE;
+        service.uid = UID;
+        service.clientPackage = clientPackage;
+        service.clientLabel = CLIENT_LABEL;
+        return service;
+    }
+}
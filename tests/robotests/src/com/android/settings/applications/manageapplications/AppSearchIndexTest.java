@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.applications.manageapplications;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+
+import com.android.settingslib.applications.ApplicationsState.AppEntry;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Locale;
+
+@RunWith(RobolectricTestRunner.class)
+public class AppSearchIndexTest {
+
+    private Context mContext;
+    private AppEntry mMaps;
+    private AppEntry mCafe;
+    private ArrayList<AppEntry> mEntries;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mMaps = createAppEntry("Maps", "com.google.android.apps.maps", 1);
+        mCafe = createAppEntry("Café", "com.example.cafe", 2);
+        mEntries = new ArrayList<>();
+        mEntries.add(mMaps);
+        mEntries.add(mCafe);
+    }
+
+    @Test
+    public void search_labelWithDiacritics_shouldMatchQueryWithout() {
+        final AppSearchIndex index = AppSearchIndex.update(null, mEntries, Locale.US);
+
+        assertThat(index.search(index.normalizeQuery("CAFE"), mEntries)).containsExactly(mCafe);
+    }
+
+    @Test
+    public void search_packageName_shouldOnlyMatchPrefix() {
+        final AppSearchIndex index = AppSearchIndex.update(null, mEntries, Locale.US);
+
+        assertThat(index.search(index.normalizeQuery("com.google"), mEntries))
+                .containsExactly(mMaps);
+        assertThat(index.search(index.normalizeQuery("google"), mEntries)).isEmpty();
+    }
+
+    @Test
+    public void update_labelChanged_shouldReindexEntry() {
+        final AppSearchIndex index = AppSearchIndex.update(null, mEntries, Locale.US);
+        mMaps.label = "Navigation";
+
+        final AppSearchIndex updatedIndex = AppSearchIndex.update(index, mEntries, Locale.US);
+
+        assertThat(updatedIndex.search(updatedIndex.normalizeQuery("navi"), mEntries))
+                .containsExactly(mMaps);
+        assertThat(updatedIndex.search(updatedIndex.normalizeQuery("maps"), mEntries)).isEmpty();
+    }
+
+    private AppEntry createAppEntry(String label, String packageName, long id) {
+        final ApplicationInfo info = new ApplicationInfo();
+        info.packageName = packageName;
+        info.sourceDir = "abc";
+        final AppEntry entry = new AppEntry(mContext, info, id);
+        entry.label = label;
+        return entry;
+    }
+}
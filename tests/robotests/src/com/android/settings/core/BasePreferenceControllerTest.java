@@ -24,6 +24,7 @@ import static com.android.settings.core.BasePreferenceController.UNSUPPORTED_ON_
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.junit.Assert.assertThrows;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -35,6 +36,7 @@ import androidx.preference.Preference;
 import androidx.preference.PreferenceScreen;
 
 import com.android.settings.slices.SliceData;
+import com.android.settings.testutils.FakeToggleController;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -215,6 +217,32 @@ public class BasePreferenceControllerTest {
         assertThat(category).isEqualTo(SettingsEnums.DISPLAY);
     }
 
+    @Test
+    public void createInstance_calledTwice_shouldCreateNewControllers() {
+        final Context context = RuntimeEnvironment.application;
+        final String controllerName = FakeToggleController.class.getName();
+
+        final BasePreferenceController first =
+                BasePreferenceController.createInstance(context, controllerName, "key1");
+        final BasePreferenceController second =
+                BasePreferenceController.createInstance(context, controllerName, "key2");
+
+        assertThat(first).isInstanceOf(FakeToggleController.class);
+        assertThat(second).isNotSameInstanceAs(first);
+        assertThat(second.getPreferenceKey()).isEqualTo("key2");
+    }
+
+    @Test
+    public void createInstance_noContextOnlyConstructor_shouldThrowEveryTime() {
+        final Context context = RuntimeEnvironment.application;
+        final String controllerName = FakeToggleController.class.getName();
+
+        assertThrows(IllegalStateException.class,
+                () -> BasePreferenceController.createInstance(context, controllerName));
+        assertThrows(IllegalStateException.class,
+                () -> BasePreferenceController.createInstance(context, controllerName));
+    }
+
     private class FakeBasePreferenceController extends BasePreferenceController {
 
         private int mAvailable;
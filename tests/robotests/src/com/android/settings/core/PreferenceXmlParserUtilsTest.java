@@ -46,6 +46,7 @@ import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 
@@ -191,6 +192,36 @@ public class PreferenceXmlParserUtilsTest {
         }
     }
 
+    @Test
+    public void extractMetadata_calledTwice_returnsEqualCopies()
+            throws IOException, XmlPullParserException {
+        PreferenceXmlParserUtils.clearMetadataCache();
+        final List<Bundle> first = PreferenceXmlParserUtils.extractMetadata(mContext,
+                R.xml.top_level_settings, MetadataFlag.FLAG_NEED_KEY);
+        first.get(0).putString(METADATA_KEY, "modified_key");
+
+        final List<Bundle> second = PreferenceXmlParserUtils.extractMetadata(mContext,
+                R.xml.top_level_settings, MetadataFlag.FLAG_NEED_KEY);
+
+        assertThat(second).hasSize(first.size());
+        assertThat(second.get(0)).isNotSameInstanceAs(first.get(0));
+        assertThat(second.get(0).getString(METADATA_KEY)).isNotEqualTo("modified_key");
+    }
+
+    @Test
+    public void copyOf_modifiedNestedValues_shouldNotChangeOriginal() {
+        final Bundle original = new Bundle();
+        original.putBundle("nested", new Bundle());
+        original.putStringArray("array", new String[] {"value"});
+
+        final Bundle copy = PreferenceXmlParserUtils.copyOf(Arrays.asList(original)).get(0);
+        copy.getBundle("nested").putString(METADATA_KEY, "modified_key");
+        copy.getStringArray("array")[0] = "modified_value";
+
+        assertThat(original.getBundle("nested").containsKey(METADATA_KEY)).isFalse();
+        assertThat(original.getStringArray("array")[0]).isEqualTo("value");
+    }
+
     @Test
     @Config(qualifiers = "mcc999")
     public void extractMetadata_shouldContainKeyAndControllerNameAndHighlightableMenuKey()
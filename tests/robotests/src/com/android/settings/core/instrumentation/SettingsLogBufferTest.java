@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.core.instrumentation;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.app.settings.SettingsEnums;
+
+import com.android.settings.intelligence.LogProto.SettingsLog;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class SettingsLogBufferTest {
+
+    @Test
+    public void drain_shouldReturnRecordsInOrderAndClear() {
+        final SettingsLogBuffer buffer = new SettingsLogBuffer(4 /* capacity */);
+        buffer.add(SettingsEnums.DASHBOARD_SUMMARY, SettingsEnums.ACTION_SET_NEW_PASSWORD,
+                SettingsEnums.SET_NEW_PASSWORD_ACTIVITY, "package", 100, 1000L);
+        buffer.add(SettingsEnums.PAGE_UNKNOWN, SettingsEnums.PAGE_VISIBLE,
+                SettingsEnums.SET_NEW_PASSWORD_ACTIVITY, "", 20, 2000L);
+
+        final List<SettingsLog> settingsLogs = buffer.drain();
+
+        assertThat(settingsLogs).hasSize(2);
+        assertThat(settingsLogs.get(0).getAttribution())
+                .isEqualTo(SettingsEnums.DASHBOARD_SUMMARY);
+        assertThat(settingsLogs.get(0).getChangedPreferenceKey()).isEqualTo("package");
+        assertThat(settingsLogs.get(0).getChangedPreferenceIntValue()).isEqualTo(100);
+        assertThat(settingsLogs.get(1).getAction()).isEqualTo(SettingsEnums.PAGE_VISIBLE);
+        assertThat(settingsLogs.get(1).getTimestamp()).isNotEmpty();
+        assertThat(buffer.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void add_bufferFull_shouldDropOldestRecord() {
+        final SettingsLogBuffer buffer = new SettingsLogBuffer(2 /* capacity */);
+        buffer.add(SettingsEnums.PAGE_UNKNOWN, 1 /* action */, SettingsEnums.PAGE_UNKNOWN, "", 0,
+                1000L);
+        buffer.add(SettingsEnums.PAGE_UNKNOWN, 2 /* action */, SettingsEnums.PAGE_UNKNOWN, "", 0,
+                2000L);
+        buffer.add(SettingsEnums.PAGE_UNKNOWN, 3 /* action */, SettingsEnums.PAGE_UNKNOWN, "", 0,
+                3000L);
+
+        final List<SettingsLog> settingsLogs = buffer.drain();
+
+        assertThat(buffer.getDroppedCount()).isEqualTo(1L);
+        assertThat(settingsLogs).hasSize(2);
+        assertThat(settingsLogs.get(0).getAction()).isEqualTo(2);
+        assertThat(settingsLogs.get(1).getAction()).isEqualTo(3);
+    }
+}
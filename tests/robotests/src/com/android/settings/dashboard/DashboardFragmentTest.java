@@ -53,6 +53,7 @@ import androidx.preference.SwitchPreference;
 
 import com.android.internal.logging.nano.MetricsProto.MetricsEvent;
 import com.android.settings.R;
+import com.android.settings.core.MainThreadOnlyController;
 import com.android.settings.core.PreferenceControllerMixin;
 import com.android.settings.slices.BlockingSlicePrefController;
 import com.android.settings.testutils.FakeFeatureFactory;
@@ -76,6 +77,7 @@ import org.robolectric.RuntimeEnvironment;
 import org.robolectric.annotation.Config;
 import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
+import org.robolectric.shadows.ShadowLooper;
 import org.robolectric.util.ReflectionHelpers;
 
 import java.util.ArrayList;
@@ -83,6 +85,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executor;
 
 @RunWith(RobolectricTestRunner.class)
 public class DashboardFragmentTest {
@@ -322,6 +325,88 @@ public class DashboardFragmentTest {
         verify(mockController2).getPreferenceKey();
     }
 
+    @Test
+    public void updateState_evaluateAvailabilityInParallel_shouldOnlyUpdateAvailableControllers() {
+        final AbstractPreferenceController mockController1 =
+                mock(AbstractPreferenceController.class);
+        final AbstractPreferenceController mockController2 =
+                mock(AbstractPreferenceController.class);
+        mTestFragment.addPreferenceController(mockController1);
+        mTestFragment.addPreferenceController(mockController2);
+        mTestFragment.mEvaluateAvailabilityInParallel = true;
+        when(mockController1.isAvailable()).thenReturn(true);
+        when(mockController2.isAvailable()).thenReturn(false);
+
+        mTestFragment.updatePreferenceStates();
+
+        verify(mockController1, never()).isAvailable();
+        verify(mockController2, never()).isAvailable();
+
+        mTestFragment.runAvailabilityTasks();
+        ShadowLooper.idleMainLooper();
+
+        verify(mockController1).isAvailable();
+        verify(mockController1).getPreferenceKey();
+        verify(mockController2).isAvailable();
+        verify(mockController2, never()).getPreferenceKey();
+    }
+
+    @Test
+    public void updateState_evaluateAvailabilityInParallel_shouldUpdateAllAtOnce() {
+        final AbstractPreferenceController mockController1 =
+                mock(AbstractPreferenceController.class);
+        final AbstractPreferenceController mockController2 =
+                mock(AbstractPreferenceController.class);
+        mTestFragment.addPreferenceController(mockController1);
+        mTestFragment.addPreferenceController(mockController2);
+        mTestFragment.mEvaluateAvailabilityInParallel = true;
+        when(mockController1.isAvailable()).thenReturn(true);
+        when(mockController2.isAvailable()).thenReturn(true);
+
+        mTestFragment.updatePreferenceStates();
+        mTestFragment.mAvailabilityTasks.remove(0).run();
+        ShadowLooper.idleMainLooper();
+
+        verify(mockController1, never()).getPreferenceKey();
+        verify(mockController2, never()).getPreferenceKey();
+
+        mTestFragment.runAvailabilityTasks();
+        ShadowLooper.idleMainLooper();
+
+        verify(mockController1).getPreferenceKey();
+        verify(mockController2).getPreferenceKey();
+    }
+
+    @Test
+    public void updateState_evaluateAvailabilityInParallel_shouldDropOutdatedResults() {
+        final AbstractPreferenceController mockController =
+                mock(AbstractPreferenceController.class);
+        mTestFragment.addPreferenceController(mockController);
+        mTestFragment.mEvaluateAvailabilityInParallel = true;
+        when(mockController.isAvailable()).thenReturn(true);
+
+        mTestFragment.updatePreferenceStates();
+        mTestFragment.updatePreferenceStates();
+        mTestFragment.runAvailabilityTasks();
+        ShadowLooper.idleMainLooper();
+
+        verify(mockController, times(2)).isAvailable();
+        verify(mockController).getPreferenceKey();
+    }
+
+    @Test
+    public void updateState_evaluateAvailabilityInParallel_shouldUpdateMainThreadOnlyRightAway() {
+        final MainThreadOnlyTestController controller =
+                new MainThreadOnlyTestController(mContext);
+        mTestFragment.addPreferenceController(controller);
+        mTestFragment.mEvaluateAvailabilityInParallel = true;
+
+        mTestFragment.updatePreferenceStates();
+
+        assertThat(controller.mAvailabilityCount).isEqualTo(1);
+        assertThat(mTestFragment.mAvailabilityTasks).isEmpty();
+    }
+
     @Test
     public void onExpandButtonClick_shouldLogAdvancedButtonExpand() {
         final MetricsFeatureProvider metricsFeatureProvider
@@ -540,6 +625,8 @@ public class DashboardFragmentTest {
         private final ContentResolver mContentResolver;
 
         public final PreferenceScreen mScreen;
+        public boolean mEvaluateAvailabilityInParallel;
+        public final List<Runnable> mAvailabilityTasks = new ArrayList<>();
 
         public TestFragment(Context context) {
             mContext = context;
@@ -593,6 +680,42 @@ public class DashboardFragmentTest {
             return mContentResolver;
         }
 
+        @Override
+        protected boolean shouldEvaluateAvailabilityInParallel() {
+            return mEvaluateAvailabilityInParallel;
+        }
+
+        @Override
+        Executor getAvailabilityExecutor() {
+            return mAvailabilityTasks::add;
+        }
+
+        void runAvailabilityTasks() {
+            mAvailabilityTasks.forEach(Runnable::run);
+            mAvailabilityTasks.clear();
+        }
+
+    }
+
+    @MainThreadOnlyController
+    private static class MainThreadOnlyTestController extends AbstractPreferenceController {
+
+        private int mAvailabilityCount;
+
+        MainThreadOnlyTestController(Context context) {
+            super(context);
+        }
+
+        @Override
+        public boolean isAvailable() {
+            mAvailabilityCount++;
+            return false;
+        }
+
+        @Override
+        public String getPreferenceKey() {
+            return "main_thread_only";
+        }
     }
 
     private static class TestDynamicDataObserver extends DynamicDataObserver {
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_ICON_BACKGROUND_ARGB;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageInfo;
+import android.graphics.Bitmap;
+import android.os.Bundle;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.Shadows;
+
+import java.io.File;
+import java.io.IOException;
+
+@RunWith(RobolectricTestRunner.class)
+public class TileIconCacheTest {
+
+    @Rule
+    public TemporaryFolder mTemporaryFolder = new TemporaryFolder();
+
+    private Context mContext;
+    private File mCacheDir;
+    private TileIconCache mCache;
+
+    @Before
+    public void setUp() throws IOException {
+        mContext = RuntimeEnvironment.application;
+        mCacheDir = mTemporaryFolder.newFolder();
+        mCache = new TileIconCache(mContext, mCacheDir);
+    }
+
+    @Test
+    public void getKey_packageNotInstalled_shouldReturnNull() {
+        assertThat(mCache.getKey(mContext, "com.not.installed", 1 /* iconRes */, 0 /* tint */,
+                false /* rounded */, null /* metaData */)).isNull();
+    }
+
+    @Test
+    public void getKey_differentTintOrRounded_shouldReturnDifferentKey() {
+        final String packageName = mContext.getPackageName();
+        final String key = mCache.getKey(mContext, packageName, 1 /* iconRes */, 0 /* tint */,
+                false /* rounded */, null /* metaData */);
+
+        assertThat(key).startsWith(packageName);
+        assertThat(mCache.getKey(mContext, packageName, 1 /* iconRes */, 0xFF000000 /* tint */,
+                false /* rounded */, null /* metaData */)).isNotEqualTo(key);
+        assertThat(mCache.getKey(mContext, packageName, 1 /* iconRes */, 0 /* tint */,
+                true /* rounded */, null /* metaData */)).isNotEqualTo(key);
+    }
+
+    @Test
+    public void get_afterPut_shouldReturnBitmap() {
+        final String key = mCache.getKey(mContext, mContext.getPackageName(), 1 /* iconRes */,
+                0 /* tint */, false /* rounded */, null /* metaData */);
+        final Bitmap bitmap = Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
+
+        mCache.put(mContext.getPackageName(), key, bitmap);
+
+        assertThat(mCache.get(key)).isSameInstanceAs(bitmap);
+    }
+
+    @Test
+    public void get_notCached_shouldReturnNull() {
+        assertThat(mCache.get("com.not.cached@1@1@0@0@160@0")).isNull();
+    }
+
+    @Test
+    public void put_packageUpdated_shouldDeleteIconsOfOtherVersions() throws IOException {
+        final String packageName = mContext.getPackageName();
+        final File staleFile = new File(mCacheDir, packageName + "@-1@1@0@0@160@0.png");
+        final File otherPackageFile = new File(mCacheDir, "com.other@-1@1@0@0@160@0.png");
+        installPackage("com.other");
+        staleFile.createNewFile();
+        otherPackageFile.createNewFile();
+        final String key = mCache.getKey(mContext, packageName, 1 /* iconRes */, 0 /* tint */,
+                false /* rounded */, null /* metaData */);
+
+        mCache.put(packageName, key, Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888));
+
+        assertThat(staleFile.exists()).isFalse();
+        assertThat(otherPackageFile.exists()).isTrue();
+    }
+
+    @Test
+    public void put_packageReinstalledWithSameVersion_shouldDeleteIconsOfPreviousInstall() {
+        installPackage("com.other", 1L /* lastUpdateTime */);
+        final String staleKey = mCache.getKey(mContext, "com.other", 1 /* iconRes */,
+                0 /* tint */, false /* rounded */, null /* metaData */);
+        mCache.put("com.other", staleKey, Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888));
+        installPackage("com.other", 2L /* lastUpdateTime */);
+
+        final String key = mCache.getKey(mContext, "com.other", 1 /* iconRes */, 0 /* tint */,
+                false /* rounded */, null /* metaData */);
+        mCache.put("com.other", key, Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888));
+
+        assertThat(key).isNotEqualTo(staleKey);
+        assertThat(mCacheDir.list()).asList().containsExactly(key + ".png");
+    }
+
+    @Test
+    public void getKey_roundedWithDifferentBackground_shouldReturnDifferentKey() {
+        final String packageName = mContext.getPackageName();
+        final Bundle metaData = new Bundle();
+        metaData.putInt(META_DATA_PREFERENCE_ICON_BACKGROUND_ARGB, 0xFF0000FF);
+        final String key = mCache.getKey(mContext, packageName, 1 /* iconRes */, 0 /* tint */,
+                true /* rounded */, null /* metaData */);
+
+        assertThat(mCache.getKey(mContext, packageName, 1 /* iconRes */, 0 /* tint */,
+                true /* rounded */, metaData)).isNotEqualTo(key);
+    }
+
+    @Test
+    public void getKey_packageNotInstalled_shouldDeleteItsIcons() throws IOException {
+        final File file = new File(mCacheDir, "com.not.installed@1@1@0@0@160@0.png");
+        file.createNewFile();
+
+        mCache.getKey(mContext, "com.not.installed", 1 /* iconRes */, 0 /* tint */,
+                false /* rounded */, null /* metaData */);
+
+        assertThat(file.exists()).isFalse();
+    }
+
+    @Test
+    public void put_shouldNotLeaveTemporaryFiles() {
+        final String key = mCache.getKey(mContext, mContext.getPackageName(), 1 /* iconRes */,
+                0 /* tint */, false /* rounded */, null /* metaData */);
+
+        mCache.put(mContext.getPackageName(), key, Bitmap.createBitmap(1, 1,
+                Bitmap.Config.ARGB_8888));
+        mCache.put(mContext.getPackageName(), key, Bitmap.createBitmap(1, 1,
+                Bitmap.Config.ARGB_8888));
+
+        assertThat(mCacheDir.list()).asList().containsExactly(key + ".png");
+    }
+
+    @Test
+    public void deleteUninstalledPackageFiles_shouldOnlyDeleteIconsOfUninstalledPackages()
+            throws IOException {
+        final File installedFile =
+                new File(mCacheDir, mContext.getPackageName() + "@1@1@0@0@160@0.png");
+        final File uninstalledFile = new File(mCacheDir, "com.not.installed@1@1@0@0@160@0.png");
+        final File uninstalledTempFile =
+                new File(mCacheDir, "com.not.installed@1@1@0@0@160@0.png123.tmp");
+        installedFile.createNewFile();
+        uninstalledFile.createNewFile();
+        uninstalledTempFile.createNewFile();
+
+        mCache.deleteUninstalledPackageFiles();
+
+        assertThat(installedFile.exists()).isTrue();
+        assertThat(uninstalledFile.exists()).isFalse();
+        assertThat(uninstalledTempFile.exists()).isFalse();
+    }
+
+    private void installPackage(String packageName) {
+        installPackage(packageName, 0L /* lastUpdateTime */);
+    }
+
+    private void installPackage(String packageName, long lastUpdateTime) {
+        final PackageInfo packageInfo = new PackageInfo();
+        packageInfo.packageName = packageName;
+        packageInfo.lastUpdateTime = lastUpdateTime;
+        packageInfo.applicationInfo = new ApplicationInfo();
+        packageInfo.applicationInfo.packageName = packageName;
+        Shadows.shadowOf(mContext.getPackageManager()).installPackage(packageInfo);
+    }
+}
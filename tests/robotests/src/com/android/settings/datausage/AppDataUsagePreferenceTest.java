@@ -101,4 +101,33 @@ public class AppDataUsagePreferenceTest {
 
         assertThat(progressBar.getContentDescription()).isEqualTo(FIFTY_PERCENT);
     }
+
+    @Test
+    public void isSameAs_sameUsage_shouldReturnTrue() {
+        when(mUidDetailProvider.getUidDetail(mAppItem.key, false /* blocking */))
+                .thenReturn(mUidDetail);
+        mAppItem.addUid(123);
+        mAppItem.total = 100;
+        mPreference = new AppDataUsagePreference(RuntimeEnvironment.application, mAppItem,
+                50 /* percent */, mUidDetailProvider);
+        final AppItem item = new AppItem(123);
+        item.addUid(123);
+        item.total = 100;
+
+        assertThat(mPreference.isSameAs(item, 50 /* percent */)).isTrue();
+        assertThat(mPreference.isSameAs(item, 60 /* percent */)).isFalse();
+    }
+
+    @Test
+    public void isSameAs_usageChanged_shouldReturnFalse() {
+        when(mUidDetailProvider.getUidDetail(mAppItem.key, false /* blocking */))
+                .thenReturn(mUidDetail);
+        mAppItem.total = 100;
+        mPreference = new AppDataUsagePreference(RuntimeEnvironment.application, mAppItem,
+                50 /* percent */, mUidDetailProvider);
+        final AppItem item = new AppItem(123);
+        item.total = 200;
+
+        assertThat(mPreference.isSameAs(item, 50 /* percent */)).isFalse();
+    }
 }
@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.datausage;
+
+import static android.app.usage.NetworkStats.Bucket.UID_REMOVED;
+import static android.app.usage.NetworkStats.Bucket.UID_TETHERING;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.os.Process;
+import android.os.UserHandle;
+
+import com.android.settingslib.AppItem;
+import com.android.settingslib.net.UidDetailProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Arrays;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+public class DataUsageAggregatorTest {
+
+    private static final int CURRENT_USER_ID = 0;
+    private static final int PROFILE_USER_ID = 10;
+    private static final int OTHER_USER_ID = 11;
+    private static final int REMOVED_USER_ID = 12;
+    private static final int APP_ID = Process.FIRST_APPLICATION_UID + 100;
+    private static final int APP_UID = UserHandle.getUid(CURRENT_USER_ID, APP_ID);
+
+    private int mUserExistsCalls;
+    private DataUsageAggregator.Aggregation mAggregation;
+
+    @Before
+    public void setUp() {
+        final DataUsageAggregator aggregator = new DataUsageAggregator(CURRENT_USER_ID,
+                Arrays.asList(UserHandle.of(CURRENT_USER_ID), UserHandle.of(PROFILE_USER_ID)),
+                userId -> {
+                    mUserExistsCalls++;
+                    return userId != REMOVED_USER_ID;
+                });
+        mAggregation = aggregator.newAggregation();
+    }
+
+    @Test
+    public void aggregate_currentUserApp_shouldCollapseByUid() {
+        mAggregation.add(APP_UID, 100);
+        mAggregation.add(APP_UID, 50);
+
+        final List<AppItem> items = mAggregation.finish(new int[0]).items;
+
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).key).isEqualTo(APP_UID);
+        assertThat(items.get(0).category).isEqualTo(AppItem.CATEGORY_APP);
+        assertThat(items.get(0).total).isEqualTo(150);
+    }
+
+    @Test
+    public void aggregate_profileApp_shouldAddToAppAndProfileItems() {
+        final int profileAppUid = UserHandle.getUid(PROFILE_USER_ID, APP_ID);
+
+        mAggregation.add(profileAppUid, 100);
+        final List<AppItem> items = mAggregation.finish(new int[0]).items;
+
+        final AppItem profileItem = findItem(items,
+                UidDetailProvider.buildKeyForUser(PROFILE_USER_ID));
+        assertThat(profileItem.category).isEqualTo(AppItem.CATEGORY_USER);
+        assertThat(profileItem.total).isEqualTo(100);
+        final AppItem appItem = findItem(items, profileAppUid);
+        assertThat(appItem.category).isEqualTo(AppItem.CATEGORY_APP);
+        assertThat(appItem.total).isEqualTo(100);
+        assertThat(mUserExistsCalls).isEqualTo(0);
+    }
+
+    @Test
+    public void aggregate_otherUserApps_shouldCollapseIntoUserItem() {
+        mAggregation.add(UserHandle.getUid(OTHER_USER_ID, APP_ID), 100);
+        mAggregation.add(UserHandle.getUid(OTHER_USER_ID, APP_ID + 1), 50);
+
+        final List<AppItem> items = mAggregation.finish(new int[0]).items;
+
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).key).isEqualTo(UidDetailProvider.buildKeyForUser(OTHER_USER_ID));
+        assertThat(items.get(0).category).isEqualTo(AppItem.CATEGORY_USER);
+        assertThat(items.get(0).total).isEqualTo(150);
+        assertThat(mUserExistsCalls).isEqualTo(1);
+    }
+
+    @Test
+    public void aggregate_removedUserApps_shouldCollapseIntoRemovedItem() {
+        mAggregation.add(UserHandle.getUid(REMOVED_USER_ID, APP_ID), 100);
+        mAggregation.add(UID_REMOVED, 50);
+
+        final List<AppItem> items = mAggregation.finish(new int[0]).items;
+
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).key).isEqualTo(UID_REMOVED);
+        assertThat(items.get(0).category).isEqualTo(AppItem.CATEGORY_APP);
+        assertThat(items.get(0).total).isEqualTo(150);
+    }
+
+    @Test
+    public void aggregate_sdkSandbox_shouldCollapseIntoApp() {
+        final int sandboxUid = Process.toSdkSandboxUid(APP_UID);
+
+        mAggregation.add(APP_UID, 100);
+        mAggregation.add(sandboxUid, 50);
+        final List<AppItem> items = mAggregation.finish(new int[0]).items;
+
+        assertThat(items).hasSize(1);
+        assertThat(items.get(0).key).isEqualTo(APP_UID);
+        assertThat(items.get(0).total).isEqualTo(150);
+        assertThat(items.get(0).uids.get(sandboxUid)).isTrue();
+    }
+
+    @Test
+    public void aggregate_systemUids_shouldCollapseIntoSystemItem() {
+        mAggregation.add(Process.ROOT_UID, 100);
+        mAggregation.add(Process.SYSTEM_UID, 50);
+        mAggregation.add(UID_TETHERING, 10);
+
+        final List<AppItem> items = mAggregation.finish(new int[0]).items;
+
+        assertThat(findItem(items, Process.SYSTEM_UID).total).isEqualTo(150);
+        assertThat(findItem(items, UID_TETHERING).total).isEqualTo(10);
+    }
+
+    @Test
+    public void finish_restrictedUids_shouldSpliceInProfileApps() {
+        final int restrictedUid = UserHandle.getUid(CURRENT_USER_ID, APP_ID + 1);
+        final int otherUserUid = UserHandle.getUid(OTHER_USER_ID, APP_ID);
+        mAggregation.add(APP_UID, 100);
+
+        final List<AppItem> items = mAggregation.finish(
+                new int[] {APP_UID, restrictedUid, otherUserUid}).items;
+
+        assertThat(items).hasSize(2);
+        assertThat(findItem(items, APP_UID).restricted).isTrue();
+        assertThat(findItem(items, APP_UID).total).isEqualTo(100);
+        assertThat(findItem(items, restrictedUid).restricted).isTrue();
+        assertThat(findItem(items, restrictedUid).total).isEqualTo(-1);
+    }
+
+    @Test
+    public void finish_shouldSortAndReturnLargest() {
+        mAggregation.add(APP_UID, 100);
+        mAggregation.add(UserHandle.getUid(CURRENT_USER_ID, APP_ID + 1), 300);
+        mAggregation.add(UserHandle.getUid(CURRENT_USER_ID, APP_ID + 2), 200);
+
+        final DataUsageAggregator.Result result = mAggregation.finish(new int[0]);
+
+        assertThat(result.largest).isEqualTo(300);
+        assertThat(result.items.get(0).total).isEqualTo(300);
+        assertThat(result.items.get(2).total).isEqualTo(100);
+        assertThat(result.getPercentTotal(result.items.get(1))).isEqualTo(66);
+    }
+
+    @Test
+    public void finish_noUsage_percentTotalShouldBeZero() {
+        final DataUsageAggregator.Result result = mAggregation.finish(new int[] {APP_UID});
+
+        assertThat(result.largest).isEqualTo(0);
+        assertThat(result.getPercentTotal(result.items.get(0))).isEqualTo(0);
+    }
+
+    private static AppItem findItem(List<AppItem> items, int key) {
+        for (AppItem item : items) {
+            if (item.key == key) {
+                return item;
+            }
+        }
+        throw new AssertionError("No item for key " + key);
+    }
+}
@@ -17,6 +17,7 @@
 package com.android.settings.development;
 
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
 
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
@@ -34,8 +35,10 @@ import androidx.fragment.app.FragmentActivity;
 
 import com.android.internal.logging.nano.MetricsProto;
 import com.android.settings.R;
+import com.android.settings.core.MainThreadOnlyController;
 import com.android.settings.testutils.shadow.ShadowAlertDialogCompat;
 import com.android.settings.widget.SettingsMainSwitchBar;
+import com.android.settingslib.core.AbstractPreferenceController;
 import com.android.settingslib.development.AbstractEnableAdbPreferenceController;
 import com.android.settingslib.development.DevelopmentSettingsEnabler;
 
@@ -56,6 +59,8 @@ import org.robolectric.shadows.androidx.fragment.FragmentController;
 import org.robolectric.util.ReflectionHelpers;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(shadows = {ShadowUserManager.class, ShadowAlertDialogCompat.class})
@@ -289,6 +294,28 @@ public class DevelopmentSettingsDashboardFragmentTest {
         assertThat(mDashboard.shouldSkipForInitialSUW()).isTrue();
     }
 
+    @Test
+    public void isAvailable_offMainThread_shouldMatchMainThread() throws Exception {
+        final List<AbstractPreferenceController> controllers =
+                DevelopmentSettingsDashboardFragment.SEARCH_INDEX_DATA_PROVIDER
+                        .getPreferenceControllers(mContext);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (AbstractPreferenceController controller : controllers) {
+                if (controller.getClass().isAnnotationPresent(MainThreadOnlyController.class)) {
+                    continue;
+                }
+                final boolean available = controller.isAvailable();
+
+                assertWithMessage(controller.getClass().getSimpleName())
+                        .that(executor.submit(controller::isAvailable).get())
+                        .isEqualTo(available);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Implements(EnableDevelopmentSettingWarningDialog.class)
     public static class ShadowEnableDevelopmentSettingWarningDialog {
 
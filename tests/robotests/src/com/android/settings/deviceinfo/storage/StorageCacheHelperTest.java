@@ -41,6 +41,9 @@ public class StorageCacheHelperTest {
     private static final long FAKE_TOTAL_SIZE = 256000L;
     private static final long FAKE_TOTAL_USED_SIZE = 50000L;
     private static final long FAKE_USED_SIZE = 6500L;
+    private static final String FAKE_MEDIA_STORE_VERSION = "fake_version";
+    private static final long FAKE_GENERATION = 42L;
+    private static final long FAKE_ROW_COUNT = 12L;
 
     private Context mContext;
     private StorageCacheHelper mHelper;
@@ -90,6 +93,56 @@ public class StorageCacheHelperTest {
         assertThat(mHelper.retrieveUsedSize()).isEqualTo(FAKE_USED_SIZE);
     }
 
+    @Test
+    public void cacheMediaSizeInfo_sameGeneration_shouldReturnCachedSize() {
+        mHelper.cacheMediaSizeInfo(FAKE_MEDIA_STORE_VERSION, FAKE_GENERATION, FAKE_ROW_COUNT,
+                getFakeMediaSizeCache());
+
+        StorageCacheHelper.MediaSizeCache mediaSizeCache = mHelper.retrieveMediaSizeInfo(
+                FAKE_MEDIA_STORE_VERSION, FAKE_GENERATION, FAKE_ROW_COUNT);
+
+        assertThat(mediaSizeCache.imagesSize).isEqualTo(FAKE_IMAGES_SIZE);
+        assertThat(mediaSizeCache.trashSize).isEqualTo(FAKE_TRASH_SIZE);
+    }
+
+    @Test
+    public void cacheMediaSizeInfo_differentGeneration_shouldReturnNull() {
+        mHelper.cacheMediaSizeInfo(FAKE_MEDIA_STORE_VERSION, FAKE_GENERATION, FAKE_ROW_COUNT,
+                getFakeMediaSizeCache());
+
+        assertThat(mHelper.retrieveMediaSizeInfo(FAKE_MEDIA_STORE_VERSION, FAKE_GENERATION + 1,
+                FAKE_ROW_COUNT)).isNull();
+        assertThat(mHelper.retrieveMediaSizeInfo("other_version", FAKE_GENERATION,
+                FAKE_ROW_COUNT)).isNull();
+    }
+
+    @Test
+    public void cacheMediaSizeInfo_rowsDeleted_shouldReturnNull() {
+        mHelper.cacheMediaSizeInfo(FAKE_MEDIA_STORE_VERSION, FAKE_GENERATION, FAKE_ROW_COUNT,
+                getFakeMediaSizeCache());
+
+        assertThat(mHelper.retrieveMediaSizeInfo(FAKE_MEDIA_STORE_VERSION, FAKE_GENERATION,
+                FAKE_ROW_COUNT - 1)).isNull();
+    }
+
+    @Test
+    public void cacheMediaSizeInfo_shouldNotHaveCachedSizeInfo() {
+        mHelper.cacheMediaSizeInfo(FAKE_MEDIA_STORE_VERSION, FAKE_GENERATION, FAKE_ROW_COUNT,
+                getFakeMediaSizeCache());
+
+        assertThat(mHelper.hasCachedSizeInfo()).isFalse();
+    }
+
+    private StorageCacheHelper.MediaSizeCache getFakeMediaSizeCache() {
+        StorageCacheHelper.MediaSizeCache result = new StorageCacheHelper.MediaSizeCache();
+        result.trashSize = FAKE_TRASH_SIZE;
+        result.imagesSize = FAKE_IMAGES_SIZE;
+        result.documentsAndOtherSize = FAKE_DOCS_SIZE;
+        result.audioSize = FAKE_AUDIO_SIZE;
+        result.videosSize = FAKE_VIDEOS_SIZE;
+        return result;
+    }
+
     private StorageCacheHelper.StorageCache getFakeStorageCache() {
         StorageCacheHelper.StorageCache result = new StorageCacheHelper.StorageCache();
         result.trashSize = FAKE_TRASH_SIZE;
@@ -150,10 +150,10 @@ public class BatteryDiffDataTest {
                 batteryHistEntry.mUid,
                 batteryHistEntry.mUserId,
                 batteryHistEntry.getKey(),
-                batteryHistEntry.mIsHidden,
+                batteryHistEntry.isHidden(),
                 batteryHistEntry.mDrainType,
                 batteryHistEntry.mPackageName,
-                batteryHistEntry.mAppLabel,
+                batteryHistEntry.getAppLabel(),
                 batteryHistEntry.mConsumerType,
                 /*foregroundUsageTimeInMs=*/ 0,
                 /*backgroundUsageTimeInMs=*/ 0,
@@ -506,10 +506,10 @@ public final class BatteryDiffEntryTest {
                 batteryHistEntry.mUid,
                 batteryHistEntry.mUserId,
                 batteryHistEntry.getKey(),
-                batteryHistEntry.mIsHidden,
+                batteryHistEntry.isHidden(),
                 batteryHistEntry.mDrainType,
                 batteryHistEntry.mPackageName,
-                batteryHistEntry.mAppLabel,
+                batteryHistEntry.getAppLabel(),
                 batteryHistEntry.mConsumerType,
                 /*foregroundUsageTimeInMs=*/ 0,
                 /*backgroundUsageTimeInMs=*/ 0,
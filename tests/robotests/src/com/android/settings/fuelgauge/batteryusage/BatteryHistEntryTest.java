@@ -113,6 +113,70 @@ public final class BatteryHistEntryTest {
                 /*percentOfTotal=*/ 0.3);
     }
 
+    @Test
+    public void testConstructor_cursorWithBinaryColumns_returnsExpectedResult() {
+        final BatteryInformation batteryInformation =
+                BatteryInformation
+                        .newBuilder()
+                        .setDeviceBatteryState(
+                                DeviceBatteryState.newBuilder().setBatteryLevel(10).build())
+                        .setAppLabel("Settings")
+                        .setConsumePower(1.1)
+                        .setForegroundUsageTimeInMs(1234L)
+                        .setBackgroundUsageTimeInMs(5689L)
+                        .build();
+        final MatrixCursor cursor = new MatrixCursor(
+                new String[]{
+                        BatteryHistEntry.KEY_UID,
+                        BatteryHistEntry.KEY_USER_ID,
+                        BatteryHistEntry.KEY_PACKAGE_NAME,
+                        BatteryHistEntry.KEY_TIMESTAMP,
+                        BatteryHistEntry.KEY_CONSUMER_TYPE,
+                        BatteryHistEntry.KEY_CONSUME_POWER,
+                        BatteryHistEntry.KEY_FOREGROUND_USAGE_CONSUME_POWER,
+                        BatteryHistEntry.KEY_FOREGROUND_SERVICE_USAGE_CONSUME_POWER,
+                        BatteryHistEntry.KEY_BACKGROUND_USAGE_CONSUME_POWER,
+                        BatteryHistEntry.KEY_CACHED_USAGE_CONSUME_POWER,
+                        BatteryHistEntry.KEY_FOREGROUND_USAGE_TIME_IN_MS,
+                        BatteryHistEntry.KEY_BACKGROUND_USAGE_TIME_IN_MS,
+                        BatteryHistEntry.KEY_DRAIN_TYPE,
+                        BatteryHistEntry.KEY_BATTERY_LEVEL,
+                        BatteryHistEntry.KEY_BATTERY_INFORMATION});
+        cursor.addRow(
+                new Object[]{
+                        Long.valueOf(1001),
+                        Long.valueOf(UserHandle.getUserId(1001)),
+                        "com.android.settings",
+                        Long.valueOf(10001L),
+                        Integer.valueOf(ConvertUtils.CONSUMER_TYPE_UID_BATTERY),
+                        Double.valueOf(2.2),
+                        Double.valueOf(1.2),
+                        Double.valueOf(1.3),
+                        Double.valueOf(1.4),
+                        Double.valueOf(1.5),
+                        Long.valueOf(4321L),
+                        Long.valueOf(9865L),
+                        Integer.valueOf(3),
+                        Integer.valueOf(20),
+                        batteryInformation.toByteArray()});
+        cursor.moveToFirst();
+
+        final BatteryHistEntry entry = new BatteryHistEntry(cursor);
+
+        assertThat(entry.isValidEntry()).isTrue();
+        assertThat(entry.getAppLabel()).isEqualTo("Settings");
+        // Verifies the hot numeric fields are loaded from the primitive columns.
+        assertThat(entry.mConsumePower).isEqualTo(2.2);
+        assertThat(entry.mForegroundUsageConsumePower).isEqualTo(1.2);
+        assertThat(entry.mForegroundServiceUsageConsumePower).isEqualTo(1.3);
+        assertThat(entry.mBackgroundUsageConsumePower).isEqualTo(1.4);
+        assertThat(entry.mCachedUsageConsumePower).isEqualTo(1.5);
+        assertThat(entry.mForegroundUsageTimeInMs).isEqualTo(4321L);
+        assertThat(entry.mBackgroundUsageTimeInMs).isEqualTo(9865L);
+        assertThat(entry.mDrainType).isEqualTo(3);
+        assertThat(entry.mBatteryLevel).isEqualTo(20);
+    }
+
     @Test
     public void testGetKey_consumerUidType_returnExpectedString() {
         final ContentValues values = getContentValuesWithType(
@@ -219,7 +283,7 @@ public final class BatteryHistEntryTest {
                         upperHistEntry);
 
         assertBatteryHistEntry(
-                newEntry, 3, upperHistEntry.mPercentOfTotal,
+                newEntry, 3, upperHistEntry.getPercentOfTotal(),
                 /*bootTimestamp=*/ 1200 - 100,
                 /*timestamp=*/ slotTimestamp,
                 /*totalPower=*/ 50 + 0.5 * (80 - 50),
@@ -260,7 +324,7 @@ public final class BatteryHistEntryTest {
                         upperHistEntry);
 
         assertBatteryHistEntry(
-                newEntry, 3, upperHistEntry.mPercentOfTotal,
+                newEntry, 3, upperHistEntry.getPercentOfTotal(),
                 /*bootTimestamp=*/ 1200 - 100,
                 /*timestamp=*/ slotTimestamp,
                 /*totalPower=*/ 0.5 * 80,
@@ -320,30 +384,30 @@ public final class BatteryHistEntryTest {
         assertThat(entry.isValidEntry()).isTrue();
         assertThat(entry.mUid).isEqualTo(1001);
         assertThat(entry.mUserId).isEqualTo(UserHandle.getUserId(1001));
-        assertThat(entry.mAppLabel).isEqualTo("Settings");
+        assertThat(entry.getAppLabel()).isEqualTo("Settings");
         assertThat(entry.mPackageName)
                 .isEqualTo("com.google.android.settings.battery");
-        assertThat(entry.mIsHidden).isTrue();
-        assertThat(entry.mBootTimestamp).isEqualTo(bootTimestamp);
+        assertThat(entry.isHidden()).isTrue();
+        assertThat(entry.getBootTimestamp()).isEqualTo(bootTimestamp);
         assertThat(entry.mTimestamp).isEqualTo(timestamp);
-        assertThat(entry.mZoneId).isEqualTo(TimeZone.getDefault().getID());
-        assertThat(entry.mTotalPower).isEqualTo(totalPower);
+        assertThat(entry.getZoneId()).isEqualTo(TimeZone.getDefault().getID());
+        assertThat(entry.getTotalPower()).isEqualTo(totalPower);
         assertThat(entry.mConsumePower).isEqualTo(consumePower);
         assertThat(entry.mForegroundUsageConsumePower).isEqualTo(foregroundUsageConsumePower);
         assertThat(entry.mForegroundServiceUsageConsumePower)
                 .isEqualTo(foregroundServiceUsageConsumePower);
         assertThat(entry.mBackgroundUsageConsumePower).isEqualTo(backgroundUsageConsumePower);
         assertThat(entry.mCachedUsageConsumePower).isEqualTo(cachedUsageConsumePower);
-        assertThat(entry.mPercentOfTotal).isEqualTo(percentOfTotal);
+        assertThat(entry.getPercentOfTotal()).isEqualTo(percentOfTotal);
         assertThat(entry.mForegroundUsageTimeInMs).isEqualTo(foregroundUsageTimeInMs);
         assertThat(entry.mBackgroundUsageTimeInMs).isEqualTo(backgroundUsageTimeInMs);
         assertThat(entry.mDrainType).isEqualTo(drainType);
         assertThat(entry.mConsumerType)
                 .isEqualTo(ConvertUtils.CONSUMER_TYPE_SYSTEM_BATTERY);
         assertThat(entry.mBatteryLevel).isEqualTo(batteryLevel);
-        assertThat(entry.mBatteryStatus)
+        assertThat(entry.getBatteryStatus())
                 .isEqualTo(BatteryManager.BATTERY_STATUS_FULL);
-        assertThat(entry.mBatteryHealth)
+        assertThat(entry.getBatteryHealth())
                 .isEqualTo(BatteryManager.BATTERY_HEALTH_COLD);
     }
 
@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ContentValues;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Map;
+
+@RunWith(RobolectricTestRunner.class)
+public final class BatteryHistoryIndexTest {
+
+    @Test
+    public void create_returnsSortedTimestamps() {
+        final BatteryHistoryIndex index = BatteryHistoryIndex.create(Map.of(
+                30L, Map.of(), 10L, Map.of(), 20L, Map.of()));
+
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(index.getTimestamp(0)).isEqualTo(10L);
+        assertThat(index.getTimestamp(1)).isEqualTo(20L);
+        assertThat(index.getTimestamp(2)).isEqualTo(30L);
+        assertThat(index.indexOf(20L)).isEqualTo(1);
+        assertThat(index.indexOf(25L)).isLessThan(0);
+    }
+
+    @Test
+    public void findNearestTimestamp_returnsExpectedResult() {
+        final long[] timestamps = new long[] {10L, 20L, 30L, 40L};
+
+        assertThat(BatteryHistoryIndex.findNearestTimestamp(timestamps, 15L))
+                .isEqualTo(new long[] {10L, 20L});
+        assertThat(BatteryHistoryIndex.findNearestTimestamp(timestamps, 10L))
+                .isEqualTo(new long[] {10L, 10L});
+        assertThat(BatteryHistoryIndex.findNearestTimestamp(timestamps, 5L))
+                .isEqualTo(new long[] {0L, 10L});
+        assertThat(BatteryHistoryIndex.findNearestTimestamp(timestamps, 50L))
+                .isEqualTo(new long[] {40L, 0L});
+        assertThat(BatteryHistoryIndex.findNearestTimestamp(new long[0], 50L))
+                .isEqualTo(new long[] {0L, 0L});
+    }
+
+    @Test
+    public void getEntry_returnsEntryWithSameKeys() {
+        final BatteryHistEntry uidEntry =
+                createBatteryHistEntry(ConvertUtils.CONSUMER_TYPE_UID_BATTERY, /*uid=*/ 1001L);
+        final BatteryHistEntry userEntry =
+                createBatteryHistEntry(ConvertUtils.CONSUMER_TYPE_USER_BATTERY, /*uid=*/ 1001L);
+        final BatteryHistoryIndex index = BatteryHistoryIndex.create(Map.of(
+                10L, Map.of(uidEntry.getKey(), uidEntry, userEntry.getKey(), userEntry)));
+
+        assertThat(index.getEntryCount(0)).isEqualTo(2);
+        assertThat(index.getEntry(0, uidEntry.getCompactKey(), uidEntry.getKey()))
+                .isSameInstanceAs(uidEntry);
+        assertThat(index.getEntry(0, userEntry.getCompactKey(), userEntry.getKey()))
+                .isSameInstanceAs(userEntry);
+        assertThat(index.getEntry(0, uidEntry.getCompactKey(), "unknown")).isNull();
+        assertThat(index.getEntry(/*slot=*/ -1, uidEntry.getCompactKey(), uidEntry.getKey()))
+                .isNull();
+    }
+
+    @Test
+    public void getCompactKey_differentConsumerType_returnsDifferentKey() {
+        final BatteryHistEntry uidEntry =
+                createBatteryHistEntry(ConvertUtils.CONSUMER_TYPE_UID_BATTERY, /*uid=*/ 0L);
+        final BatteryHistEntry userEntry =
+                createBatteryHistEntry(ConvertUtils.CONSUMER_TYPE_USER_BATTERY, /*uid=*/ 0L);
+        final BatteryHistEntry systemEntry =
+                createBatteryHistEntry(ConvertUtils.CONSUMER_TYPE_SYSTEM_BATTERY, /*uid=*/ 0L);
+
+        assertThat(uidEntry.getCompactKey()).isNotEqualTo(userEntry.getCompactKey());
+        assertThat(uidEntry.getCompactKey()).isNotEqualTo(systemEntry.getCompactKey());
+        assertThat(userEntry.getCompactKey()).isNotEqualTo(systemEntry.getCompactKey());
+    }
+
+    private static BatteryHistEntry createBatteryHistEntry(int consumerType, long uid) {
+        final ContentValues values = new ContentValues();
+        values.put(BatteryHistEntry.KEY_UID, uid);
+        values.put(BatteryHistEntry.KEY_USER_ID, 0L);
+        values.put(BatteryHistEntry.KEY_CONSUMER_TYPE, consumerType);
+        return new BatteryHistEntry(values);
+    }
+}
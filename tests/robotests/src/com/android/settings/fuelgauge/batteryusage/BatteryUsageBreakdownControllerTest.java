@@ -405,10 +405,10 @@ public final class BatteryUsageBreakdownControllerTest {
                 batteryHistEntry.mUid,
                 batteryHistEntry.mUserId,
                 batteryHistEntry.getKey(),
-                batteryHistEntry.mIsHidden,
+                batteryHistEntry.isHidden(),
                 batteryHistEntry.mDrainType,
                 batteryHistEntry.mPackageName,
-                batteryHistEntry.mAppLabel,
+                batteryHistEntry.getAppLabel(),
                 batteryHistEntry.mConsumerType,
                 foregroundUsageTimeInMs,
                 backgroundUsageTimeInMs,
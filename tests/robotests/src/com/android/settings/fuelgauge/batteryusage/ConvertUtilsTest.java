@@ -262,23 +262,23 @@ public final class ConvertUtilsTest {
         assertThat(batteryHistEntry.mUid).isEqualTo(1001L);
         assertThat(batteryHistEntry.mUserId)
                 .isEqualTo(UserHandle.getUserId(1001));
-        assertThat(batteryHistEntry.mAppLabel)
+        assertThat(batteryHistEntry.getAppLabel())
                 .isEqualTo("Settings");
         assertThat(batteryHistEntry.mPackageName)
                 .isEqualTo("com.android.settings.battery");
-        assertThat(batteryHistEntry.mIsHidden).isTrue();
-        assertThat(batteryHistEntry.mBootTimestamp)
+        assertThat(batteryHistEntry.isHidden()).isTrue();
+        assertThat(batteryHistEntry.getBootTimestamp())
                 .isEqualTo(0L);
         assertThat(batteryHistEntry.mTimestamp).isEqualTo(0L);
-        assertThat(batteryHistEntry.mZoneId)
+        assertThat(batteryHistEntry.getZoneId())
                 .isEqualTo(TimeZone.getDefault().getID());
-        assertThat(batteryHistEntry.mTotalPower).isEqualTo(5.1);
+        assertThat(batteryHistEntry.getTotalPower()).isEqualTo(5.1);
         assertThat(batteryHistEntry.mConsumePower).isEqualTo(1.1);
         assertThat(batteryHistEntry.mForegroundUsageConsumePower).isEqualTo(1.2);
         assertThat(batteryHistEntry.mForegroundServiceUsageConsumePower).isEqualTo(1.3);
         assertThat(batteryHistEntry.mBackgroundUsageConsumePower).isEqualTo(1.4);
         assertThat(batteryHistEntry.mCachedUsageConsumePower).isEqualTo(1.5);
-        assertThat(batteryHistEntry.mPercentOfTotal).isEqualTo(0.3);
+        assertThat(batteryHistEntry.getPercentOfTotal()).isEqualTo(0.3);
         assertThat(batteryHistEntry.mForegroundUsageTimeInMs)
                 .isEqualTo(1234L);
         assertThat(batteryHistEntry.mBackgroundUsageTimeInMs)
@@ -287,8 +287,8 @@ public final class ConvertUtilsTest {
         assertThat(batteryHistEntry.mConsumerType)
                 .isEqualTo(ConvertUtils.CONSUMER_TYPE_SYSTEM_BATTERY);
         assertThat(batteryHistEntry.mBatteryLevel).isEqualTo(0);
-        assertThat(batteryHistEntry.mBatteryStatus).isEqualTo(0);
-        assertThat(batteryHistEntry.mBatteryHealth).isEqualTo(0);
+        assertThat(batteryHistEntry.getBatteryStatus()).isEqualTo(0);
+        assertThat(batteryHistEntry.getBatteryHealth()).isEqualTo(0);
     }
 
     @Test
@@ -298,15 +298,15 @@ public final class ConvertUtilsTest {
                         /*entry=*/ null,
                         /*batteryUsageStats=*/ null);
 
-        assertThat(batteryHistEntry.mBootTimestamp)
+        assertThat(batteryHistEntry.getBootTimestamp())
                 .isEqualTo(0L);
         assertThat(batteryHistEntry.mTimestamp)
                 .isEqualTo(0);
-        assertThat(batteryHistEntry.mZoneId)
+        assertThat(batteryHistEntry.getZoneId())
                 .isEqualTo(TimeZone.getDefault().getID());
         assertThat(batteryHistEntry.mBatteryLevel).isEqualTo(0);
-        assertThat(batteryHistEntry.mBatteryStatus).isEqualTo(0);
-        assertThat(batteryHistEntry.mBatteryHealth).isEqualTo(0);
+        assertThat(batteryHistEntry.getBatteryStatus()).isEqualTo(0);
+        assertThat(batteryHistEntry.getBatteryHealth()).isEqualTo(0);
         assertThat(batteryHistEntry.mPackageName)
                 .isEqualTo(ConvertUtils.FAKE_PACKAGE_NAME);
     }
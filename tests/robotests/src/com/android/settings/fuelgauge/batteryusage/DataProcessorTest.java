@@ -819,6 +819,42 @@ public final class DataProcessorTest {
         assertThat(batteryDiffData.getEndTimestamp()).isEqualTo(batteryHistoryKeys[2]);
     }
 
+    @Test
+    public void getBatteryDiffDataMap_withFinalizedSlots_skipsFinalizedSlots() {
+        final int userId = mContext.getUserId();
+        final long[] batteryHistoryKeys = new long[]{
+                1641045600000L, // 2022-01-01 22:00:00
+                1641049200000L, // 2022-01-01 23:00:00
+                1641052800000L, // 2022-01-02 00:00:00
+        };
+        final Map<Long, Map<String, BatteryHistEntry>> batteryHistoryMap = Map.of(
+                batteryHistoryKeys[0], Map.of(FAKE_PACKAGE_NAME, createBatteryHistEntry(
+                        FAKE_PACKAGE_NAME, "fake_label", /*consumePower=*/ 0, 0, 0,
+                        0, 0, 0L, userId, ConvertUtils.CONSUMER_TYPE_UID_BATTERY, 0L, 0L, false)),
+                batteryHistoryKeys[1], Map.of(FAKE_PACKAGE_NAME, createBatteryHistEntry(
+                        FAKE_PACKAGE_NAME, "fake_label", /*consumePower=*/ 5, 0, 0,
+                        0, 0, 0L, userId, ConvertUtils.CONSUMER_TYPE_UID_BATTERY, 0L, 0L, false)),
+                batteryHistoryKeys[2], Map.of(FAKE_PACKAGE_NAME, createBatteryHistEntry(
+                        FAKE_PACKAGE_NAME, "fake_label", /*consumePower=*/ 16, 0, 0,
+                        0, 0, 0L, userId, ConvertUtils.CONSUMER_TYPE_UID_BATTERY, 0L, 0L, false)));
+        final BatteryLevelData batteryLevelData = generateBatteryLevelData(batteryHistoryKeys);
+
+        final Map<Long, BatteryDiffData> finalizedDiffDataMap =
+                DataProcessor.getBatteryDiffDataMap(mContext,
+                        batteryLevelData.getHourlyBatteryLevelsPerDay(), batteryHistoryMap,
+                        /*appUsagePeriodMap=*/ null, Set.of(), Set.of(),
+                        Map.of(batteryHistoryKeys[0], batteryHistoryKeys[2]));
+        final Map<Long, BatteryDiffData> openDiffDataMap =
+                DataProcessor.getBatteryDiffDataMap(mContext,
+                        batteryLevelData.getHourlyBatteryLevelsPerDay(), batteryHistoryMap,
+                        /*appUsagePeriodMap=*/ null, Set.of(), Set.of(),
+                        Map.of(batteryHistoryKeys[0], batteryHistoryKeys[1]));
+
+        assertThat(finalizedDiffDataMap).isEmpty();
+        assertThat(openDiffDataMap).hasSize(1);
+        assertThat(openDiffDataMap).containsKey(batteryHistoryKeys[0]);
+    }
+
     @Test
     public void generateBatteryUsageMap_returnsExpectedResult() {
         final long[] batteryHistoryKeys = new long[]{
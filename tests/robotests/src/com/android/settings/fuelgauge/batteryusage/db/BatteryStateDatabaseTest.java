@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.fuelgauge.batteryusage.db;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.util.Base64;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.sqlite.db.SupportSQLiteOpenHelper;
+import androidx.sqlite.db.framework.FrameworkSQLiteOpenHelperFactory;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.android.settings.fuelgauge.batteryusage.BatteryInformation;
+import com.android.settings.fuelgauge.batteryusage.DeviceBatteryState;
+import com.android.settings.testutils.BatteryTestUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/** Tests for {@link BatteryStateDatabase}. */
+@RunWith(RobolectricTestRunner.class)
+public final class BatteryStateDatabaseTest {
+    // The BatteryState table as Room created it in version 1.
+    private static final String CREATE_BATTERY_STATE_V1 =
+            "CREATE TABLE IF NOT EXISTS `BatteryState` ("
+                    + "`mId` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, "
+                    + "`uid` INTEGER NOT NULL, "
+                    + "`userId` INTEGER NOT NULL, "
+                    + "`packageName` TEXT, "
+                    + "`timestamp` INTEGER NOT NULL, "
+                    + "`consumerType` INTEGER NOT NULL, "
+                    + "`isFullChargeCycleStart` INTEGER NOT NULL, "
+                    + "`batteryInformation` TEXT, "
+                    + "`batteryInformationDebug` TEXT)";
+    private static final int BATTERY_LEVEL = 45;
+
+    private Context mContext;
+    private SupportSQLiteOpenHelper mOpenHelper;
+    private SupportSQLiteDatabase mDatabase;
+    private BatteryInformation mBatteryInformation;
+
+    @Before
+    public void setUp() {
+        mContext = ApplicationProvider.getApplicationContext();
+        mOpenHelper = new FrameworkSQLiteOpenHelperFactory().create(
+                SupportSQLiteOpenHelper.Configuration.builder(mContext)
+                        .name(null)
+                        .callback(new SupportSQLiteOpenHelper.Callback(1) {
+                            @Override
+                            public void onCreate(SupportSQLiteDatabase db) {
+                                db.execSQL(CREATE_BATTERY_STATE_V1);
+                            }
+
+                            @Override
+                            public void onUpgrade(SupportSQLiteDatabase db, int oldVersion,
+                                    int newVersion) {
+                            }
+                        })
+                        .build());
+        mDatabase = mOpenHelper.getWritableDatabase();
+        mBatteryInformation =
+                BatteryInformation
+                        .newBuilder()
+                        .setDeviceBatteryState(
+                                DeviceBatteryState.newBuilder()
+                                        .setBatteryLevel(BATTERY_LEVEL)
+                                        .build())
+                        .setAppLabel("Settings")
+                        .setConsumePower(3.5)
+                        .setForegroundUsageConsumePower(1.5)
+                        .setForegroundServiceUsageConsumePower(0.5)
+                        .setBackgroundUsageConsumePower(1.0)
+                        .setCachedUsageConsumePower(0.5)
+                        .setDrainType(3)
+                        .setForegroundUsageTimeInMs(60000)
+                        .setBackgroundUsageTimeInMs(10000)
+                        .build();
+    }
+
+    @After
+    public void tearDown() {
+        mOpenHelper.close();
+    }
+
+    @Test
+    public void migration1To2_decodesLegacyRow() {
+        insertV1Row(1L, Base64.encodeToString(mBatteryInformation.toByteArray(), Base64.DEFAULT));
+
+        BatteryStateDatabase.MIGRATION_1_2.migrate(mDatabase);
+
+        try (Cursor cursor = mDatabase.query("SELECT * FROM `BatteryState`")) {
+            assertThat(cursor.getCount()).isEqualTo(1);
+            cursor.moveToFirst();
+            assertThat(getLong(cursor, "mId")).isEqualTo(1L);
+            assertThat(getLong(cursor, "uid")).isEqualTo(1001L);
+            assertThat(getLong(cursor, "userId")).isEqualTo(100L);
+            assertThat(cursor.getString(cursor.getColumnIndex("packageName")))
+                    .isEqualTo("com.android.settings");
+            assertThat(getLong(cursor, "timestamp")).isEqualTo(100001L);
+            assertThat(getLong(cursor, "consumerType")).isEqualTo(2L);
+            assertThat(getLong(cursor, "isFullChargeCycleStart")).isEqualTo(1L);
+            assertThat(cursor.getString(cursor.getColumnIndex("batteryInformationDebug")))
+                    .isEqualTo("debug");
+            // Verifies the hot columns.
+            assertThat(cursor.getDouble(cursor.getColumnIndex("consumePower"))).isEqualTo(3.5);
+            assertThat(cursor.getDouble(cursor.getColumnIndex("foregroundUsageConsumePower")))
+                    .isEqualTo(1.5);
+            assertThat(cursor.getDouble(
+                    cursor.getColumnIndex("foregroundServiceUsageConsumePower"))).isEqualTo(0.5);
+            assertThat(cursor.getDouble(cursor.getColumnIndex("backgroundUsageConsumePower")))
+                    .isEqualTo(1.0);
+            assertThat(cursor.getDouble(cursor.getColumnIndex("cachedUsageConsumePower")))
+                    .isEqualTo(0.5);
+            assertThat(getLong(cursor, "foregroundUsageTimeInMs")).isEqualTo(60000L);
+            assertThat(getLong(cursor, "backgroundUsageTimeInMs")).isEqualTo(10000L);
+            assertThat(getLong(cursor, "drainType")).isEqualTo(3L);
+            assertThat(getLong(cursor, "batteryLevel")).isEqualTo(BATTERY_LEVEL);
+            // Verifies the proto is stored as raw bytes.
+            final int columnIndex = cursor.getColumnIndex("batteryInformation");
+            assertThat(cursor.getType(columnIndex)).isEqualTo(Cursor.FIELD_TYPE_BLOB);
+            assertThat(cursor.getBlob(columnIndex)).isEqualTo(mBatteryInformation.toByteArray());
+        }
+    }
+
+    @Test
+    public void migration1To2_emptyBatteryInformation_usesDefaultValues() {
+        insertV1Row(1L, null);
+
+        BatteryStateDatabase.MIGRATION_1_2.migrate(mDatabase);
+
+        try (Cursor cursor = mDatabase.query("SELECT * FROM `BatteryState`")) {
+            assertThat(cursor.getCount()).isEqualTo(1);
+            cursor.moveToFirst();
+            assertThat(cursor.getDouble(cursor.getColumnIndex("consumePower"))).isEqualTo(0);
+            assertThat(getLong(cursor, "foregroundUsageTimeInMs")).isEqualTo(0L);
+            assertThat(getLong(cursor, "batteryLevel")).isEqualTo(0L);
+        }
+    }
+
+    @Test
+    public void migration1To2_matchesRoomSchema() {
+        BatteryStateDatabase.MIGRATION_1_2.migrate(mDatabase);
+
+        final SupportSQLiteDatabase roomDatabase = BatteryTestUtils
+                .setUpBatteryStateDatabase(mContext).getOpenHelper().getReadableDatabase();
+        assertThat(getColumns(mDatabase)).isEqualTo(getColumns(roomDatabase));
+    }
+
+    private void insertV1Row(long id, String batteryInformation) {
+        final ContentValues values = new ContentValues();
+        values.put("mId", id);
+        values.put("uid", 1001L);
+        values.put("userId", 100L);
+        values.put("packageName", "com.android.settings");
+        values.put("timestamp", 100001L);
+        values.put("consumerType", 2);
+        values.put("isFullChargeCycleStart", 1);
+        values.put("batteryInformation", batteryInformation);
+        values.put("batteryInformationDebug", "debug");
+        mDatabase.insert("BatteryState", SQLiteDatabase.CONFLICT_REPLACE, values);
+    }
+
+    private static long getLong(Cursor cursor, String column) {
+        return cursor.getLong(cursor.getColumnIndex(column));
+    }
+
+    private static Set<String> getColumns(SupportSQLiteDatabase database) {
+        final Set<String> columns = new HashSet<>();
+        try (Cursor cursor = database.query("PRAGMA table_info(`BatteryState`)")) {
+            while (cursor.moveToNext()) {
+                columns.add(cursor.getString(cursor.getColumnIndex("name"))
+                        + " " + cursor.getString(cursor.getColumnIndex("type"))
+                        + " notnull=" + cursor.getInt(cursor.getColumnIndex("notnull"))
+                        + " pk=" + cursor.getInt(cursor.getColumnIndex("pk")));
+            }
+        }
+        return columns;
+    }
+}
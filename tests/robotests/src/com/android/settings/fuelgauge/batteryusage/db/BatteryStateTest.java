@@ -18,6 +18,7 @@ package com.android.settings.fuelgauge.batteryusage.db;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import android.content.ContentValues;
 import android.os.BatteryManager;
 
 import com.android.settings.fuelgauge.batteryusage.BatteryInformation;
@@ -78,8 +79,33 @@ public final class BatteryStateTest {
         assertThat(state.timestamp).isEqualTo(100001L);
         assertThat(state.consumerType).isEqualTo(2);
         assertThat(state.isFullChargeCycleStart).isTrue();
-        assertThat(state.batteryInformation).isEqualTo(
+        assertThat(state.consumePower).isEqualTo(3);
+        assertThat(state.foregroundUsageConsumePower).isEqualTo(0);
+        assertThat(state.foregroundServiceUsageConsumePower).isEqualTo(1);
+        assertThat(state.backgroundUsageConsumePower).isEqualTo(2);
+        assertThat(state.cachedUsageConsumePower).isEqualTo(3);
+        assertThat(state.foregroundUsageTimeInMs).isEqualTo(60000);
+        assertThat(state.backgroundUsageTimeInMs).isEqualTo(10000);
+        assertThat(state.drainType).isEqualTo(1);
+        assertThat(state.batteryLevel).isEqualTo(BATTERY_LEVEL);
+        assertThat(state.batteryInformation).isEqualTo(mBatteryInformation.toByteArray());
+    }
+
+    @Test
+    public void create_legacyEncodedString_returnsExpectedResult() {
+        final ContentValues values = new ContentValues();
+        values.put("uid", 1001L);
+        values.put("timestamp", 100001L);
+        values.put("batteryInformation",
                 ConvertUtils.convertBatteryInformationToString(mBatteryInformation));
+
+        final BatteryState state = BatteryState.create(values);
+
+        assertThat(state.uid).isEqualTo(1001L);
+        assertThat(state.timestamp).isEqualTo(100001L);
+        assertThat(state.consumePower).isEqualTo(3);
+        assertThat(state.batteryLevel).isEqualTo(BATTERY_LEVEL);
+        assertThat(state.batteryInformation).isEqualTo(mBatteryInformation.toByteArray());
     }
 
     private static BatteryState create(BatteryInformation batteryInformation) {
@@ -90,8 +116,7 @@ public final class BatteryStateTest {
                 .setTimestamp(100001L)
                 .setConsumerType(2)
                 .setIsFullChargeCycleStart(true)
-                .setBatteryInformation(
-                        ConvertUtils.convertBatteryInformationToString(batteryInformation))
+                .setBatteryInformation(batteryInformation)
                 .build();
     }
 }
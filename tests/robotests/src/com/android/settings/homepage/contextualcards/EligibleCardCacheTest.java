@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.homepage.contextualcards;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.SystemClock;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class EligibleCardCacheTest {
+
+    private static final Uri TEST_SLICE_URI =
+            Uri.parse("content://com.android.settings.test.slices/action/flashlight");
+
+    private Context mContext;
+    private EligibleCardCache mCache;
+    private ContextualCard mCard;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mCache = new EligibleCardCache(mContext);
+        mCard = new ContextualCard.Builder()
+                .setName("test_flashlight")
+                .setCardType(ContextualCard.CardType.SLICE)
+                .setSliceUri(TEST_SLICE_URI)
+                .build();
+    }
+
+    @Test
+    public void get_noResult_shouldReturnNull() {
+        assertThat(mCache.get(mCard)).isNull();
+    }
+
+    @Test
+    public void get_eligibleResult_shouldReturnCandidateWithCachedState() {
+        mCache.put(mCard, mCard.mutate().setHasInlineAction(true).build());
+
+        final EligibleCardCache.Entry entry = mCache.get(mCard);
+
+        assertThat(entry).isNotNull();
+        assertThat(entry.getEligibleCard(mCard).hasInlineAction()).isTrue();
+    }
+
+    @Test
+    public void get_ineligibleResult_shouldReturnNullCard() {
+        mCache.put(mCard, null);
+
+        final EligibleCardCache.Entry entry = mCache.get(mCard);
+
+        assertThat(entry).isNotNull();
+        assertThat(entry.getEligibleCard(mCard)).isNull();
+    }
+
+    @Test
+    public void get_differentSliceUri_shouldReturnNull() {
+        mCache.put(mCard, mCard);
+
+        final ContextualCard card = mCard.mutate()
+                .setSliceUri(Uri.parse("content://com.android.settings.test.slices/action/other"))
+                .build();
+
+        assertThat(mCache.get(card)).isNull();
+    }
+
+    @Test
+    public void get_expired_shouldReturnNull() {
+        mCache.put(mCard, mCard);
+
+        SystemClock.sleep(EligibleCardCache.CACHE_TTL_MS);
+
+        assertThat(mCache.get(mCard)).isNull();
+    }
+
+    @Test
+    public void refreshCardUri_shouldInvalidateCache() {
+        mCache.put(mCard, mCard);
+
+        mContext.getContentResolver().notifyChange(CardContentProvider.REFRESH_CARD_URI, null);
+
+        assertThat(mCache.get(mCard)).isNull();
+    }
+}
@@ -23,9 +23,13 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import android.app.INotificationManager;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
 import android.app.role.RoleManager;
 import android.app.usage.UsageEvents;
 import android.bluetooth.BluetoothAdapter;
@@ -35,9 +39,11 @@ import android.content.ComponentName;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
+import android.content.pm.ParceledListSlice;
 import android.net.MacAddress;
 import android.os.Build;
 import android.os.Parcel;
+import android.os.RemoteException;
 
 import com.android.settings.notification.NotificationBackend.AppRow;
 import com.android.settingslib.bluetooth.CachedBluetoothDevice;
@@ -55,6 +61,7 @@ import org.robolectric.RobolectricTestRunner;
 import org.robolectric.RuntimeEnvironment;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
@@ -268,6 +275,112 @@ public class NotificationBackendTest {
                 mCdm, mBm, mCn.getPackageName(), 0).toString()).isEqualTo("Device 1, Device 2");
     }
 
+    @Test
+    public void getChannelState_shouldQueryChannelsOnce() throws Exception {
+        final NotificationChannel blocked = new NotificationChannel("blocked", "name",
+                NotificationManager.IMPORTANCE_NONE);
+        final NotificationChannel deleted = new NotificationChannel("deleted", "name",
+                NotificationManager.IMPORTANCE_DEFAULT);
+        deleted.setDeleted(true);
+        mockChannels("pkg", 123, blocked, deleted,
+                new NotificationChannel("id", "name", NotificationManager.IMPORTANCE_DEFAULT));
+
+        assertThat(mNotificationBackend.getChannelCount("pkg", 123)).isEqualTo(2);
+        assertThat(mNotificationBackend.getDeletedChannelCount("pkg", 123)).isEqualTo(1);
+        assertThat(mNotificationBackend.getBlockedChannelCount("pkg", 123)).isEqualTo(1);
+        assertThat(mNotificationBackend.onlyHasDefaultChannel("pkg", 123)).isFalse();
+
+        verify(mInm, times(1)).getNotificationChannelsForPackage("pkg", 123, true);
+    }
+
+    @Test
+    public void getChannelState_groupsAndConversations_shouldCountAsChannels() throws Exception {
+        final NotificationChannel grouped = new NotificationChannel("grouped", "name",
+                NotificationManager.IMPORTANCE_DEFAULT);
+        grouped.setGroup("group");
+        final NotificationChannel conversation = new NotificationChannel("conversation", "name",
+                NotificationManager.IMPORTANCE_NONE);
+        conversation.setConversationId("parent", "shortcut");
+        mockChannels("pkg", 123, grouped, conversation,
+                new NotificationChannel("parent", "name", NotificationManager.IMPORTANCE_DEFAULT));
+
+        assertThat(mNotificationBackend.getChannelCount("pkg", 123)).isEqualTo(3);
+        assertThat(mNotificationBackend.getBlockedChannelCount("pkg", 123)).isEqualTo(1);
+        assertThat(mNotificationBackend.getDeletedChannelCount("pkg", 123)).isEqualTo(0);
+    }
+
+    @Test
+    public void onlyHasDefaultChannel_onlyDefaultChannel_returnTrue() throws Exception {
+        mockChannels("pkg", 123, new NotificationChannel(NotificationChannel.DEFAULT_CHANNEL_ID,
+                "name", NotificationManager.IMPORTANCE_DEFAULT));
+
+        assertThat(mNotificationBackend.onlyHasDefaultChannel("pkg", 123)).isTrue();
+    }
+
+    @Test
+    public void onlyHasDefaultChannel_deletedChannel_returnFalse() throws Exception {
+        final NotificationChannel deleted = new NotificationChannel("deleted", "name",
+                NotificationManager.IMPORTANCE_DEFAULT);
+        deleted.setDeleted(true);
+        mockChannels("pkg", 123, deleted, new NotificationChannel(
+                NotificationChannel.DEFAULT_CHANNEL_ID, "name",
+                NotificationManager.IMPORTANCE_DEFAULT));
+
+        assertThat(mNotificationBackend.onlyHasDefaultChannel("pkg", 123)).isFalse();
+    }
+
+    @Test
+    public void getChannelState_queryFailed_shouldQueryAgain() throws Exception {
+        when(mInm.getNotificationChannelsForPackage("pkg", 123, true))
+                .thenThrow(new RemoteException());
+        assertThat(mNotificationBackend.getChannelCount("pkg", 123)).isEqualTo(0);
+
+        mockChannels("pkg", 123,
+                new NotificationChannel("id", "name", NotificationManager.IMPORTANCE_DEFAULT));
+
+        assertThat(mNotificationBackend.getChannelCount("pkg", 123)).isEqualTo(1);
+    }
+
+    @Test
+    public void updateChannel_shouldInvalidateChannelState() throws Exception {
+        mockChannels("pkg", 123,
+                new NotificationChannel("id", "name", NotificationManager.IMPORTANCE_DEFAULT));
+        assertThat(mNotificationBackend.getBlockedChannelCount("pkg", 123)).isEqualTo(0);
+
+        final NotificationChannel blocked = new NotificationChannel("id", "name",
+                NotificationManager.IMPORTANCE_NONE);
+        mockChannels("pkg", 123, blocked);
+        mNotificationBackend.updateChannel("pkg", 123, blocked);
+
+        assertThat(mNotificationBackend.getBlockedChannelCount("pkg", 123)).isEqualTo(1);
+    }
+
+    @Test
+    public void loadChannelStates_shouldQueryEachPackageOnce() throws Exception {
+        mockChannels("pkg1", 123,
+                new NotificationChannel("id", "name", NotificationManager.IMPORTANCE_DEFAULT));
+        mockChannels("pkg2", 456);
+        final ApplicationInfo app1 = new ApplicationInfo();
+        app1.packageName = "pkg1";
+        app1.uid = 123;
+        final ApplicationInfo app2 = new ApplicationInfo();
+        app2.packageName = "pkg2";
+        app2.uid = 456;
+
+        mNotificationBackend.loadChannelStates(Arrays.asList(app1, app2));
+
+        assertThat(mNotificationBackend.getChannelCount("pkg1", 123)).isEqualTo(1);
+        assertThat(mNotificationBackend.getChannelCount("pkg2", 456)).isEqualTo(0);
+        verify(mInm, times(1)).getNotificationChannelsForPackage("pkg1", 123, true);
+        verify(mInm, times(1)).getNotificationChannelsForPackage("pkg2", 456, true);
+    }
+
+    private void mockChannels(String pkg, int uid, NotificationChannel... channels)
+            throws Exception {
+        when(mInm.getNotificationChannelsForPackage(pkg, uid, true))
+                .thenReturn(new ParceledListSlice<>(Arrays.asList(channels)));
+    }
+
     private ImmutableList<AssociationInfo> mockAssociations(String... macAddresses) {
         final AssociationInfo[] associations = new AssociationInfo[macAddresses.length];
         for (int index = 0; index < macAddresses.length; index++) {
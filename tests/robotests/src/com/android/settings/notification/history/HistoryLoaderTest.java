@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.notification.history;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.app.NotificationHistory;
+import android.app.NotificationHistory.HistoricalNotification;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+
+import com.android.settings.notification.NotificationBackend;
+import com.android.settings.testutils.shadow.ShadowThreadUtils;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = ShadowThreadUtils.class)
+public class HistoryLoaderTest {
+
+    private static final int UID = 1000;
+
+    @Mock
+    private NotificationBackend mBackend;
+    @Mock
+    private PackageManager mPm;
+    @Mock
+    private PackageLabelIconCache mCache;
+    private final List<List<NotificationHistoryPackage>> mPages = new ArrayList<>();
+    private final List<Boolean> mFirstPages = new ArrayList<>();
+    private HistoryLoader mLoader;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        final Context context = RuntimeEnvironment.application;
+        mLoader = new HistoryLoader(context, mBackend, mPm, mCache);
+        when(mCache.getLabel(any(), anyString(), anyInt())).thenAnswer(
+                invocation -> "label " + invocation.getArgument(1));
+    }
+
+    @Test
+    public void load_noHistory_shouldPublishEmptyFirstPage() {
+        setHistory(new NotificationHistory());
+
+        load();
+
+        assertThat(mPages).hasSize(1);
+        assertThat(mPages.get(0)).isEmpty();
+        assertThat(mFirstPages).containsExactly(true);
+    }
+
+    @Test
+    public void load_moreThanOnePage_shouldPublishPagesMostRecentFirst() {
+        final int packageCount = HistoryLoader.PAGE_SIZE + 2;
+        final NotificationHistory history = new NotificationHistory();
+        for (int i = 0; i < packageCount; i++) {
+            // Two notifications per package, the first package being the most recent.
+            history.addNotificationToWrite(createNotification("pkg" + i, 100 + i));
+            history.addNotificationToWrite(createNotification("pkg" + i, 200 - i));
+        }
+        setHistory(history);
+
+        load();
+
+        assertThat(mPages).hasSize(2);
+        assertThat(mPages.get(0)).hasSize(HistoryLoader.PAGE_SIZE);
+        assertThat(mPages.get(1)).hasSize(2);
+        assertThat(mFirstPages).containsExactly(true, false).inOrder();
+        final NotificationHistoryPackage first = mPages.get(0).get(0);
+        assertThat(first.pkgName).isEqualTo("pkg0");
+        assertThat(first.notifications).hasSize(2);
+        assertThat(first.label.toString()).isEqualTo("label pkg0");
+        assertThat(mPages.get(1).get(1).pkgName).isEqualTo("pkg" + (packageCount - 1));
+    }
+
+    @Test
+    public void load_shouldNotResolveIcons() {
+        final NotificationHistory history = new NotificationHistory();
+        history.addNotificationToWrite(createNotification("pkg", 100));
+        setHistory(history);
+
+        load();
+
+        verify(mCache).getCachedIcon("pkg", UID);
+        verify(mCache, never()).getIcon(any(), anyString(), anyInt());
+    }
+
+    @Test
+    public void loadIcon_shouldResolveIconOnce() {
+        final NotificationHistoryPackage nhp = new NotificationHistoryPackage("pkg", UID);
+        when(mCache.getIcon(mPm, "pkg", UID)).thenReturn(new ColorDrawable());
+        final List<Drawable> icons = new ArrayList<>();
+
+        mLoader.loadIcon(nhp, icons::add);
+        mLoader.loadIcon(nhp, icons::add);
+
+        assertThat(icons).hasSize(2);
+        verify(mCache).getIcon(mPm, "pkg", UID);
+    }
+
+    private void load() {
+        mLoader.load((notifications, isFirstPage) -> {
+            mPages.add(notifications);
+            mFirstPages.add(isFirstPage);
+        });
+    }
+
+    private void setHistory(NotificationHistory history) {
+        when(mBackend.getNotificationHistory(anyString(), any())).thenReturn(history);
+    }
+
+    private static HistoricalNotification createNotification(String pkg, long postedTimeMs) {
+        return new HistoricalNotification.Builder()
+                .setPackage(pkg)
+                .setUid(UID)
+                .setUserId(0)
+                .setChannelId("channel")
+                .setChannelName("channel")
+                .setPostedTimeMs(postedTimeMs)
+                .setTitle("title")
+                .setText("text")
+                .build();
+    }
+}
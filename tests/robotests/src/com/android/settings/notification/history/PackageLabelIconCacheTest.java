@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.notification.history;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+public class PackageLabelIconCacheTest {
+
+    private static final String PACKAGE = "pkg";
+    private static final int UID = 1000;
+
+    @Mock
+    private PackageManager mPm;
+    private PackageLabelIconCache mCache;
+
+    @Before
+    public void setUp() throws Exception {
+        MockitoAnnotations.initMocks(this);
+        mCache = new PackageLabelIconCache();
+        installPackage(PACKAGE, "label");
+    }
+
+    @Test
+    public void getLabel_calledTwice_shouldResolveOnce() throws Exception {
+        assertThat(mCache.getLabel(mPm, PACKAGE, UID).toString()).isEqualTo("label");
+        assertThat(mCache.getLabel(mPm, PACKAGE, UID).toString()).isEqualTo("label");
+
+        verify(mPm, times(1)).getApplicationInfoAsUser(eq(PACKAGE), anyInt(), anyInt());
+    }
+
+    @Test
+    public void getLabel_expired_shouldResolveAgain() throws Exception {
+        mCache.getLabel(mPm, PACKAGE, UID);
+        installPackage(PACKAGE, "new label");
+
+        ShadowLooper.idleMainLooper(PackageLabelIconCache.CACHE_TTL_MS + 1, TimeUnit.MILLISECONDS);
+
+        assertThat(mCache.getLabel(mPm, PACKAGE, UID).toString()).isEqualTo("new label");
+        verify(mPm, times(2)).getApplicationInfoAsUser(eq(PACKAGE), anyInt(), anyInt());
+    }
+
+    @Test
+    public void getLabel_uninstalledPackage_returnNull() throws Exception {
+        when(mPm.getApplicationInfoAsUser(eq("gone"), anyInt(), anyInt()))
+                .thenThrow(new PackageManager.NameNotFoundException());
+
+        assertThat(mCache.getLabel(mPm, "gone", UID)).isNull();
+    }
+
+    @Test
+    public void getLabel_moreThanMaxEntries_shouldEvictLeastRecentlyUsed() throws Exception {
+        for (int i = 0; i < PackageLabelIconCache.MAX_ENTRIES; i++) {
+            installPackage(PACKAGE + i, "label" + i);
+            mCache.getLabel(mPm, PACKAGE + i, UID);
+        }
+        // Use the first package again, so the second one is the least recently used.
+        mCache.getLabel(mPm, PACKAGE + 0, UID);
+
+        mCache.getLabel(mPm, PACKAGE, UID);
+        mCache.getLabel(mPm, PACKAGE + 0, UID);
+        mCache.getLabel(mPm, PACKAGE + 1, UID);
+
+        verify(mPm, times(1)).getApplicationInfoAsUser(eq(PACKAGE + 0), anyInt(), anyInt());
+        verify(mPm, times(2)).getApplicationInfoAsUser(eq(PACKAGE + 1), anyInt(), anyInt());
+    }
+
+    @Test
+    public void getCachedIcon_iconNotResolved_returnNull() {
+        mCache.getLabel(mPm, PACKAGE, UID);
+
+        assertThat(mCache.getCachedIcon(PACKAGE, UID)).isNull();
+    }
+
+    @Test
+    public void getCachedIcon_iconResolved_returnNewDrawable() {
+        final Drawable icon = mCache.getIcon(mPm, PACKAGE, UID);
+
+        final Drawable cachedIcon = mCache.getCachedIcon(PACKAGE, UID);
+
+        assertThat(cachedIcon).isNotNull();
+        assertThat(cachedIcon).isNotSameInstanceAs(icon);
+        verify(mPm, times(1)).getApplicationIcon(any(ApplicationInfo.class));
+    }
+
+    @Test
+    public void clear_shouldResolveAgain() throws Exception {
+        mCache.getLabel(mPm, PACKAGE, UID);
+
+        mCache.clear();
+        mCache.getLabel(mPm, PACKAGE, UID);
+
+        verify(mPm, times(2)).getApplicationInfoAsUser(eq(PACKAGE), anyInt(), anyInt());
+    }
+
+    private void installPackage(String pkgName, String label) throws Exception {
+        final ApplicationInfo info = new ApplicationInfo();
+        info.packageName = pkgName;
+        when(mPm.getApplicationInfoAsUser(eq(pkgName), anyInt(), anyInt())).thenReturn(info);
+        when(mPm.getApplicationLabel(info)).thenReturn(label);
+        final Drawable icon = new ColorDrawable();
+        when(mPm.getApplicationIcon(info)).thenReturn(icon);
+        when(mPm.getUserBadgedIcon(eq(icon), any())).thenReturn(icon);
+    }
+}
@@ -141,6 +141,10 @@ public class ZenModeAddBypassingAppsPreferenceControllerTest {
                 ZenModeAddBypassingAppsPreferenceController.getKey(
                         appWithChannelsNoneBypassing.info.packageName,
                         appWithChannelsNoneBypassing.info.uid));
+
+        // AND the channel states of all apps are loaded at once
+        verify(mBackend).loadChannelStates(Arrays.asList(appWithBypassingChannels.info,
+                appWithoutChannels.info, appWithChannelsNoneBypassing.info));
     }
 
     @Test
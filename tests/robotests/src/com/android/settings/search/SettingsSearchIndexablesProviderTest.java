@@ -5,6 +5,8 @@ import static com.android.settingslib.drawer.TileUtils.META_DATA_PREFERENCE_TITL
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
@@ -27,7 +29,9 @@ import com.android.settings.testutils.FakeFeatureFactory;
 import com.android.settingslib.drawer.ActivityTile;
 import com.android.settingslib.drawer.CategoryKey;
 import com.android.settingslib.drawer.DashboardCategory;
+import com.android.settingslib.search.Indexable;
 import com.android.settingslib.search.SearchIndexableData;
+import com.android.settingslib.search.SearchIndexableRaw;
 
 import org.junit.After;
 import org.junit.Before;
@@ -41,9 +45,12 @@ import org.robolectric.annotation.Implementation;
 import org.robolectric.annotation.Implements;
 import org.robolectric.annotation.Resetter;
 
+import java.io.PrintWriter;
+import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(shadows = SettingsSearchIndexablesProviderTest.ShadowCategoryManager.class)
@@ -221,6 +228,95 @@ public class SettingsSearchIndexablesProviderTest {
         assertThat(mProvider.isEligibleForIndexing(PACKAGE_NAME, activityTile)).isFalse();
     }
 
+    @Test
+    public void queryDynamicRawData_providerFailed_shouldReturnLastResult() {
+        final Indexable.SearchIndexProvider provider = mock(Indexable.SearchIndexProvider.class);
+        final SearchIndexableRaw raw = new SearchIndexableRaw(mContext);
+        raw.key = "dynamic_key";
+        when(provider.getDynamicRawDataToIndex(any(Context.class), anyBoolean()))
+                .thenReturn(new ArrayList<>(Arrays.asList(raw)))
+                .thenThrow(new IllegalStateException());
+        mFakeFeatureFactory.searchFeatureProvider.getSearchIndexableResources().getProviderValues()
+                .clear();
+        mFakeFeatureFactory.searchFeatureProvider.getSearchIndexableResources().getProviderValues()
+                .add(new SearchIndexableData(FakeSettingsFragment.class, provider));
+
+        assertThat(getRawKeys(mProvider.queryDynamicRawData(null))).contains("dynamic_key");
+        assertThat(getRawKeys(mProvider.queryDynamicRawData(null))).contains("dynamic_key");
+    }
+
+    @Test
+    public void queryDynamicRawData_providerTimedOut_shouldReturnLastResult() {
+        final CountDownLatch release = new CountDownLatch(1);
+        final SearchIndexableRaw raw = new SearchIndexableRaw(mContext);
+        raw.key = "dynamic_key";
+        final Indexable.SearchIndexProvider provider = mock(Indexable.SearchIndexProvider.class);
+        when(provider.getDynamicRawDataToIndex(any(Context.class), anyBoolean()))
+                .thenReturn(new ArrayList<>(Arrays.asList(raw)))
+                .thenAnswer(invocation -> {
+                    release.await();
+                    return new ArrayList<>();
+                });
+        setDynamicRawDataProvider(provider);
+
+        try {
+            assertThat(getRawKeys(mProvider.queryDynamicRawData(null))).contains("dynamic_key");
+            assertThat(getRawKeys(mProvider.queryDynamicRawData(null))).contains("dynamic_key");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    public void queryDynamicRawData_slowProviderWithoutLastResult_shouldNotWaitForIt() {
+        final CountDownLatch release = new CountDownLatch(1);
+        final SearchIndexableRaw raw = new SearchIndexableRaw(mContext);
+        raw.key = "dynamic_key";
+        final Indexable.SearchIndexProvider provider = mock(Indexable.SearchIndexProvider.class);
+        when(provider.getDynamicRawDataToIndex(any(Context.class), anyBoolean()))
+                .thenAnswer(invocation -> {
+                    release.await();
+                    return new ArrayList<>(Arrays.asList(raw));
+                });
+        setDynamicRawDataProvider(provider);
+
+        assertThat(getRawKeys(mProvider.queryDynamicRawData(null))).doesNotContain("dynamic_key");
+
+        release.countDown();
+        assertThat(getRawKeys(mProvider.queryDynamicRawData(null))).contains("dynamic_key");
+    }
+
+    @Test
+    public void dump_shouldPrintDynamicRawDataTimings() {
+        final Indexable.SearchIndexProvider provider = mock(Indexable.SearchIndexProvider.class);
+        when(provider.getDynamicRawDataToIndex(any(Context.class), anyBoolean()))
+                .thenReturn(new ArrayList<>());
+        setDynamicRawDataProvider(provider);
+        mProvider.queryDynamicRawData(null);
+
+        final StringWriter stringWriter = new StringWriter();
+        mProvider.dump(null, new PrintWriter(stringWriter), null);
+
+        assertThat(stringWriter.toString()).contains(FakeSettingsFragment.class.getName()
+                + ": last ");
+    }
+
+    private void setDynamicRawDataProvider(Indexable.SearchIndexProvider provider) {
+        mFakeFeatureFactory.searchFeatureProvider.getSearchIndexableResources().getProviderValues()
+                .clear();
+        mFakeFeatureFactory.searchFeatureProvider.getSearchIndexableResources().getProviderValues()
+                .add(new SearchIndexableData(FakeSettingsFragment.class, provider));
+    }
+
+    private static List<String> getRawKeys(Cursor cursor) {
+        final List<String> keys = new ArrayList<>();
+        while (cursor.moveToNext()) {
+            keys.add(cursor.getString(SearchIndexablesContract.COLUMN_INDEX_RAW_KEY));
+        }
+        cursor.close();
+        return keys;
+    }
+
     @Implements(CategoryManager.class)
     public static class ShadowCategoryManager {
 
@@ -32,6 +32,7 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -40,6 +41,7 @@ import android.app.slice.SliceManager;
 import android.content.ContentResolver;
 import android.content.Context;
 import android.content.Intent;
+import android.content.IntentFilter;
 import android.content.res.Resources.Theme;
 import android.net.Uri;
 import android.os.StrictMode;
@@ -80,6 +82,7 @@ import org.robolectric.shadow.api.Shadow;
 import org.robolectric.shadows.ShadowAccessibilityManager;
 import org.robolectric.shadows.ShadowBinder;
 import org.robolectric.shadows.ShadowPackageManager;
+import org.robolectric.util.ReflectionHelpers;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -88,6 +91,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 /**
@@ -148,7 +152,7 @@ public class SettingsSliceProviderTest {
 
         mProvider = spy(new SettingsSliceProvider());
         ShadowStrictMode.reset();
-        mProvider.mSliceWeakDataCache = new HashMap<>();
+        mProvider.mSliceDataCache = new HashMap<>();
         mProvider.mSlicesDatabaseAccessor = new SlicesDatabaseAccessor(mContext);
         when(mProvider.getContext()).thenReturn(mContext);
 
@@ -184,7 +188,7 @@ public class SettingsSliceProviderTest {
         SliceTestUtils.insertSliceToDb(mContext, KEY);
 
         mProvider.loadSlice(INTENT_SLICE_URI);
-        SliceData data = mProvider.mSliceWeakDataCache.get(INTENT_SLICE_URI);
+        SliceData data = mProvider.mSliceDataCache.get(INTENT_SLICE_URI);
 
         assertThat(data.getKey()).isEqualTo(KEY);
         assertThat(data.getTitle()).isEqualTo(SliceTestUtils.FAKE_TITLE);
@@ -214,15 +218,89 @@ public class SettingsSliceProviderTest {
     }
 
     @Test
-    public void testLoadSlice_cachedEntryRemovedOnUnpinned() {
+    public void testLoadSlice_cachedEntryKeptOnUnpinned() {
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onSliceUnpinned(data.getUri());
-        SliceTestUtils.insertSliceToDb(mContext, data.getKey());
 
-        SliceData cachedData = mProvider.mSliceWeakDataCache.get(data.getUri());
+        SliceData cachedData = mProvider.mSliceDataCache.get(data.getUri());
 
-        assertThat(cachedData).isNull();
+        assertThat(cachedData).isEqualTo(data);
+    }
+
+    @Test
+    public void loadSlice_pinnedAgainFromCache_registersIntentFilterAgain() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+        mProvider.loadSlice(INTENT_SLICE_URI);
+        mProvider.onSliceUnpinned(INTENT_SLICE_URI);
+        DatabaseTestUtils.clearDb(mContext);
+
+        mProvider.loadSlice(INTENT_SLICE_URI);
+
+        verify(mProvider, times(2))
+                .registerIntentToUri(eq(FakeToggleController.INTENT_FILTER), eq(INTENT_SLICE_URI));
+    }
+
+    @Test
+    public void loadSlice_alreadyRegistered_doesNotRegisterAgain() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+        mProvider.loadSlice(INTENT_SLICE_URI);
+
+        mProvider.loadSlice(INTENT_SLICE_URI);
+
+        verify(mProvider, times(1))
+                .registerIntentToUri(eq(FakeToggleController.INTENT_FILTER), eq(INTENT_SLICE_URI));
+    }
+
+    @Test
+    public void prewarmSliceData_cachesSliceDataWithoutRegistering() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+
+        mProvider.prewarmSliceData(Arrays.asList(INTENT_SLICE_URI, URI));
+
+        assertThat(mProvider.mSliceDataCache.get(INTENT_SLICE_URI).getKey()).isEqualTo(KEY);
+        assertThat(mProvider.mSliceDataCache.containsKey(URI)).isFalse();
+        verify(mProvider, never()).registerIntentToUri(any(IntentFilter.class), any(Uri.class));
+    }
+
+    @Test
+    public void prewarmSliceData_cacheNearlyFullOfPinnedSlices_shouldSkip() {
+        SliceTestUtils.insertSliceToDb(mContext, KEY);
+        final Set<Uri> registeredUris = ReflectionHelpers.getField(mProvider, "mRegisteredUris");
+        for (int i = 0; i <= SettingsSliceProvider.SLICE_DATA_CACHE_SIZE
+                - SettingsSliceProvider.MIN_PREWARM_CACHE_ROOM; i++) {
+            registeredUris.add(Uri.parse("content://com.android.settings.slices/pinned" + i));
+        }
+
+        mProvider.prewarmSliceData(Arrays.asList(INTENT_SLICE_URI));
+
+        assertThat(mProvider.mSliceDataCache.containsKey(INTENT_SLICE_URI)).isFalse();
+    }
+
+    @Test
+    public void validateSliceDataCache_localeChanged_shouldClearCache() {
+        final Locale defaultLocale = Locale.getDefault();
+        final SliceData data = getMockData();
+        mProvider.mSliceDataCache.put(data.getUri(), data);
+        try {
+            Locale.setDefault(Locale.FRANCE.equals(defaultLocale) ? Locale.US : Locale.FRANCE);
+
+            mProvider.validateSliceDataCache();
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+
+        assertThat(mProvider.mSliceDataCache).isEmpty();
+    }
+
+    @Test
+    public void validateSliceDataCache_sameLocaleAndIndex_shouldKeepCache() {
+        final SliceData data = getMockData();
+        mProvider.mSliceDataCache.put(data.getUri(), data);
+
+        mProvider.validateSliceDataCache();
+
+        assertThat(mProvider.mSliceDataCache).containsKey(data.getUri());
     }
 
     @Test
@@ -230,7 +308,7 @@ public class SettingsSliceProviderTest {
         ShadowThreadUtils.setIsMainThread(true);
         final StrictMode.ThreadPolicy oldThreadPolicy = StrictMode.getThreadPolicy();
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         final StrictMode.ThreadPolicy newThreadPolicy = StrictMode.getThreadPolicy();
@@ -244,7 +322,7 @@ public class SettingsSliceProviderTest {
         ShadowThreadUtils.setIsMainThread(false);
 
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         assertThat(ShadowStrictMode.isThreadPolicyOverridden()).isTrue();
@@ -272,7 +350,7 @@ public class SettingsSliceProviderTest {
     public void onBindSlice_nightModeChanged_shouldReloadTheme() {
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
         final SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_YES;
@@ -285,7 +363,7 @@ public class SettingsSliceProviderTest {
     public void onBindSlice_nightModeNotChanged_shouldNotReloadTheme() {
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
         SliceData data = getMockData();
-        mProvider.mSliceWeakDataCache.put(data.getUri(), data);
+        mProvider.mSliceDataCache.put(data.getUri(), data);
         mProvider.onBindSlice(data.getUri());
 
         mContext.getResources().getConfiguration().uiMode = UI_MODE_NIGHT_NO;
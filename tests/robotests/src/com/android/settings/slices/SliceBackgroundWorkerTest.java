@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.slices;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.net.Uri;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class SliceBackgroundWorkerTest {
+
+    private static final Uri URI = Uri.parse("content://com.android.settings.slices/test");
+
+    private TestWorker mWorker;
+
+    @Before
+    public void setUp() {
+        mWorker = new TestWorker(RuntimeEnvironment.application, URI);
+    }
+
+    @Test
+    public void onSliceBound_slowHost_shouldIncreaseThrottleInterval() {
+        mWorker.onNotified(1000L);
+        mWorker.onSliceBound(1000L + SliceBackgroundWorker.MAX_SLICE_UPDATE_THROTTLE_INTERVAL);
+
+        assertThat(mWorker.getThrottleInterval())
+                .isEqualTo(SliceBackgroundWorker.MAX_SLICE_UPDATE_THROTTLE_INTERVAL);
+    }
+
+    @Test
+    public void onSliceBound_withoutNotifiedChange_shouldKeepThrottleInterval() {
+        final long interval = mWorker.getThrottleInterval();
+
+        mWorker.onSliceBound(5000L);
+
+        assertThat(mWorker.getThrottleInterval()).isEqualTo(interval);
+    }
+
+    private static class TestWorker extends SliceBackgroundWorker<String> {
+
+        TestWorker(Context context, Uri uri) {
+            super(context, uri);
+        }
+
+        @Override
+        protected void onSlicePinned() {
+        }
+
+        @Override
+        protected void onSliceUnpinned() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
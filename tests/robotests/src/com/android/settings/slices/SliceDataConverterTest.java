@@ -19,9 +19,11 @@ package com.android.settings.slices;
 import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
 
 import android.accessibilityservice.AccessibilityServiceInfo;
 import android.content.Context;
@@ -37,6 +39,7 @@ import com.android.settings.search.SearchFeatureProvider;
 import com.android.settings.search.SearchFeatureProviderImpl;
 import com.android.settings.testutils.FakeFeatureFactory;
 import com.android.settings.testutils.FakeIndexProvider;
+import com.android.settingslib.search.Indexable.SearchIndexProvider;
 import com.android.settingslib.search.SearchIndexableData;
 
 import org.junit.After;
@@ -116,6 +119,18 @@ public class SliceDataConverterTest {
         }
     }
 
+    @Test(expected = IllegalStateException.class)
+    public void getSliceData_providerThrows_shouldRethrow() {
+        final SearchIndexProvider provider = mock(SearchIndexProvider.class);
+        when(provider.getXmlResourcesToIndex(any(Context.class), anyBoolean()))
+                .thenThrow(new IllegalStateException());
+        mSearchFeatureProvider.getSearchIndexableResources().getProviderValues().clear();
+        mSearchFeatureProvider.getSearchIndexableResources().getProviderValues()
+                .add(new SearchIndexableData(FakeIndexProvider.class, provider));
+
+        mSliceDataConverter.getSliceData();
+    }
+
     private void assertFakeSlice(SliceData fakeSlice) {
         assertThat(fakeSlice.getKey()).isEqualTo(FAKE_KEY);
         assertThat(fakeSlice.getTitle()).isEqualTo(FAKE_TITLE);
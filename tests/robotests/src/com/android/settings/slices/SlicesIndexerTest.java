@@ -18,9 +18,13 @@ package com.android.settings.slices;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
+import android.app.settings.SettingsEnums;
 import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
@@ -29,6 +33,7 @@ import android.net.Uri;
 
 import com.android.settings.slices.SlicesDatabaseHelper.IndexColumns;
 import com.android.settings.testutils.DatabaseTestUtils;
+import com.android.settings.testutils.FakeFeatureFactory;
 
 import org.junit.After;
 import org.junit.Before;
@@ -60,11 +65,13 @@ public class SlicesIndexerTest {
     private Context mContext;
 
     private SlicesIndexer mManager;
+    private FakeFeatureFactory mFakeFeatureFactory;
 
 
     @Before
     public void setUp() {
         mContext = RuntimeEnvironment.application;
+        mFakeFeatureFactory = FakeFeatureFactory.setupForTest();
         mManager = spy(new SlicesIndexer(mContext));
     }
 
@@ -107,6 +114,19 @@ public class SlicesIndexerTest {
         assertThat(helper.isSliceDataIndexed()).isTrue();
     }
 
+    @Test
+    public void indexSliceData_shouldLogIndexingTime() {
+        doReturn(new ArrayList<SliceData>()).when(mManager).getSliceData();
+
+        mManager.run();
+
+        verify(mFakeFeatureFactory.metricsFeatureProvider).action(eq(SettingsEnums.SLICE),
+                eq(SettingsEnums.ACTION_SETTINGS_SLICE_REQUESTED),
+                eq(SettingsEnums.PAGE_UNKNOWN),
+                eq(SlicesIndexer.METRIC_KEY_INDEXING_TIME),
+                anyInt());
+    }
+
     @Test
     @Ignore
     public void testInsertSliceData_nonPublicSlice_mockDataInserted() {
@@ -32,7 +32,6 @@ import androidx.room.Room;
 import com.android.settings.DisplaySettings;
 import com.android.settings.display.ScreenTimeoutSettings;
 import com.android.settings.fuelgauge.batteryusage.BatteryInformation;
-import com.android.settings.fuelgauge.batteryusage.ConvertUtils;
 import com.android.settings.fuelgauge.batteryusage.DeviceBatteryState;
 import com.android.settings.fuelgauge.batteryusage.PowerAnomalyEvent;
 import com.android.settings.fuelgauge.batteryusage.PowerAnomalyEventList;
@@ -151,7 +150,16 @@ public class BatteryTestUtils {
                         timestamp,
                         /*consumerType=*/ 2,
                         isFullChargeStart,
-                        ConvertUtils.convertBatteryInformationToString(batteryInformation),
+                        batteryInformation.getConsumePower(),
+                        batteryInformation.getForegroundUsageConsumePower(),
+                        batteryInformation.getForegroundServiceUsageConsumePower(),
+                        batteryInformation.getBackgroundUsageConsumePower(),
+                        batteryInformation.getCachedUsageConsumePower(),
+                        batteryInformation.getForegroundUsageTimeInMs(),
+                        batteryInformation.getBackgroundUsageTimeInMs(),
+                        batteryInformation.getDrainType(),
+                        batteryInformation.getDeviceBatteryState().getBatteryLevel(),
+                        batteryInformation.toByteArray(),
                         "");
         BatteryStateDao dao =
                 BatteryStateDatabase.getInstance(context).batteryStateDao();
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.users;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.shadows.ShadowLooper;
+
+@RunWith(RobolectricTestRunner.class)
+public class UserAvatarCacheTest {
+
+    private static final int USER_ID = 10;
+    private static final int SIZE = 40;
+
+    private Context mContext;
+    private UserAvatarCache mCache;
+
+    @Before
+    public void setUp() {
+        mContext = RuntimeEnvironment.application;
+        mCache = new UserAvatarCache();
+        mCache.put(USER_ID, Bitmap.createBitmap(100, 100, Bitmap.Config.ARGB_8888));
+    }
+
+    @Test
+    public void getEncircled_sameSize_shouldReuseBitmap() {
+        final BitmapDrawable first =
+                (BitmapDrawable) mCache.getEncircled(mContext.getResources(), USER_ID, SIZE);
+        final BitmapDrawable second =
+                (BitmapDrawable) mCache.getEncircled(mContext.getResources(), USER_ID, SIZE);
+
+        assertThat(first).isNotSameInstanceAs(second);
+        assertThat(first.getBitmap()).isSameInstanceAs(second.getBitmap());
+        assertThat(first.getBitmap().getWidth()).isEqualTo(SIZE);
+    }
+
+    @Test
+    public void getEncircled_notCached_shouldReturnNull() {
+        assertThat(mCache.getEncircled(mContext.getResources(), USER_ID + 1, SIZE)).isNull();
+    }
+
+    @Test
+    public void userInfoChanged_shouldDropAvatar() {
+        mCache.startListening(mContext);
+
+        mContext.sendBroadcast(new Intent(Intent.ACTION_USER_INFO_CHANGED)
+                .putExtra(Intent.EXTRA_USER_HANDLE, USER_ID));
+        ShadowLooper.idleMainLooper();
+
+        assertThat(mCache.get(USER_ID)).isNull();
+    }
+}
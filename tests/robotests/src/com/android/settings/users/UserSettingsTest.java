@@ -192,6 +192,7 @@ public class UserSettingsTest {
         mFragment.mGuestCategory = mock(PreferenceCategory.class);
         mFragment.mGuestResetPreference = mock(Preference.class);
         mFragment.mGuestExitPreference = mock(Preference.class);
+        mFragment.mUserIcons = new UserAvatarCache();
     }
 
     @After
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+@RunWith(RobolectricTestRunner.class)
+public class QrCodeRejectionFilterTest {
+
+    private static final String QR_CODE = "WIFI:S:ssid;;";
+
+    private long mNow;
+    private QrCodeRejectionFilter mFilter;
+
+    @Before
+    public void setUp() {
+        mNow = 1000L;
+        mFilter = new QrCodeRejectionFilter(() -> mNow);
+    }
+
+    @Test
+    public void isRecentlyRejected_notRejected_returnFalse() {
+        assertThat(mFilter.isRecentlyRejected(QR_CODE)).isFalse();
+    }
+
+    @Test
+    public void isRecentlyRejected_sameCodeRejected_returnTrue() {
+        mFilter.onRejected(QR_CODE);
+        mNow += QrCodeRejectionFilter.REJECTION_TIMEOUT_MS - 1;
+
+        assertThat(mFilter.isRecentlyRejected(QR_CODE)).isTrue();
+    }
+
+    @Test
+    public void isRecentlyRejected_otherCodeRejected_returnFalse() {
+        mFilter.onRejected("other");
+
+        assertThat(mFilter.isRecentlyRejected(QR_CODE)).isFalse();
+    }
+
+    @Test
+    public void isRecentlyRejected_rejectionTimedOut_returnFalse() {
+        mFilter.onRejected(QR_CODE);
+        mNow += QrCodeRejectionFilter.REJECTION_TIMEOUT_MS;
+
+        assertThat(mFilter.isRecentlyRejected(QR_CODE)).isFalse();
+    }
+}
@@ -19,6 +19,7 @@ import static com.google.common.truth.Truth.assertThat;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
@@ -157,6 +158,20 @@ public class WifiEntryPreferenceTest {
         assertThat(mPref.getSummary().toString()).isEqualTo(updatedSummary);
     }
 
+    @Test
+    public void setWifiEntry_shouldMoveListenerAndRefresh() {
+        final String updatedTitle = "updated title";
+        final WifiEntry newWifiEntry = mock(WifiEntry.class);
+        when(newWifiEntry.getTitle()).thenReturn(updatedTitle);
+
+        mPref.setWifiEntry(newWifiEntry);
+
+        assertThat(mPref.getWifiEntry()).isEqualTo(newWifiEntry);
+        assertThat(mPref.getTitle().toString()).isEqualTo(updatedTitle);
+        verify(mMockWifiEntry).setListener(null);
+        verify(newWifiEntry).setListener(mPref);
+    }
+
     @Test
     public void levelChanged_refresh_shouldUpdateLevelIcon() {
         final List<Drawable> iconList = new ArrayList<>();
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2024 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.settings.dashboard;
+
+import static com.android.settingslib.drawer.CategoryKey.CATEGORY_HOMEPAGE;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+import android.content.Context;
+import android.content.pm.ActivityInfo;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.ChangedPackages;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.android.settingslib.drawer.ActivityTile;
+import com.android.settingslib.drawer.DashboardCategory;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+@RunWith(AndroidJUnit4.class)
+public class CategorySnapshotTest {
+
+    private static final int SEQUENCE_NUMBER = 7;
+    private static final String FINGERPRINT = "fingerprint";
+    private static final int BOOT_COUNT = 3;
+
+    private Context mContext;
+
+    @Mock
+    private PackageManager mPackageManager;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        mContext = spy(ApplicationProvider.getApplicationContext());
+        when(mContext.getPackageManager()).thenReturn(mPackageManager);
+        when(mPackageManager.getChangedPackages(anyInt())).thenReturn(null);
+    }
+
+    @After
+    public void tearDown() {
+        getFile().delete();
+    }
+
+    @Test
+    public void read_noSnapshot_returnNull() {
+        assertThat(readSnapshot()).isNull();
+    }
+
+    @Test
+    public void read_sameState_returnWrittenCategories() {
+        writeSnapshot(SEQUENCE_NUMBER, FINGERPRINT, BOOT_COUNT);
+
+        final CategorySnapshot snapshot = readSnapshot();
+
+        assertThat(snapshot).isNotNull();
+        final List<DashboardCategory> categories = snapshot.getCategories();
+        assertThat(categories).hasSize(1);
+        assertThat(categories.get(0).key).isEqualTo(CATEGORY_HOMEPAGE);
+        assertThat(categories.get(0).getTilesCount()).isEqualTo(1);
+        assertThat(categories.get(0).getTile(0).getIntent().getComponent().getClassName())
+                .isEqualTo("class");
+        assertThat(snapshot.isSameState(new CategorySnapshot(SEQUENCE_NUMBER, FINGERPRINT,
+                BOOT_COUNT, false /* safetyCenterEnabled */))).isTrue();
+    }
+
+    @Test
+    public void read_bootCountChanged_returnNull() {
+        writeSnapshot(SEQUENCE_NUMBER, FINGERPRINT, BOOT_COUNT - 1);
+
+        assertThat(readSnapshot()).isNull();
+    }
+
+    @Test
+    public void read_fingerprintChanged_returnNull() {
+        writeSnapshot(SEQUENCE_NUMBER, "old_fingerprint", BOOT_COUNT);
+
+        assertThat(readSnapshot()).isNull();
+    }
+
+    @Test
+    public void read_safetyCenterChanged_returnNull() {
+        writeSnapshot(SEQUENCE_NUMBER, FINGERPRINT, BOOT_COUNT);
+
+        assertThat(CategorySnapshot.read(mContext, FINGERPRINT, BOOT_COUNT,
+                true /* safetyCenterEnabled */)).isNull();
+    }
+
+    @Test
+    public void read_packagesChanged_returnNull() {
+        writeSnapshot(SEQUENCE_NUMBER, FINGERPRINT, BOOT_COUNT);
+        when(mPackageManager.getChangedPackages(SEQUENCE_NUMBER)).thenReturn(
+                new ChangedPackages(SEQUENCE_NUMBER + 1, Collections.singletonList("pkg")));
+
+        assertThat(readSnapshot()).isNull();
+    }
+
+    @Test
+    public void read_corruptFile_returnNullAndDeleteFile() {
+        CategorySnapshot.write(mContext, new byte[] {1, 2, 3});
+
+        assertThat(readSnapshot()).isNull();
+        assertThat(getFile().exists()).isFalse();
+    }
+
+    @Test
+    public void isSameState_sequenceNumberChanged_returnFalse() {
+        final CategorySnapshot snapshot = new CategorySnapshot(SEQUENCE_NUMBER, FINGERPRINT,
+                BOOT_COUNT, false /* safetyCenterEnabled */);
+
+        assertThat(snapshot.isSameState(new CategorySnapshot(SEQUENCE_NUMBER + 1, FINGERPRINT,
+                BOOT_COUNT, false /* safetyCenterEnabled */))).isFalse();
+        assertThat(snapshot.isSameState(null)).isFalse();
+    }
+
+    private void writeSnapshot(int sequenceNumber, String fingerprint, int bootCount) {
+        final ActivityInfo activityInfo = new ActivityInfo();
+        activityInfo.packageName = "pkg";
+        activityInfo.name = "class";
+        activityInfo.metaData = new Bundle();
+        activityInfo.applicationInfo = new ApplicationInfo();
+        final DashboardCategory category = new DashboardCategory(CATEGORY_HOMEPAGE);
+        category.addTile(new ActivityTile(activityInfo, CATEGORY_HOMEPAGE));
+
+        final CategorySnapshot snapshot = new CategorySnapshot(sequenceNumber, fingerprint,
+                bootCount, false /* safetyCenterEnabled */);
+        CategorySnapshot.write(mContext, snapshot.marshall(Collections.singletonList(category)));
+    }
+
+    private CategorySnapshot readSnapshot() {
+        return CategorySnapshot.read(mContext, FINGERPRINT, BOOT_COUNT,
+                false /* safetyCenterEnabled */);
+    }
+
+    private File getFile() {
+        return new File(mContext.getNoBackupFilesDir(), "dashboard_categories");
+    }
+}
@@ -27,14 +27,24 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
+import android.content.ContentResolver;
 import android.content.Context;
 import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.content.pm.PackageManager.NameNotFoundException;
 import android.content.pm.UserInfo;
 import android.content.res.Resources;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
 import android.os.UserHandle;
 import android.os.UserManager;
+import android.provider.MediaStore;
+import android.provider.MediaStore.Files.FileColumns;
+import android.test.mock.MockContentProvider;
+import android.test.mock.MockContentResolver;
 import android.util.DataUnit;
 import android.util.SparseArray;
 
@@ -63,6 +73,8 @@ public class StorageAsyncLoaderTest {
     private static final String PACKAGE_NAME_2 = "com.blah.test2";
     private static final String PACKAGE_NAME_3 = "com.blah.test3";
     private static final long DEFAULT_QUOTA = DataUnit.MEBIBYTES.toBytes(64);
+    private static final String MEDIA_STORE_VERSION = "version";
+    private static final long MEDIA_STORE_GENERATION = 42L;
 
     @Mock
     private StorageStatsSource mSource;
@@ -94,6 +106,8 @@ public class StorageAsyncLoaderTest {
         when(mContext.getResources()).thenReturn(resources);
         doReturn("content://com.android.providers.media.documents/root/videos_root")
                 .when(resources).getString(R.string.config_videos_storage_category_uri);
+        mContext.getSharedPreferences("StorageMediaCache" + PRIMARY_USER_ID,
+                Context.MODE_PRIVATE).edit().clear().commit();
     }
 
     @Test
@@ -208,6 +222,81 @@ public class StorageAsyncLoaderTest {
         assertThat(result.get(PRIMARY_USER_ID).allAppsExceptGamesSize).isEqualTo(33L);
     }
 
+    @Test
+    public void testFilesSizeFromGroupedQuery() throws Exception {
+        final FakeMediaProvider provider = new FakeMediaProvider();
+        final StorageAsyncLoader loader = createMediaLoader(provider);
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = loader.loadInBackground();
+
+        final StorageAsyncLoader.StorageResult userResult = result.get(PRIMARY_USER_ID);
+        assertThat(userResult.imagesSize).isEqualTo(1L);
+        assertThat(userResult.videosSize).isEqualTo(2L);
+        assertThat(userResult.audioSize).isEqualTo(3L);
+        assertThat(userResult.documentsAndOtherSize).isEqualTo(4L + 5L);
+        assertThat(userResult.trashSize).isEqualTo(6L);
+        assertThat(provider.mGroupedQueryCount).isEqualTo(1);
+    }
+
+    @Test
+    public void testFilesSizeFallsBackWhenGroupedQueryNotSupported() throws Exception {
+        final FakeMediaProvider provider = new FakeMediaProvider();
+        provider.mGroupBySupported = false;
+        final StorageAsyncLoader loader = createMediaLoader(provider);
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = loader.loadInBackground();
+
+        final StorageAsyncLoader.StorageResult userResult = result.get(PRIMARY_USER_ID);
+        assertThat(userResult.imagesSize).isEqualTo(10L);
+        assertThat(userResult.videosSize).isEqualTo(20L);
+        assertThat(userResult.audioSize).isEqualTo(30L);
+        assertThat(userResult.documentsAndOtherSize).isEqualTo(40L);
+        assertThat(userResult.trashSize).isEqualTo(6L);
+    }
+
+    @Test
+    public void testFilesSizeReusedWhileMediaStoreUnchanged() throws Exception {
+        final FakeMediaProvider provider = new FakeMediaProvider();
+        final StorageAsyncLoader loader = createMediaLoader(provider);
+        loader.loadInBackground();
+        provider.mGroupBySupported = false;
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = loader.loadInBackground();
+
+        assertThat(result.get(PRIMARY_USER_ID).imagesSize).isEqualTo(1L);
+        assertThat(provider.mGroupedQueryCount).isEqualTo(1);
+    }
+
+    @Test
+    public void testFilesSizeScannedAgainWhenRowsDeleted() throws Exception {
+        final FakeMediaProvider provider = new FakeMediaProvider();
+        final StorageAsyncLoader loader = createMediaLoader(provider);
+        loader.loadInBackground();
+        provider.mGroupBySupported = false;
+        provider.mRowCount--;
+
+        SparseArray<StorageAsyncLoader.StorageResult> result = loader.loadInBackground();
+
+        assertThat(result.get(PRIMARY_USER_ID).imagesSize).isEqualTo(10L);
+    }
+
+    private StorageAsyncLoader createMediaLoader(FakeMediaProvider provider) throws Exception {
+        final MockContentResolver resolver = new MockContentResolver();
+        resolver.addProvider(MediaStore.AUTHORITY, provider);
+        final Context perUserContext = mock(Context.class);
+        when(perUserContext.getContentResolver()).thenReturn(resolver);
+        // The loader keeps the application context.
+        when(mContext.getApplicationContext()).thenReturn(mContext);
+        doReturn(perUserContext).when(mContext)
+                .createPackageContextAsUser(anyString(), anyInt(), any(UserHandle.class));
+
+        final StorageAsyncLoader loader = spy(new StorageAsyncLoader(mContext, mUserManager,
+                "id", mSource, mPackageManager));
+        doReturn(MEDIA_STORE_VERSION).when(loader).getMediaStoreVersion(perUserContext);
+        doReturn(MEDIA_STORE_GENERATION).when(loader).getMediaStoreGeneration(perUserContext);
+        return loader;
+    }
+
     private ApplicationInfo addPackage(String packageName, long cacheSize, long codeSize,
             long dataSize, int category) throws Exception {
         StorageStatsSource.AppStorageStats storageStats =
@@ -225,4 +314,49 @@ public class StorageAsyncLoaderTest {
         return info;
     }
 
+    private static class FakeMediaProvider extends MockContentProvider {
+        private boolean mGroupBySupported = true;
+        private long mRowCount = 100L;
+        private int mGroupedQueryCount;
+
+        @Override
+        public Cursor query(Uri uri, String[] projection, Bundle queryArgs,
+                CancellationSignal cancellationSignal) {
+            if ("count(*)".equals(projection[0])) {
+                return createCursor(projection, mRowCount);
+            }
+            if (queryArgs.containsKey(ContentResolver.QUERY_ARG_SQL_GROUP_BY)) {
+                mGroupedQueryCount++;
+                if (!mGroupBySupported) {
+                    throw new IllegalArgumentException("GROUP BY not supported");
+                }
+                final MatrixCursor cursor = new MatrixCursor(projection);
+                cursor.addRow(new Object[] {FileColumns.MEDIA_TYPE_IMAGE, 1L});
+                cursor.addRow(new Object[] {FileColumns.MEDIA_TYPE_VIDEO, 2L});
+                cursor.addRow(new Object[] {FileColumns.MEDIA_TYPE_AUDIO, 3L});
+                cursor.addRow(new Object[] {FileColumns.MEDIA_TYPE_NONE, 4L});
+                cursor.addRow(new Object[] {FileColumns.MEDIA_TYPE_DOCUMENT, 5L});
+                return cursor;
+            }
+            if (queryArgs.getInt(MediaStore.QUERY_ARG_MATCH_TRASHED) == MediaStore.MATCH_ONLY) {
+                return createCursor(projection, 6L);
+            }
+            if (MediaStore.Images.Media.EXTERNAL_CONTENT_URI.equals(uri)) {
+                return createCursor(projection, 10L);
+            }
+            if (MediaStore.Video.Media.EXTERNAL_CONTENT_URI.equals(uri)) {
+                return createCursor(projection, 20L);
+            }
+            if (MediaStore.Audio.Media.EXTERNAL_CONTENT_URI.equals(uri)) {
+                return createCursor(projection, 30L);
+            }
+            return createCursor(projection, 40L);
+        }
+
+        private static Cursor createCursor(String[] projection, long value) {
+            final MatrixCursor cursor = new MatrixCursor(projection);
+            cursor.addRow(new Object[] {value});
+            return cursor;
+        }
+    }
 }